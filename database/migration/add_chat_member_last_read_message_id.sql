@@ -0,0 +1,6 @@
+-- 聊天室成员已读位置
+-- 执行时间: 2025-11-24
+-- 描述: 已读回执在内存中合并为每个成员的最大已读消息ID，定期批量写入该字段
+
+ALTER TABLE `chat_room_members`
+  ADD COLUMN `last_read_message_id` bigint NULL DEFAULT NULL COMMENT '已读到的最大消息ID' AFTER `role`;
@@ -0,0 +1,14 @@
+-- 聊天记录分批清理进度表
+-- 执行时间: 2025-11-20
+-- 描述: 过期聊天记录改为按主键分批限速删除，记录清理断点以便进程重启后继续
+
+CREATE TABLE IF NOT EXISTS `chat_message_retention_checkpoints` (
+  `job_name` varchar(64) NOT NULL COMMENT '任务名称',
+  `cutoff_time` datetime NOT NULL COMMENT '本轮清理截止时间',
+  `last_deleted_id` bigint NOT NULL DEFAULT '0' COMMENT '已处理到的消息ID',
+  `deleted_count` bigint NOT NULL DEFAULT '0' COMMENT '本轮已删除行数',
+  `status` varchar(20) NOT NULL COMMENT '状态：RUNNING, COMPLETED',
+  `started_at` datetime NOT NULL COMMENT '本轮开始时间',
+  `updated_at` datetime NOT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`job_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='聊天记录清理进度表';
@@ -0,0 +1,14 @@
+-- 餐厅菜品评价汇总表
+-- 执行时间: 2025-11-26
+-- 描述: 商家评价概览（评价总数、平均分、好评/差评菜品）预先汇总到按餐厅ID存储的一行，
+--       菜品评价增删改提交后重建，概览接口只做主键查询；汇总行首次读取时自动生成，无需回填
+
+CREATE TABLE IF NOT EXISTS `restaurant_dish_review_summaries` (
+  `restaurant_id` bigint NOT NULL COMMENT '餐厅ID',
+  `total_reviews` int NOT NULL DEFAULT '0' COMMENT '菜品评价总数',
+  `rating_sum` int NOT NULL DEFAULT '0' COMMENT '菜品评价评分总和',
+  `top_rated_items` json DEFAULT NULL COMMENT '好评菜品列表',
+  `low_rated_items` json DEFAULT NULL COMMENT '差评菜品列表',
+  `updated_at` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后重建时间',
+  PRIMARY KEY (`restaurant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='餐厅菜品评价汇总表';
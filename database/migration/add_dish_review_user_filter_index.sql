@@ -0,0 +1,7 @@
+-- 用户菜品评价筛选索引
+-- 执行时间: 2025-11-26
+-- 描述: 用户在餐厅内的菜品评价列表按 user_id、restaurant_id、menu_item_id 在SQL中筛选后分页，
+--       联合索引直接定位到筛选结果，不再扫描用户的全部评价
+
+ALTER TABLE `dish_reviews`
+  ADD KEY `idx_user_restaurant_item` (`user_id`, `restaurant_id`, `menu_item_id`, `created_at`);
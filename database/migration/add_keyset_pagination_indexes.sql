@@ -0,0 +1,20 @@
+-- 游标分页索引
+-- 执行时间: 2025-11-26
+-- 描述: 列表接口的游标分页按 (排序键, id) 降序取下一页，为各列表增加 过滤列+排序键+id 的联合索引，
+--       翻页时直接从索引定位到游标位置，不再扫描和丢弃前面的记录
+
+ALTER TABLE `reviews`
+  ADD KEY `idx_restaurant_created` (`restaurant_id`, `created_at`, `id`);
+
+ALTER TABLE `dish_reviews`
+  ADD KEY `idx_menu_item_created` (`menu_item_id`, `created_at`, `id`);
+
+ALTER TABLE `user_follows`
+  ADD KEY `idx_follower_created` (`follower_id`, `created_at`, `id`),
+  ADD KEY `idx_following_created` (`following_id`, `created_at`, `id`);
+
+ALTER TABLE `user_favorite_foods`
+  ADD KEY `idx_user_created` (`user_id`, `created_at`, `id`);
+
+ALTER TABLE `user_recommendations`
+  ADD KEY `idx_user_score` (`user_id`, `recommendation_score`, `id`);
@@ -0,0 +1,78 @@
+-- 评分聚合字段
+-- 执行时间: 2025-11-26
+-- 描述: 餐厅、菜品、店员增加评分总和与1-5星分布计数，评价增删改时在同一事务内用相对UPDATE增量维护，
+--       平均分由 rating_sum / review_count 得出，不再每次对评价表做AVG/COUNT；
+--       执行时按评价表回填一次，同时修正此前写死的餐厅评分（4.5分/10条）
+
+ALTER TABLE `restaurants`
+  ADD COLUMN `rating_sum` int NOT NULL DEFAULT '0' COMMENT '评分总和' AFTER `review_count`,
+  ADD COLUMN `rating_1` int NOT NULL DEFAULT '0' COMMENT '1星评价数' AFTER `rating_sum`,
+  ADD COLUMN `rating_2` int NOT NULL DEFAULT '0' COMMENT '2星评价数' AFTER `rating_1`,
+  ADD COLUMN `rating_3` int NOT NULL DEFAULT '0' COMMENT '3星评价数' AFTER `rating_2`,
+  ADD COLUMN `rating_4` int NOT NULL DEFAULT '0' COMMENT '4星评价数' AFTER `rating_3`,
+  ADD COLUMN `rating_5` int NOT NULL DEFAULT '0' COMMENT '5星评价数' AFTER `rating_4`;
+
+ALTER TABLE `menu_items`
+  ADD COLUMN `rating_sum` int NOT NULL DEFAULT '0' COMMENT '评分总和' AFTER `review_count`,
+  ADD COLUMN `rating_1` int NOT NULL DEFAULT '0' COMMENT '1星评价数' AFTER `rating_sum`,
+  ADD COLUMN `rating_2` int NOT NULL DEFAULT '0' COMMENT '2星评价数' AFTER `rating_1`,
+  ADD COLUMN `rating_3` int NOT NULL DEFAULT '0' COMMENT '3星评价数' AFTER `rating_2`,
+  ADD COLUMN `rating_4` int NOT NULL DEFAULT '0' COMMENT '4星评价数' AFTER `rating_3`,
+  ADD COLUMN `rating_5` int NOT NULL DEFAULT '0' COMMENT '5星评价数' AFTER `rating_4`;
+
+-- 店员评分为小数，分布按四舍五入后的星级计数
+ALTER TABLE `staff`
+  ADD COLUMN `review_count` int NOT NULL DEFAULT '0' COMMENT '评价数量' AFTER `rating`,
+  ADD COLUMN `rating_sum` decimal(10,2) NOT NULL DEFAULT '0.00' COMMENT '评分总和' AFTER `review_count`,
+  ADD COLUMN `rating_1` int NOT NULL DEFAULT '0' COMMENT '1星评价数' AFTER `rating_sum`,
+  ADD COLUMN `rating_2` int NOT NULL DEFAULT '0' COMMENT '2星评价数' AFTER `rating_1`,
+  ADD COLUMN `rating_3` int NOT NULL DEFAULT '0' COMMENT '3星评价数' AFTER `rating_2`,
+  ADD COLUMN `rating_4` int NOT NULL DEFAULT '0' COMMENT '4星评价数' AFTER `rating_3`,
+  ADD COLUMN `rating_5` int NOT NULL DEFAULT '0' COMMENT '5星评价数' AFTER `rating_4`;
+
+-- 按评价表回填
+UPDATE `restaurants` r
+LEFT JOIN (
+  SELECT `restaurant_id`, COUNT(*) AS cnt, SUM(`rating`) AS total,
+         SUM(`rating` = 1) AS r1, SUM(`rating` = 2) AS r2, SUM(`rating` = 3) AS r3,
+         SUM(`rating` = 4) AS r4, SUM(`rating` = 5) AS r5
+  FROM `reviews` GROUP BY `restaurant_id`
+) a ON a.`restaurant_id` = r.`id`
+SET r.`review_count` = COALESCE(a.cnt, 0),
+    r.`rating_sum` = COALESCE(a.total, 0),
+    r.`rating_1` = COALESCE(a.r1, 0), r.`rating_2` = COALESCE(a.r2, 0), r.`rating_3` = COALESCE(a.r3, 0),
+    r.`rating_4` = COALESCE(a.r4, 0), r.`rating_5` = COALESCE(a.r5, 0),
+    r.`rating` = IF(COALESCE(a.cnt, 0) > 0, ROUND(a.total / a.cnt, 2), 0);
+
+UPDATE `menu_items` m
+LEFT JOIN (
+  SELECT `menu_item_id`, COUNT(*) AS cnt, SUM(`rating`) AS total,
+         SUM(`rating` = 1) AS r1, SUM(`rating` = 2) AS r2, SUM(`rating` = 3) AS r3,
+         SUM(`rating` = 4) AS r4, SUM(`rating` = 5) AS r5
+  FROM `dish_reviews` GROUP BY `menu_item_id`
+) a ON a.`menu_item_id` = m.`id`
+SET m.`review_count` = COALESCE(a.cnt, 0),
+    m.`rating_sum` = COALESCE(a.total, 0),
+    m.`rating_1` = COALESCE(a.r1, 0), m.`rating_2` = COALESCE(a.r2, 0), m.`rating_3` = COALESCE(a.r3, 0),
+    m.`rating_4` = COALESCE(a.r4, 0), m.`rating_5` = COALESCE(a.r5, 0),
+    m.`rating` = IF(COALESCE(a.cnt, 0) > 0, ROUND(a.total / a.cnt, 2), 0);
+
+UPDATE `staff` s
+LEFT JOIN (
+  SELECT `staff_id`, COUNT(*) AS cnt, SUM(`rating`) AS total,
+         SUM(ROUND(`rating`) = 1) AS r1, SUM(ROUND(`rating`) = 2) AS r2, SUM(ROUND(`rating`) = 3) AS r3,
+         SUM(ROUND(`rating`) = 4) AS r4, SUM(ROUND(`rating`) = 5) AS r5
+  FROM `staff_reviews` GROUP BY `staff_id`
+) a ON a.`staff_id` = s.`id`
+SET s.`review_count` = COALESCE(a.cnt, 0),
+    s.`rating_sum` = COALESCE(a.total, 0),
+    s.`rating_1` = COALESCE(a.r1, 0), s.`rating_2` = COALESCE(a.r2, 0), s.`rating_3` = COALESCE(a.r3, 0),
+    s.`rating_4` = COALESCE(a.r4, 0), s.`rating_5` = COALESCE(a.r5, 0),
+    s.`rating` = IF(COALESCE(a.cnt, 0) > 0, ROUND(a.total / a.cnt, 2), 0);
+
+-- 增量更新依赖非空计数
+ALTER TABLE `restaurants`
+  MODIFY COLUMN `review_count` int NOT NULL DEFAULT '0';
+
+ALTER TABLE `menu_items`
+  MODIFY COLUMN `review_count` int NOT NULL DEFAULT '0' COMMENT '评价数量';
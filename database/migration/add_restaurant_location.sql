@@ -0,0 +1,8 @@
+-- 餐厅经纬度
+-- 执行时间: 2025-11-25
+-- 描述: 餐厅增加经纬度，用于附近餐厅查询；未填写经纬度的餐厅不出现在附近结果中
+
+ALTER TABLE `restaurants`
+  ADD COLUMN `latitude` decimal(10,7) DEFAULT NULL COMMENT '纬度' AFTER `distance`,
+  ADD COLUMN `longitude` decimal(10,7) DEFAULT NULL COMMENT '经度' AFTER `latitude`,
+  ADD KEY `idx_location` (`latitude`, `longitude`);
@@ -0,0 +1,7 @@
+-- 用户评论列表索引
+-- 执行时间: 2025-11-26
+-- 描述: 用户评论列表先按 (user_id, created_at, id) 翻页评论ID再批量加载内容，
+--       联合索引覆盖分页查询，翻页时不需要回表和排序
+
+ALTER TABLE `reviews`
+  ADD KEY `idx_user_created` (`user_id`, `created_at`, `id`);
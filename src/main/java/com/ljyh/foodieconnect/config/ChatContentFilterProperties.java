@@ -0,0 +1,40 @@
+package com.ljyh.foodieconnect.config;
+
+import com.ljyh.foodieconnect.enums.ContentFilterAction;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天内容过滤配置类
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.chat.content-filter")
+public class ChatContentFilterProperties {
+
+    /**
+     * 是否启用内容过滤
+     */
+    private boolean enabled = true;
+
+    /**
+     * 关键词列表位置，支持classpath:和file:前缀；使用file:时修改文件后会自动重新加载
+     */
+    private String wordsLocation = "classpath:chat/filter-words.txt";
+
+    /**
+     * 关键词未指定动作时使用的默认动作
+     */
+    private ContentFilterAction defaultAction = ContentFilterAction.MASK;
+
+    /**
+     * 检查关键词列表是否修改的间隔（毫秒）
+     */
+    private long reloadIntervalMs = 30000;
+
+    /**
+     * 打码使用的字符
+     */
+    private char maskChar = '*';
+}
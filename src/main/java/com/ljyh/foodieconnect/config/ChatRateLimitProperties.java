@@ -0,0 +1,89 @@
+package com.ljyh.foodieconnect.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聊天发送限流配置类
+ * 按聊天室在线人数分档，人数越多每条消息的扇出成本越高，单个用户和整个聊天室的发送速率越低
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.chat.rate-limit")
+public class ChatRateLimitProperties {
+
+    /**
+     * 是否启用发送限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 按在线人数上限升序排列的分档，在线人数超过所有分档时使用最后一档
+     */
+    private List<Tier> tiers = new ArrayList<>(List.of(
+            new Tier(20, 2, 5, 20, 40),
+            new Tier(200, 1, 4, 30, 60),
+            new Tier(Integer.MAX_VALUE, 0.5, 3, 40, 80)));
+
+    /**
+     * 空闲限流桶的清理间隔（毫秒）
+     */
+    private long idleSweepIntervalMs = 60000;
+
+    /**
+     * 根据在线人数选择分档
+     */
+    public Tier tierFor(int onlineUsers) {
+        for (Tier tier : tiers) {
+            if (onlineUsers <= tier.getMaxOnlineUsers()) {
+                return tier;
+            }
+        }
+        return tiers.get(tiers.size() - 1);
+    }
+
+    @Data
+    public static class Tier {
+
+        /**
+         * 本档适用的最大在线人数
+         */
+        private int maxOnlineUsers;
+
+        /**
+         * 单个用户每秒可发送的消息数
+         */
+        private double userMessagesPerSecond;
+
+        /**
+         * 单个用户允许的突发消息数
+         */
+        private int userBurst;
+
+        /**
+         * 整个聊天室每秒可发送的消息数
+         */
+        private double roomMessagesPerSecond;
+
+        /**
+         * 整个聊天室允许的突发消息数
+         */
+        private int roomBurst;
+
+        public Tier() {
+        }
+
+        public Tier(int maxOnlineUsers, double userMessagesPerSecond, int userBurst,
+                    double roomMessagesPerSecond, int roomBurst) {
+            this.maxOnlineUsers = maxOnlineUsers;
+            this.userMessagesPerSecond = userMessagesPerSecond;
+            this.userBurst = userBurst;
+            this.roomMessagesPerSecond = roomMessagesPerSecond;
+            this.roomBurst = roomBurst;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ljyh.foodieconnect.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天记录保留策略配置类
+ * 控制过期聊天记录分批删除的节奏
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.chat.retention")
+public class ChatRetentionProperties {
+
+    /**
+     * 聊天记录保留天数
+     */
+    private int retentionDays = 1;
+
+    /**
+     * 每批删除的最大行数
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 每秒最多删除的行数，小于等于0时不限速
+     */
+    private int maxRowsPerSecond = 5000;
+
+    /**
+     * 查询复制延迟（秒）的SQL，例如基于心跳表的查询，为空时不检查复制延迟
+     */
+    private String lagQuery = "";
+
+    /**
+     * 允许的最大复制延迟（秒），超过后暂停删除
+     */
+    private double maxLagSeconds = 10;
+
+    /**
+     * 复制延迟过高时每次暂停的时长（毫秒）
+     */
+    private long lagPauseMillis = 5000;
+}
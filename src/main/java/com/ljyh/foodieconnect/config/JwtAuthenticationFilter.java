@@ -1,6 +1,7 @@
 package com.ljyh.foodieconnect.config;
 
 import com.ljyh.foodieconnect.service.JwtService;
+import com.ljyh.foodieconnect.service.PrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,11 +27,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
     
     public JwtAuthenticationFilter(JwtService jwtService,
-                               @Qualifier("userDetailsServiceImpl") UserDetailsService userDetailsService) {
+                               @Qualifier("userDetailsServiceImpl") UserDetailsService userDetailsService,
+                               PrincipalCache principalCache) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
     
     @Override
@@ -63,7 +67,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             
             // 如果用户名不为空且当前上下文中没有认证信息
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = principalCache.useClaimsPrincipal(request.getMethod())
+                        ? principalCache.fromClaims(userEmail, "ROLE_USER")
+                        : principalCache.load(PrincipalCache.PrincipalType.USER, userEmail,
+                                this.userDetailsService::loadUserByUsername);
                 
                 // 验证令牌是否有效
                 if (jwtService.isTokenValid(jwt)) {
@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.config;
 
 import com.ljyh.foodieconnect.service.JwtMerchantService;
 import com.ljyh.foodieconnect.service.MerchantUserDetailsServiceImpl;
+import com.ljyh.foodieconnect.service.PrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,11 +27,14 @@ public class JwtMerchantAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtMerchantService jwtMerchantService;
     private final MerchantUserDetailsServiceImpl merchantUserDetailsService;
+    private final PrincipalCache principalCache;
     
     public JwtMerchantAuthenticationFilter(JwtMerchantService jwtMerchantService,
-                                      @Qualifier("merchantUserDetailsServiceImpl") MerchantUserDetailsServiceImpl merchantUserDetailsService) {
+                                      @Qualifier("merchantUserDetailsServiceImpl") MerchantUserDetailsServiceImpl merchantUserDetailsService,
+                                      PrincipalCache principalCache) {
         this.jwtMerchantService = jwtMerchantService;
         this.merchantUserDetailsService = merchantUserDetailsService;
+        this.principalCache = principalCache;
     }
     
     @Override
@@ -68,8 +72,11 @@ public class JwtMerchantAuthenticationFilter extends OncePerRequestFilter {
             
             String username = jwtMerchantService.extractUsername(jwt);
             
-            // 验证用户是否存在且状态正常
-            UserDetails userDetails = merchantUserDetailsService.loadUserByUsername(username);
+            // 验证用户是否存在且状态正常，结果短时间缓存
+            UserDetails userDetails = principalCache.useClaimsPrincipal(request.getMethod())
+                    ? principalCache.fromClaims(username, "ROLE_" + jwtMerchantService.extractRole(jwt))
+                    : principalCache.load(PrincipalCache.PrincipalType.MERCHANT, username,
+                            merchantUserDetailsService::loadUserByUsername);
             
             UsernamePasswordAuthenticationToken authentication = 
                 new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -3,6 +3,7 @@ package com.ljyh.foodieconnect.config;
 import com.ljyh.foodieconnect.service.JwtService;
 import com.ljyh.foodieconnect.service.JwtMerchantService;
 import com.ljyh.foodieconnect.service.MerchantUserDetailsServiceImpl;
+import com.ljyh.foodieconnect.service.PrincipalCache;
 import com.ljyh.foodieconnect.service.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -37,6 +38,7 @@ public class SecurityConfig {
     private final JwtMerchantService jwtMerchantService;
     private final UserDetailsServiceImpl userDetailsService;
     private final MerchantUserDetailsServiceImpl merchantUserDetailsService;
+    private final PrincipalCache principalCache;
     
     private final AuthenticationProvider userAuthenticationProvider;
     private final AuthenticationProvider merchantAuthenticationProvider;
@@ -105,7 +107,7 @@ public class SecurityConfig {
      */
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService, userDetailsService);
+        return new JwtAuthenticationFilter(jwtService, userDetailsService, principalCache);
     }
     
     /**
@@ -113,7 +115,7 @@ public class SecurityConfig {
      */
     @Bean
     public JwtMerchantAuthenticationFilter jwtMerchantAuthenticationFilter() {
-        return new JwtMerchantAuthenticationFilter(jwtMerchantService, merchantUserDetailsService);
+        return new JwtMerchantAuthenticationFilter(jwtMerchantService, merchantUserDetailsService, principalCache);
     }
     
     /**
@@ -3,6 +3,7 @@ package com.ljyh.foodieconnect.config;
 import com.ljyh.foodieconnect.service.JwtService;
 import com.ljyh.foodieconnect.service.JwtMerchantService;
 import com.ljyh.foodieconnect.service.MerchantUserDetailsServiceImpl;
+import com.ljyh.foodieconnect.service.PrincipalCache;
 import com.ljyh.foodieconnect.service.UserDetailsServiceImpl;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -32,15 +33,18 @@ public class UnifiedJwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtMerchantService jwtMerchantService;
     private final UserDetailsServiceImpl userDetailsService;
     private final MerchantUserDetailsServiceImpl merchantUserDetailsService;
+    private final PrincipalCache principalCache;
     
     public UnifiedJwtAuthenticationFilter(JwtService jwtService,
                                      JwtMerchantService jwtMerchantService,
                                      @Qualifier("userDetailsServiceImpl") UserDetailsServiceImpl userDetailsService,
-                                     @Qualifier("merchantUserDetailsServiceImpl") MerchantUserDetailsServiceImpl merchantUserDetailsService) {
+                                     @Qualifier("merchantUserDetailsServiceImpl") MerchantUserDetailsServiceImpl merchantUserDetailsService,
+                                     PrincipalCache principalCache) {
         this.jwtService = jwtService;
         this.jwtMerchantService = jwtMerchantService;
         this.userDetailsService = userDetailsService;
         this.merchantUserDetailsService = merchantUserDetailsService;
+        this.principalCache = principalCache;
     }
     
     @Override
@@ -83,7 +87,10 @@ public class UnifiedJwtAuthenticationFilter extends OncePerRequestFilter {
             String userEmail = jwtService.extractUsername(jwt);
             
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = principalCache.useClaimsPrincipal(request.getMethod())
+                        ? principalCache.fromClaims(userEmail, "ROLE_USER")
+                        : principalCache.load(PrincipalCache.PrincipalType.USER, userEmail,
+                                userDetailsService::loadUserByUsername);
                 
                 if (jwtService.isTokenValid(jwt)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -112,7 +119,10 @@ public class UnifiedJwtAuthenticationFilter extends OncePerRequestFilter {
             String username = jwtMerchantService.extractUsername(jwt);
             
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = merchantUserDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = principalCache.useClaimsPrincipal(request.getMethod())
+                        ? principalCache.fromClaims(username, "ROLE_" + jwtMerchantService.extractRole(jwt))
+                        : principalCache.load(PrincipalCache.PrincipalType.MERCHANT, username,
+                                merchantUserDetailsService::loadUserByUsername);
                 
                 if (jwtMerchantService.validateToken(jwt, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.config;
 
 import com.ljyh.foodieconnect.websocket.ProtobufMessageConverter;
 import com.ljyh.foodieconnect.websocket.BinaryChatWebSocketHandler;
+import com.ljyh.foodieconnect.websocket.MerchantFeedWebSocketHandler;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
@@ -63,9 +64,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, WebSoc
     }
 
     private final BinaryChatWebSocketHandler binaryChatWebSocketHandler;
+    private final MerchantFeedWebSocketHandler merchantFeedWebSocketHandler;
 
-    public WebSocketConfig(BinaryChatWebSocketHandler binaryChatWebSocketHandler) {
+    public WebSocketConfig(BinaryChatWebSocketHandler binaryChatWebSocketHandler,
+                           MerchantFeedWebSocketHandler merchantFeedWebSocketHandler) {
         this.binaryChatWebSocketHandler = binaryChatWebSocketHandler;
+        this.merchantFeedWebSocketHandler = merchantFeedWebSocketHandler;
     }
 
     @Override
@@ -73,5 +77,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, WebSoc
         // 注册二进制WebSocket处理器，支持两种路径：带context-path和不带context-path，支持路径变量
         registry.addHandler(binaryChatWebSocketHandler, "/ws/chat-bin/**").setAllowedOriginPatterns("*");
         registry.addHandler(binaryChatWebSocketHandler, "/api/v1/ws/chat-bin/**").setAllowedOriginPatterns("*");
+        
+        // 商家控制台聚合推送，使用商家登录token认证
+        registry.addHandler(merchantFeedWebSocketHandler, "/ws/merchant-feed").setAllowedOriginPatterns("*");
+        registry.addHandler(merchantFeedWebSocketHandler, "/api/v1/ws/merchant-feed").setAllowedOriginPatterns("*");
     }
 }
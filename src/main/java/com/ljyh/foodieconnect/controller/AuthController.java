@@ -3,6 +3,7 @@ package com.ljyh.foodieconnect.controller;
 import com.ljyh.foodieconnect.dto.ApiResponse;
 import com.ljyh.foodieconnect.dto.LoginRequest;
 import com.ljyh.foodieconnect.dto.LoginResponse;
+import com.ljyh.foodieconnect.dto.LogoutRequest;
 import com.ljyh.foodieconnect.dto.RegisterRequest;
 import com.ljyh.foodieconnect.dto.UserDTO;
 import com.ljyh.foodieconnect.service.AuthService;
@@ -63,6 +64,16 @@ public class AuthController {
         }
     }
     
+    @Operation(summary = "用户登出", description = "用户退出登录，撤销访问令牌和请求体中的刷新令牌")
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                    @RequestBody(required = false) LogoutRequest request) {
+        // JWT是无状态的，客户端删除token即可；服务端撤销访问令牌和刷新令牌，避免其在过期前继续被使用
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authService.logout(accessToken, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.ok(ApiResponse.success());
+    }
+    
     /**
      * 从Authorization头中提取令牌
      */
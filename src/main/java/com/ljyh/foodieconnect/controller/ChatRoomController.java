@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
 import com.ljyh.foodieconnect.dto.ChatRoomDTO;
 import com.ljyh.foodieconnect.dto.ChatRoomTokenResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.entity.ChatRoomMember;
 import com.ljyh.foodieconnect.entity.ChatRoomMessage;
@@ -112,12 +113,18 @@ public class ChatRoomController {
         return ResponseEntity.ok(ApiResponse.success(chatRoomDTO));
     }
     
-    @Operation(summary = "获取聊天室消息列表", description = "分页获取指定聊天室的消息列表")
+    @Operation(summary = "获取聊天室消息列表", description = "分页获取指定聊天室的消息列表，传入cursor参数时使用游标分页")
     @GetMapping("/{roomId}/messages")
-    public ResponseEntity<ApiResponse<Page<ChatRoomMessage>>> getRoomMessages(
+    public ResponseEntity<ApiResponse<?>> getRoomMessages(
             @Parameter(description = "聊天室ID") @PathVariable Long roomId,
             @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "50") int size) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "50") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取最新消息）") @RequestParam(required = false) String cursor) {
+        
+        if (cursor != null) {
+            CursorPage<ChatRoomMessage> messages = chatRoomService.getRoomMessagesByCursor(roomId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(messages));
+        }
         
         Page<ChatRoomMessage> messages = chatRoomService.getRoomMessages(roomId, page, size);
         return ResponseEntity.ok(ApiResponse.success(messages));
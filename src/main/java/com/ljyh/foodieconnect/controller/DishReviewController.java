@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.DishReviewRequest;
 import com.ljyh.foodieconnect.dto.DishReviewResponse;
 import com.ljyh.foodieconnect.dto.DishReviewStatsResponse;
@@ -50,14 +51,20 @@ public class DishReviewController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
-    @Operation(summary = "获取菜品评价列表", description = "分页获取指定菜品的评价列表")
+    @Operation(summary = "获取菜品评价列表", description = "分页获取指定菜品的评价列表，传入cursor参数时使用游标分页（按最新排序）")
     @GetMapping("/restaurants/{restaurantId}/menu-items/{itemId}/reviews")
-    public ResponseEntity<ApiResponse<Page<DishReviewResponse>>> getReviews(
+    public ResponseEntity<ApiResponse<?>> getReviews(
             @Parameter(description = "餐厅ID") @PathVariable Long restaurantId,
             @Parameter(description = "菜品ID") @PathVariable Long itemId,
             @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
-            @Parameter(description = "排序方式") @RequestParam(defaultValue = "latest") String sortBy) {
+            @Parameter(description = "排序方式") @RequestParam(defaultValue = "latest") String sortBy,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取最新评价）") @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            CursorPage<DishReviewResponse> reviews = dishReviewService.getMenuItemReviewsByCursor(itemId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(reviews));
+        }
 
         Page<DishReviewResponse> reviews = dishReviewService.getMenuItemReviews(itemId, page, size, sortBy);
         return ResponseEntity.ok(ApiResponse.success(reviews));
@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.FavoriteFoodRequest;
 import com.ljyh.foodieconnect.entity.UserFavoriteFood;
 import com.ljyh.foodieconnect.service.AuthService;
@@ -56,27 +57,37 @@ public class FavoriteFoodController {
     
     @Operation(summary = "获取用户喜好食物列表", description = "获取当前用户的喜好食物列表")
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<UserFavoriteFood>>> getUserFavoriteFoods(
+    public ResponseEntity<ApiResponse<?>> getUserFavoriteFoods(
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor,
             @AuthenticationPrincipal UserDetails userDetails) {
         
         String email = userDetails.getUsername();
         Long userId = userService.getUserByEmail(email).getId();
+        if (cursor != null) {
+            CursorPage<UserFavoriteFood> favoriteFoods = favoriteFoodService.getUserFavoriteFoodsByCursor(userId, null, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(favoriteFoods));
+        }
         Page<UserFavoriteFood> favoriteFoods = favoriteFoodService.getUserFavoriteFoodsPage(userId, page, size);
         return ResponseEntity.ok(ApiResponse.success(favoriteFoods));
     }
     
     @Operation(summary = "根据食物类型获取喜好食物", description = "根据食物类型获取当前用户的喜好食物列表")
     @GetMapping("/type/{foodType}")
-    public ResponseEntity<ApiResponse<Page<UserFavoriteFood>>> getUserFavoriteFoodsByType(
+    public ResponseEntity<ApiResponse<?>> getUserFavoriteFoodsByType(
             @Parameter(description = "食物类型") @PathVariable String foodType,
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor,
             @AuthenticationPrincipal UserDetails userDetails) {
         
         String email = userDetails.getUsername();
         Long userId = userService.getUserByEmail(email).getId();
+        if (cursor != null) {
+            CursorPage<UserFavoriteFood> favoriteFoods = favoriteFoodService.getUserFavoriteFoodsByCursor(userId, foodType, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(favoriteFoods));
+        }
         Page<UserFavoriteFood> favoriteFoods = favoriteFoodService.getUserFavoriteFoodsByTypePage(userId, foodType, page, size);
         return ResponseEntity.ok(ApiResponse.success(favoriteFoods));
     }
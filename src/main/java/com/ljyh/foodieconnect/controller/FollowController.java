@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.FollowWithUserDTO;
 import com.ljyh.foodieconnect.entity.UserFollow;
 import com.ljyh.foodieconnect.service.AuthService;
@@ -56,49 +57,71 @@ public class FollowController {
         return ResponseEntity.ok(ApiResponse.success(null));
     }
 
-    @Operation(summary = "获取关注列表", description = "获取当前用户的关注列表")
+    @Operation(summary = "获取关注列表", description = "获取当前用户的关注列表，传入cursor参数时使用游标分页")
     @GetMapping("/following")
-    public ResponseEntity<ApiResponse<Page<UserFollow>>> getFollowingList(
+    public ResponseEntity<ApiResponse<?>> getFollowingList(
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor,
             Principal principal) {
 
         String email = principal.getName();
         Long userId = userService.getUserByEmail(email).getId();
+        if (cursor != null) {
+            CursorPage<UserFollow> followingList = followService.getFollowingListByCursor(userId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(followingList));
+        }
         Page<UserFollow> followingList = followService.getFollowingList(userId, page, size);
         return ResponseEntity.ok(ApiResponse.success(followingList));
     }
 
-    @Operation(summary = "获取粉丝列表", description = "获取当前用户的粉丝列表")
+    @Operation(summary = "获取粉丝列表", description = "获取当前用户的粉丝列表，传入cursor参数时使用游标分页")
     @GetMapping("/followers")
-    public ResponseEntity<ApiResponse<Page<UserFollow>>> getFollowersList(
+    public ResponseEntity<ApiResponse<?>> getFollowersList(
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor,
             Principal principal) {
 
         String email = principal.getName();
         Long userId = userService.getUserByEmail(email).getId();
+        if (cursor != null) {
+            CursorPage<UserFollow> followersList = followService.getFollowersListByCursor(userId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(followersList));
+        }
         Page<UserFollow> followersList = followService.getFollowersList(userId, page, size);
         return ResponseEntity.ok(ApiResponse.success(followersList));
     }
     
-    @Operation(summary = "获取指定用户的关注列表", description = "获取指定用户的关注列表")
+    @Operation(summary = "获取指定用户的关注列表", description = "获取指定用户的关注列表，传入cursor参数时使用游标分页")
     @GetMapping("/users/{userId}/following")
-    public ResponseEntity<ApiResponse<Page<UserFollow>>> getUserFollowingList(
+    public ResponseEntity<ApiResponse<?>> getUserFollowingList(
             @Parameter(description = "用户ID") @PathVariable Long userId,
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor) {
+        
+        if (cursor != null) {
+            CursorPage<UserFollow> followingList = followService.getFollowingListByCursor(userId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(followingList));
+        }
         
         Page<UserFollow> followingList = followService.getFollowingList(userId, page, size);
         return ResponseEntity.ok(ApiResponse.success(followingList));
     }
     
-    @Operation(summary = "获取指定用户的粉丝列表", description = "获取指定用户的粉丝列表")
+    @Operation(summary = "获取指定用户的粉丝列表", description = "获取指定用户的粉丝列表，传入cursor参数时使用游标分页")
     @GetMapping("/users/{userId}/followers")
-    public ResponseEntity<ApiResponse<Page<UserFollow>>> getUserFollowersList(
+    public ResponseEntity<ApiResponse<?>> getUserFollowersList(
             @Parameter(description = "用户ID") @PathVariable Long userId,
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor) {
+        
+        if (cursor != null) {
+            CursorPage<UserFollow> followersList = followService.getFollowersListByCursor(userId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(followersList));
+        }
         
         Page<UserFollow> followersList = followService.getFollowersList(userId, page, size);
         return ResponseEntity.ok(ApiResponse.success(followersList));
@@ -98,8 +98,12 @@ public class MerchantAuthController {
     
     @Operation(summary = "商家登出", description = "商家退出登录")
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<Void>> logout() {
-        // JWT是无状态的，客户端删除token即可
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = false) String authorization) {
+        // JWT是无状态的，客户端删除token即可；服务端撤销该token，避免其在过期前继续被使用
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            merchantAuthService.logout(authorization.substring(7));
+        }
         return ResponseEntity.ok(ApiResponse.success());
     }
 }
\ No newline at end of file
@@ -2,10 +2,13 @@ package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.entity.ChatRoomMember;
 import com.ljyh.foodieconnect.entity.ChatRoomMessage;
 import com.ljyh.foodieconnect.entity.Merchant;
+import com.ljyh.foodieconnect.exception.BusinessException;
+import com.ljyh.foodieconnect.service.ChatMessageArchiveService;
 import com.ljyh.foodieconnect.service.ChatRoomService;
 import com.ljyh.foodieconnect.service.MerchantAuthService;
 import com.ljyh.foodieconnect.service.RestaurantService;
@@ -13,9 +16,13 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +30,7 @@ import java.util.Map;
 /**
  * 商家聊天室控制器
  */
+@Slf4j
 @Tag(name = "商家聊天室管理", description = "商家端聊天室相关接口")
 @RestController
 @RequestMapping("/merchant/chat-rooms")
@@ -32,6 +40,7 @@ public class MerchantChatRoomController {
     private final ChatRoomService chatRoomService;
     private final MerchantAuthService merchantAuthService;
     private final RestaurantService restaurantService;
+    private final ChatMessageArchiveService chatMessageArchiveService;
     
 
     
@@ -75,11 +84,12 @@ public class MerchantChatRoomController {
     
 
     
-    @Operation(summary = "获取聊天室消息列表", description = "分页获取餐厅聊天室的消息列表")
+    @Operation(summary = "获取聊天室消息列表", description = "分页获取餐厅聊天室的消息列表，传入cursor参数时使用游标分页")
     @GetMapping("/messages")
-    public ResponseEntity<ApiResponse<Page<ChatRoomMessage>>> getRoomMessages(
+    public ResponseEntity<ApiResponse<?>> getRoomMessages(
             @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "50") int size) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "50") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取最新消息）") @RequestParam(required = false) String cursor) {
         
         Merchant currentMerchant = merchantAuthService.getCurrentMerchant();
         Long restaurantId = currentMerchant.getRestaurantId();
@@ -91,10 +101,73 @@ public class MerchantChatRoomController {
                     .body(ApiResponse.error("CHAT_ROOM_NOT_FOUND", "聊天室不存在"));
         }
         
+        if (cursor != null) {
+            CursorPage<ChatRoomMessage> messages = chatRoomService.getRoomMessagesByCursor(chatRoom.getId(), cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(messages));
+        }
+        
         Page<ChatRoomMessage> messages = chatRoomService.getRoomMessages(chatRoom.getId(), page, size);
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
     
+    @Operation(summary = "获取已归档日期", description = "获取餐厅聊天室已写入冷归档的日期列表")
+    @GetMapping("/archive/days")
+    public ResponseEntity<ApiResponse<List<LocalDate>>> getArchivedDays() {
+        
+        Merchant currentMerchant = merchantAuthService.getCurrentMerchant();
+        Long restaurantId = currentMerchant.getRestaurantId();
+        
+        // 获取餐厅聊天室
+        ChatRoom chatRoom = chatRoomService.getRestaurantChatRoom(restaurantId);
+        if (chatRoom == null) {
+            return ResponseEntity.status(404)
+                    .body(ApiResponse.error("CHAT_ROOM_NOT_FOUND", "聊天室不存在"));
+        }
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(chatMessageArchiveService.listArchivedDays(chatRoom.getId())));
+        } catch (IOException e) {
+            log.error("读取聊天室 {} 的归档目录失败: {}", chatRoom.getId(), e.getMessage(), e);
+            throw new BusinessException("CHAT_ARCHIVE_READ_FAILED", "读取聊天归档失败");
+        }
+    }
+    
+    @Operation(summary = "获取归档消息", description = "按游标读取餐厅聊天室某一天已归档的消息（按ID升序）")
+    @GetMapping("/archive/messages")
+    public ResponseEntity<ApiResponse<CursorPage<ChatRoomMessage>>> getArchivedMessages(
+            @Parameter(description = "归档日期") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "50") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，不传时从当天第一条开始）") @RequestParam(required = false) String cursor) {
+        
+        Merchant currentMerchant = merchantAuthService.getCurrentMerchant();
+        Long restaurantId = currentMerchant.getRestaurantId();
+        
+        // 获取餐厅聊天室
+        ChatRoom chatRoom = chatRoomService.getRestaurantChatRoom(restaurantId);
+        if (chatRoom == null) {
+            return ResponseEntity.status(404)
+                    .body(ApiResponse.error("CHAT_ROOM_NOT_FOUND", "聊天室不存在"));
+        }
+        
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new BusinessException("INVALID_CURSOR", "无效的分页游标");
+            }
+        }
+        
+        int pageSize = Math.max(1, Math.min(size, 200));
+        try {
+            CursorPage<ChatRoomMessage> messages = chatMessageArchiveService.readArchived(chatRoom.getId(), date, afterId, pageSize);
+            return ResponseEntity.ok(ApiResponse.success(messages));
+        } catch (IOException e) {
+            log.error("读取聊天室 {} {} 的归档失败: {}", chatRoom.getId(), date, e.getMessage(), e);
+            throw new BusinessException("CHAT_ARCHIVE_READ_FAILED", "读取聊天归档失败");
+        }
+    }
+    
     @Operation(summary = "获取聊天室成员列表", description = "获取餐厅聊天室的成员列表")
     @GetMapping("/members")
     public ResponseEntity<ApiResponse<List<ChatRoomMember>>> getRoomMembers() {
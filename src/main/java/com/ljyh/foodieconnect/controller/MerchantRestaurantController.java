@@ -55,6 +55,10 @@ public class MerchantRestaurantController {
         restaurant.setType(request.getType());
         restaurant.setDescription(request.getDescription());
         restaurant.setAddress(request.getAddress());
+        if (request.getLatitude() != null && request.getLongitude() != null) {
+            restaurant.setLatitude(request.getLatitude());
+            restaurant.setLongitude(request.getLongitude());
+        }
         restaurant.setPhone(request.getPhone());
         restaurant.setHours(request.getHours());
         restaurant.setImageUrl(request.getImageUrl());
@@ -2,6 +2,10 @@ package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.dto.NearbyRestaurantResponse;
+import com.ljyh.foodieconnect.dto.RestaurantFacetResponse;
+import com.ljyh.foodieconnect.dto.SearchSuggestionResponse;
 import com.ljyh.foodieconnect.entity.Restaurant;
 import com.ljyh.foodieconnect.service.RestaurantService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -25,13 +29,19 @@ public class RestaurantController {
     
     private final RestaurantService restaurantService;
     
-    @Operation(summary = "获取餐厅列表", description = "分页获取餐厅列表，支持按类型和关键词筛选")
+    @Operation(summary = "获取餐厅列表", description = "分页获取餐厅列表，支持按类型和关键词筛选；不带关键词时传入cursor参数使用游标分页")
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<Restaurant>>> getRestaurants(
+    public ResponseEntity<ApiResponse<?>> getRestaurants(
             @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "餐厅类型") @RequestParam(required = false) String type,
-            @Parameter(description = "搜索关键词") @RequestParam(required = false) String keyword) {
+            @Parameter(description = "搜索关键词") @RequestParam(required = false) String keyword,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") @RequestParam(required = false) String cursor) {
+        
+        if (cursor != null) {
+            CursorPage<Restaurant> restaurants = restaurantService.getRestaurantsByCursor(type, keyword, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(restaurants));
+        }
         
         Page<Restaurant> restaurants = restaurantService.getRestaurants(page, size, type, keyword);
         return ResponseEntity.ok(ApiResponse.success(restaurants));
@@ -57,6 +67,48 @@ public class RestaurantController {
         return ResponseEntity.ok(ApiResponse.success(restaurants));
     }
     
+    @Operation(summary = "分面浏览餐厅", description = "按类型、评分档、营业状态和评价数档筛选餐厅，同一筛选项可多选；同时返回每个筛选项各取值的餐厅数")
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<RestaurantFacetResponse>> browseRestaurants(
+            @Parameter(description = "餐厅类型，可多选") @RequestParam(required = false) List<String> type,
+            @Parameter(description = "评分档：4.5-5、4-4.5、3.5-4、3-3.5、0-3，可多选") @RequestParam(required = false) List<String> rating,
+            @Parameter(description = "是否营业") @RequestParam(required = false) Boolean isOpen,
+            @Parameter(description = "评价数档：0、1-9、10-49、50-199、200+，可多选") @RequestParam(required = false) List<String> reviewCount,
+            @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+        
+        RestaurantFacetResponse response = restaurantService.browseRestaurants(
+                type, rating, isOpen, reviewCount, page, Math.min(size, 100));
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @Operation(summary = "附近餐厅", description = "按与指定位置的距离由近到远分页获取餐厅，可按类型、营业状态和最低评分筛选。传入半径时返回半径内的总数，不传时在50公里内按最近优先返回且不统计总数")
+    @GetMapping("/nearby")
+    public ResponseEntity<ApiResponse<Page<NearbyRestaurantResponse>>> getNearbyRestaurants(
+            @Parameter(description = "纬度") @RequestParam double lat,
+            @Parameter(description = "经度") @RequestParam double lng,
+            @Parameter(description = "搜索半径（米），最大50000") @RequestParam(required = false) Double radius,
+            @Parameter(description = "餐厅类型") @RequestParam(required = false) String type,
+            @Parameter(description = "是否营业") @RequestParam(required = false) Boolean isOpen,
+            @Parameter(description = "最低评分") @RequestParam(required = false) Double minRating,
+            @Parameter(description = "页码，从0开始") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+        
+        Page<NearbyRestaurantResponse> restaurants = restaurantService.getNearbyRestaurants(
+                lat, lng, radius, type, isOpen, minRating, page, Math.min(size, 100));
+        return ResponseEntity.ok(ApiResponse.success(restaurants));
+    }
+    
+    @Operation(summary = "搜索输入提示", description = "按前缀或拼音首字母返回餐厅名、菜品名和餐厅类型提示，按热度排序")
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SearchSuggestionResponse>>> suggest(
+            @Parameter(description = "已输入的前缀") @RequestParam String q,
+            @Parameter(description = "返回数量，最多20") @RequestParam(defaultValue = "10") int limit) {
+        
+        List<SearchSuggestionResponse> suggestions = restaurantService.suggest(q, Math.min(limit, 20));
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
+    }
+    
     @Operation(summary = "按类型获取餐厅", description = "根据餐厅类型获取餐厅列表")
     @GetMapping("/type/{type}")
     public ResponseEntity<ApiResponse<Page<Restaurant>>> getRestaurantsByType(
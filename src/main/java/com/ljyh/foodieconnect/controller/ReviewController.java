@@ -3,6 +3,7 @@ package com.ljyh.foodieconnect.controller;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.ApiResponse;
 import com.ljyh.foodieconnect.dto.CreateReviewRequest;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.Review;
 import com.ljyh.foodieconnect.entity.User;
 import com.ljyh.foodieconnect.mapper.UserMapper;
@@ -32,12 +33,18 @@ public class ReviewController {
     private final ReviewService reviewService;
     private final UserMapper userMapper;
     
-    @Operation(summary = "获取餐厅评论列表", description = "分页获取指定餐厅的评论列表")
+    @Operation(summary = "获取餐厅评论列表", description = "分页获取指定餐厅的评论列表，传入cursor参数时使用游标分页")
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<Review>>> getRestaurantReviews(
+    public ResponseEntity<ApiResponse<?>> getRestaurantReviews(
             @Parameter(description = "餐厅ID") @PathVariable Long restaurantId,
             @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int size) {
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取最新评论）") @RequestParam(required = false) String cursor) {
+        
+        if (cursor != null) {
+            CursorPage<Review> reviews = reviewService.getRestaurantReviewsByCursor(restaurantId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(reviews));
+        }
         
         Page<Review> reviews = reviewService.getRestaurantReviews(restaurantId, page, size);
         return ResponseEntity.ok(ApiResponse.success(reviews));
@@ -1,6 +1,7 @@
 package com.ljyh.foodieconnect.controller;
 
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.UserRecommendationScore;
 import com.ljyh.foodieconnect.mapper.UserRecommendationMapper.UserRecommendationWithUserInfo;
 import com.ljyh.foodieconnect.mapper.UserRecommendationMapper.AlgorithmStats;
@@ -53,18 +54,26 @@ public class UserRecommendationController {
         return ResponseEntity.ok(ApiResponse.success(recommendations));
     }
     
-    @Operation(summary = "获取用户推荐列表（分页）", description = "获取用户推荐列表，支持分页")
+    @Operation(summary = "获取用户推荐列表（分页）", description = "获取用户推荐列表，支持分页；传入cursor参数时使用游标分页")
     @GetMapping("/paginated")
-    public ResponseEntity<ApiResponse<List<UserRecommendationWithUserInfo>>> getUserRecommendationsPaginated(
+    public ResponseEntity<ApiResponse<?>> getUserRecommendationsPaginated(
             @Parameter(description = "页码，从0开始") 
             @RequestParam(defaultValue = "0") @Min(0) int page,
             @Parameter(description = "每页大小") 
             @RequestParam(defaultValue = "10") @Min(1) @Max(20) int size,
+            @Parameter(description = "游标（上一页返回的nextCursor，传空值获取第一页）") 
+            @RequestParam(required = false) String cursor,
             @AuthenticationPrincipal UserDetails userDetails) {
         
         String email = userDetails.getUsername();
         Long userId = userService.getUserByEmail(email).getId();
         
+        if (cursor != null) {
+            CursorPage<UserRecommendationWithUserInfo> recommendations =
+                userRecommendationService.getUserRecommendationsByCursor(userId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(recommendations));
+        }
+        
         List<UserRecommendationWithUserInfo> recommendations = 
             userRecommendationService.getUserRecommendationsWithPagination(userId, page, size);
         
@@ -0,0 +1,34 @@
+package com.ljyh.foodieconnect.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 不执行COUNT查询，通过nextCursor获取下一页
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标（没有更多数据时为null）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+
+    public CursorPage(List<T> records, String nextCursor, boolean hasMore) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ljyh.foodieconnect.dto;
+
+import lombok.Data;
+
+/**
+ * 登出请求DTO
+ */
+@Data
+public class LogoutRequest {
+    
+    /**
+     * 登录或刷新时下发的刷新令牌，一并撤销后不能再换取新的访问令牌
+     */
+    private String refreshToken;
+}
@@ -0,0 +1,23 @@
+package com.ljyh.foodieconnect.dto;
+
+import com.ljyh.foodieconnect.entity.Restaurant;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 附近餐厅响应DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "附近餐厅")
+public class NearbyRestaurantResponse {
+
+    @Schema(description = "餐厅信息")
+    private Restaurant restaurant;
+
+    @Schema(description = "与查询位置的距离（米）", example = "850")
+    private Long distanceMeters;
+}
@@ -0,0 +1,27 @@
+package com.ljyh.foodieconnect.dto;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ljyh.foodieconnect.entity.Restaurant;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 餐厅分面浏览响应DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "餐厅分面浏览结果")
+public class RestaurantFacetResponse {
+
+    @Schema(description = "当前页餐厅")
+    private Page<Restaurant> restaurants;
+
+    @Schema(description = "各筛选项的餐厅数：分面名称（type、rating、isOpen、reviewCount）-> 取值 -> 数量，" +
+            "某一分面的计数只应用其他分面的筛选条件")
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -1,10 +1,14 @@
 package com.ljyh.foodieconnect.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 /**
  * 餐厅更新请求DTO
  */
@@ -27,6 +31,16 @@ public class RestaurantUpdateRequest {
     @Schema(description = "地址", example = "市中心街道123号")
     private String address;
     
+    @DecimalMin(value = "-90", message = "纬度范围为-90到90")
+    @DecimalMax(value = "90", message = "纬度范围为-90到90")
+    @Schema(description = "纬度", example = "31.2304160")
+    private BigDecimal latitude;
+    
+    @DecimalMin(value = "-180", message = "经度范围为-180到180")
+    @DecimalMax(value = "180", message = "经度范围为-180到180")
+    @Schema(description = "经度", example = "121.4737010")
+    private BigDecimal longitude;
+    
     @Pattern(regexp = "^1[3-9]\\d{9}$", message = "手机号格式不正确")
     @Schema(description = "联系电话", example = "(021) 1234-5678")
     private String phone;
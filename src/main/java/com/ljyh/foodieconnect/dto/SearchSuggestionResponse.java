@@ -0,0 +1,23 @@
+package com.ljyh.foodieconnect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 搜索输入提示响应DTO
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "搜索输入提示")
+public class SearchSuggestionResponse {
+
+    @Schema(description = "提示类型：RESTAURANT、DISH、TYPE")
+    private String type;
+
+    @Schema(description = "提示文本")
+    private String text;
+
+    @Schema(description = "餐厅ID，仅餐厅提示有值")
+    private Long restaurantId;
+}
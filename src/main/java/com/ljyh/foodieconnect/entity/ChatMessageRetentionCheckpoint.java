@@ -0,0 +1,56 @@
+package com.ljyh.foodieconnect.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 聊天记录清理进度实体类
+ * 记录分批删除的截止时间和已删除到的消息ID，进程重启后从断点继续
+ */
+@Data
+@TableName("chat_message_retention_checkpoints")
+public class ChatMessageRetentionCheckpoint {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    /**
+     * 任务名称
+     */
+    @TableId(type = IdType.INPUT)
+    private String jobName;
+
+    /**
+     * 本轮清理的截止时间，早于该时间的消息会被删除
+     */
+    private LocalDateTime cutoffTime;
+
+    /**
+     * 已处理到的消息ID
+     */
+    private Long lastDeletedId;
+
+    /**
+     * 本轮已删除的行数
+     */
+    private Long deletedCount;
+
+    /**
+     * 状态：RUNNING, COMPLETED
+     */
+    private String status;
+
+    /**
+     * 本轮开始时间
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * 最后更新时间
+     */
+    private LocalDateTime updatedAt;
+}
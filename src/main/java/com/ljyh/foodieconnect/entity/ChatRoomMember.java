@@ -59,4 +59,9 @@ public class ChatRoomMember extends BaseEntity {
      * 成员角色
      */
     private String role;
+    
+    /**
+     * 已读到的最大消息ID（由已读回执批量写入，可能落后于实时推送几秒）
+     */
+    private Long lastReadMessageId;
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.ljyh.foodieconnect.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 餐厅菜品评价汇总实体类
+ * 商家评价概览的预计算结果，菜品评价增删改后重建，读取时按餐厅ID单行查询
+ */
+@Data
+@TableName("restaurant_dish_review_summaries")
+public class DishReviewSummary {
+
+    /**
+     * 餐厅ID
+     */
+    @TableId(type = IdType.INPUT)
+    private Long restaurantId;
+
+    /**
+     * 菜品评价总数
+     */
+    private Integer totalReviews;
+
+    /**
+     * 菜品评价评分总和
+     */
+    private Integer ratingSum;
+
+    /**
+     * 好评菜品列表（JSON）
+     */
+    private String topRatedItems;
+
+    /**
+     * 差评菜品列表（JSON）
+     */
+    private String lowRatedItems;
+
+    /**
+     * 最后重建时间
+     */
+    private LocalDateTime updatedAt;
+}
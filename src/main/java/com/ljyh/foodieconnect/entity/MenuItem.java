@@ -1,6 +1,8 @@
 package com.ljyh.foodieconnect.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -98,13 +100,15 @@ public class MenuItem extends BaseEntity {
     private Integer calories;
 
     /**
-     * 平均评分
+     * 平均评分，由评价增删改增量维护，updateById不会覆盖
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private BigDecimal rating;
 
     /**
-     * 评价数量
+     * 评价数量，由评价增删改增量维护，updateById不会覆盖
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private Integer reviewCount;
 
     /**
@@ -1,6 +1,8 @@
 package com.ljyh.foodieconnect.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -37,6 +39,16 @@ public class Restaurant extends BaseEntity {
      */
     private String distance;
     
+    /**
+     * 纬度
+     */
+    private BigDecimal latitude;
+    
+    /**
+     * 经度
+     */
+    private BigDecimal longitude;
+    
     /**
      * 描述
      */
@@ -58,13 +70,15 @@ public class Restaurant extends BaseEntity {
     private String hours;
     
     /**
-     * 评分
+     * 评分，由评论增删改增量维护，updateById不会覆盖
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private BigDecimal rating;
     
     /**
-     * 评论数量
+     * 评论数量，由评论增删改增量维护，updateById不会覆盖
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private Integer reviewCount;
     
     /**
@@ -1,6 +1,8 @@
 package com.ljyh.foodieconnect.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.ljyh.foodieconnect.enums.StaffStatus;
@@ -49,10 +51,17 @@ public class Staff extends BaseEntity {
     private String experience;
     
     /**
-     * 评分
+     * 评分，由店员评价增量维护，updateById不会覆盖
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private BigDecimal rating;
     
+    /**
+     * 评价数量，由店员评价增量维护，updateById不会覆盖
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private Integer reviewCount;
+    
     /**
      * 头像URL
      */
@@ -0,0 +1,20 @@
+package com.ljyh.foodieconnect.enums;
+
+import lombok.Getter;
+
+/**
+ * 聊天内容过滤动作枚举
+ */
+@Getter
+public enum ContentFilterAction {
+    MASK("打码"),
+    REJECT("拒绝"),
+    FLAG("标记");
+
+    private final String description;
+
+    ContentFilterAction(String description) {
+        this.description = description;
+    }
+
+}
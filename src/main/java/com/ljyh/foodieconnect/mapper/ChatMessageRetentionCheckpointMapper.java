@@ -0,0 +1,12 @@
+package com.ljyh.foodieconnect.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ljyh.foodieconnect.entity.ChatMessageRetentionCheckpoint;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 聊天记录清理进度Mapper接口
+ */
+@Mapper
+public interface ChatMessageRetentionCheckpointMapper extends BaseMapper<ChatMessageRetentionCheckpoint> {
+}
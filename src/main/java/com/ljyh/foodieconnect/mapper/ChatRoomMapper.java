@@ -7,7 +7,9 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -22,6 +24,12 @@ public interface ChatRoomMapper extends BaseMapper<ChatRoom> {
     @Select("SELECT * FROM chat_rooms WHERE restaurant_id = #{restaurantId}")
     ChatRoom findByRestaurantId(@Param("restaurantId") Long restaurantId);
     
+    /**
+     * 查询餐厅的全部聊天室
+     */
+    @Select("SELECT * FROM chat_rooms WHERE restaurant_id = #{restaurantId} ORDER BY id")
+    List<ChatRoom> findAllByRestaurantId(@Param("restaurantId") Long restaurantId);
+    
     /**
      * 根据验证码查询聊天室
      */
@@ -37,9 +45,46 @@ public interface ChatRoomMapper extends BaseMapper<ChatRoom> {
     /**
      * 更新聊天室最后一条消息
      */
-    @Update("UPDATE chat_rooms SET last_message = #{lastMessage}, last_message_time = #{lastMessageTime}, online_user_count = #{onlineUserCount} WHERE id = #{roomId}")
+    @Update("UPDATE chat_rooms SET last_message = #{lastMessage}, last_message_time = #{lastMessageTime} WHERE id = #{roomId}")
     void updateLastMessage(@Param("roomId") Long roomId, @Param("lastMessage") String lastMessage,
-                        @Param("lastMessageTime") java.time.LocalDateTime lastMessageTime, @Param("onlineUserCount") Integer onlineUserCount);
+                        @Param("lastMessageTime") java.time.LocalDateTime lastMessageTime);
+    
+    /**
+     * 批量累加在线人数增量，一条语句写入所有有变化的聊天室
+     * @param deltas 聊天室ID到在线人数增量的映射
+     */
+    @Update("<script>" +
+            "UPDATE chat_rooms SET online_user_count = GREATEST(0, COALESCE(online_user_count, 0) + CASE id " +
+            "<foreach collection='deltas' index='roomId' item='delta'>" +
+            "WHEN #{roomId} THEN #{delta} " +
+            "</foreach>" +
+            "ELSE 0 END) " +
+            "WHERE id IN " +
+            "<foreach collection='deltas' index='roomId' open='(' separator=',' close=')'>" +
+            "#{roomId}" +
+            "</foreach>" +
+            "</script>")
+    int adjustOnlineUserCounts(@Param("deltas") Map<Long, Integer> deltas);
+    
+    /**
+     * 批量查询聊天室在线人数（只返回id和online_user_count）
+     */
+    @Select("<script>" +
+            "SELECT id, online_user_count FROM chat_rooms WHERE id IN " +
+            "<foreach collection='roomIds' item='roomId' open='(' separator=',' close=')'>" +
+            "#{roomId}" +
+            "</foreach>" +
+            "</script>")
+    List<ChatRoom> findOnlineUserCounts(@Param("roomIds") Collection<Long> roomIds);
+    
+    /**
+     * 按成员在线状态重新计算在线人数，只写入与实际人数不一致的聊天室
+     */
+    @Update("UPDATE chat_rooms cr SET online_user_count = " +
+            "(SELECT COUNT(*) FROM chat_room_members m WHERE m.room_id = cr.id AND m.is_online = true) " +
+            "WHERE cr.online_user_count IS NULL OR cr.online_user_count <> " +
+            "(SELECT COUNT(*) FROM chat_room_members m WHERE m.room_id = cr.id AND m.is_online = true)")
+    int reconcileOnlineUserCounts();
     
     /**
      * 更新聊天室验证码
@@ -47,4 +92,35 @@ public interface ChatRoomMapper extends BaseMapper<ChatRoom> {
     @Update("UPDATE chat_rooms SET verification_code = #{verificationCode}, verification_code_generated_at = #{generatedAt} WHERE id = #{id}")
     void updateVerificationCode(@Param("id") Long id, @Param("verificationCode") String verificationCode,
                               @Param("generatedAt") java.time.LocalDateTime generatedAt);
-}
\ No newline at end of file
+    
+    /**
+     * 按主键游标查询本轮尚未轮换验证码的聊天室（只返回发布验证码缓存需要的列）
+     */
+    @Select("SELECT id, restaurant_id, name, status FROM chat_rooms " +
+            "WHERE id > #{afterId} " +
+            "AND (verification_code_generated_at IS NULL OR verification_code_generated_at < #{rotatedBefore}) " +
+            "ORDER BY id LIMIT #{limit}")
+    List<ChatRoom> findRoomsDueForCodeRotation(@Param("afterId") Long afterId,
+                                               @Param("rotatedBefore") java.time.LocalDateTime rotatedBefore,
+                                               @Param("limit") int limit);
+    
+    /**
+     * 批量更新验证码，一条语句写入整批聊天室
+     * 只更新本轮尚未轮换的聊天室，多个节点同时执行时不会互相覆盖
+     */
+    @Update("<script>" +
+            "UPDATE chat_rooms SET verification_code = CASE id " +
+            "<foreach collection='rooms' item='room'>" +
+            "WHEN #{room.id} THEN #{room.verificationCode} " +
+            "</foreach>" +
+            "END, verification_code_generated_at = #{generatedAt} " +
+            "WHERE id IN " +
+            "<foreach collection='rooms' item='room' open='(' separator=',' close=')'>" +
+            "#{room.id}" +
+            "</foreach>" +
+            " AND (verification_code_generated_at IS NULL OR verification_code_generated_at &lt; #{rotatedBefore})" +
+            "</script>")
+    int batchUpdateVerificationCodes(@Param("rooms") List<ChatRoom> rooms,
+                                     @Param("generatedAt") java.time.LocalDateTime generatedAt,
+                                     @Param("rotatedBefore") java.time.LocalDateTime rotatedBefore);
+}
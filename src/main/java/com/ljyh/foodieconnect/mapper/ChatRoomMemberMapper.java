@@ -32,10 +32,37 @@ public interface ChatRoomMemberMapper extends BaseMapper<ChatRoomMember> {
     boolean isRoomMember(@Param("roomId") Long roomId, @Param("userId") Long userId);
     
     /**
-     * 更新用户在线状态
+     * 将成员设置为在线
+     * @return 状态发生变化时返回1，已在线或不是成员时返回0
      */
-    @Update("UPDATE chat_room_members SET is_online = #{isOnline} WHERE room_id = #{roomId} AND user_id = #{userId}")
-    void updateOnlineStatus(@Param("roomId") Long roomId, @Param("userId") Long userId, @Param("isOnline") Boolean isOnline);
+    @Update("UPDATE chat_room_members SET is_online = true " +
+            "WHERE room_id = #{roomId} AND user_id = #{userId} AND (is_online IS NULL OR is_online = false)")
+    int markOnline(@Param("roomId") Long roomId, @Param("userId") Long userId);
+    
+    /**
+     * 将成员设置为离线
+     * @return 状态发生变化时返回1，已离线或不是成员时返回0
+     */
+    @Update("UPDATE chat_room_members SET is_online = false " +
+            "WHERE room_id = #{roomId} AND user_id = #{userId} AND is_online = true")
+    int markOffline(@Param("roomId") Long roomId, @Param("userId") Long userId);
+    
+    /**
+     * 批量推进成员已读位置，已读位置只增不减
+     * @param marks 每项只使用roomId、userId和lastReadMessageId
+     */
+    @Update("<script>" +
+            "UPDATE chat_room_members SET last_read_message_id = GREATEST(COALESCE(last_read_message_id, 0), CASE " +
+            "<foreach collection='marks' item='m'>" +
+            "WHEN room_id = #{m.roomId} AND user_id = #{m.userId} THEN #{m.lastReadMessageId} " +
+            "</foreach>" +
+            "ELSE 0 END) " +
+            "WHERE (room_id, user_id) IN " +
+            "<foreach collection='marks' item='m' open='(' separator=',' close=')'>" +
+            "(#{m.roomId}, #{m.userId})" +
+            "</foreach>" +
+            "</script>")
+    int advanceLastReadMessageIds(@Param("marks") List<ChatRoomMember> marks);
     
     /**
      * 获取聊天室在线成员数量
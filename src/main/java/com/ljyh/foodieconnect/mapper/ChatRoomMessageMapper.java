@@ -38,10 +38,52 @@ public interface ChatRoomMessageMapper extends BaseMapper<ChatRoomMessage> {
     List<ChatRoomMessage> findLatestMessagesByRoomId(@Param("roomId") Long roomId, @Param("limit") Integer limit);
     
     /**
-     * 删除超过指定天数的聊天记录
-     * @param days 天数
+     * 游标分页查询指定消息ID之前的消息（包含发送者信息）
+     * 使用 room_id + id 键集条件，命中 idx_room_created_at（二级索引隐含主键），不需要OFFSET和COUNT
+     */
+    @Select("SELECT crm.*, u.display_name as senderName, u.avatar_url as senderAvatar " +
+            "FROM chat_room_messages crm " +
+            "LEFT JOIN users u ON crm.sender_id = u.id " +
+            "WHERE crm.room_id = #{roomId} AND crm.id < #{beforeId} " +
+            "ORDER BY crm.id DESC " +
+            "LIMIT #{limit}")
+    List<ChatRoomMessage> findByRoomIdBeforeId(@Param("roomId") Long roomId, @Param("beforeId") Long beforeId,
+                                               @Param("limit") Integer limit);
+    
+    /**
+     * 查询指定消息ID之后的消息（按时间正序，包含发送者信息），用于断线重连补发
+     */
+    @Select("SELECT crm.*, u.display_name as senderName, u.avatar_url as senderAvatar " +
+            "FROM chat_room_messages crm " +
+            "LEFT JOIN users u ON crm.sender_id = u.id " +
+            "WHERE crm.room_id = #{roomId} AND crm.id > #{afterId} " +
+            "ORDER BY crm.id ASC " +
+            "LIMIT #{limit}")
+    List<ChatRoomMessage> findByRoomIdAfterId(@Param("roomId") Long roomId, @Param("afterId") Long afterId,
+                                              @Param("limit") Integer limit);
+    
+    /**
+     * 按主键顺序读取一批消息的ID和创建时间，用于确定分批删除的范围
+     */
+    @Select("SELECT id, created_at FROM chat_room_messages WHERE id > #{afterId} ORDER BY id ASC LIMIT #{limit}")
+    List<ChatRoomMessage> findIdsForRetention(@Param("afterId") Long afterId, @Param("limit") int limit);
+    
+    /**
+     * 查询主键区间内早于截止时间的聊天记录（包含发送者信息），删除前用于归档
+     */
+    @Select("SELECT crm.*, u.display_name as senderName, u.avatar_url as senderAvatar " +
+            "FROM chat_room_messages crm " +
+            "LEFT JOIN users u ON crm.sender_id = u.id " +
+            "WHERE crm.id > #{afterId} AND crm.id <= #{toId} AND crm.created_at < #{cutoff} " +
+            "ORDER BY crm.id ASC")
+    List<ChatRoomMessage> findExpiredInRange(@Param("afterId") Long afterId, @Param("toId") Long toId,
+                                             @Param("cutoff") java.time.LocalDateTime cutoff);
+    
+    /**
+     * 删除主键区间内早于截止时间的聊天记录
      * @return 删除的记录数
      */
-    @Delete("DELETE FROM chat_room_messages WHERE created_at < DATE_SUB(NOW(), INTERVAL #{days} DAY)")
-    int deleteOldMessages(@Param("days") int days);
+    @Delete("DELETE FROM chat_room_messages WHERE id > #{afterId} AND id <= #{toId} AND created_at < #{cutoff}")
+    int deleteExpiredInRange(@Param("afterId") Long afterId, @Param("toId") Long toId,
+                             @Param("cutoff") java.time.LocalDateTime cutoff);
 }
\ No newline at end of file
@@ -3,8 +3,10 @@ package com.ljyh.foodieconnect.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ljyh.foodieconnect.entity.DishReviewImage;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,6 +24,19 @@ public interface DishReviewImageMapper extends BaseMapper<DishReviewImage> {
     @Select("SELECT * FROM dish_review_images WHERE dish_review_id = #{dishReviewId} ORDER BY sort_order ASC")
     List<DishReviewImage> selectByDishReviewId(Long dishReviewId);
 
+    /**
+     * 批量查询多条评价的图片列表，按评价ID和排序号排列
+     *
+     * @param dishReviewIds 菜品评价ID列表，不能为空
+     * @return 图片列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM dish_review_images WHERE dish_review_id IN " +
+            "<foreach collection='dishReviewIds' item='dishReviewId' open='(' separator=',' close=')'>#{dishReviewId}</foreach> " +
+            "ORDER BY dish_review_id, sort_order ASC" +
+            "</script>")
+    List<DishReviewImage> selectByDishReviewIds(@Param("dishReviewIds") Collection<Long> dishReviewIds);
+
     /**
      * 根据评价ID删除图片
      *
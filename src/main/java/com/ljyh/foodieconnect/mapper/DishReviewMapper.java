@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -16,14 +17,35 @@ import java.util.List;
 public interface DishReviewMapper extends BaseMapper<DishReview> {
 
     /**
-     * 根据菜品ID分页查询评价（包含图片和用户信息）
+     * 根据菜品ID分页查询评价（不含图片和用户信息）
      */
     Page<DishReview> findByMenuItemId(Page<DishReview> page, @Param("menuItemId") Long menuItemId);
 
+    /**
+     * 游标分页查询菜品评价（不含图片），按创建时间和ID降序
+     * 游标为空时查询最新的评价，否则只返回排在游标记录之后的评价
+     */
+    @Select("<script>" +
+            "SELECT * FROM dish_reviews WHERE menu_item_id = #{menuItemId} " +
+            "<if test='cursorId != null'>" +
+            "AND (created_at &lt; #{cursorCreatedAt} OR (created_at = #{cursorCreatedAt} AND id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<DishReview> findByMenuItemIdBefore(@Param("menuItemId") Long menuItemId,
+                                            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                            @Param("cursorId") Long cursorId,
+                                            @Param("limit") int limit);
+
     /**
      * 根据用户ID分页查询评价
+     * @param restaurantId 餐厅ID，为null时不限
+     * @param menuItemId 菜品ID，为null时不限
      */
-    Page<DishReview> findByUserId(Page<DishReview> page, @Param("userId") Long userId);
+    Page<DishReview> findByUserId(Page<DishReview> page,
+                                  @Param("userId") Long userId,
+                                  @Param("restaurantId") Long restaurantId,
+                                  @Param("menuItemId") Long menuItemId);
 
     /**
      * 根据餐厅ID和菜品ID分页查询评价（商家使用）
@@ -57,16 +79,6 @@ public interface DishReviewMapper extends BaseMapper<DishReview> {
     @Select("SELECT COUNT(*) FROM dish_reviews WHERE menu_item_id = #{menuItemId}")
     Integer countByMenuItemId(@Param("menuItemId") Long menuItemId);
 
-    /**
-     * 获取菜品评分分布
-     */
-    List<RatingDistribution> getRatingDistribution(@Param("menuItemId") Long menuItemId);
-
-    /**
-     * 获取商家餐厅菜品的评价概览
-     */
-    List<ItemReviewStats> getItemReviewStats(@Param("restaurantId") Long restaurantId);
-
     /**
      * 获取指定日期的营收统计
      */
@@ -112,70 +124,4 @@ public interface DishReviewMapper extends BaseMapper<DishReview> {
             this.orderCount = orderCount;
         }
     }
-
-    /**
-     * 评分分布结果类
-     */
-    class RatingDistribution {
-        private Integer rating;
-        private Integer count;
-
-        public Integer getRating() {
-            return rating;
-        }
-
-        public void setRating(Integer rating) {
-            this.rating = rating;
-        }
-
-        public Integer getCount() {
-            return count;
-        }
-
-        public void setCount(Integer count) {
-            this.count = count;
-        }
-    }
-
-    /**
-     * 菜品评价统计结果类
-     */
-    class ItemReviewStats {
-        private Long menuItemId;
-        private String itemName;
-        private Double averageRating;
-        private Integer reviewCount;
-
-        public Long getMenuItemId() {
-            return menuItemId;
-        }
-
-        public void setMenuItemId(Long menuItemId) {
-            this.menuItemId = menuItemId;
-        }
-
-        public String getItemName() {
-            return itemName;
-        }
-
-        public void setItemName(String itemName) {
-            this.itemName = itemName;
-        }
-
-        public Double getAverageRating() {
-            return averageRating;
-        }
-
-        public void setAverageRating(Double averageRating) {
-            this.averageRating = averageRating;
-        }
-
-        public Integer getReviewCount() {
-            return reviewCount;
-        }
-
-        public void setReviewCount(Integer reviewCount) {
-            this.reviewCount = reviewCount;
-        }
-    }
 }
@@ -0,0 +1,32 @@
+package com.ljyh.foodieconnect.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ljyh.foodieconnect.entity.DishReviewSummary;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 餐厅菜品评价汇总Mapper接口
+ */
+public interface DishReviewSummaryMapper extends BaseMapper<DishReviewSummary> {
+
+    /**
+     * 不存在时创建汇总行，并对该行加排他锁直到事务结束，同一餐厅的重建串行执行
+     */
+    @Insert("INSERT INTO restaurant_dish_review_summaries (restaurant_id) VALUES (#{restaurantId}) " +
+            "ON DUPLICATE KEY UPDATE restaurant_id = restaurant_id")
+    int lockOrCreate(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * 查找评价总数、评分总和与菜品评分聚合不一致的餐厅ID
+     */
+    @Select("SELECT s.restaurant_id FROM restaurant_dish_review_summaries s LEFT JOIN (" +
+            "SELECT restaurant_id, SUM(review_count) AS cnt, SUM(rating_sum) AS total " +
+            "FROM menu_items GROUP BY restaurant_id) m ON m.restaurant_id = s.restaurant_id " +
+            "WHERE s.total_reviews <> COALESCE(m.cnt, 0) OR s.rating_sum <> COALESCE(m.total, 0) " +
+            "LIMIT #{limit}")
+    List<Long> findDrift(@Param("limit") int limit);
+}
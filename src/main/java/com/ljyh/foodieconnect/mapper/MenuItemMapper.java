@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.entity.MenuItem;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -68,18 +69,6 @@ public interface MenuItemMapper extends BaseMapper<MenuItem> {
     @Select("SELECT COALESCE(MAX(sort_order), 0) FROM menu_items WHERE restaurant_id = #{restaurantId} AND category_id = #{categoryId}")
     Integer getMaxSortOrder(@Param("restaurantId") Long restaurantId, @Param("categoryId") Long categoryId);
 
-    /**
-     * 计算菜品平均评分
-     */
-    @Select("SELECT AVG(rating) FROM dish_reviews WHERE menu_item_id = #{menuItemId}")
-    Double calculateAverageRating(@Param("menuItemId") Long menuItemId);
-
-    /**
-     * 统计菜品评价数量
-     */
-    @Select("SELECT COUNT(*) FROM dish_reviews WHERE menu_item_id = #{menuItemId}")
-    Integer countReviews(@Param("menuItemId") Long menuItemId);
-
     /**
      * 全局搜索菜品
      */
@@ -89,6 +78,7 @@ public interface MenuItemMapper extends BaseMapper<MenuItem> {
     /**
      * 全局搜索菜品（分页）
      */
+    @Select("SELECT * FROM menu_items WHERE is_available = true AND (name LIKE CONCAT('%', #{keyword}, '%') OR description LIKE CONCAT('%', #{keyword}, '%')) ORDER BY created_at DESC")
     Page<MenuItem> globalSearchPage(Page<MenuItem> page, @Param("keyword") String keyword);
 
     /**
@@ -96,4 +86,182 @@ public interface MenuItemMapper extends BaseMapper<MenuItem> {
      */
     @Select("SELECT COALESCE(AVG(rating), 0) FROM menu_items WHERE restaurant_id = #{restaurantId} AND is_available = true")
     Double calculateAverageRatingByRestaurant(@Param("restaurantId") Long restaurantId);
-}
\ No newline at end of file
+
+    /**
+     * 按一条菜品评价的变化增量更新评分聚合：新增只传addedRating，删除只传removedRating，修改两者都传
+     * 单条相对UPDATE在行锁内完成，并发写入不会互相覆盖；MySQL按书写顺序赋值，最后用更新后的总和与数量计算平均分
+     */
+    @Update("UPDATE menu_items SET " +
+            "rating_sum = rating_sum + COALESCE(#{addedRating,jdbcType=INTEGER}, 0) - COALESCE(#{removedRating,jdbcType=INTEGER}, 0), " +
+            "review_count = review_count + (#{addedRating,jdbcType=INTEGER} IS NOT NULL) - (#{removedRating,jdbcType=INTEGER} IS NOT NULL), " +
+            "rating_1 = rating_1 + (#{addedRating,jdbcType=INTEGER} <=> 1) - (#{removedRating,jdbcType=INTEGER} <=> 1), " +
+            "rating_2 = rating_2 + (#{addedRating,jdbcType=INTEGER} <=> 2) - (#{removedRating,jdbcType=INTEGER} <=> 2), " +
+            "rating_3 = rating_3 + (#{addedRating,jdbcType=INTEGER} <=> 3) - (#{removedRating,jdbcType=INTEGER} <=> 3), " +
+            "rating_4 = rating_4 + (#{addedRating,jdbcType=INTEGER} <=> 4) - (#{removedRating,jdbcType=INTEGER} <=> 4), " +
+            "rating_5 = rating_5 + (#{addedRating,jdbcType=INTEGER} <=> 5) - (#{removedRating,jdbcType=INTEGER} <=> 5), " +
+            "rating = IF(review_count > 0, ROUND(rating_sum / review_count, 2), 0) " +
+            "WHERE id = #{menuItemId}")
+    int applyRatingDelta(@Param("menuItemId") Long menuItemId,
+                         @Param("addedRating") Integer addedRating,
+                         @Param("removedRating") Integer removedRating);
+
+    /**
+     * 按菜品评价表重新计算菜品的评分聚合，用于修复漂移
+     */
+    @Update("UPDATE menu_items t, (SELECT COUNT(*) AS cnt, COALESCE(SUM(rating), 0) AS total, " +
+            "SUM(rating = 1) AS r1, SUM(rating = 2) AS r2, SUM(rating = 3) AS r3, " +
+            "SUM(rating = 4) AS r4, SUM(rating = 5) AS r5 " +
+            "FROM dish_reviews WHERE menu_item_id = #{menuItemId}) a " +
+            "SET t.review_count = a.cnt, t.rating_sum = a.total, " +
+            "t.rating_1 = COALESCE(a.r1, 0), t.rating_2 = COALESCE(a.r2, 0), t.rating_3 = COALESCE(a.r3, 0), " +
+            "t.rating_4 = COALESCE(a.r4, 0), t.rating_5 = COALESCE(a.r5, 0), " +
+            "t.rating = IF(a.cnt > 0, ROUND(a.total / a.cnt, 2), 0) " +
+            "WHERE t.id = #{menuItemId}")
+    int recalculateRatingAggregates(@Param("menuItemId") Long menuItemId);
+
+    /**
+     * 查找评分聚合与菜品评价表不一致的菜品ID，全表比对，只在后台校对时使用
+     */
+    @Select("SELECT t.id FROM menu_items t LEFT JOIN (" +
+            "SELECT menu_item_id, COUNT(*) AS cnt, SUM(rating) AS total, " +
+            "SUM(rating = 1) AS r1, SUM(rating = 2) AS r2, SUM(rating = 3) AS r3, " +
+            "SUM(rating = 4) AS r4, SUM(rating = 5) AS r5 " +
+            "FROM dish_reviews GROUP BY menu_item_id) a ON a.menu_item_id = t.id " +
+            "WHERE t.review_count <> COALESCE(a.cnt, 0) OR t.rating_sum <> COALESCE(a.total, 0) " +
+            "OR t.rating_1 <> COALESCE(a.r1, 0) OR t.rating_2 <> COALESCE(a.r2, 0) OR t.rating_3 <> COALESCE(a.r3, 0) " +
+            "OR t.rating_4 <> COALESCE(a.r4, 0) OR t.rating_5 <> COALESCE(a.r5, 0) " +
+            "OR NOT (t.rating <=> IF(COALESCE(a.cnt, 0) > 0, ROUND(a.total / a.cnt, 2), 0)) " +
+            "LIMIT #{limit}")
+    List<Long> findRatingAggregateDrift(@Param("limit") int limit);
+
+    /**
+     * 查询菜品的评分聚合（总和、数量和星级分布），单行主键查询
+     */
+    @Select("SELECT id, restaurant_id, name, review_count, rating_sum, " +
+            "rating_1, rating_2, rating_3, rating_4, rating_5 " +
+            "FROM menu_items WHERE id = #{menuItemId}")
+    RatingSummary findRatingSummary(@Param("menuItemId") Long menuItemId);
+
+    /**
+     * 查询餐厅有评价的菜品的评分聚合，按平均分、评价数降序
+     */
+    @Select("SELECT id, restaurant_id, name, review_count, rating_sum, " +
+            "rating_1, rating_2, rating_3, rating_4, rating_5 " +
+            "FROM menu_items WHERE restaurant_id = #{restaurantId} AND review_count > 0 " +
+            "ORDER BY rating_sum / review_count DESC, review_count DESC, id")
+    List<RatingSummary> findRatingSummariesByRestaurantId(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * 菜品评分聚合结果类
+     */
+    class RatingSummary {
+        private Long id;
+        private Long restaurantId;
+        private String name;
+        private Integer reviewCount;
+        private Integer ratingSum;
+        private Integer rating1;
+        private Integer rating2;
+        private Integer rating3;
+        private Integer rating4;
+        private Integer rating5;
+
+        /**
+         * 平均评分，没有评价时为0
+         */
+        public double getAverageRating() {
+            return reviewCount != null && reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+        }
+
+        /**
+         * 各星级的评价数量，下标0为1星
+         */
+        public int[] getDistribution() {
+            return new int[]{count(rating1), count(rating2), count(rating3), count(rating4), count(rating5)};
+        }
+
+        private static int count(Integer value) {
+            return value != null ? value : 0;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Long getRestaurantId() {
+            return restaurantId;
+        }
+
+        public void setRestaurantId(Long restaurantId) {
+            this.restaurantId = restaurantId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getReviewCount() {
+            return reviewCount;
+        }
+
+        public void setReviewCount(Integer reviewCount) {
+            this.reviewCount = reviewCount;
+        }
+
+        public Integer getRatingSum() {
+            return ratingSum;
+        }
+
+        public void setRatingSum(Integer ratingSum) {
+            this.ratingSum = ratingSum;
+        }
+
+        public Integer getRating1() {
+            return rating1;
+        }
+
+        public void setRating1(Integer rating1) {
+            this.rating1 = rating1;
+        }
+
+        public Integer getRating2() {
+            return rating2;
+        }
+
+        public void setRating2(Integer rating2) {
+            this.rating2 = rating2;
+        }
+
+        public Integer getRating3() {
+            return rating3;
+        }
+
+        public void setRating3(Integer rating3) {
+            this.rating3 = rating3;
+        }
+
+        public Integer getRating4() {
+            return rating4;
+        }
+
+        public void setRating4(Integer rating4) {
+            this.rating4 = rating4;
+        }
+
+        public Integer getRating5() {
+            return rating5;
+        }
+
+        public void setRating5(Integer rating5) {
+            this.rating5 = rating5;
+        }
+    }
+}
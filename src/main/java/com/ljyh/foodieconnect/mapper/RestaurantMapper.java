@@ -5,7 +5,9 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.entity.Restaurant;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -36,4 +38,101 @@ public interface RestaurantMapper extends BaseMapper<Restaurant> {
      */
     @Select("SELECT * FROM restaurants WHERE rating BETWEEN #{minRating} AND #{maxRating} AND is_open = true ORDER BY rating DESC")
     Page<Restaurant> findByRatingRange(Page<Restaurant> page, @Param("minRating") Double minRating, @Param("maxRating") Double maxRating);
-}
\ No newline at end of file
+    
+    /**
+     * 游标分页查询营业中的餐厅，排序与搜索索引一致：评分降序（无评分排最后）、评价数降序、ID升序
+     * 游标为空时查询第一页；否则只返回排在游标记录之后的餐厅，不使用OFFSET也不统计总数
+     * @param cursorRating 游标记录的评分，无评分记为-1
+     */
+    @Select("<script>" +
+            "SELECT * FROM restaurants WHERE is_open = true " +
+            "<if test='type != null and type != \"\"'>AND type = #{type} </if>" +
+            "<if test='cursorId != null'>" +
+            "AND (COALESCE(rating, -1) &lt; #{cursorRating} " +
+            "OR (COALESCE(rating, -1) = #{cursorRating} AND (COALESCE(review_count, 0) &lt; #{cursorReviewCount} " +
+            "OR (COALESCE(review_count, 0) = #{cursorReviewCount} AND id &gt; #{cursorId})))) " +
+            "</if>" +
+            "ORDER BY COALESCE(rating, -1) DESC, COALESCE(review_count, 0) DESC, id " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Restaurant> findOpenAfter(@Param("type") String type,
+                                   @Param("cursorRating") BigDecimal cursorRating,
+                                   @Param("cursorReviewCount") Long cursorReviewCount,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("limit") int limit);
+    
+    /**
+     * 查询半径内的餐厅，按近似距离由近到远排序；搜索索引不可用时使用
+     * 先用经纬度矩形走idx_location缩小范围，再按等距圆柱投影的距离过滤
+     * @param latitudeDelta 半径对应的纬度差（度）
+     * @param longitudeDelta 半径对应的经度差（度）
+     * @param longitudeScale 查询点纬度的余弦，经度差乘以它换算为纬度差
+     */
+    @Select("<script>" +
+            "SELECT * FROM restaurants " +
+            "WHERE latitude BETWEEN #{latitude} - #{latitudeDelta} AND #{latitude} + #{latitudeDelta} " +
+            "AND longitude BETWEEN #{longitude} - #{longitudeDelta} AND #{longitude} + #{longitudeDelta} " +
+            "AND POW(latitude - #{latitude}, 2) + POW((longitude - #{longitude}) * #{longitudeScale}, 2) " +
+            "&lt;= POW(#{latitudeDelta}, 2) " +
+            "<if test='type != null and type != \"\"'>AND type = #{type} </if>" +
+            "<if test='isOpen != null'>AND is_open = #{isOpen} </if>" +
+            "<if test='minRating != null'>AND rating &gt;= #{minRating} </if>" +
+            "ORDER BY POW(latitude - #{latitude}, 2) + POW((longitude - #{longitude}) * #{longitudeScale}, 2), id" +
+            "</script>")
+    Page<Restaurant> findNearby(Page<Restaurant> page,
+                                @Param("latitude") double latitude,
+                                @Param("longitude") double longitude,
+                                @Param("latitudeDelta") double latitudeDelta,
+                                @Param("longitudeDelta") double longitudeDelta,
+                                @Param("longitudeScale") double longitudeScale,
+                                @Param("type") String type,
+                                @Param("isOpen") Boolean isOpen,
+                                @Param("minRating") Double minRating);
+
+    /**
+     * 按一条评论的变化增量更新评分聚合：新增只传addedRating，删除只传removedRating，修改两者都传
+     * 单条相对UPDATE在行锁内完成，并发写入不会互相覆盖；MySQL按书写顺序赋值，最后用更新后的总和与数量计算平均分
+     */
+    @Update("UPDATE restaurants SET " +
+            "rating_sum = rating_sum + COALESCE(#{addedRating,jdbcType=INTEGER}, 0) - COALESCE(#{removedRating,jdbcType=INTEGER}, 0), " +
+            "review_count = review_count + (#{addedRating,jdbcType=INTEGER} IS NOT NULL) - (#{removedRating,jdbcType=INTEGER} IS NOT NULL), " +
+            "rating_1 = rating_1 + (#{addedRating,jdbcType=INTEGER} <=> 1) - (#{removedRating,jdbcType=INTEGER} <=> 1), " +
+            "rating_2 = rating_2 + (#{addedRating,jdbcType=INTEGER} <=> 2) - (#{removedRating,jdbcType=INTEGER} <=> 2), " +
+            "rating_3 = rating_3 + (#{addedRating,jdbcType=INTEGER} <=> 3) - (#{removedRating,jdbcType=INTEGER} <=> 3), " +
+            "rating_4 = rating_4 + (#{addedRating,jdbcType=INTEGER} <=> 4) - (#{removedRating,jdbcType=INTEGER} <=> 4), " +
+            "rating_5 = rating_5 + (#{addedRating,jdbcType=INTEGER} <=> 5) - (#{removedRating,jdbcType=INTEGER} <=> 5), " +
+            "rating = IF(review_count > 0, ROUND(rating_sum / review_count, 2), 0) " +
+            "WHERE id = #{restaurantId}")
+    int applyRatingDelta(@Param("restaurantId") Long restaurantId,
+                         @Param("addedRating") Integer addedRating,
+                         @Param("removedRating") Integer removedRating);
+
+    /**
+     * 按评论表重新计算餐厅的评分聚合，用于修复漂移
+     */
+    @Update("UPDATE restaurants t, (SELECT COUNT(*) AS cnt, COALESCE(SUM(rating), 0) AS total, " +
+            "SUM(rating = 1) AS r1, SUM(rating = 2) AS r2, SUM(rating = 3) AS r3, " +
+            "SUM(rating = 4) AS r4, SUM(rating = 5) AS r5 " +
+            "FROM reviews WHERE restaurant_id = #{restaurantId}) a " +
+            "SET t.review_count = a.cnt, t.rating_sum = a.total, " +
+            "t.rating_1 = COALESCE(a.r1, 0), t.rating_2 = COALESCE(a.r2, 0), t.rating_3 = COALESCE(a.r3, 0), " +
+            "t.rating_4 = COALESCE(a.r4, 0), t.rating_5 = COALESCE(a.r5, 0), " +
+            "t.rating = IF(a.cnt > 0, ROUND(a.total / a.cnt, 2), 0) " +
+            "WHERE t.id = #{restaurantId}")
+    int recalculateRatingAggregates(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * 查找评分聚合与评论表不一致的餐厅ID，全表比对，只在后台校对时使用
+     */
+    @Select("SELECT t.id FROM restaurants t LEFT JOIN (" +
+            "SELECT restaurant_id, COUNT(*) AS cnt, SUM(rating) AS total, " +
+            "SUM(rating = 1) AS r1, SUM(rating = 2) AS r2, SUM(rating = 3) AS r3, " +
+            "SUM(rating = 4) AS r4, SUM(rating = 5) AS r5 " +
+            "FROM reviews GROUP BY restaurant_id) a ON a.restaurant_id = t.id " +
+            "WHERE t.review_count <> COALESCE(a.cnt, 0) OR t.rating_sum <> COALESCE(a.total, 0) " +
+            "OR t.rating_1 <> COALESCE(a.r1, 0) OR t.rating_2 <> COALESCE(a.r2, 0) OR t.rating_3 <> COALESCE(a.r3, 0) " +
+            "OR t.rating_4 <> COALESCE(a.r4, 0) OR t.rating_5 <> COALESCE(a.r5, 0) " +
+            "OR NOT (t.rating <=> IF(COALESCE(a.cnt, 0) > 0, ROUND(a.total / a.cnt, 2), 0)) " +
+            "LIMIT #{limit}")
+    List<Long> findRatingAggregateDrift(@Param("limit") int limit);
+}
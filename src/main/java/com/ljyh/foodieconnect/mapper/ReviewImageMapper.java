@@ -3,7 +3,9 @@ package com.ljyh.foodieconnect.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ljyh.foodieconnect.entity.ReviewImage;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,6 +22,14 @@ public interface ReviewImageMapper extends BaseMapper<ReviewImage> {
      */
     List<ReviewImage> selectByReviewId(Long reviewId);
     
+    /**
+     * 批量查询多条评论的图片列表，按评论ID和排序号排列
+     * 
+     * @param reviewIds 评论ID列表，不能为空
+     * @return 图片列表
+     */
+    List<ReviewImage> selectByReviewIds(@Param("reviewIds") Collection<Long> reviewIds);
+    
     /**
      * 根据评论ID删除图片
      * 
@@ -6,20 +6,34 @@ import com.ljyh.foodieconnect.entity.Review;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 评论Mapper接口
  */
 public interface ReviewMapper extends BaseMapper<Review> {
     
     /**
-     * 根据餐厅ID分页查询评论（包含图片）
+     * 根据餐厅ID分页查询评论ID，按创建时间和ID降序
+     * 只翻页ID，评论内容、用户和图片由调用方按ID批量加载
+     */
+    Page<Long> findIdsByRestaurantId(Page<Long> page, @Param("restaurantId") Long restaurantId);
+    
+    /**
+     * 游标分页查询餐厅评论（不含用户信息和图片），按创建时间和ID降序
+     * 游标为空时查询最新的评论，否则只返回排在游标记录之后的评论
      */
-    Page<Review> findByRestaurantId(Page<Review> page, @Param("restaurantId") Long restaurantId);
+    List<Review> findByRestaurantIdBefore(@Param("restaurantId") Long restaurantId,
+                                          @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                          @Param("cursorId") Long cursorId,
+                                          @Param("limit") int limit);
     
     /**
-     * 根据用户ID查询评论（包含图片）
+     * 根据用户ID分页查询评论ID，按创建时间和ID降序
+     * 只翻页ID，评论内容、用户和图片由调用方按ID批量加载
      */
-    Page<Review> findByUserId(Page<Review> page, @Param("userId") Long userId);
+    Page<Long> findIdsByUserId(Page<Long> page, @Param("userId") Long userId);
     
     /**
      * 检查用户是否已评论过该餐厅
@@ -4,7 +4,9 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ljyh.foodieconnect.entity.Staff;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -53,4 +55,52 @@ public interface StaffMapper extends BaseMapper<Staff> {
      */
     @Select("SELECT COALESCE(AVG(rating), 0) FROM staff WHERE restaurant_id = #{restaurantId} AND rating IS NOT NULL")
     Double calculateAverageRatingByRestaurant(@Param("restaurantId") Long restaurantId);
-}
\ No newline at end of file
+
+    /**
+     * 按一条店员评价的变化增量更新评分聚合：新增只传addedRating，删除只传removedRating，修改两者都传
+     * 店员评分为小数，分布按四舍五入后的星级计数
+     * 单条相对UPDATE在行锁内完成，并发写入不会互相覆盖；MySQL按书写顺序赋值，最后用更新后的总和与数量计算平均分
+     */
+    @Update("UPDATE staff SET " +
+            "rating_sum = rating_sum + COALESCE(#{addedRating,jdbcType=DECIMAL}, 0) - COALESCE(#{removedRating,jdbcType=DECIMAL}, 0), " +
+            "review_count = review_count + (#{addedRating,jdbcType=DECIMAL} IS NOT NULL) - (#{removedRating,jdbcType=DECIMAL} IS NOT NULL), " +
+            "rating_1 = rating_1 + (ROUND(#{addedRating,jdbcType=DECIMAL}) <=> 1) - (ROUND(#{removedRating,jdbcType=DECIMAL}) <=> 1), " +
+            "rating_2 = rating_2 + (ROUND(#{addedRating,jdbcType=DECIMAL}) <=> 2) - (ROUND(#{removedRating,jdbcType=DECIMAL}) <=> 2), " +
+            "rating_3 = rating_3 + (ROUND(#{addedRating,jdbcType=DECIMAL}) <=> 3) - (ROUND(#{removedRating,jdbcType=DECIMAL}) <=> 3), " +
+            "rating_4 = rating_4 + (ROUND(#{addedRating,jdbcType=DECIMAL}) <=> 4) - (ROUND(#{removedRating,jdbcType=DECIMAL}) <=> 4), " +
+            "rating_5 = rating_5 + (ROUND(#{addedRating,jdbcType=DECIMAL}) <=> 5) - (ROUND(#{removedRating,jdbcType=DECIMAL}) <=> 5), " +
+            "rating = IF(review_count > 0, ROUND(rating_sum / review_count, 2), 0) " +
+            "WHERE id = #{staffId}")
+    int applyRatingDelta(@Param("staffId") Long staffId,
+                         @Param("addedRating") BigDecimal addedRating,
+                         @Param("removedRating") BigDecimal removedRating);
+
+    /**
+     * 按店员评价表重新计算店员的评分聚合，用于修复漂移
+     */
+    @Update("UPDATE staff t, (SELECT COUNT(*) AS cnt, COALESCE(SUM(rating), 0) AS total, " +
+            "SUM(ROUND(rating) = 1) AS r1, SUM(ROUND(rating) = 2) AS r2, SUM(ROUND(rating) = 3) AS r3, " +
+            "SUM(ROUND(rating) = 4) AS r4, SUM(ROUND(rating) = 5) AS r5 " +
+            "FROM staff_reviews WHERE staff_id = #{staffId}) a " +
+            "SET t.review_count = a.cnt, t.rating_sum = a.total, " +
+            "t.rating_1 = COALESCE(a.r1, 0), t.rating_2 = COALESCE(a.r2, 0), t.rating_3 = COALESCE(a.r3, 0), " +
+            "t.rating_4 = COALESCE(a.r4, 0), t.rating_5 = COALESCE(a.r5, 0), " +
+            "t.rating = IF(a.cnt > 0, ROUND(a.total / a.cnt, 2), 0) " +
+            "WHERE t.id = #{staffId}")
+    int recalculateRatingAggregates(@Param("staffId") Long staffId);
+
+    /**
+     * 查找评分聚合与店员评价表不一致的店员ID，全表比对，只在后台校对时使用
+     */
+    @Select("SELECT t.id FROM staff t LEFT JOIN (" +
+            "SELECT staff_id, COUNT(*) AS cnt, SUM(rating) AS total, " +
+            "SUM(ROUND(rating) = 1) AS r1, SUM(ROUND(rating) = 2) AS r2, SUM(ROUND(rating) = 3) AS r3, " +
+            "SUM(ROUND(rating) = 4) AS r4, SUM(ROUND(rating) = 5) AS r5 " +
+            "FROM staff_reviews GROUP BY staff_id) a ON a.staff_id = t.id " +
+            "WHERE t.review_count <> COALESCE(a.cnt, 0) OR t.rating_sum <> COALESCE(a.total, 0) " +
+            "OR t.rating_1 <> COALESCE(a.r1, 0) OR t.rating_2 <> COALESCE(a.r2, 0) OR t.rating_3 <> COALESCE(a.r3, 0) " +
+            "OR t.rating_4 <> COALESCE(a.r4, 0) OR t.rating_5 <> COALESCE(a.r5, 0) " +
+            "OR NOT (t.rating <=> IF(COALESCE(a.cnt, 0) > 0, ROUND(a.total / a.cnt, 2), 0)) " +
+            "LIMIT #{limit}")
+    List<Long> findRatingAggregateDrift(@Param("limit") int limit);
+}
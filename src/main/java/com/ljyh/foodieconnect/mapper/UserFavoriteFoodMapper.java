@@ -6,6 +6,7 @@ import com.ljyh.foodieconnect.entity.UserFavoriteFood;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -37,6 +38,23 @@ public interface UserFavoriteFoodMapper extends BaseMapper<UserFavoriteFood> {
     @Select("SELECT * FROM user_favorite_foods WHERE user_id = #{userId} AND food_type = #{foodType} ORDER BY created_at DESC")
     Page<UserFavoriteFood> findByUserIdAndFoodTypePage(Page<UserFavoriteFood> page, @Param("userId") Long userId, @Param("foodType") String foodType);
     
+    /**
+     * 游标分页获取喜好食物列表，按添加时间和ID降序；食物类型为空时不限，游标为空时查询最新的记录
+     */
+    @Select("<script>" +
+            "SELECT * FROM user_favorite_foods WHERE user_id = #{userId} " +
+            "<if test='foodType != null'>AND food_type = #{foodType} </if>" +
+            "<if test='cursorId != null'>" +
+            "AND (created_at &lt; #{cursorCreatedAt} OR (created_at = #{cursorCreatedAt} AND id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<UserFavoriteFood> findByUserIdBefore(@Param("userId") Long userId,
+                                              @Param("foodType") String foodType,
+                                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                              @Param("cursorId") Long cursorId,
+                                              @Param("limit") int limit);
+    
     /**
      * 检查用户是否已添加该喜好食物
      */
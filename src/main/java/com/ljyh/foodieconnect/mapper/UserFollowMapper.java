@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -36,6 +37,40 @@ public interface UserFollowMapper extends BaseMapper<UserFollow> {
             "WHERE f.following_id = #{userId} ORDER BY f.created_at DESC")
     Page<UserFollow> findFollowersPage(Page<UserFollow> page, @Param("userId") Long userId);
     
+    /**
+     * 游标分页获取用户关注列表，按关注时间和ID降序；游标为空时查询最新的记录
+     */
+    @Select("<script>" +
+            "SELECT f.*, u.display_name, u.avatar_url FROM user_follows f " +
+            "LEFT JOIN users u ON f.following_id = u.id " +
+            "WHERE f.follower_id = #{userId} " +
+            "<if test='cursorId != null'>" +
+            "AND (f.created_at &lt; #{cursorCreatedAt} OR (f.created_at = #{cursorCreatedAt} AND f.id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY f.created_at DESC, f.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<UserFollow> findFollowingBefore(@Param("userId") Long userId,
+                                         @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                         @Param("cursorId") Long cursorId,
+                                         @Param("limit") int limit);
+    
+    /**
+     * 游标分页获取用户粉丝列表，按关注时间和ID降序；游标为空时查询最新的记录
+     */
+    @Select("<script>" +
+            "SELECT f.*, u.display_name, u.avatar_url FROM user_follows f " +
+            "LEFT JOIN users u ON f.follower_id = u.id " +
+            "WHERE f.following_id = #{userId} " +
+            "<if test='cursorId != null'>" +
+            "AND (f.created_at &lt; #{cursorCreatedAt} OR (f.created_at = #{cursorCreatedAt} AND f.id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY f.created_at DESC, f.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<UserFollow> findFollowersBefore(@Param("userId") Long userId,
+                                         @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                         @Param("cursorId") Long cursorId,
+                                         @Param("limit") int limit);
+    
     /**
      * 取消关注
      */
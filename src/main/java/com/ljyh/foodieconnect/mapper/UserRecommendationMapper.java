@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Delete;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -60,6 +61,26 @@ public interface UserRecommendationMapper extends BaseMapper<UserRecommendation>
                                                               @Param("offset") int offset, 
                                                               @Param("limit") int limit);
     
+    /**
+     * 游标分页获取用户的推荐列表，按推荐分数和ID降序；游标为空时查询第一页
+     */
+    @Select("<script>" +
+            "SELECT r.*, u.display_name as recommended_user_name, u.avatar_url as recommended_user_avatar " +
+            "FROM user_recommendations r " +
+            "LEFT JOIN users u ON r.recommended_user_id = u.id " +
+            "WHERE r.user_id = #{userId} " +
+            "<if test='cursorId != null'>" +
+            "AND (r.recommendation_score &lt; #{cursorScore} " +
+            "OR (r.recommendation_score = #{cursorScore} AND r.id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY r.recommendation_score DESC, r.id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<UserRecommendationWithUserInfo> findByUserIdBefore(@Param("userId") Long userId,
+                                                            @Param("cursorScore") BigDecimal cursorScore,
+                                                            @Param("cursorId") Long cursorId,
+                                                            @Param("limit") int limit);
+    
     /**
      * 获取用户未查看的推荐列表
      */
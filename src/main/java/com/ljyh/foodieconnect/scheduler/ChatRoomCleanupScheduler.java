@@ -1,6 +1,6 @@
 package com.ljyh.foodieconnect.scheduler;
 
-import com.ljyh.foodieconnect.service.ChatRoomService;
+import com.ljyh.foodieconnect.service.ChatMessageRetentionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
@@ -16,36 +16,24 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class ChatRoomCleanupScheduler implements ApplicationRunner {
 
-    private final ChatRoomService chatRoomService;
+    private final ChatMessageRetentionService retentionService;
 
     /**
-     * 应用启动时执行，删除超过24小时的聊天记录
+     * 应用启动时在后台清理过期的聊天记录，上次清理中断时从断点继续，不阻塞启动
      */
     @Override
     public void run(ApplicationArguments args) {
-        log.info("应用启动，开始清理过久的聊天记录");
-        
-        try {
-            int deletedCount = chatRoomService.deleteOldMessages(1);
-            log.info("启动时清理完成，删除了 {} 条超过 1 天的聊天记录", deletedCount);
-        } catch (Exception e) {
-            log.error("启动时清理聊天记录失败: {}", e.getMessage(), e);
-        }
+        log.info("应用启动，提交后台清理过期聊天记录任务");
+        retentionService.submitCleanup();
     }
 
     /**
-     * 每天凌晨2点执行，删除超过24小时的聊天记录
+     * 每天凌晨2点执行，删除超过保留期的聊天记录
      * 使用cron表达式：0 0 2 * * ? 表示每天凌晨2点执行一次
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void scheduledCleanupOldMessages() {
-        log.info("定时任务开始清理过久的聊天记录");
-        
-        try {
-            int deletedCount = chatRoomService.deleteOldMessages(1);
-            log.info("定时清理完成，删除了 {} 条超过 1 天的聊天记录", deletedCount);
-        } catch (Exception e) {
-            log.error("定时清理聊天记录失败: {}", e.getMessage(), e);
-        }
+        log.info("定时任务提交后台清理过期聊天记录任务");
+        retentionService.submitCleanup();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,6 @@
 package com.ljyh.foodieconnect.scheduler;
 
-import com.ljyh.foodieconnect.service.ChatRoomService;
+import com.ljyh.foodieconnect.service.ChatMessageRetentionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -8,26 +8,22 @@ import org.springframework.stereotype.Component;
 
 /**
  * 聊天室消息清理定时任务
- * 每天凌晨1点删除超过24小时的聊天记录
+ * 每天凌晨1点删除超过保留期（默认24小时）的聊天记录
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ChatRoomMessageCleanupScheduler {
 
-    private final ChatRoomService chatRoomService;
+    private final ChatMessageRetentionService retentionService;
 
     /**
-     * 每天凌晨1点执行一次，删除超过24小时的聊天记录
+     * 每天凌晨1点执行一次，在后台分批删除过期的聊天记录
      * cron表达式：0 0 1 * * ? 表示每天凌晨1点执行
      */
     @Scheduled(cron = "0 0 1 * * ?")
     public void cleanupOldMessages() {
-        log.info("开始清理超过24小时的聊天记录");
-        
-        // 删除超过1天的聊天记录（24小时）
-        int deletedCount = chatRoomService.deleteOldMessages(1);
-        
-        log.info("聊天记录清理完成，共删除了 {} 条超过24小时的聊天记录", deletedCount);
+        log.info("开始清理过期的聊天记录");
+        retentionService.submitCleanup();
     }
 }
@@ -1,13 +1,14 @@
 package com.ljyh.foodieconnect.scheduler;
 
-import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.service.ChatRoomService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * 聊天室验证码定时刷新任务
@@ -17,24 +18,36 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ChatRoomVerificationCodeScheduler {
 
+    private static final int ROTATION_INTERVAL_MINUTES = 30;
+
     private final ChatRoomService chatRoomService;
 
+    @Value("${app.chat.verification-code-batch-size:500}")
+    private int batchSize;
+
     /**
      * 每隔30分钟刷新所有聊天室的验证码
      * 使用cron表达式：0 0/30 * * * ? 表示每30分钟执行一次
+     * 多个节点同时触发时，以本轮时间段的起点为界，已轮换的聊天室不会被重复刷新
      */
     @Scheduled(cron = "0 0/30 * * * ?")
     public void refreshAllVerificationCodes() {
         log.info("开始刷新所有聊天室的验证码");
         
-        // 获取所有聊天室
-        List<ChatRoom> chatRooms = chatRoomService.list();
-        
-        // 刷新每个聊天室的验证码
-        for (ChatRoom chatRoom : chatRooms) {
-            chatRoomService.refreshVerificationCode(chatRoom);
+        LocalDateTime rotatedBefore = currentRotationStart(LocalDateTime.now());
+        try {
+            int rotated = chatRoomService.rotateVerificationCodes(rotatedBefore, batchSize);
+            log.info("所有聊天室验证码刷新完成，共刷新了 {} 个聊天室", rotated);
+        } catch (Exception e) {
+            log.error("刷新聊天室验证码失败: {}", e.getMessage(), e);
         }
-        
-        log.info("所有聊天室验证码刷新完成，共刷新了 {} 个聊天室", chatRooms.size());
+    }
+
+    /**
+     * 当前轮换时间段的起点，即向下取整到30分钟
+     */
+    static LocalDateTime currentRotationStart(LocalDateTime now) {
+        LocalDateTime hour = now.truncatedTo(ChronoUnit.HOURS);
+        return hour.plusMinutes((long) (now.getMinute() / ROTATION_INTERVAL_MINUTES) * ROTATION_INTERVAL_MINUTES);
     }
 }
@@ -0,0 +1,218 @@
+package com.ljyh.foodieconnect.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho–Corasick多模式匹配自动机
+ * 编译后只读，可被多个线程并发使用；一次扫描即可找出文本中出现的所有关键词，耗时与关键词数量无关。
+ * 匹配前对文本和关键词做相同的归一化（全角ASCII转半角、英文转小写），归一化不改变字符位置。
+ */
+public class AhoCorasickMatcher {
+
+    private static final int ROOT = 0;
+    private static final char[] NO_KEYS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    /**
+     * 根节点的子节点直接按字符寻址，其余节点的子节点按字符有序存放并二分查找
+     */
+    private final int[] rootTable;
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[] output;
+    private final int[] outputLink;
+    private final int[] patternLengths;
+
+    /**
+     * 匹配回调
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * @param start 匹配在原文中的起始位置（包含）
+         * @param end 匹配在原文中的结束位置（不包含）
+         * @param patternIndex 命中的关键词在编译时列表中的下标
+         * @return 返回false时停止扫描
+         */
+        boolean onMatch(int start, int end, int patternIndex);
+    }
+
+    private AhoCorasickMatcher(int[] rootTable, char[][] keys, int[][] targets, int[] fail,
+                               int[] output, int[] outputLink, int[] patternLengths) {
+        this.rootTable = rootTable;
+        this.keys = keys;
+        this.targets = targets;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.patternLengths = patternLengths;
+    }
+
+    /**
+     * 编译关键词列表，空关键词会被忽略，重复关键词以第一次出现的为准
+     */
+    public static AhoCorasickMatcher compile(List<String> patterns) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> nodeOutput = new ArrayList<>();
+        children.add(new TreeMap<>());
+        nodeOutput.add(-1);
+
+        int[] patternLengths = new int[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = normalize(pattern.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    nodeOutput.add(-1);
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            if (nodeOutput.get(node) < 0) {
+                nodeOutput.set(node, p);
+            }
+            patternLengths[p] = pattern.length();
+        }
+
+        int size = children.size();
+        char[][] keys = new char[size][];
+        int[][] targets = new int[size][];
+        int[] output = new int[size];
+        for (int node = 0; node < size; node++) {
+            Map<Character, Integer> map = children.get(node);
+            if (map.isEmpty()) {
+                keys[node] = NO_KEYS;
+                targets[node] = NO_TARGETS;
+            } else {
+                keys[node] = new char[map.size()];
+                targets[node] = new int[map.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> entry : map.entrySet()) {
+                    keys[node][i] = entry.getKey();
+                    targets[node][i] = entry.getValue();
+                    i++;
+                }
+            }
+            output[node] = nodeOutput.get(node);
+        }
+
+        int[] rootTable = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(rootTable, -1);
+        for (int i = 0; i < keys[ROOT].length; i++) {
+            rootTable[keys[ROOT][i]] = targets[ROOT][i];
+        }
+
+        // 按层次遍历计算失败指针和输出链接
+        int[] fail = new int[size];
+        int[] outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        AhoCorasickMatcher partial = new AhoCorasickMatcher(rootTable, keys, targets, fail, output, outputLink, patternLengths);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < keys[node].length; i++) {
+                int child = targets[node][i];
+                fail[child] = partial.next(fail[node], keys[node][i]);
+                int f = fail[child];
+                outputLink[child] = output[f] >= 0 ? f : outputLink[f];
+                queue.add(child);
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * 扫描文本，按匹配结束位置的顺序回调所有命中（包括相互重叠的命中）
+     */
+    public void scan(CharSequence text, MatchHandler handler) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, normalize(text.charAt(i)));
+            int node = output[state] >= 0 ? state : outputLink[state];
+            while (node > ROOT) {
+                int pattern = output[node];
+                if (!handler.onMatch(i + 1 - patternLengths[pattern], i + 1, pattern)) {
+                    return;
+                }
+                node = outputLink[node];
+            }
+        }
+    }
+
+    /**
+     * 文本中是否包含任一关键词
+     */
+    public boolean containsAny(CharSequence text) {
+        boolean[] found = new boolean[1];
+        scan(text, (start, end, pattern) -> {
+            found[0] = true;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * 自动机状态数
+     */
+    public int getStateCount() {
+        return fail.length;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int target = child(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int child(int node, char c) {
+        if (node == ROOT) {
+            return rootTable[c];
+        }
+        char[] nodeKeys = keys[node];
+        if (nodeKeys.length == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(nodeKeys, c);
+        return index >= 0 ? targets[node][index] : -1;
+    }
+
+    /**
+     * 全角ASCII转半角、英文转小写，保持字符数不变
+     */
+    static char normalize(char c) {
+        if (c >= '\uFF01' && c <= '\uFF5E') {
+            c = (char) (c - 0xFEE0);
+        } else if (c == '\u3000') {
+            c = ' ';
+        }
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+}
@@ -68,9 +68,13 @@ public class AuthService {
         user.setEmail(userDTO.getEmail());
         user.setDisplayName(userDTO.getDisplayName());
         
-        // 生成新的访问令牌
+        // 生成新的访问令牌，旧的刷新令牌随即撤销，登出时只需撤销最新的刷新令牌
         String newToken = jwtService.generateToken(user);
         String newRefreshToken = jwtService.generateRefreshToken(user);
+        // 令牌按秒签发，同一秒内刷新得到的刷新令牌与旧令牌相同，此时不能撤销
+        if (!newRefreshToken.equals(refreshToken)) {
+            jwtService.revokeToken(refreshToken);
+        }
         
         // 构建响应
         LoginResponse response = new LoginResponse();
@@ -91,6 +95,18 @@ public class AuthService {
         return userService.getUserByEmail(email);
     }
     
+    /**
+     * 登出，撤销当前使用的访问令牌和刷新令牌，参数为null时跳过
+     */
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            jwtService.revokeToken(accessToken);
+        }
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            jwtService.revokeToken(refreshToken);
+        }
+    }
+    
     /**
      * 将User实体转换为UserDTO
      */
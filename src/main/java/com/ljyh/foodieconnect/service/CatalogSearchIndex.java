@@ -0,0 +1,499 @@
+package com.ljyh.foodieconnect.service;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ljyh.foodieconnect.entity.MenuItem;
+import com.ljyh.foodieconnect.entity.Restaurant;
+import com.ljyh.foodieconnect.mapper.MenuItemMapper;
+import com.ljyh.foodieconnect.mapper.RestaurantMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 餐厅和菜品搜索索引
+ * 启动后从数据库全量加载餐厅和菜品的名称、描述建立倒排索引，搜索接口直接查询内存索引，不再对两张表做LIKE全表扫描。
+ * 餐厅和菜品的写操作在事务提交后按主键重新读取并更新索引；另有定时全量重建，兜底其他实例或直接改库造成的差异。
+ * 首次加载完成前isReady为false，调用方回退到数据库查询。
+ * 排序得分为BM25相关度乘以(1 + ratingWeight * 评分 / 5)。
+ * 同时维护输入提示：营业中的餐厅名（热度为评价数）、在售菜品名（同名菜品合并，热度为各菜品评价数加一之和）
+ * 和餐厅类型（热度为营业中的餐厅数），随索引一起增量更新。
+ * 填写了经纬度的餐厅另外放入网格索引，供附近餐厅查询。
+ * 餐厅的类型、评分档、营业状态和评价数档建立分面位图，列表筛选和各筛选项的计数由一次位图运算得出。
+ */
+@Slf4j
+@Component
+public class CatalogSearchIndex {
+
+    public static final String FACET_TYPE = "type";
+    public static final String FACET_RATING = "rating";
+    public static final String FACET_OPEN = "isOpen";
+    public static final String FACET_REVIEW_COUNT = "reviewCount";
+
+    /**
+     * 餐厅分面：评分和评价数按档位划分，档位互不重叠，同一分面多选时取并集
+     */
+    private static final Map<String, Function<Restaurant, String>> RESTAURANT_FACETS = new LinkedHashMap<>();
+
+    static {
+        RESTAURANT_FACETS.put(FACET_TYPE, Restaurant::getType);
+        RESTAURANT_FACETS.put(FACET_RATING, restaurant -> ratingBucket(restaurant.getRating()));
+        RESTAURANT_FACETS.put(FACET_OPEN, restaurant -> String.valueOf(Boolean.TRUE.equals(restaurant.getIsOpen())));
+        RESTAURANT_FACETS.put(FACET_REVIEW_COUNT, restaurant -> reviewCountBucket(restaurant.getReviewCount()));
+    }
+
+    /**
+     * 与列表SQL一致：评分降序、评价数降序
+     */
+    private static final Comparator<Restaurant> RESTAURANT_ORDER = Comparator
+            .comparing(Restaurant::getRating, Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder()))
+            .thenComparing(restaurant -> reviewCount(restaurant.getReviewCount()), Comparator.reverseOrder())
+            .thenComparing(Restaurant::getId);
+
+    private final RestaurantMapper restaurantMapper;
+    private final MenuItemMapper menuItemMapper;
+    private final boolean enabled;
+    private final int nameWeight;
+    private final double ratingWeight;
+    private final int suggestMaxDelta;
+    private final double geoCellDegrees;
+
+    private volatile Indexes indexes;
+
+    /**
+     * 全量重建期间发生的增量更新，重建完成后在新索引上重放；只在synchronized块中访问
+     */
+    private List<Consumer<Indexes>> pendingDuringRebuild;
+
+    public CatalogSearchIndex(RestaurantMapper restaurantMapper,
+                              MenuItemMapper menuItemMapper,
+                              @Value("${app.search.enabled:true}") boolean enabled,
+                              @Value("${app.search.name-weight:3}") int nameWeight,
+                              @Value("${app.search.rating-weight:0.5}") double ratingWeight,
+                              @Value("${app.search.suggest.max-delta:256}") int suggestMaxDelta,
+                              @Value("${app.search.geo.cell-degrees:0.01}") double geoCellDegrees) {
+        this.restaurantMapper = restaurantMapper;
+        this.menuItemMapper = menuItemMapper;
+        this.enabled = enabled;
+        this.nameWeight = nameWeight;
+        this.ratingWeight = Math.max(0, ratingWeight);
+        this.suggestMaxDelta = suggestMaxDelta;
+        this.geoCellDegrees = geoCellDegrees;
+    }
+
+    /**
+     * 索引是否可用
+     */
+    public boolean isReady() {
+        return indexes != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 从数据库全量重建索引，构建完成后整体替换，构建期间查询继续使用旧索引
+     */
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval-ms:600000}",
+            initialDelayString = "${app.search.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (pendingDuringRebuild != null) {
+                // 已有重建在进行
+                return;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        Indexes rebuilt = null;
+        try {
+            long start = System.currentTimeMillis();
+            rebuilt = new Indexes(nameWeight, suggestMaxDelta, geoCellDegrees);
+            for (Restaurant restaurant : restaurantMapper.selectList(null)) {
+                putRestaurant(rebuilt, restaurant);
+            }
+            for (MenuItem menuItem : menuItemMapper.selectList(null)) {
+                putMenuItem(rebuilt, menuItem);
+            }
+            rebuilt.finishBulkLoad();
+            log.info("搜索索引重建完成，餐厅 {} 家（有位置 {} 家），菜品 {} 个，耗时 {} ms",
+                    rebuilt.restaurants.size(), rebuilt.locations.size(), rebuilt.menuItems.size(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            rebuilt = null;
+            log.error("搜索索引重建失败，继续使用当前索引: {}", e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                if (rebuilt != null) {
+                    for (Consumer<Indexes> update : pendingDuringRebuild) {
+                        update.accept(rebuilt);
+                    }
+                    indexes = rebuilt;
+                }
+                pendingDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * 餐厅新增或修改后调用，事务提交后按主键重新读取
+     */
+    public void refreshRestaurant(Long restaurantId) {
+        if (restaurantId == null) {
+            return;
+        }
+        runAfterCommit(() -> {
+            Restaurant restaurant = restaurantMapper.selectById(restaurantId);
+            apply(target -> {
+                if (restaurant != null) {
+                    putRestaurant(target, restaurant);
+                } else {
+                    removeRestaurant(target, restaurantId);
+                }
+            });
+        });
+    }
+
+    /**
+     * 菜品新增、修改或删除后调用，事务提交后按主键重新读取
+     */
+    public void refreshMenuItem(Long menuItemId) {
+        if (menuItemId == null) {
+            return;
+        }
+        runAfterCommit(() -> {
+            MenuItem menuItem = menuItemMapper.selectById(menuItemId);
+            apply(target -> {
+                if (menuItem != null) {
+                    putMenuItem(target, menuItem);
+                } else {
+                    removeMenuItem(target, menuItemId);
+                }
+            });
+        });
+    }
+
+    /**
+     * 搜索营业中的餐厅
+     * @param type 餐厅类型，为空时不限
+     */
+    public Page<Restaurant> searchRestaurants(String keyword, String type, Page<Restaurant> page) {
+        boolean anyType = type == null || type.isEmpty();
+        InvertedIndex.Hits<Restaurant> hits = indexes.restaurants.search(keyword,
+                restaurant -> Boolean.TRUE.equals(restaurant.getIsOpen()) && (anyType || type.equals(restaurant.getType())),
+                restaurant -> ratingBoost(restaurant.getRating()),
+                (int) Math.min(Integer.MAX_VALUE, page.offset()), (int) page.getSize());
+        page.setTotal(hits.getTotal());
+        page.setRecords(hits.getDocs());
+        return page;
+    }
+
+    /**
+     * 搜索在售菜品
+     */
+    public Page<MenuItem> searchMenuItems(String keyword, Page<MenuItem> page) {
+        InvertedIndex.Hits<MenuItem> hits = indexes.menuItems.search(keyword,
+                menuItem -> Boolean.TRUE.equals(menuItem.getIsAvailable()),
+                menuItem -> ratingBoost(menuItem.getRating()),
+                (int) Math.min(Integer.MAX_VALUE, page.offset()), (int) page.getSize());
+        page.setTotal(hits.getTotal());
+        page.setRecords(hits.getDocs());
+        return page;
+    }
+
+    /**
+     * 搜索在售菜品，返回全部结果
+     */
+    public List<MenuItem> searchMenuItems(String keyword) {
+        return indexes.menuItems.search(keyword,
+                menuItem -> Boolean.TRUE.equals(menuItem.getIsAvailable()),
+                menuItem -> ratingBoost(menuItem.getRating()),
+                0, Integer.MAX_VALUE).getDocs();
+    }
+
+    /**
+     * 搜索指定餐厅的菜品（包括不可用的），返回全部结果
+     */
+    public List<MenuItem> searchMenuItemsOfRestaurant(Long restaurantId, String keyword) {
+        return indexes.menuItems.search(keyword,
+                menuItem -> restaurantId.equals(menuItem.getRestaurantId()),
+                menuItem -> ratingBoost(menuItem.getRating()),
+                0, Integer.MAX_VALUE).getDocs();
+    }
+
+    /**
+     * 输入提示：按全文或拼音首字母前缀匹配，返回热度最高的limit条
+     */
+    public List<PrefixSuggester.Suggestion> suggest(String prefix, int limit) {
+        return indexes.suggester.suggest(prefix, limit);
+    }
+
+    /**
+     * 附近餐厅，按距离由近到远
+     * 类型、营业状态和最低评分在扫描网格时判断，为null时不限
+     * @param countTotal 是否统计半径内的命中总数，为false时找到足够的最近餐厅即停止
+     */
+    public GeoGridIndex.Hits<Restaurant> searchNearby(double latitude, double longitude, double radiusMeters,
+                                                     String type, Boolean isOpen, Double minRating,
+                                                     Page<?> page, boolean countTotal) {
+        boolean anyType = type == null || type.isEmpty();
+        return indexes.locations.nearby(latitude, longitude, radiusMeters,
+                restaurant -> (anyType || type.equals(restaurant.getType()))
+                        && (isOpen == null || isOpen.equals(Boolean.TRUE.equals(restaurant.getIsOpen())))
+                        && (minRating == null
+                        || (restaurant.getRating() != null && restaurant.getRating().doubleValue() >= minRating)),
+                (int) Math.min(Integer.MAX_VALUE, page.offset()), (int) page.getSize(), countTotal);
+    }
+
+    /**
+     * 分面浏览餐厅，按评分、评价数降序分页，并返回各分面取值的计数
+     * @param selections 分面名称（FACET_*）到选中取值的映射
+     * @param filter 分面之外的附加条件，为null时不过滤
+     */
+    public FacetIndex.Result<Restaurant> browseRestaurants(Map<String, ? extends Collection<String>> selections,
+                                                           Predicate<Restaurant> filter, Page<?> page) {
+        return indexes.facets.search(selections, filter,
+                (int) Math.min(Integer.MAX_VALUE, page.offset()), (int) page.getSize());
+    }
+
+    /**
+     * 分面浏览的游标分页：只返回排序在after之后的餐厅，不计算偏移
+     * @param after 上一页最后一条记录（只需评分、评价数和ID），为null时从第一条开始
+     */
+    public List<Restaurant> browseRestaurantsAfter(Map<String, ? extends Collection<String>> selections,
+                                                   Restaurant after, int limit) {
+        Predicate<Restaurant> filter = after == null ? null : restaurant -> RESTAURANT_ORDER.compare(restaurant, after) > 0;
+        return indexes.facets.search(selections, filter, 0, limit).getDocs();
+    }
+
+    /**
+     * 评分档：4.5-5、4-4.5、3.5-4、3-3.5、0-3，含下界不含上界
+     */
+    public static String ratingBucket(BigDecimal rating) {
+        double value = rating != null ? rating.doubleValue() : 0;
+        if (value >= 4.5) {
+            return "4.5-5";
+        } else if (value >= 4) {
+            return "4-4.5";
+        } else if (value >= 3.5) {
+            return "3.5-4";
+        } else if (value >= 3) {
+            return "3-3.5";
+        }
+        return "0-3";
+    }
+
+    /**
+     * 评价数档：0、1-9、10-49、50-199、200+
+     */
+    public static String reviewCountBucket(Integer reviewCount) {
+        int value = reviewCount(reviewCount);
+        if (value <= 0) {
+            return "0";
+        } else if (value < 10) {
+            return "1-9";
+        } else if (value < 50) {
+            return "10-49";
+        } else if (value < 200) {
+            return "50-199";
+        }
+        return "200+";
+    }
+
+    private double ratingBoost(BigDecimal rating) {
+        return 1 + ratingWeight * (rating != null ? rating.doubleValue() : 0) / 5;
+    }
+
+    private void putRestaurant(Indexes target, Restaurant restaurant) {
+        Restaurant previous = target.restaurants.get(restaurant.getId());
+        if (previous != null && Boolean.TRUE.equals(previous.getIsOpen())) {
+            target.tally(target.types, "T:", PrefixSuggester.SuggestionType.TYPE, previous.getType(), -1, -1);
+        }
+        target.restaurants.put(restaurant.getId(), restaurant, restaurant.getName(), restaurant.getDescription());
+        target.facets.put(restaurant.getId(), restaurant);
+        if (restaurant.getLatitude() != null && restaurant.getLongitude() != null) {
+            target.locations.put(restaurant.getId(), restaurant,
+                    restaurant.getLatitude().doubleValue(), restaurant.getLongitude().doubleValue());
+        } else {
+            target.locations.remove(restaurant.getId());
+        }
+
+        String key = "R:" + restaurant.getId();
+        if (Boolean.TRUE.equals(restaurant.getIsOpen()) && restaurant.getName() != null) {
+            target.tally(target.types, "T:", PrefixSuggester.SuggestionType.TYPE, restaurant.getType(), 1, 1);
+            double rating = restaurant.getRating() != null ? restaurant.getRating().doubleValue() : 0;
+            target.putSuggestion(new PrefixSuggester.Suggestion(key, PrefixSuggester.SuggestionType.RESTAURANT,
+                    restaurant.getName(), restaurant.getId(), reviewCount(restaurant.getReviewCount()) + rating / 5));
+        } else {
+            target.removeSuggestion(key);
+        }
+    }
+
+    private void removeRestaurant(Indexes target, Long restaurantId) {
+        Restaurant previous = target.restaurants.get(restaurantId);
+        if (previous != null && Boolean.TRUE.equals(previous.getIsOpen())) {
+            target.tally(target.types, "T:", PrefixSuggester.SuggestionType.TYPE, previous.getType(), -1, -1);
+        }
+        target.restaurants.remove(restaurantId);
+        target.locations.remove(restaurantId);
+        target.facets.remove(restaurantId);
+        target.removeSuggestion("R:" + restaurantId);
+    }
+
+    private void putMenuItem(Indexes target, MenuItem menuItem) {
+        MenuItem previous = target.menuItems.get(menuItem.getId());
+        if (previous != null && Boolean.TRUE.equals(previous.getIsAvailable())) {
+            target.tally(target.dishes, "D:", PrefixSuggester.SuggestionType.DISH, previous.getName(),
+                    -1, -(1 + reviewCount(previous.getReviewCount())));
+        }
+        target.menuItems.put(menuItem.getId(), menuItem, menuItem.getName(), menuItem.getDescription());
+        if (Boolean.TRUE.equals(menuItem.getIsAvailable())) {
+            target.tally(target.dishes, "D:", PrefixSuggester.SuggestionType.DISH, menuItem.getName(),
+                    1, 1 + reviewCount(menuItem.getReviewCount()));
+        }
+    }
+
+    private void removeMenuItem(Indexes target, Long menuItemId) {
+        MenuItem previous = target.menuItems.get(menuItemId);
+        if (previous != null && Boolean.TRUE.equals(previous.getIsAvailable())) {
+            target.tally(target.dishes, "D:", PrefixSuggester.SuggestionType.DISH, previous.getName(),
+                    -1, -(1 + reviewCount(previous.getReviewCount())));
+        }
+        target.menuItems.remove(menuItemId);
+    }
+
+    /**
+     * 复制索引中的实体再返回给调用方，避免调用方修改共享的快照
+     */
+    private static <T> T copyOf(T source, T target) {
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+
+    private static int reviewCount(Integer reviewCount) {
+        return reviewCount != null ? reviewCount : 0;
+    }
+
+    private synchronized void apply(Consumer<Indexes> update) {
+        if (indexes != null) {
+            update.accept(indexes);
+        }
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(update);
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Indexes {
+        private final InvertedIndex<Restaurant> restaurants;
+        private final InvertedIndex<MenuItem> menuItems;
+        private final GeoGridIndex<Restaurant> locations;
+        private final FacetIndex<Restaurant> facets;
+        private final PrefixSuggester suggester;
+
+        /**
+         * 合并计数的提示：归一化文本 -> 计数，只在写入路径访问（重建线程或synchronized的apply）
+         */
+        private final Map<String, Tally> types = new HashMap<>();
+        private final Map<String, Tally> dishes = new HashMap<>();
+
+        /**
+         * 全量加载期间先收集提示，加载完成后一次性排序，避免逐条合并
+         */
+        private Map<String, PrefixSuggester.Suggestion> bulkSuggestions = new LinkedHashMap<>();
+
+        private Indexes(int nameWeight, int suggestMaxDelta, double geoCellDegrees) {
+            this.restaurants = new InvertedIndex<>(nameWeight, restaurant -> copyOf(restaurant, new Restaurant()));
+            this.menuItems = new InvertedIndex<>(nameWeight, menuItem -> copyOf(menuItem, new MenuItem()));
+            this.locations = new GeoGridIndex<>(geoCellDegrees);
+            this.facets = new FacetIndex<>(RESTAURANT_FACETS, RESTAURANT_ORDER);
+            this.suggester = new PrefixSuggester(suggestMaxDelta);
+        }
+
+        private void finishBulkLoad() {
+            suggester.rebuild(bulkSuggestions.values());
+            bulkSuggestions = null;
+        }
+
+        private void putSuggestion(PrefixSuggester.Suggestion suggestion) {
+            if (bulkSuggestions != null) {
+                bulkSuggestions.put(suggestion.getKey(), suggestion);
+            } else {
+                suggester.put(suggestion);
+            }
+        }
+
+        private void removeSuggestion(String key) {
+            if (bulkSuggestions != null) {
+                bulkSuggestions.remove(key);
+            } else {
+                suggester.remove(key);
+            }
+        }
+
+        private void tally(Map<String, Tally> tallies, String keyPrefix, PrefixSuggester.SuggestionType type,
+                           String text, int refs, double popularity) {
+            String normalized = SearchTokenizer.normalize(text).trim();
+            if (normalized.isEmpty()) {
+                return;
+            }
+            Tally tally = tallies.computeIfAbsent(normalized, k -> new Tally(text.trim()));
+            tally.refs += refs;
+            tally.popularity += popularity;
+            String key = keyPrefix + normalized;
+            if (tally.refs <= 0) {
+                tallies.remove(normalized);
+                removeSuggestion(key);
+            } else {
+                putSuggestion(new PrefixSuggester.Suggestion(key, type, tally.text, null, tally.popularity));
+            }
+        }
+    }
+
+    private static final class Tally {
+        private final String text;
+        private int refs;
+        private double popularity;
+
+        private Tally(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.config.ChatContentFilterProperties;
+import com.ljyh.foodieconnect.enums.ContentFilterAction;
+import com.ljyh.foodieconnect.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 聊天内容过滤器
+ * 关键词列表编译为Aho–Corasick自动机，每条消息只扫描一遍即可找出所有命中，耗时与关键词数量无关。
+ * 命中REJECT关键词的消息被拒绝，MASK关键词被打码，FLAG关键词放行但记录。
+ * 关键词列表修改后自动重新编译，新的自动机原子替换旧的，扫描中的消息不受影响。
+ */
+@Slf4j
+@Component
+public class ChatContentFilter {
+
+    private final ChatContentFilterProperties properties;
+    private final ResourceLoader resourceLoader;
+    private final Map<ContentFilterAction, Counter> hitCounters = new EnumMap<>(ContentFilterAction.class);
+
+    private volatile WordList wordList = WordList.EMPTY;
+
+    public ChatContentFilter(ChatContentFilterProperties properties, ResourceLoader resourceLoader,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.resourceLoader = resourceLoader;
+        for (ContentFilterAction action : ContentFilterAction.values()) {
+            hitCounters.put(action, Counter.builder("chat.content.filter.hits")
+                    .description("命中内容过滤关键词的消息数")
+                    .tag("action", action.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("chat.content.filter.words", this, filter -> filter.wordList.words.length)
+                .description("当前生效的过滤关键词数量")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (properties.isEnabled()) {
+            reload();
+        }
+    }
+
+    /**
+     * 关键词列表修改后重新加载
+     */
+    @Scheduled(fixedDelayString = "${app.chat.content-filter.reload-interval-ms:30000}",
+            initialDelayString = "${app.chat.content-filter.reload-interval-ms:30000}")
+    public void reloadIfModified() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long lastModified = lastModified(resourceLoader.getResource(properties.getWordsLocation()));
+        if (lastModified > 0 && lastModified != wordList.lastModified) {
+            reload();
+        }
+    }
+
+    /**
+     * 重新加载并编译关键词列表，加载失败时保留当前列表
+     * @return 是否加载成功
+     */
+    public synchronized boolean reload() {
+        Resource resource = resourceLoader.getResource(properties.getWordsLocation());
+        try {
+            long lastModified = lastModified(resource);
+            List<String> words = new ArrayList<>();
+            List<ContentFilterAction> actions = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    parseLine(line, words, actions);
+                }
+            }
+            wordList = compile(words, actions, lastModified);
+            log.info("加载聊天内容过滤关键词 {} 个，自动机状态数: {}", words.size(), wordList.matcher.getStateCount());
+            return true;
+        } catch (IOException e) {
+            log.error("加载聊天内容过滤关键词失败，继续使用当前列表: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 使用给定的关键词替换当前列表
+     */
+    public synchronized void replaceWords(Map<String, ContentFilterAction> words) {
+        wordList = compile(new ArrayList<>(words.keySet()), new ArrayList<>(words.values()), wordList.lastModified);
+    }
+
+    /**
+     * 过滤消息内容
+     * @return 过滤结果，包含打码后的内容和命中的FLAG关键词
+     * @throws BusinessException 命中REJECT关键词时抛出
+     */
+    public FilterResult filter(String content) {
+        WordList current = wordList;
+        if (!properties.isEnabled() || content == null || content.isEmpty() || current.words.length == 0) {
+            return new FilterResult(content, Collections.emptySet(), false);
+        }
+
+        ScanState state = new ScanState();
+        current.matcher.scan(content, (start, end, pattern) -> {
+            switch (current.actions[pattern]) {
+                case REJECT:
+                    state.rejected = true;
+                    return false;
+                case FLAG:
+                    if (state.flagged == null) {
+                        state.flagged = new LinkedHashSet<>();
+                    }
+                    state.flagged.add(current.words[pattern]);
+                    return true;
+                default:
+                    if (state.masked == null) {
+                        state.masked = content.toCharArray();
+                    }
+                    Arrays.fill(state.masked, start, end, properties.getMaskChar());
+                    return true;
+            }
+        });
+
+        if (state.rejected) {
+            hitCounters.get(ContentFilterAction.REJECT).increment();
+            throw new BusinessException("CHAT_CONTENT_REJECTED", "消息包含违规内容");
+        }
+        if (state.masked != null) {
+            hitCounters.get(ContentFilterAction.MASK).increment();
+        }
+        if (state.flagged != null) {
+            hitCounters.get(ContentFilterAction.FLAG).increment();
+        }
+        return new FilterResult(state.masked != null ? new String(state.masked) : content,
+                state.flagged != null ? state.flagged : Collections.emptySet(), state.masked != null);
+    }
+
+    private void parseLine(String line, List<String> words, List<ContentFilterAction> actions) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return;
+        }
+        ContentFilterAction action = properties.getDefaultAction();
+        int separator = trimmed.lastIndexOf('|');
+        if (separator > 0) {
+            try {
+                action = ContentFilterAction.valueOf(trimmed.substring(separator + 1).trim().toUpperCase());
+                trimmed = trimmed.substring(0, separator).trim();
+            } catch (IllegalArgumentException e) {
+                log.warn("忽略未知的过滤动作，按默认动作处理: {}", line);
+            }
+        }
+        if (!trimmed.isEmpty()) {
+            words.add(trimmed);
+            actions.add(action);
+        }
+    }
+
+    private long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static WordList compile(List<String> words, List<ContentFilterAction> actions, long lastModified) {
+        return new WordList(AhoCorasickMatcher.compile(words), words.toArray(new String[0]),
+                actions.toArray(new ContentFilterAction[0]), lastModified);
+    }
+
+    /**
+     * 单次扫描中收集的结果
+     */
+    private static class ScanState {
+        private boolean rejected;
+        private char[] masked;
+        private Set<String> flagged;
+    }
+
+    /**
+     * 编译后的关键词列表
+     */
+    private static class WordList {
+        private static final WordList EMPTY = compile(Collections.emptyList(), Collections.emptyList(), 0);
+
+        private final AhoCorasickMatcher matcher;
+        private final String[] words;
+        private final ContentFilterAction[] actions;
+        private final long lastModified;
+
+        WordList(AhoCorasickMatcher matcher, String[] words, ContentFilterAction[] actions, long lastModified) {
+            this.matcher = matcher;
+            this.words = words;
+            this.actions = actions;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * 过滤结果
+     */
+    public static class FilterResult {
+        private final String content;
+        private final Set<String> flaggedWords;
+        private final boolean masked;
+
+        public FilterResult(String content, Set<String> flaggedWords, boolean masked) {
+            this.content = content;
+            this.flaggedWords = flaggedWords;
+            this.masked = masked;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public Set<String> getFlaggedWords() {
+            return flaggedWords;
+        }
+
+        public boolean isMasked() {
+            return masked;
+        }
+
+        public boolean isFlagged() {
+            return !flaggedWords.isEmpty();
+        }
+    }
+}
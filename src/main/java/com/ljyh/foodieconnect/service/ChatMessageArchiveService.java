@@ -0,0 +1,353 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.enums.MessageType;
+import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 聊天记录冷归档服务
+ * 过期消息在删除前按聊天室和日期写入本地磁盘的只追加分段文件：
+ * <pre>
+ * {dir}/{roomId}/{yyyy-MM-dd}.seg  由多个压缩块组成，每块是一批按ID升序、长度前缀编码的protobuf ChatMessage
+ * {dir}/{roomId}/{yyyy-MM-dd}.idx  每个块一条32字节索引：首条ID、末条ID、块偏移、压缩长度、原始长度
+ * </pre>
+ * 读取时通过索引定位块，在内存映射的分段文件上解压，不占用数据库空间。
+ */
+@Slf4j
+@Service
+public class ChatMessageArchiveService {
+
+    private static final int INDEX_ENTRY_BYTES = 32;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Path baseDir;
+    private final boolean enabled;
+    private final ConcurrentHashMap<Path, Object> segmentLocks = new ConcurrentHashMap<>();
+
+    public ChatMessageArchiveService(@Value("${app.chat.archive.dir:archive/chat}") String dir,
+                                     @Value("${app.chat.archive.enabled:true}") boolean enabled) {
+        this.baseDir = Paths.get(dir);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 归档一批消息，按聊天室和日期分组，每组追加为一个压缩块
+     * 已归档过的消息（ID不大于分段中最大ID）会被跳过，删除前中断后重新归档不会产生重复
+     * @return 实际写入的消息数
+     */
+    public int archive(List<ChatRoomMessage> messages) throws IOException {
+        Map<Long, Map<LocalDate, List<ChatRoomMessage>>> groups = new TreeMap<>();
+        for (ChatRoomMessage message : messages) {
+            if (message.getId() == null || message.getRoomId() == null || message.getCreatedAt() == null) {
+                continue;
+            }
+            groups.computeIfAbsent(message.getRoomId(), k -> new TreeMap<>())
+                    .computeIfAbsent(message.getCreatedAt().toLocalDate(), k -> new ArrayList<>())
+                    .add(message);
+        }
+
+        int archived = 0;
+        for (Map.Entry<Long, Map<LocalDate, List<ChatRoomMessage>>> room : groups.entrySet()) {
+            for (Map.Entry<LocalDate, List<ChatRoomMessage>> day : room.getValue().entrySet()) {
+                List<ChatRoomMessage> block = day.getValue();
+                block.sort(Comparator.comparing(ChatRoomMessage::getId));
+                archived += appendBlock(room.getKey(), day.getKey(), block);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * 读取某个聊天室某天的归档消息（按ID升序）
+     * @param afterId 游标，返回ID大于该值的消息，为null时从当天第一条开始
+     */
+    public CursorPage<ChatRoomMessage> readArchived(Long roomId, LocalDate day, Long afterId, int size) throws IOException {
+        long cursor = afterId != null ? afterId : 0L;
+        Path segment = segmentPath(roomId, day);
+        List<IndexEntry> entries = readIndex(indexPath(roomId, day));
+        if (entries.isEmpty() || !Files.exists(segment)) {
+            return new CursorPage<>(Collections.emptyList(), null, false);
+        }
+
+        List<ChatRoomMessage> records = new ArrayList<>();
+        IndexEntry last = entries.get(entries.size() - 1);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, last.offset + last.compressedLength);
+            for (IndexEntry entry : entries) {
+                if (entry.lastId <= cursor) {
+                    continue;
+                }
+                for (ChatProtos.ChatMessage message : decodeBlock(mapped, entry)) {
+                    if (message.getId() > cursor) {
+                        records.add(toEntity(message));
+                    }
+                    if (records.size() > size) {
+                        break;
+                    }
+                }
+                if (records.size() > size) {
+                    break;
+                }
+            }
+        }
+
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = new ArrayList<>(records.subList(0, size));
+        }
+        String nextCursor = hasMore ? String.valueOf(records.get(records.size() - 1).getId()) : null;
+        return new CursorPage<>(records, nextCursor, hasMore);
+    }
+
+    /**
+     * 获取聊天室已归档的日期（升序）
+     */
+    public List<LocalDate> listArchivedDays(Long roomId) throws IOException {
+        Path roomDir = baseDir.resolve(String.valueOf(roomId));
+        if (!Files.isDirectory(roomDir)) {
+            return Collections.emptyList();
+        }
+        List<LocalDate> days = new ArrayList<>();
+        try (Stream<Path> files = Files.list(roomDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(INDEX_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    days.add(LocalDate.parse(name.substring(0, name.length() - INDEX_SUFFIX.length())));
+                } catch (DateTimeParseException e) {
+                    log.warn("忽略无法识别的归档索引文件: {}", file);
+                }
+            }
+        }
+        Collections.sort(days);
+        return days;
+    }
+
+    private int appendBlock(Long roomId, LocalDate day, List<ChatRoomMessage> messages) throws IOException {
+        Path segment = segmentPath(roomId, day);
+        Path index = indexPath(roomId, day);
+        synchronized (segmentLocks.computeIfAbsent(segment, k -> new Object())) {
+            Files.createDirectories(segment.getParent());
+            List<IndexEntry> entries = readIndex(index);
+            long archivedUpTo = entries.isEmpty() ? 0L : entries.get(entries.size() - 1).lastId;
+
+            List<ChatRoomMessage> fresh = new ArrayList<>(messages.size());
+            for (ChatRoomMessage message : messages) {
+                if (message.getId() > archivedUpTo) {
+                    fresh.add(message);
+                }
+            }
+            if (fresh.isEmpty()) {
+                return 0;
+            }
+
+            byte[] raw = encodeBlock(fresh);
+            byte[] compressed = deflate(raw);
+            long offset = entries.isEmpty() ? 0L
+                    : entries.get(entries.size() - 1).offset + entries.get(entries.size() - 1).compressedLength;
+
+            // 先写数据块再写索引；索引之外的尾部数据是上次中断时写了一半的块，直接截断
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+                writeFully(channel, ByteBuffer.wrap(compressed), offset);
+                channel.force(false);
+            }
+
+            IndexEntry entry = new IndexEntry(fresh.get(0).getId(), fresh.get(fresh.size() - 1).getId(),
+                    offset, compressed.length, raw.length);
+            long indexOffset = (long) entries.size() * INDEX_ENTRY_BYTES;
+            try (FileChannel channel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.truncate(indexOffset);
+                writeFully(channel, entry.toBuffer(), indexOffset);
+                channel.force(false);
+            }
+            log.debug("归档聊天室 {} {} 的 {} 条消息，压缩后 {} 字节", roomId, day, fresh.size(), compressed.length);
+            return fresh.size();
+        }
+    }
+
+    private List<IndexEntry> readIndex(Path index) throws IOException {
+        if (!Files.exists(index)) {
+            return new ArrayList<>();
+        }
+        byte[] bytes = Files.readAllBytes(index);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        List<IndexEntry> entries = new ArrayList<>(bytes.length / INDEX_ENTRY_BYTES);
+        // 只读取完整的索引项，忽略中断时写了一半的尾部
+        while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+            entries.add(new IndexEntry(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt()));
+        }
+        return entries;
+    }
+
+    private byte[] encodeBlock(List<ChatRoomMessage> messages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ChatRoomMessage message : messages) {
+            toProto(message).writeDelimitedTo(out);
+        }
+        return out.toByteArray();
+    }
+
+    private List<ChatProtos.ChatMessage> decodeBlock(MappedByteBuffer mapped, IndexEntry entry) throws IOException {
+        ByteBuffer compressed = mapped.slice((int) entry.offset, entry.compressedLength);
+        byte[] raw = new byte[entry.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("归档数据块已损坏，偏移: " + entry.offset, e);
+        } finally {
+            inflater.end();
+        }
+
+        List<ChatProtos.ChatMessage> messages = new ArrayList<>();
+        InputStream in = new ByteArrayInputStream(raw);
+        ChatProtos.ChatMessage message;
+        while ((message = ChatProtos.ChatMessage.parseDelimitedFrom(in)) != null) {
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    private ChatProtos.ChatMessage toProto(ChatRoomMessage message) {
+        ChatProtos.MessageType messageType = ChatProtos.MessageType.TEXT;
+        if (message.getMessageType() == MessageType.IMAGE) {
+            messageType = ChatProtos.MessageType.IMAGE;
+        } else if (message.getMessageType() == MessageType.SYSTEM) {
+            messageType = ChatProtos.MessageType.SYSTEM;
+        }
+        return ChatProtos.ChatMessage.newBuilder()
+                .setId(message.getId())
+                .setRoomId(message.getRoomId())
+                .setSenderId(message.getSenderId() != null ? message.getSenderId() : 0)
+                .setContent(message.getContent() != null ? message.getContent() : "")
+                .setMessageType(messageType)
+                .setSenderName(message.getSenderName() != null ? message.getSenderName() : "")
+                .setSenderAvatar(message.getSenderAvatar() != null ? message.getSenderAvatar() : "")
+                .setTimestamp(message.getCreatedAt().format(TIMESTAMP_FORMATTER))
+                .build();
+    }
+
+    private ChatRoomMessage toEntity(ChatProtos.ChatMessage proto) {
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(proto.getId());
+        message.setRoomId(proto.getRoomId());
+        message.setSenderId(proto.getSenderId());
+        message.setContent(proto.getContent());
+        switch (proto.getMessageType()) {
+            case IMAGE:
+                message.setMessageType(MessageType.IMAGE);
+                break;
+            case SYSTEM:
+                message.setMessageType(MessageType.SYSTEM);
+                break;
+            default:
+                message.setMessageType(MessageType.TEXT);
+        }
+        message.setSenderName(proto.getSenderName());
+        message.setSenderAvatar(proto.getSenderAvatar());
+        message.setCreatedAt(LocalDateTime.parse(proto.getTimestamp(), TIMESTAMP_FORMATTER));
+        return message;
+    }
+
+    private Path segmentPath(Long roomId, LocalDate day) {
+        return baseDir.resolve(String.valueOf(roomId)).resolve(day + SEGMENT_SUFFIX);
+    }
+
+    private Path indexPath(Long roomId, LocalDate day) {
+        return baseDir.resolve(String.valueOf(roomId)).resolve(day + INDEX_SUFFIX);
+    }
+
+    /**
+     * 分段索引项
+     */
+    private static class IndexEntry {
+        private final long firstId;
+        private final long lastId;
+        private final long offset;
+        private final int compressedLength;
+        private final int rawLength;
+
+        IndexEntry(long firstId, long lastId, long offset, int compressedLength, int rawLength) {
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+        }
+
+        ByteBuffer toBuffer() {
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+            buffer.putLong(firstId).putLong(lastId).putLong(offset).putInt(compressedLength).putInt(rawLength);
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
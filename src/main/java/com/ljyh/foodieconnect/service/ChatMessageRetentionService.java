@@ -0,0 +1,264 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.config.ChatRetentionProperties;
+import com.ljyh.foodieconnect.entity.ChatMessageRetentionCheckpoint;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.mapper.ChatMessageRetentionCheckpointMapper;
+import com.ljyh.foodieconnect.mapper.ChatRoomMessageMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 聊天记录保留服务
+ * 在后台线程中按主键顺序分批删除过期聊天记录，每批一个短事务，按每秒行数限速，
+ * 复制延迟过高时暂停。启用归档时每批先写入冷归档再删除。删除进度持久化到断点表，进程重启后从断点继续。
+ */
+@Slf4j
+@Service
+public class ChatMessageRetentionService {
+
+    static final String JOB_NAME = "chat_room_messages";
+
+    private final ChatRoomMessageMapper chatRoomMessageMapper;
+    private final ChatMessageRetentionCheckpointMapper checkpointMapper;
+    private final ChatRoomHistoryBuffer historyBuffer;
+    private final ChatMessageArchiveService archiveService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatRetentionProperties properties;
+
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopping;
+
+    private final AtomicLong checkpointId = new AtomicLong();
+    private final AtomicLong runDeletedRows = new AtomicLong();
+    private final Counter deletedRowsCounter;
+    private final Counter archivedRowsCounter;
+    private final Counter lagPauseCounter;
+    private final Timer chunkTimer;
+
+    public ChatMessageRetentionService(ChatRoomMessageMapper chatRoomMessageMapper,
+                                       ChatMessageRetentionCheckpointMapper checkpointMapper,
+                                       ChatRoomHistoryBuffer historyBuffer,
+                                       ChatMessageArchiveService archiveService,
+                                       JdbcTemplate jdbcTemplate,
+                                       ChatRetentionProperties properties,
+                                       MeterRegistry meterRegistry) {
+        this.chatRoomMessageMapper = chatRoomMessageMapper;
+        this.checkpointMapper = checkpointMapper;
+        this.historyBuffer = historyBuffer;
+        this.archiveService = archiveService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "chat-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.deletedRowsCounter = Counter.builder("chat.retention.deleted.rows")
+                .description("已删除的过期聊天记录行数")
+                .register(meterRegistry);
+        this.archivedRowsCounter = Counter.builder("chat.retention.archived.rows")
+                .description("删除前写入冷归档的聊天记录行数")
+                .register(meterRegistry);
+        this.lagPauseCounter = Counter.builder("chat.retention.lag.pauses")
+                .description("因复制延迟过高暂停删除的次数")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("chat.retention.chunk")
+                .description("单批删除耗时")
+                .register(meterRegistry);
+        Gauge.builder("chat.retention.running", running, r -> r.get() ? 1 : 0)
+                .description("清理任务是否正在执行")
+                .register(meterRegistry);
+        Gauge.builder("chat.retention.checkpoint.id", checkpointId, AtomicLong::get)
+                .description("已处理到的消息ID")
+                .register(meterRegistry);
+        Gauge.builder("chat.retention.run.deleted", runDeletedRows, AtomicLong::get)
+                .description("本轮已删除的行数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交一次异步清理，存在未完成的断点时从断点继续
+     * @return 已有清理任务在执行时返回false
+     */
+    public boolean submitCleanup() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("聊天记录清理任务正在执行，跳过本次触发");
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                runCleanup(properties.getRetentionDays());
+            } catch (Exception e) {
+                log.error("聊天记录清理失败，将在下次触发时从断点继续: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        executor.shutdown();
+    }
+
+    /**
+     * 执行一轮清理，在调用线程中同步完成
+     * @return 本轮删除的行数（包含断点之前已删除的行数）
+     */
+    long runCleanup(int retentionDays) throws InterruptedException, IOException {
+        ChatMessageRetentionCheckpoint checkpoint = checkpointMapper.selectById(JOB_NAME);
+        if (checkpoint != null && ChatMessageRetentionCheckpoint.STATUS_RUNNING.equals(checkpoint.getStatus())) {
+            log.info("从断点继续清理聊天记录，截止时间: {}，已处理到消息ID: {}",
+                    checkpoint.getCutoffTime(), checkpoint.getLastDeletedId());
+        } else {
+            checkpoint = startCheckpoint(checkpoint, retentionDays);
+        }
+
+        LocalDateTime cutoff = checkpoint.getCutoffTime();
+        long afterId = checkpoint.getLastDeletedId();
+        long deleted = checkpoint.getDeletedCount();
+        checkpointId.set(afterId);
+        runDeletedRows.set(deleted);
+        int chunkSize = Math.max(1, properties.getChunkSize());
+
+        while (!stopping) {
+            waitForReplication();
+
+            long chunkStart = System.nanoTime();
+            List<ChatRoomMessage> candidates = chatRoomMessageMapper.findIdsForRetention(afterId, chunkSize);
+            Long lastExpiredId = null;
+            boolean reachedEnd = candidates.size() < chunkSize;
+            for (ChatRoomMessage candidate : candidates) {
+                if (candidate.getCreatedAt() == null || !candidate.getCreatedAt().isBefore(cutoff)) {
+                    // 主键与创建时间同向增长，遇到未过期的消息说明过期区间已经结束
+                    reachedEnd = true;
+                    break;
+                }
+                lastExpiredId = candidate.getId();
+            }
+            if (lastExpiredId == null) {
+                break;
+            }
+
+            if (archiveService.isEnabled()) {
+                // 归档失败时抛出异常，本批不删除，下次从断点重试
+                List<ChatRoomMessage> expired = chatRoomMessageMapper.findExpiredInRange(afterId, lastExpiredId, cutoff);
+                archivedRowsCounter.increment(archiveService.archive(expired));
+            }
+            int rows = chatRoomMessageMapper.deleteExpiredInRange(afterId, lastExpiredId, cutoff);
+            afterId = lastExpiredId;
+            deleted += rows;
+            saveProgress(checkpoint, afterId, deleted);
+            long elapsedNanos = System.nanoTime() - chunkStart;
+            chunkTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            deletedRowsCounter.increment(rows);
+            checkpointId.set(afterId);
+            runDeletedRows.set(deleted);
+            log.debug("删除了 {} 条过期聊天记录，已处理到消息ID: {}，本轮累计 {} 条", rows, afterId, deleted);
+
+            if (reachedEnd) {
+                break;
+            }
+            throttle(rows, elapsedNanos);
+        }
+
+        if (stopping) {
+            log.info("应用关闭，聊天记录清理暂停在消息ID: {}", afterId);
+            return deleted;
+        }
+
+        checkpoint.setStatus(ChatMessageRetentionCheckpoint.STATUS_COMPLETED);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointMapper.updateById(checkpoint);
+        if (deleted > 0) {
+            historyBuffer.clear();
+        }
+        log.info("聊天记录清理完成，删除了 {} 条早于 {} 的聊天记录", deleted, cutoff);
+        return deleted;
+    }
+
+    private ChatMessageRetentionCheckpoint startCheckpoint(ChatMessageRetentionCheckpoint existing, int retentionDays) {
+        LocalDateTime now = LocalDateTime.now();
+        ChatMessageRetentionCheckpoint checkpoint = existing != null ? existing : new ChatMessageRetentionCheckpoint();
+        checkpoint.setJobName(JOB_NAME);
+        checkpoint.setCutoffTime(now.minusDays(retentionDays));
+        checkpoint.setLastDeletedId(0L);
+        checkpoint.setDeletedCount(0L);
+        checkpoint.setStatus(ChatMessageRetentionCheckpoint.STATUS_RUNNING);
+        checkpoint.setStartedAt(now);
+        checkpoint.setUpdatedAt(now);
+        if (existing != null) {
+            checkpointMapper.updateById(checkpoint);
+        } else {
+            checkpointMapper.insert(checkpoint);
+        }
+        return checkpoint;
+    }
+
+    private void saveProgress(ChatMessageRetentionCheckpoint checkpoint, long lastDeletedId, long deleted) {
+        checkpoint.setLastDeletedId(lastDeletedId);
+        checkpoint.setDeletedCount(deleted);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointMapper.updateById(checkpoint);
+    }
+
+    /**
+     * 按每秒行数上限限速，本批耗时不足时补足等待时间
+     */
+    private void throttle(int rows, long elapsedNanos) throws InterruptedException {
+        int maxRowsPerSecond = properties.getMaxRowsPerSecond();
+        if (maxRowsPerSecond <= 0 || rows <= 0) {
+            return;
+        }
+        long budgetNanos = TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond;
+        long sleepNanos = budgetNanos - elapsedNanos;
+        if (sleepNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+    }
+
+    /**
+     * 复制延迟超过阈值时暂停，直到延迟恢复或应用关闭
+     */
+    private void waitForReplication() throws InterruptedException {
+        if (!StringUtils.hasText(properties.getLagQuery())) {
+            return;
+        }
+        while (!stopping) {
+            Double lagSeconds;
+            try {
+                lagSeconds = jdbcTemplate.queryForObject(properties.getLagQuery(), Double.class);
+            } catch (Exception e) {
+                log.warn("查询复制延迟失败，继续清理: {}", e.getMessage());
+                return;
+            }
+            if (lagSeconds == null || lagSeconds <= properties.getMaxLagSeconds()) {
+                return;
+            }
+            lagPauseCounter.increment();
+            log.info("复制延迟 {} 秒超过阈值 {} 秒，暂停清理聊天记录", lagSeconds, properties.getMaxLagSeconds());
+            TimeUnit.MILLISECONDS.sleep(properties.getLagPauseMillis());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.config.ChatRateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天发送限流器
+ * 每个发送者和每个聊天室各有一个令牌桶，在写库和广播之前检查，两个桶都有令牌时才放行。
+ * 用户和商家的ID来自不同的表，发送者的桶按身份类型和ID区分。
+ * 限流参数按聊天室在线人数分档，在线人数来自在线人数计数器的刷新事件。
+ */
+@Slf4j
+@Component
+public class ChatRateLimiter {
+
+    private final ChatRateLimitProperties properties;
+    private final ConcurrentHashMap<SenderKey, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TokenBucket> roomBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> roomSizes = new ConcurrentHashMap<>();
+    private final Counter userThrottledCounter;
+    private final Counter roomThrottledCounter;
+
+    public ChatRateLimiter(ChatRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.userThrottledCounter = Counter.builder("chat.ratelimit.throttled")
+                .description("被限流拒绝的消息数")
+                .tag("scope", "user")
+                .register(meterRegistry);
+        this.roomThrottledCounter = Counter.builder("chat.ratelimit.throttled")
+                .description("被限流拒绝的消息数")
+                .tag("scope", "room")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 检查用户或商家在聊天室中发送一条消息是否被允许
+     * @param senderType 发送者身份类型
+     * @param senderId 用户ID或商家ID
+     * @return 放行时返回0，否则返回建议客户端等待的毫秒数
+     */
+    public long tryAcquire(Long roomId, PrincipalCache.PrincipalType senderType, Long senderId) {
+        return tryAcquire(roomId, senderType, senderId, System.nanoTime());
+    }
+
+    long tryAcquire(Long roomId, PrincipalCache.PrincipalType senderType, Long senderId, long nowNanos) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        ChatRateLimitProperties.Tier tier = properties.tierFor(roomSizes.getOrDefault(roomId, 0));
+
+        TokenBucket userBucket = userBuckets.computeIfAbsent(new SenderKey(senderType, senderId), k -> new TokenBucket());
+        long userWait = userBucket.tryAcquire(nowNanos, tier.getUserMessagesPerSecond(), tier.getUserBurst());
+        if (userWait > 0) {
+            userThrottledCounter.increment();
+            return toRetryMillis(userWait);
+        }
+
+        TokenBucket roomBucket = roomBuckets.computeIfAbsent(roomId, k -> new TokenBucket());
+        long roomWait = roomBucket.tryAcquire(nowNanos, tier.getRoomMessagesPerSecond(), tier.getRoomBurst());
+        if (roomWait > 0) {
+            // 聊天室已满额，本条消息不会发送，归还用户的令牌
+            userBucket.refund(nowNanos, tier.getUserMessagesPerSecond());
+            roomThrottledCounter.increment();
+            return toRetryMillis(roomWait);
+        }
+        return 0;
+    }
+
+    /**
+     * 记录聊天室最新在线人数，用于选择限流分档
+     */
+    @EventListener
+    public void handleOnlineCountsChanged(ChatRoomOnlineCounter.OnlineCountsChangedEvent event) {
+        roomSizes.putAll(event.getOnlineUserCounts());
+    }
+
+    /**
+     * 回收已补满的令牌桶，避免长期不发言的用户和聊天室占用内存
+     */
+    @Scheduled(fixedDelayString = "${app.chat.rate-limit.idle-sweep-interval-ms:60000}")
+    public void sweepIdleBuckets() {
+        long now = System.nanoTime();
+        int before = userBuckets.size() + roomBuckets.size();
+        userBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+        roomBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+        int removed = before - userBuckets.size() - roomBuckets.size();
+        if (removed > 0) {
+            log.debug("回收了 {} 个空闲限流桶", removed);
+        }
+    }
+
+    private long toRetryMillis(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    private static final class SenderKey {
+        private final PrincipalCache.PrincipalType type;
+        private final Long id;
+
+        private SenderKey(PrincipalCache.PrincipalType type, Long id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SenderKey)) {
+                return false;
+            }
+            SenderKey other = (SenderKey) o;
+            return type == other.type && Objects.equals(id, other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(type) + Objects.hashCode(id);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoomMember;
+import com.ljyh.foodieconnect.mapper.ChatRoomMemberMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天室临时状态跟踪器
+ * 正在输入和已读回执不经过消息发送流程，只在内存中按聊天室和用户覆盖写入，每个事件是一次常数时间的更新。
+ * 定时任务为有变化的聊天室发布一次活动事件（每个聊天室一帧广播）；已读位置另外合并为每个成员的最大消息ID，
+ * 按较长的周期批量写入chat_room_members.last_read_message_id。
+ */
+@Slf4j
+@Component
+public class ChatRoomActivityTracker {
+
+    private final ChatRoomMemberMapper chatRoomMemberMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long typingTtlMs;
+    private final int readReceiptBatchSize;
+
+    /**
+     * 正在输入的用户：roomId -> userId -> 过期时间；内层HashMap只在外层compute中访问
+     */
+    private final ConcurrentHashMap<Long, Map<Long, Long>> typingUsers = new ConcurrentHashMap<>();
+
+    /**
+     * 等待广播的已读位置：roomId -> userId -> 最大消息ID
+     */
+    private final ConcurrentHashMap<Long, Map<Long, Long>> pendingBroadcastReads = new ConcurrentHashMap<>();
+
+    /**
+     * 等待写库的已读位置：roomId -> userId -> 最大消息ID
+     */
+    private final ConcurrentHashMap<Long, Map<Long, Long>> pendingPersistReads = new ConcurrentHashMap<>();
+
+    /**
+     * 本周期内状态有变化、需要广播的聊天室
+     */
+    private final Set<Long> dirtyRooms = ConcurrentHashMap.newKeySet();
+
+    public ChatRoomActivityTracker(ChatRoomMemberMapper chatRoomMemberMapper,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${app.chat.typing-ttl-ms:5000}") long typingTtlMs,
+                                   @Value("${app.chat.read-receipt-batch-size:500}") int readReceiptBatchSize) {
+        this.chatRoomMemberMapper = chatRoomMemberMapper;
+        this.eventPublisher = eventPublisher;
+        this.typingTtlMs = typingTtlMs;
+        this.readReceiptBatchSize = Math.max(1, readReceiptBatchSize);
+    }
+
+    /**
+     * 更新用户的正在输入状态
+     * 输入期间的重复刷新只延长过期时间，不会触发广播
+     */
+    public void setTyping(Long roomId, Long userId, boolean typing) {
+        setTyping(roomId, userId, typing, System.currentTimeMillis());
+    }
+
+    void setTyping(Long roomId, Long userId, boolean typing, long nowMillis) {
+        if (roomId == null || userId == null) {
+            return;
+        }
+        boolean[] changed = new boolean[1];
+        if (typing) {
+            typingUsers.compute(roomId, (k, users) -> {
+                if (users == null) {
+                    users = new HashMap<>();
+                }
+                Long previous = users.put(userId, nowMillis + typingTtlMs);
+                changed[0] = previous == null || previous <= nowMillis;
+                return users;
+            });
+        } else {
+            typingUsers.computeIfPresent(roomId, (k, users) -> {
+                changed[0] = users.remove(userId) != null;
+                return users.isEmpty() ? null : users;
+            });
+        }
+        if (changed[0]) {
+            dirtyRooms.add(roomId);
+        }
+    }
+
+    /**
+     * 记录已读回执，只保留每个成员的最大消息ID
+     */
+    public void markRead(Long roomId, Long userId, long lastReadMessageId) {
+        if (roomId == null || userId == null || lastReadMessageId <= 0) {
+            return;
+        }
+        mergeReadMark(pendingBroadcastReads, roomId, userId, lastReadMessageId);
+        mergeReadMark(pendingPersistReads, roomId, userId, lastReadMessageId);
+        dirtyRooms.add(roomId);
+    }
+
+    /**
+     * 为有变化的聊天室发布活动事件，同时清除过期的正在输入状态
+     * @return 发布的聊天室数量
+     */
+    @Scheduled(fixedDelayString = "${app.chat.activity-flush-ms:200}")
+    public int broadcast() {
+        return broadcast(System.currentTimeMillis());
+    }
+
+    synchronized int broadcast(long nowMillis) {
+        expireTyping(nowMillis);
+        if (dirtyRooms.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, RoomActivity> activities = new HashMap<>();
+        for (Long roomId : dirtyRooms) {
+            // 先移出脏标记再读取状态，读取期间的新变化会重新标记，留到下个周期
+            dirtyRooms.remove(roomId);
+            Map<Long, Long> readMarks = pendingBroadcastReads.remove(roomId);
+            activities.put(roomId, new RoomActivity(currentTypingUsers(roomId),
+                    readMarks != null ? readMarks : Map.of()));
+        }
+        eventPublisher.publishEvent(new RoomActivityEvent(activities));
+        return activities.size();
+    }
+
+    /**
+     * 将累积的已读位置批量写入数据库
+     * @return 写入的成员数量
+     */
+    @Scheduled(fixedDelayString = "${app.chat.read-receipt-flush-ms:5000}")
+    public synchronized int persistReadMarks() {
+        List<ChatRoomMember> marks = new ArrayList<>();
+        for (Long roomId : pendingPersistReads.keySet()) {
+            Map<Long, Long> roomMarks = pendingPersistReads.remove(roomId);
+            if (roomMarks == null) {
+                continue;
+            }
+            roomMarks.forEach((userId, lastReadMessageId) -> {
+                ChatRoomMember mark = new ChatRoomMember();
+                mark.setRoomId(roomId);
+                mark.setUserId(userId);
+                mark.setLastReadMessageId(lastReadMessageId);
+                marks.add(mark);
+            });
+        }
+
+        int written = 0;
+        for (int from = 0; from < marks.size(); from += readReceiptBatchSize) {
+            List<ChatRoomMember> batch = marks.subList(from, Math.min(marks.size(), from + readReceiptBatchSize));
+            try {
+                chatRoomMemberMapper.advanceLastReadMessageIds(batch);
+                written += batch.size();
+            } catch (Exception e) {
+                // 写入失败时放回，下个周期重试；已读位置只增不减，重复写入无副作用
+                for (ChatRoomMember mark : batch) {
+                    mergeReadMark(pendingPersistReads, mark.getRoomId(), mark.getUserId(), mark.getLastReadMessageId());
+                }
+                log.error("写入 {} 条已读位置失败，将在下次刷新时重试: {}", batch.size(), e.getMessage(), e);
+            }
+        }
+        if (written > 0) {
+            log.debug("写入 {} 条已读位置", written);
+        }
+        return written;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistReadMarks();
+    }
+
+    private void expireTyping(long nowMillis) {
+        for (Long roomId : typingUsers.keySet()) {
+            boolean[] expired = new boolean[1];
+            typingUsers.computeIfPresent(roomId, (k, users) -> {
+                expired[0] = users.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+                return users.isEmpty() ? null : users;
+            });
+            if (expired[0]) {
+                dirtyRooms.add(roomId);
+            }
+        }
+    }
+
+    private List<Long> currentTypingUsers(Long roomId) {
+        List<Long> userIds = new ArrayList<>();
+        typingUsers.computeIfPresent(roomId, (k, users) -> {
+            userIds.addAll(users.keySet());
+            return users;
+        });
+        return userIds;
+    }
+
+    private void mergeReadMark(ConcurrentHashMap<Long, Map<Long, Long>> target, Long roomId, Long userId,
+                               long lastReadMessageId) {
+        target.compute(roomId, (k, marks) -> {
+            if (marks == null) {
+                marks = new HashMap<>();
+            }
+            marks.merge(userId, lastReadMessageId, Math::max);
+            return marks;
+        });
+    }
+
+    /**
+     * 单个聊天室的临时状态快照
+     */
+    public static class RoomActivity {
+        private final List<Long> typingUserIds;
+        private final Map<Long, Long> readMarks;
+
+        public RoomActivity(List<Long> typingUserIds, Map<Long, Long> readMarks) {
+            this.typingUserIds = typingUserIds;
+            this.readMarks = readMarks;
+        }
+
+        /**
+         * 当前正在输入的全部用户
+         */
+        public List<Long> getTypingUserIds() {
+            return typingUserIds;
+        }
+
+        /**
+         * 本周期内推进的已读位置：userId -> 最大消息ID
+         */
+        public Map<Long, Long> getReadMarks() {
+            return readMarks;
+        }
+    }
+
+    /**
+     * 聊天室活动事件，包含本周期内有变化的聊天室及其临时状态
+     */
+    public static class RoomActivityEvent {
+        private final Map<Long, RoomActivity> activities;
+
+        public RoomActivityEvent(Map<Long, RoomActivity> activities) {
+            this.activities = activities;
+        }
+
+        public Map<Long, RoomActivity> getActivities() {
+            return activities;
+        }
+    }
+}
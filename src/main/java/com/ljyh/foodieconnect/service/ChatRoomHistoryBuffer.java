@@ -0,0 +1,230 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天室最近消息环形缓冲区
+ * 每个聊天室在内存中保留最近N条消息，新成员加入时直接返回，不再查询数据库
+ */
+@Slf4j
+@Component
+public class ChatRoomHistoryBuffer {
+
+    private final int capacity;
+
+    private final ConcurrentHashMap<Long, RoomRing> rings = new ConcurrentHashMap<>();
+
+    public ChatRoomHistoryBuffer(@Value("${app.chat.history-buffer-size:200}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 聊天室缓冲区是否已从数据库加载
+     */
+    public boolean isLoaded(Long roomId) {
+        RoomRing ring = rings.get(roomId);
+        return ring != null && ring.isLoaded();
+    }
+
+    /**
+     * 标记聊天室开始加载，加载期间到达的新消息会先进入缓冲区，避免遗漏
+     */
+    public void beginLoad(Long roomId) {
+        rings.computeIfAbsent(roomId, k -> new RoomRing(capacity));
+    }
+
+    /**
+     * 用数据库中的最新消息填充缓冲区
+     * @param latestMessages 按时间倒序排列的最新消息
+     */
+    public void load(Long roomId, List<ChatRoomMessage> latestMessages) {
+        RoomRing ring = rings.computeIfAbsent(roomId, k -> new RoomRing(capacity));
+        ring.seed(latestMessages);
+        log.debug("聊天室 {} 历史消息缓冲区加载完成，共 {} 条", roomId, latestMessages.size());
+    }
+
+    /**
+     * 追加新消息，只有已创建缓冲区的聊天室才会缓存
+     */
+    public void append(ChatRoomMessage message) {
+        if (message == null || message.getId() == null || message.getRoomId() == null) {
+            return;
+        }
+        RoomRing ring = rings.get(message.getRoomId());
+        if (ring != null) {
+            ring.add(message);
+        }
+    }
+
+    /**
+     * 获取指定消息ID之前的消息（按时间倒序）
+     * @param beforeId 游标消息ID，为null时从最新消息开始
+     * @return 缓冲区无法完整回答时返回null，由调用方回退到数据库
+     */
+    public List<ChatRoomMessage> before(Long roomId, Long beforeId, int limit) {
+        RoomRing ring = rings.get(roomId);
+        if (ring == null || !ring.isLoaded()) {
+            return null;
+        }
+        return ring.before(beforeId, limit);
+    }
+
+    /**
+     * 获取指定消息ID之后的消息（按时间正序）
+     * @return 缓冲区不能覆盖该区间时返回null
+     */
+    public List<ChatRoomMessage> after(Long roomId, long afterId, int limit) {
+        RoomRing ring = rings.get(roomId);
+        if (ring == null || !ring.isLoaded()) {
+            return null;
+        }
+        return ring.after(afterId, limit);
+    }
+
+    /**
+     * 移除聊天室缓冲区
+     */
+    public void evict(Long roomId) {
+        rings.remove(roomId);
+    }
+
+    /**
+     * 清空所有缓冲区（清理过期消息后调用）
+     */
+    public void clear() {
+        rings.clear();
+    }
+
+    /**
+     * 单个聊天室的环形缓冲区，按消息ID升序保存
+     */
+    static class RoomRing {
+
+        private final ChatRoomMessage[] slots;
+        private int head;
+        private int size;
+        private boolean loaded;
+        /**
+         * 缓冲区是否包含该聊天室的全部消息（数据库中没有更早的消息）
+         */
+        private boolean complete;
+
+        RoomRing(int capacity) {
+            this.slots = new ChatRoomMessage[capacity];
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        synchronized void seed(List<ChatRoomMessage> latestMessages) {
+            List<ChatRoomMessage> merged = new ArrayList<>(latestMessages);
+            merged.addAll(snapshot());
+            merged.sort(Comparator.comparing(ChatRoomMessage::getId));
+
+            head = 0;
+            size = 0;
+            Long lastId = null;
+            int start = Math.max(0, merged.size() - slots.length);
+            for (int i = start; i < merged.size(); i++) {
+                ChatRoomMessage message = merged.get(i);
+                if (message.getId().equals(lastId)) {
+                    continue;
+                }
+                slots[size++] = message;
+                lastId = message.getId();
+            }
+            complete = latestMessages.size() < slots.length && start == 0;
+            loaded = true;
+        }
+
+        synchronized void add(ChatRoomMessage message) {
+            if (size > 0) {
+                ChatRoomMessage newest = slots[(head + size - 1) % slots.length];
+                if (message.getId() <= newest.getId()) {
+                    // 事务提交顺序与ID顺序不一致时，按ID插入到正确位置
+                    insertOutOfOrder(message);
+                    return;
+                }
+            }
+            if (size == slots.length) {
+                slots[head] = message;
+                head = (head + 1) % slots.length;
+                complete = false;
+            } else {
+                slots[(head + size) % slots.length] = message;
+                size++;
+            }
+        }
+
+        synchronized List<ChatRoomMessage> before(Long beforeId, int limit) {
+            List<ChatRoomMessage> result = new ArrayList<>(Math.min(limit, size));
+            for (int i = size - 1; i >= 0 && result.size() < limit; i--) {
+                ChatRoomMessage message = slots[(head + i) % slots.length];
+                if (beforeId == null || message.getId() < beforeId) {
+                    result.add(message);
+                }
+            }
+            if (result.size() < limit && !complete) {
+                // 缓冲区已到尽头，但数据库中可能还有更早的消息
+                return null;
+            }
+            return result;
+        }
+
+        synchronized List<ChatRoomMessage> after(long afterId, int limit) {
+            if (!complete && (size == 0 || slots[head].getId() > afterId)) {
+                // 缺口早于缓冲区中最早的消息，无法确认中间没有遗漏
+                return null;
+            }
+            List<ChatRoomMessage> result = new ArrayList<>();
+            for (int i = 0; i < size && result.size() < limit; i++) {
+                ChatRoomMessage message = slots[(head + i) % slots.length];
+                if (message.getId() > afterId) {
+                    result.add(message);
+                }
+            }
+            return result;
+        }
+
+        private void insertOutOfOrder(ChatRoomMessage message) {
+            List<ChatRoomMessage> messages = snapshot();
+            for (ChatRoomMessage existing : messages) {
+                if (existing.getId().equals(message.getId())) {
+                    return;
+                }
+            }
+            messages.add(message);
+            messages.sort(Comparator.comparing(ChatRoomMessage::getId));
+            int start = Math.max(0, messages.size() - slots.length);
+            if (start > 0) {
+                complete = false;
+            }
+            head = 0;
+            size = 0;
+            for (int i = start; i < messages.size(); i++) {
+                slots[size++] = messages.get(i);
+            }
+        }
+
+        private List<ChatRoomMessage> snapshot() {
+            List<ChatRoomMessage> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                messages.add(slots[(head + i) % slots.length]);
+            }
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.mapper.ChatRoomMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天室在线人数计数器
+ * 上下线只在内存中累加每个聊天室的人数增量，由定时任务合并后一条语句写入chat_rooms.online_user_count，
+ * 并为本周期内有变化的聊天室发布一次在线人数变化事件，同一聊天室的一串上下线只产生一次写入和一次广播。
+ * 写入的是增量而不是绝对值，多个节点同时刷新不会互相覆盖；进程崩溃丢失的增量由定期对账修正。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatRoomOnlineCounter {
+
+    private final ChatRoomMapper chatRoomMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentHashMap<Long, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * 累加聊天室在线人数增量，应在成员在线状态的修改提交后调用
+     */
+    public void adjust(Long roomId, int delta) {
+        if (roomId == null || delta == 0) {
+            return;
+        }
+        pendingDeltas.merge(roomId, delta, Integer::sum);
+    }
+
+    /**
+     * 将累积的增量写入数据库并广播最新在线人数
+     * @return 写入的聊天室数量
+     */
+    @Scheduled(fixedDelayString = "${app.chat.online-count-flush-ms:1000}")
+    public synchronized int flush() {
+        Map<Long, Integer> deltas = drain();
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        try {
+            chatRoomMapper.adjustOnlineUserCounts(deltas);
+        } catch (Exception e) {
+            // 写入失败时放回增量，下个周期重试
+            deltas.forEach(this::adjust);
+            log.error("写入聊天室在线人数失败，{} 个聊天室将在下次刷新时重试: {}", deltas.size(), e.getMessage(), e);
+            return 0;
+        }
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (ChatRoom chatRoom : chatRoomMapper.findOnlineUserCounts(deltas.keySet())) {
+            counts.put(chatRoom.getId(), chatRoom.getOnlineUserCount() != null ? chatRoom.getOnlineUserCount() : 0);
+        }
+        if (!counts.isEmpty()) {
+            eventPublisher.publishEvent(new OnlineCountsChangedEvent(counts));
+        }
+        log.debug("写入 {} 个聊天室的在线人数", deltas.size());
+        return deltas.size();
+    }
+
+    /**
+     * 按成员在线状态重新计算所有聊天室的在线人数，修正崩溃或多节点并发造成的偏差
+     */
+    @Scheduled(fixedDelayString = "${app.chat.online-count-reconcile-ms:300000}",
+            initialDelayString = "${app.chat.online-count-reconcile-ms:300000}")
+    public synchronized void reconcile() {
+        flush();
+        try {
+            int corrected = chatRoomMapper.reconcileOnlineUserCounts();
+            if (corrected > 0) {
+                log.info("修正了 {} 个聊天室的在线人数", corrected);
+            }
+        } catch (Exception e) {
+            log.error("对账聊天室在线人数失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Map<Long, Integer> drain() {
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (Long roomId : pendingDeltas.keySet()) {
+            // remove与merge对同一个key是原子的，取出后新的增量会进入新的条目
+            Integer delta = pendingDeltas.remove(roomId);
+            if (delta != null && delta != 0) {
+                deltas.put(roomId, delta);
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 在线人数变化事件，包含本周期内有变化的聊天室及其最新在线人数
+     */
+    public static class OnlineCountsChangedEvent {
+        private final Map<Long, Integer> onlineUserCounts;
+
+        public OnlineCountsChangedEvent(Map<Long, Integer> onlineUserCounts) {
+            this.onlineUserCounts = onlineUserCounts;
+        }
+
+        public Map<Long, Integer> getOnlineUserCounts() {
+            return onlineUserCounts;
+        }
+    }
+}
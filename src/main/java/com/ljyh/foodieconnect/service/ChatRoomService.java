@@ -2,9 +2,11 @@ package com.ljyh.foodieconnect.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.entity.ChatRoomMember;
 import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.entity.User;
 import com.ljyh.foodieconnect.enums.ChatSessionStatus;
 import com.ljyh.foodieconnect.enums.MessageType;
 import com.ljyh.foodieconnect.exception.BusinessException;
@@ -17,6 +19,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -35,10 +39,16 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
     private final ChatRoomMemberMapper chatRoomMemberMapper;
     private final ChatRoomMessageMapper chatRoomMessageMapper;
     private final UserMapper userMapper;
+    private final ChatRoomHistoryBuffer historyBuffer;
+    private final ChatRoomVerificationCodeCache verificationCodeCache;
+    private final ChatRoomOnlineCounter onlineCounter;
+    private final ChatContentFilter contentFilter;
+    private final MerchantFeedAggregator merchantFeed;
     
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final int VERIFICATION_CODE_LENGTH = 6;
-    private static final long VERIFICATION_CODE_EXPIRY_MINUTES = 30;
+    static final long VERIFICATION_CODE_EXPIRY_MINUTES = 30;
+    public static final int MAX_MESSAGE_PAGE_SIZE = 200;
     
     /**
      * 生成随机验证码
@@ -61,9 +71,50 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
         chatRoom.setVerificationCode(newCode);
         chatRoom.setVerificationCodeGeneratedAt(LocalDateTime.now());
         chatRoomMapper.updateById(chatRoom);
+        runAfterCommit(() -> verificationCodeCache.put(chatRoom));
         log.info("刷新聊天室 {} 的验证码，新验证码：{}", chatRoom.getId(), newCode);
     }
     
+    /**
+     * 分批轮换所有聊天室的验证码
+     * 按主键游标分批读取聊天室，在内存中生成验证码后每批用一条语句写入，并将新验证码发布到缓存。
+     * 已在本轮轮换过的聊天室（验证码生成时间不早于rotatedBefore）会被跳过，多个节点同时执行是安全的。
+     * @param rotatedBefore 本轮轮换的起始时间
+     * @param batchSize 每批聊天室数量
+     * @return 本节点实际轮换的聊天室数量
+     */
+    public int rotateVerificationCodes(LocalDateTime rotatedBefore, int batchSize) {
+        int limit = Math.max(1, batchSize);
+        long afterId = 0;
+        int rotated = 0;
+        while (true) {
+            List<ChatRoom> rooms = chatRoomMapper.findRoomsDueForCodeRotation(afterId, rotatedBefore, limit);
+            if (rooms.isEmpty()) {
+                break;
+            }
+            int fetched = rooms.size();
+            afterId = rooms.get(fetched - 1).getId();
+            
+            LocalDateTime generatedAt = LocalDateTime.now();
+            for (ChatRoom room : rooms) {
+                room.setVerificationCode(generateVerificationCode());
+                room.setVerificationCodeGeneratedAt(generatedAt);
+            }
+            int updated = chatRoomMapper.batchUpdateVerificationCodes(rooms, generatedAt, rotatedBefore);
+            if (updated < rooms.size()) {
+                // 部分聊天室已被其他节点轮换，以数据库中的验证码为准发布
+                rooms = chatRoomMapper.selectBatchIds(rooms.stream().map(ChatRoom::getId).toList());
+            }
+            verificationCodeCache.putAll(rooms);
+            rotated += updated;
+            
+            if (fetched < limit) {
+                break;
+            }
+        }
+        return rotated;
+    }
+    
     /**
      * 通过验证码加入聊天室
      */
@@ -89,23 +140,24 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
         
         // 如果是MEMBER角色，验证验证码
         if ("MEMBER".equals(role)) {
-            // 先根据餐厅ID获取聊天室
-            chatRoom = chatRoomMapper.findByRestaurantId(restaurantId);
-            if (chatRoom == null) {
-                throw new BusinessException("CHAT_ROOM_NOT_FOUND", "聊天室不存在");
-            }
-            
-            // 检查验证码是否匹配
-            if (!chatRoom.getVerificationCode().equals(verificationCode)) {
-                throw new BusinessException("INVALID_VERIFICATION_CODE", "验证码无效");
-            }
-            
-            // 检查验证码是否过期
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime generatedAt = chatRoom.getVerificationCodeGeneratedAt();
-            if (generatedAt == null || now.isAfter(generatedAt.plusMinutes(VERIFICATION_CODE_EXPIRY_MINUTES))) {
-                // 如果验证码过期，直接抛出异常，不自动刷新
-                throw new BusinessException("VERIFICATION_CODE_EXPIRED", "验证码已过期，请联系商家获取新验证码");
+            // 缓存只作为通过的快速路径：命中且验证码匹配时直接使用缓存中的聊天室，不读取数据库；
+            // 缓存可能因写入失败或尚未发布而落后于数据库，不匹配或已过期时以数据库中的验证码为准
+            ChatRoomVerificationCodeCache.CachedCode cached = verificationCodeCache.get(restaurantId);
+            if (cached != null && isVerificationCodeValid(cached.getCode(), cached.getGeneratedAt(), verificationCode)) {
+                chatRoom = new ChatRoom();
+                chatRoom.setId(cached.getRoomId());
+                chatRoom.setRestaurantId(restaurantId);
+                chatRoom.setName(cached.getRoomName());
+                chatRoom.setStatus(cached.getStatus());
+            } else {
+                // 先根据餐厅ID获取聊天室
+                chatRoom = chatRoomMapper.findByRestaurantId(restaurantId);
+                if (chatRoom == null) {
+                    throw new BusinessException("CHAT_ROOM_NOT_FOUND", "聊天室不存在");
+                }
+                
+                // 检查验证码是否匹配、是否过期
+                checkVerificationCode(chatRoom.getVerificationCode(), chatRoom.getVerificationCodeGeneratedAt(), verificationCode);
             }
         } else {
             // 如果是OBSERVER角色，直接根据餐厅ID获取聊天室
@@ -138,10 +190,16 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
             
             chatRoomMemberMapper.insert(member);
             
-            // 更新在线用户数量
-            Integer onlineCount = chatRoomMemberMapper.countOnlineMembers(chatRoom.getId());
-            chatRoom.setOnlineUserCount(onlineCount + 1);
-            chatRoomMapper.updateById(chatRoom);
+            // 在线人数由计数器合并写入，返回值中先加上本次加入的成员
+            Long roomId = chatRoom.getId();
+            runAfterCommit(() -> {
+                onlineCounter.adjust(roomId, 1);
+                merchantFeed.recordPresence(roomId, userId, true);
+            });
+            // 缓存命中时不读取聊天室，在线人数未知，保持为空
+            if (chatRoom.getOnlineUserCount() != null) {
+                chatRoom.setOnlineUserCount(chatRoom.getOnlineUserCount() + 1);
+            }
             
             log.info("用户 {} 以 {} 身份加入聊天室 {}", userId, role, chatRoom.getId());
         } else {
@@ -152,6 +210,26 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
         return chatRoom;
     }
     
+    /**
+     * 校验验证码是否匹配且未过期
+     */
+    private boolean isVerificationCodeValid(String expectedCode, LocalDateTime generatedAt, String verificationCode) {
+        return expectedCode != null && expectedCode.equals(verificationCode) && generatedAt != null
+                && !LocalDateTime.now().isAfter(generatedAt.plusMinutes(VERIFICATION_CODE_EXPIRY_MINUTES));
+    }
+    
+    private void checkVerificationCode(String expectedCode, LocalDateTime generatedAt, String verificationCode) {
+        if (expectedCode == null || !expectedCode.equals(verificationCode)) {
+            throw new BusinessException("INVALID_VERIFICATION_CODE", "验证码无效");
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        if (generatedAt == null || now.isAfter(generatedAt.plusMinutes(VERIFICATION_CODE_EXPIRY_MINUTES))) {
+            // 如果验证码过期，直接抛出异常，不自动刷新
+            throw new BusinessException("VERIFICATION_CODE_EXPIRED", "验证码已过期，请联系商家获取新验证码");
+        }
+    }
+    
     /**
      * 发送聊天室消息
      */
@@ -178,6 +256,13 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
             throw new BusinessException("NO_PERMISSION", "您没有发送消息的权限");
         }
         
+        // 内容过滤：命中拒绝词时抛出异常，打码词替换后入库，标记词放行并记录
+        ChatContentFilter.FilterResult filtered = contentFilter.filter(content);
+        if (filtered.isFlagged()) {
+            log.warn("聊天室 {} 用户 {} 的消息命中关注词: {}", roomId, senderId, filtered.getFlaggedWords());
+        }
+        content = filtered.getContent();
+        
         // 创建消息
         ChatRoomMessage message = new ChatRoomMessage();
         message.setRoomId(roomId);
@@ -188,14 +273,42 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
         chatRoomMessageMapper.insert(message);
         log.info("发送聊天室消息: 房间 {} 发送者 {}", roomId, senderId);
         
+        // 设置发送者信息，广播和历史缓冲区共用
+        User sender = userMapper.selectById(senderId);
+        if (sender != null) {
+            message.setSenderName(sender.getDisplayName());
+            message.setSenderAvatar(sender.getAvatarUrl());
+        }
+        
         // 更新聊天室最后一条消息
         LocalDateTime currentTime = LocalDateTime.now();
-        Integer onlineCount = chatRoomMemberMapper.countOnlineMembers(roomId);
-        chatRoomMapper.updateLastMessage(roomId, content, currentTime, onlineCount);
+        chatRoomMapper.updateLastMessage(roomId, content, currentTime);
+        
+        // 事务提交后再写入历史缓冲区，避免回滚的消息被其他成员看到
+        runAfterCommit(() -> {
+            historyBuffer.append(message);
+            merchantFeed.recordMessage(message);
+        });
         
         return message;
     }
     
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行
+     */
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
     /**
      * 获取聊天室消息列表
      */
@@ -208,6 +321,72 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
         return chatRoomMessageMapper.findByRoomId(pageParam, roomId);
     }
     
+    /**
+     * 游标方式获取聊天室消息列表（按时间倒序）
+     * 最近的消息直接从内存环形缓冲区返回，更早的消息使用 room_id + id 键集查询
+     * @param cursor 上一页返回的游标（消息ID），为空时返回最新消息
+     */
+    public CursorPage<ChatRoomMessage> getRoomMessagesByCursor(Long roomId, String cursor, int size) {
+        Long beforeId = parseMessageCursor(cursor);
+        int limit = Math.max(1, Math.min(size, MAX_MESSAGE_PAGE_SIZE));
+        
+        // 多取一条用于判断是否还有更多数据
+        List<ChatRoomMessage> messages = getRecentMessages(roomId, beforeId, limit + 1);
+        if (messages == null) {
+            messages = beforeId == null
+                    ? chatRoomMessageMapper.findLatestMessagesByRoomId(roomId, limit + 1)
+                    : chatRoomMessageMapper.findByRoomIdBeforeId(roomId, beforeId, limit + 1);
+        }
+        
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages = messages.subList(0, limit);
+        }
+        String nextCursor = hasMore ? String.valueOf(messages.get(messages.size() - 1).getId()) : null;
+        return new CursorPage<>(messages, nextCursor, hasMore);
+    }
+    
+    private Long parseMessageCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException("INVALID_CURSOR", "无效的分页游标");
+        }
+    }
+    
+    /**
+     * 从历史缓冲区读取消息，缓冲区未加载时先从数据库加载最近的消息
+     * @return 缓冲区无法覆盖请求范围时返回null
+     */
+    private List<ChatRoomMessage> getRecentMessages(Long roomId, Long beforeId, int limit) {
+        ensureHistoryLoaded(roomId);
+        return historyBuffer.before(roomId, beforeId, limit);
+    }
+    
+    /**
+     * 获取指定消息ID之后的消息（按时间正序），用于断线重连补发
+     * 缺口在历史缓冲区内时不访问数据库
+     */
+    public List<ChatRoomMessage> getMessagesAfter(Long roomId, long afterId, int limit) {
+        ensureHistoryLoaded(roomId);
+        List<ChatRoomMessage> messages = historyBuffer.after(roomId, afterId, limit);
+        if (messages == null) {
+            messages = chatRoomMessageMapper.findByRoomIdAfterId(roomId, afterId, limit);
+        }
+        return messages;
+    }
+    
+    private void ensureHistoryLoaded(Long roomId) {
+        if (!historyBuffer.isLoaded(roomId)) {
+            historyBuffer.beginLoad(roomId);
+            historyBuffer.load(roomId,
+                    chatRoomMessageMapper.findLatestMessagesByRoomId(roomId, historyBuffer.getCapacity()));
+        }
+    }
+    
     /**
      * 获取聊天室成员列表
      */
@@ -222,14 +401,8 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
     public void leaveRoom(Long roomId, Long userId) {
         // 检查是否是聊天室成员（只检查注册用户，观察者不会在数据库中）
         if (chatRoomMemberMapper.isRoomMember(roomId, userId)) {
-            // 设置为离线
-            chatRoomMemberMapper.updateOnlineStatus(roomId, userId, false);
-            
-            // 更新在线用户数量
-            Integer onlineCount = chatRoomMemberMapper.countOnlineMembers(roomId);
-            ChatRoom chatRoom = chatRoomMapper.selectById(roomId);
-            chatRoom.setOnlineUserCount(onlineCount);
-            chatRoomMapper.updateById(chatRoom);
+            // 设置为离线，状态确实变化时才减少在线人数
+            markOffline(roomId, userId);
             
             log.info("用户 {} 离开聊天室 {}", userId, roomId);
         } else {
@@ -265,18 +438,9 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
      */
     @Transactional
     public void setUserOffline(Long roomId, Long userId) {
-        // 只更新注册用户的在线状态，观察者不需要数据库操作
-        if (chatRoomMemberMapper.isRoomMember(roomId, userId)) {
-            // 更新当前用户的在线状态
-            chatRoomMemberMapper.updateOnlineStatus(roomId, userId, false);
-            
-            // 更新在线用户数量
-            Integer onlineCount = chatRoomMemberMapper.countOnlineMembers(roomId);
-            ChatRoom chatRoom = chatRoomMapper.selectById(roomId);
-            chatRoom.setOnlineUserCount(onlineCount);
-            chatRoomMapper.updateById(chatRoom);
-        } else {
-            log.info("观察者 {} 断开连接，房间ID: {}", userId, roomId);
+        // 只更新注册用户的在线状态，观察者和非成员不会匹配到任何行
+        if (!markOffline(roomId, userId)) {
+            log.debug("用户 {} 断开连接时在线状态未变化，房间ID: {}", userId, roomId);
         }
     }
     
@@ -285,30 +449,29 @@ public class ChatRoomService extends ServiceImpl<ChatRoomMapper, ChatRoom> {
      */
     @Transactional
     public void setUserOnline(Long roomId, Long userId) {
-        // 只更新注册用户的在线状态，观察者不需要数据库操作
-        if (chatRoomMemberMapper.isRoomMember(roomId, userId)) {
-            // 更新当前用户的在线状态
-            chatRoomMemberMapper.updateOnlineStatus(roomId, userId, true);
-            
-            // 更新在线用户数量
-            Integer onlineCount = chatRoomMemberMapper.countOnlineMembers(roomId);
-            ChatRoom chatRoom = chatRoomMapper.selectById(roomId);
-            chatRoom.setOnlineUserCount(onlineCount);
-            chatRoomMapper.updateById(chatRoom);
+        // 只更新注册用户的在线状态，观察者和非成员不会匹配到任何行
+        if (chatRoomMemberMapper.markOnline(roomId, userId) > 0) {
+            runAfterCommit(() -> {
+                onlineCounter.adjust(roomId, 1);
+                merchantFeed.recordPresence(roomId, userId, true);
+            });
         } else {
-            log.info("观察者 {} 连接成功，房间ID: {}", userId, roomId);
+            log.debug("用户 {} 连接时在线状态未变化，房间ID: {}", userId, roomId);
         }
     }
     
     /**
-     * 删除超过指定天数的聊天记录
-     * @param days 天数
-     * @return 删除的记录数
+     * 将成员设置为离线，状态确实变化时在事务提交后减少在线人数
+     * @return 在线状态是否发生变化
      */
-    @Transactional
-    public int deleteOldMessages(int days) {
-        int deletedCount = chatRoomMessageMapper.deleteOldMessages(days);
-        log.info("删除了 {} 条超过 {} 天的聊天记录", deletedCount, days);
-        return deletedCount;
+    private boolean markOffline(Long roomId, Long userId) {
+        if (chatRoomMemberMapper.markOffline(roomId, userId) > 0) {
+            runAfterCommit(() -> {
+                onlineCounter.adjust(roomId, -1);
+                merchantFeed.recordPresence(roomId, userId, false);
+            });
+            return true;
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.enums.ChatSessionStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天室验证码缓存
+ * 验证码写入数据库后按餐厅ID发布到Redis，缓存值同时带上聊天室ID、名称和状态，
+ * 加入聊天室时缓存中的验证码匹配即可通过，无需读取聊天室；
+ * 不匹配、过期或Redis不可用时由调用方回退到数据库校验。发布失败时删除旧值，避免旧验证码继续生效。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatRoomVerificationCodeCache {
+
+    private static final String KEY_PREFIX = "chat:room:verification-code:";
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 发布单个聊天室的验证码
+     */
+    public void put(ChatRoom chatRoom) {
+        putAll(List.of(chatRoom));
+    }
+
+    /**
+     * 批量发布验证码，使用pipeline一次往返写入，缓存有效期与验证码剩余有效期一致
+     */
+    public void putAll(List<ChatRoom> chatRooms) {
+        if (chatRooms.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (ChatRoom chatRoom : chatRooms) {
+                        long ttlMillis = remainingMillis(chatRoom.getVerificationCodeGeneratedAt());
+                        if (chatRoom.getId() == null || chatRoom.getRestaurantId() == null || chatRoom.getStatus() == null
+                                || chatRoom.getVerificationCode() == null || ttlMillis <= 0) {
+                            continue;
+                        }
+                        operations.opsForValue().set(key(chatRoom.getRestaurantId()), encode(chatRoom),
+                                ttlMillis, TimeUnit.MILLISECONDS);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("发布聊天室验证码缓存失败: {}", e.getMessage());
+            evictAll(chatRooms);
+        }
+    }
+
+    /**
+     * 发布失败时删除旧验证码，避免轮换前的验证码在缓存中一直有效到过期
+     */
+    private void evictAll(List<ChatRoom> chatRooms) {
+        try {
+            redisTemplate.delete(chatRooms.stream()
+                    .map(ChatRoom::getRestaurantId)
+                    .filter(Objects::nonNull)
+                    .map(this::key)
+                    .toList());
+        } catch (Exception e) {
+            log.warn("删除聊天室验证码缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取餐厅聊天室的当前验证码
+     * @return 未命中或Redis不可用时返回null
+     */
+    public CachedCode get(Long restaurantId) {
+        try {
+            Object value = redisTemplate.opsForValue().get(key(restaurantId));
+            return value instanceof String ? decode((String) value) : null;
+        } catch (Exception e) {
+            log.warn("读取聊天室验证码缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private long remainingMillis(LocalDateTime generatedAt) {
+        if (generatedAt == null) {
+            return 0;
+        }
+        LocalDateTime expiresAt = generatedAt.plusMinutes(ChatRoomService.VERIFICATION_CODE_EXPIRY_MINUTES);
+        return Duration.between(LocalDateTime.now(), expiresAt).toMillis();
+    }
+
+    private String key(Long restaurantId) {
+        return KEY_PREFIX + restaurantId;
+    }
+
+    /**
+     * 缓存值格式：聊天室ID:状态:生成时间毫秒:验证码:名称，名称可能含冒号，放在最后
+     */
+    private String encode(ChatRoom chatRoom) {
+        return chatRoom.getId() + ":" + chatRoom.getStatus().name() + ":"
+                + chatRoom.getVerificationCodeGeneratedAt().atZone(ZONE).toInstant().toEpochMilli() + ":"
+                + chatRoom.getVerificationCode() + ":" + (chatRoom.getName() != null ? chatRoom.getName() : "");
+    }
+
+    private CachedCode decode(String value) {
+        String[] parts = value.split(":", 5);
+        if (parts.length < 5) {
+            return null;
+        }
+        try {
+            long epochMillis = Long.parseLong(parts[2]);
+            return new CachedCode(Long.parseLong(parts[0]), parts[4], ChatSessionStatus.valueOf(parts[1]), parts[3],
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE));
+        } catch (IllegalArgumentException e) {
+            // 旧格式或无法识别的值按未命中处理
+            return null;
+        }
+    }
+
+    /**
+     * 缓存中的验证码及所属聊天室
+     */
+    public static class CachedCode {
+        private final Long roomId;
+        private final String roomName;
+        private final ChatSessionStatus status;
+        private final String code;
+        private final LocalDateTime generatedAt;
+
+        public CachedCode(Long roomId, String roomName, ChatSessionStatus status, String code, LocalDateTime generatedAt) {
+            this.roomId = roomId;
+            this.roomName = roomName;
+            this.status = status;
+            this.code = code;
+            this.generatedAt = generatedAt;
+        }
+
+        public Long getRoomId() {
+            return roomId;
+        }
+
+        public String getRoomName() {
+            return roomName;
+        }
+
+        public ChatSessionStatus getStatus() {
+            return status;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public LocalDateTime getGeneratedAt() {
+            return generatedAt;
+        }
+    }
+}
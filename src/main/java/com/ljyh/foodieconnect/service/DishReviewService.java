@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.DishReviewRequest;
 import com.ljyh.foodieconnect.dto.DishReviewResponse;
 import com.ljyh.foodieconnect.dto.DishReviewStatsResponse;
@@ -36,6 +37,16 @@ public interface DishReviewService extends IService<DishReview> {
      */
     Page<DishReviewResponse> getMenuItemReviews(Long menuItemId, int page, int size, String sortBy);
 
+    /**
+     * 游标分页获取菜品评价列表，按创建时间降序，不统计总数
+     *
+     * @param menuItemId 菜品ID
+     * @param cursor 上一页返回的游标，为空时获取最新评价
+     * @param size 每页大小
+     * @return 游标分页评价列表
+     */
+    CursorPage<DishReviewResponse> getMenuItemReviewsByCursor(Long menuItemId, String cursor, int size);
+
     /**
      * 获取用户的菜品评价列表
      *
@@ -0,0 +1,181 @@
+package com.ljyh.foodieconnect.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ljyh.foodieconnect.entity.DishReviewSummary;
+import com.ljyh.foodieconnect.mapper.DishReviewSummaryMapper;
+import com.ljyh.foodieconnect.mapper.MenuItemMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 餐厅菜品评价汇总服务
+ * 商家评价概览由菜品上增量维护的评分聚合汇总而来，预先存为每个餐厅一行：评价总数、评分总和、好评和差评菜品列表。
+ * 菜品评价增删改在事务提交后用新事务重建所在餐厅的汇总行，重建时先锁住汇总行再读取菜品聚合，
+ * 同一餐厅的重建串行执行，后完成的重建总能看到之前所有已提交的评价
+ */
+@Slf4j
+@Service
+public class DishReviewSummaryService {
+
+    /**
+     * 进入好评/差评列表所需的最少评价数
+     */
+    static final int MIN_RANKED_REVIEWS = 3;
+    static final double TOP_RATED_MIN_RATING = 4.0;
+    static final double LOW_RATED_MAX_RATING = 2.5;
+    static final int RANKED_LIST_SIZE = 5;
+
+    private static final TypeReference<List<Map<String, Object>>> ITEM_LIST = new TypeReference<>() {
+    };
+
+    private final DishReviewSummaryMapper summaryMapper;
+    private final MenuItemMapper menuItemMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate newTransaction;
+
+    public DishReviewSummaryService(DishReviewSummaryMapper summaryMapper,
+                                    MenuItemMapper menuItemMapper,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager) {
+        this.summaryMapper = summaryMapper;
+        this.menuItemMapper = menuItemMapper;
+        this.objectMapper = objectMapper;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 获取商家评价概览，汇总行不存在时（如从未有过评价事件）先重建
+     */
+    public Map<String, Object> getOverview(Long restaurantId) {
+        DishReviewSummary summary = summaryMapper.selectById(restaurantId);
+        if (summary == null) {
+            summary = refresh(restaurantId);
+        }
+
+        int totalReviews = summary.getTotalReviews() != null ? summary.getTotalReviews() : 0;
+        int ratingSum = summary.getRatingSum() != null ? summary.getRatingSum() : 0;
+
+        Map<String, Object> overview = new HashMap<>();
+        overview.put("totalReviews", totalReviews);
+        overview.put("averageRating", totalReviews > 0 ? (double) ratingSum / totalReviews : 0.0);
+        overview.put("topRatedItems", readItems(summary.getTopRatedItems()));
+        overview.put("lowRatedItems", readItems(summary.getLowRatedItems()));
+        return overview;
+    }
+
+    /**
+     * 当前事务提交后重建餐厅的汇总行，没有事务时立即重建
+     * 重建失败只记录日志，由评分聚合校对任务修复
+     */
+    public void refreshAfterCommit(Long restaurantId) {
+        if (restaurantId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshQuietly(restaurantId);
+                }
+            });
+        } else {
+            refreshQuietly(restaurantId);
+        }
+    }
+
+    /**
+     * 在新事务中按菜品评分聚合重建餐厅的汇总行
+     */
+    public DishReviewSummary refresh(Long restaurantId) {
+        return newTransaction.execute(status -> rebuild(restaurantId));
+    }
+
+    private void refreshQuietly(Long restaurantId) {
+        try {
+            refresh(restaurantId);
+        } catch (RuntimeException e) {
+            log.warn("重建餐厅 {} 的菜品评价汇总失败", restaurantId, e);
+        }
+    }
+
+    private DishReviewSummary rebuild(Long restaurantId) {
+        // 先锁汇总行，之后的读取才建立快照，能看到先前重建之前提交的所有评价
+        summaryMapper.lockOrCreate(restaurantId);
+        List<MenuItemMapper.RatingSummary> items = menuItemMapper.findRatingSummariesByRestaurantId(restaurantId);
+
+        int totalReviews = 0;
+        int ratingSum = 0;
+        List<Map<String, Object>> topRatedItems = new ArrayList<>();
+        List<Map<String, Object>> lowRatedItems = new ArrayList<>();
+        for (MenuItemMapper.RatingSummary item : items) {
+            totalReviews += item.getReviewCount();
+            ratingSum += item.getRatingSum();
+            if (item.getReviewCount() < MIN_RANKED_REVIEWS) {
+                continue;
+            }
+            double averageRating = item.getAverageRating();
+            if (averageRating >= TOP_RATED_MIN_RATING && topRatedItems.size() < RANKED_LIST_SIZE) {
+                topRatedItems.add(toItem(item));
+            } else if (averageRating <= LOW_RATED_MAX_RATING) {
+                lowRatedItems.add(toItem(item));
+            }
+        }
+        // 差评列表取评分最低的几个
+        lowRatedItems.sort(Comparator.comparingDouble(item -> (Double) item.get("averageRating")));
+        if (lowRatedItems.size() > RANKED_LIST_SIZE) {
+            lowRatedItems = new ArrayList<>(lowRatedItems.subList(0, RANKED_LIST_SIZE));
+        }
+
+        DishReviewSummary summary = new DishReviewSummary();
+        summary.setRestaurantId(restaurantId);
+        summary.setTotalReviews(totalReviews);
+        summary.setRatingSum(ratingSum);
+        summary.setTopRatedItems(writeItems(topRatedItems));
+        summary.setLowRatedItems(writeItems(lowRatedItems));
+        summaryMapper.updateById(summary);
+        return summary;
+    }
+
+    private Map<String, Object> toItem(MenuItemMapper.RatingSummary item) {
+        Map<String, Object> itemData = new LinkedHashMap<>();
+        itemData.put("menuItemId", item.getId());
+        itemData.put("itemName", item.getName());
+        itemData.put("averageRating", item.getAverageRating());
+        itemData.put("reviewCount", item.getReviewCount());
+        return itemData;
+    }
+
+    private String writeItems(List<Map<String, Object>> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化菜品评价汇总失败", e);
+        }
+    }
+
+    private List<Map<String, Object>> readItems(String json) {
+        if (json == null || json.isBlank()) {
+            return new ArrayList<>();
+        }
+        try {
+            return objectMapper.readValue(json, ITEM_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("解析菜品评价汇总失败", e);
+        }
+    }
+}
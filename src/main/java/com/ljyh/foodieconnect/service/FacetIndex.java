@@ -0,0 +1,263 @@
+package com.ljyh.foodieconnect.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 常驻内存的分面位图索引
+ * 每个文档占一个槽位，每个分面的每个取值对应一个以槽位为下标的位图；删除后槽位回收复用，位图保持紧凑。
+ * 查询时同一分面内选中的取值取并集，不同分面之间取交集，得到命中集合，再按排序规则取出当前页。
+ * 各分面的计数只应用其他分面的选择（选中某个类型后，其他类型的计数仍然可见），一次查询返回全部分面的计数。
+ * 读写用读写锁保护。
+ */
+public class FacetIndex<T> {
+
+    private final Map<String, Function<T, String>> facets;
+    private final Comparator<T> order;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotsByKey = new HashMap<>();
+    private final List<T> docs = new ArrayList<>();
+    private final List<String[]> valuesBySlot = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Map<String, BitSet>> bitmaps = new HashMap<>();
+
+    /**
+     * @param facets 分面名称到取值函数的映射，取值为null时文档不计入该分面
+     * @param order 结果排序规则
+     */
+    public FacetIndex(Map<String, Function<T, String>> facets, Comparator<T> order) {
+        this.facets = new LinkedHashMap<>(facets);
+        this.order = order;
+        for (String facet : this.facets.keySet()) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * 新增或替换文档
+     * @param key 业务主键
+     */
+    public void put(long key, T doc) {
+        String[] values = new String[facets.size()];
+        int i = 0;
+        for (Function<T, String> extractor : facets.values()) {
+            values[i++] = extractor.apply(doc);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            int slot;
+            if (freeSlots.isEmpty()) {
+                slot = docs.size();
+                docs.add(doc);
+                valuesBySlot.add(values);
+            } else {
+                slot = freeSlots.pop();
+                docs.set(slot, doc);
+                valuesBySlot.set(slot, values);
+            }
+            slotsByKey.put(key, slot);
+            live.set(slot);
+            i = 0;
+            for (String facet : facets.keySet()) {
+                String value = values[i++];
+                if (value != null) {
+                    bitmaps.get(facet).computeIfAbsent(value, v -> new BitSet()).set(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     * @return 文档是否存在
+     */
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分面查询
+     * @param selections 分面名称到选中取值的映射，未出现或取值为空的分面不限
+     * @param filter 分面之外的附加条件，同时作用于结果和计数，为null时不过滤
+     * @throws IllegalArgumentException 分面名称不存在
+     */
+    public Result<T> search(Map<String, ? extends Collection<String>> selections, Predicate<T> filter,
+                            int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) live.clone();
+            if (filter != null) {
+                for (int slot = base.nextSetBit(0); slot >= 0; slot = base.nextSetBit(slot + 1)) {
+                    if (!filter.test(docs.get(slot))) {
+                        base.clear(slot);
+                    }
+                }
+            }
+
+            Map<String, BitSet> selected = new LinkedHashMap<>();
+            if (selections != null) {
+                for (Map.Entry<String, ? extends Collection<String>> selection : selections.entrySet()) {
+                    Map<String, BitSet> values = bitmaps.get(selection.getKey());
+                    if (values == null) {
+                        throw new IllegalArgumentException("Unknown facet: " + selection.getKey());
+                    }
+                    if (selection.getValue() == null || selection.getValue().isEmpty()) {
+                        continue;
+                    }
+                    BitSet union = new BitSet();
+                    for (String value : selection.getValue()) {
+                        BitSet bitmap = values.get(value);
+                        if (bitmap != null) {
+                            union.or(bitmap);
+                        }
+                    }
+                    selected.put(selection.getKey(), union);
+                }
+            }
+
+            BitSet matched = (BitSet) base.clone();
+            for (BitSet union : selected.values()) {
+                matched.and(union);
+            }
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (String facet : facets.keySet()) {
+                BitSet others = base;
+                if (selected.size() > (selected.containsKey(facet) ? 1 : 0)) {
+                    others = (BitSet) base.clone();
+                    for (Map.Entry<String, BitSet> entry : selected.entrySet()) {
+                        if (!entry.getKey().equals(facet)) {
+                            others.and(entry.getValue());
+                        }
+                    }
+                }
+                Map<String, Integer> facetCounts = new TreeMap<>();
+                for (Map.Entry<String, BitSet> value : bitmaps.get(facet).entrySet()) {
+                    BitSet intersection = (BitSet) value.getValue().clone();
+                    intersection.and(others);
+                    int count = intersection.cardinality();
+                    if (count > 0) {
+                        facetCounts.put(value.getKey(), count);
+                    }
+                }
+                counts.put(facet, facetCounts);
+            }
+
+            return new Result<>(matched.cardinality(), page(matched, offset, limit), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<T> page(BitSet matched, int offset, int limit) {
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) Math.max(0, offset) + Math.max(0, limit));
+        if (wanted == 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<T> top = new PriorityQueue<>(Math.min(wanted, 1024) + 1, order.reversed());
+        for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+            T doc = docs.get(slot);
+            if (top.size() < wanted) {
+                top.add(doc);
+            } else if (order.compare(doc, top.peek()) < 0) {
+                top.poll();
+                top.add(doc);
+            }
+        }
+        List<T> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        if (offset >= sorted.size()) {
+            return Collections.emptyList();
+        }
+        return sorted.subList(Math.max(0, offset), sorted.size());
+    }
+
+    private boolean removeLocked(long key) {
+        Integer slot = slotsByKey.remove(key);
+        if (slot == null) {
+            return false;
+        }
+        String[] values = valuesBySlot.get(slot);
+        int i = 0;
+        for (String facet : facets.keySet()) {
+            String value = values[i++];
+            if (value == null) {
+                continue;
+            }
+            Map<String, BitSet> facetBitmaps = bitmaps.get(facet);
+            BitSet bitmap = facetBitmaps.get(value);
+            bitmap.clear(slot);
+            if (bitmap.isEmpty()) {
+                facetBitmaps.remove(value);
+            }
+        }
+        live.clear(slot);
+        docs.set(slot, null);
+        valuesBySlot.set(slot, null);
+        freeSlots.push(slot);
+        return true;
+    }
+
+    /**
+     * 查询结果：命中总数、当前页和各分面取值的计数
+     */
+    public static class Result<T> {
+        private final int total;
+        private final List<T> docs;
+        private final Map<String, Map<String, Integer>> counts;
+
+        public Result(int total, List<T> docs, Map<String, Map<String, Integer>> counts) {
+            this.total = total;
+            this.docs = docs;
+            this.counts = counts;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<T> getDocs() {
+            return docs;
+        }
+
+        /**
+         * 分面名称 -> 取值 -> 命中数，只包含命中数大于0的取值
+         */
+        public Map<String, Map<String, Integer>> getCounts() {
+            return counts;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.FavoriteFoodRequest;
 import com.ljyh.foodieconnect.entity.UserFavoriteFood;
 import com.ljyh.foodieconnect.exception.BusinessException;
@@ -86,4 +87,17 @@ public class FavoriteFoodService extends ServiceImpl<UserFavoriteFoodMapper, Use
         Page<UserFavoriteFood> pageParam = new Page<>(page, size);
         return userFavoriteFoodMapper.findByUserIdAndFoodTypePage(pageParam, userId, foodType);
     }
-}
\ No newline at end of file
+    
+    /**
+     * 游标分页获取用户喜好食物列表，不统计总数
+     * @param foodType 食物类型，为null时不限
+     */
+    public CursorPage<UserFavoriteFood> getUserFavoriteFoodsByCursor(Long userId, String foodType, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor, 1);
+        int limit = KeysetCursor.limit(size);
+        // 多取一条用于判断是否还有更多数据
+        List<UserFavoriteFood> favoriteFoods = userFavoriteFoodMapper.findByUserIdBefore(userId, foodType,
+                after != null ? after.timeKey(0) : null, after != null ? after.getId() : null, limit + 1);
+        return KeysetCursor.page(favoriteFoods, limit, food -> KeysetCursor.encode(food.getId(), food.getCreatedAt()));
+    }
+}
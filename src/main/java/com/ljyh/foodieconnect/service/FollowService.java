@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.FollowWithUserDTO;
 import com.ljyh.foodieconnect.dto.UserDTO;
 import com.ljyh.foodieconnect.entity.User;
@@ -95,6 +96,30 @@ public class FollowService extends ServiceImpl<UserFollowMapper, UserFollow> {
         return userFollowMapper.findFollowersPage(pageParam, userId);
     }
     
+    /**
+     * 游标分页获取用户关注列表，不统计总数
+     */
+    public CursorPage<UserFollow> getFollowingListByCursor(Long userId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor, 1);
+        int limit = KeysetCursor.limit(size);
+        // 多取一条用于判断是否还有更多数据
+        List<UserFollow> follows = userFollowMapper.findFollowingBefore(userId,
+                after != null ? after.timeKey(0) : null, after != null ? after.getId() : null, limit + 1);
+        return KeysetCursor.page(follows, limit, follow -> KeysetCursor.encode(follow.getId(), follow.getCreatedAt()));
+    }
+    
+    /**
+     * 游标分页获取用户粉丝列表，不统计总数
+     */
+    public CursorPage<UserFollow> getFollowersListByCursor(Long userId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor, 1);
+        int limit = KeysetCursor.limit(size);
+        // 多取一条用于判断是否还有更多数据
+        List<UserFollow> follows = userFollowMapper.findFollowersBefore(userId,
+                after != null ? after.timeKey(0) : null, after != null ? after.getId() : null, limit + 1);
+        return KeysetCursor.page(follows, limit, follow -> KeysetCursor.encode(follow.getId(), follow.getCreatedAt()));
+    }
+    
     /**
      * 获取共同关注列表
      */
@@ -0,0 +1,309 @@
+package com.ljyh.foodieconnect.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * 常驻内存的经纬度网格索引
+ * 按固定经纬度步长把地球划分为网格，每个文档放在所在网格的桶中。
+ * 查询从查询点所在网格开始一圈一圈向外扫描，过滤条件在扫描时直接判断，用大顶堆保留最近的offset+limit个；
+ * 第r圈中任意一点与查询点的距离不小于(r-1)个网格宽度，超过半径或已凑够结果且下一圈不可能更近时停止。
+ * 距离用以两点平均纬度为基准的等距圆柱投影近似计算，几十公里范围内与球面距离的误差可忽略。
+ * 读写用读写锁保护。
+ */
+public class GeoGridIndex<T> {
+
+    /**
+     * 每度纬度（以及赤道上每度经度）对应的米数
+     */
+    public static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final Map<Long, Entry<T>> entriesByKey = new HashMap<>();
+
+    /**
+     * 已有文档的网格行列范围，圈数超出后停止扫描；只增不减，删除后由全量重建收紧
+     */
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minColumn = Integer.MAX_VALUE;
+    private int maxColumn = Integer.MIN_VALUE;
+
+    /**
+     * @param cellDegrees 网格边长（度），0.01度约为1.1公里
+     */
+    public GeoGridIndex(double cellDegrees) {
+        this.cellDegrees = Math.min(10, Math.max(0.001, cellDegrees));
+        this.rows = (int) Math.ceil(180 / this.cellDegrees);
+        this.columns = (int) Math.ceil(360 / this.cellDegrees);
+    }
+
+    /**
+     * 新增或替换文档
+     * @param key 业务主键
+     */
+    public void put(long key, T doc, double latitude, double longitude) {
+        Entry<T> entry = new Entry<>(doc, latitude, normalizeLongitude(longitude));
+        int row = row(latitude);
+        int column = column(entry.longitude);
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            entriesByKey.put(key, entry);
+            cells.computeIfAbsent(cellKey(row, column), k -> new ArrayList<>()).add(entry);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     * @return 文档是否存在
+     */
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按距离由近到远查询
+     * @param radiusMeters 搜索半径（米）
+     * @param filter 过滤条件，为null时不过滤
+     * @param countTotal 是否统计半径内的全部命中数；为false时凑够offset+limit个即可提前结束，total为已找到的数量
+     */
+    public Hits<T> nearby(double latitude, double longitude, double radiusMeters, Predicate<T> filter,
+                          int offset, int limit, boolean countTotal) {
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) Math.max(0, offset) + Math.max(0, limit));
+        if (wanted == 0 && !countTotal) {
+            return Hits.empty();
+        }
+        double queryLongitude = normalizeLongitude(longitude);
+        int centerRow = row(latitude);
+        int centerColumn = column(queryLongitude);
+        PriorityQueue<Neighbor<T>> nearest = new PriorityQueue<>(
+                Comparator.comparingDouble((Neighbor<T> n) -> n.distanceMeters).reversed());
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            if (entriesByKey.isEmpty()) {
+                return Hits.empty();
+            }
+            // 经度方向最多扫描一整圈，避免同一网格扫描两次
+            int maxRing = (columns - 1) / 2;
+            for (int ring = 0; ring <= maxRing; ring++) {
+                double ringDistance = ringLowerBound(latitude, ring);
+                if (ringDistance > radiusMeters || outsideOccupied(centerRow, centerColumn, ring)) {
+                    break;
+                }
+                if (!countTotal && nearest.size() >= wanted && ringDistance > nearest.peek().distanceMeters) {
+                    break;
+                }
+                total += scanRing(centerRow, centerColumn, ring, latitude, queryLongitude, radiusMeters,
+                        filter, wanted, nearest);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Neighbor<T>> sorted = new ArrayList<>(nearest);
+        sorted.sort(Comparator.comparingDouble(n -> n.distanceMeters));
+        if (!countTotal) {
+            total = sorted.size();
+        }
+        if (offset >= sorted.size()) {
+            return new Hits<>(total, Collections.emptyList());
+        }
+        return new Hits<>(total, sorted.subList(Math.max(0, offset), sorted.size()));
+    }
+
+    /**
+     * 两点间的近似距离（米）
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLatitude = latitude2 - latitude1;
+        double dLongitude = normalizeLongitude(longitude2 - longitude1);
+        double x = dLongitude * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        return Math.sqrt(x * x + dLatitude * dLatitude) * METERS_PER_DEGREE;
+    }
+
+    private int scanRing(int centerRow, int centerColumn, int ring, double latitude, double longitude,
+                         double radiusMeters, Predicate<T> filter, int wanted, PriorityQueue<Neighbor<T>> nearest) {
+        int matched = 0;
+        for (int dRow = -ring; dRow <= ring; dRow++) {
+            int row = centerRow + dRow;
+            if (row < 0 || row >= rows) {
+                continue;
+            }
+            // 上下两行取整圈，中间各行只取左右两端
+            int step = (dRow == -ring || dRow == ring) ? 1 : Math.max(1, 2 * ring);
+            for (int dColumn = -ring; dColumn <= ring; dColumn += step) {
+                List<Entry<T>> cell = cells.get(cellKey(row, Math.floorMod(centerColumn + dColumn, columns)));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry<T> entry : cell) {
+                    if (filter != null && !filter.test(entry.doc)) {
+                        continue;
+                    }
+                    double distance = distanceMeters(latitude, longitude, entry.latitude, entry.longitude);
+                    if (distance > radiusMeters) {
+                        continue;
+                    }
+                    matched++;
+                    if (nearest.size() < wanted) {
+                        nearest.add(new Neighbor<>(entry.doc, distance));
+                    } else if (wanted > 0 && distance < nearest.peek().distanceMeters) {
+                        nearest.poll();
+                        nearest.add(new Neighbor<>(entry.doc, distance));
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 第ring圈网格与查询点的最小可能距离：至少隔了ring-1个完整网格，经度方向按这一圈能达到的最高纬度折算
+     */
+    private double ringLowerBound(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double farthestLatitude = Math.min(90, Math.abs(latitude) + ring * cellDegrees);
+        return (ring - 1) * cellDegrees * Math.cos(Math.toRadians(farthestLatitude)) * METERS_PER_DEGREE;
+    }
+
+    /**
+     * 上一圈为止的正方形已覆盖全部有文档的网格时，再往外扫描不会有新结果
+     */
+    private boolean outsideOccupied(int centerRow, int centerColumn, int ring) {
+        if (ring == 0) {
+            return false;
+        }
+        int covered = ring - 1;
+        boolean rowsCovered = centerRow - covered <= minRow && centerRow + covered >= maxRow;
+        boolean columnsCovered = 2 * covered + 1 >= columns
+                || (centerColumn - covered <= minColumn && centerColumn + covered >= maxColumn);
+        return rowsCovered && columnsCovered;
+    }
+
+    private boolean removeLocked(long key) {
+        Entry<T> previous = entriesByKey.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        long cellKey = cellKey(row(previous.latitude), column(previous.longitude));
+        List<Entry<T>> cell = cells.get(cellKey);
+        if (cell != null) {
+            cell.remove(previous);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+        }
+        return true;
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((latitude + 90) / cellDegrees)));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        double normalized = ((longitude + 180) % 360 + 360) % 360 - 180;
+        return normalized == -180 ? 180 : normalized;
+    }
+
+    private static final class Entry<T> {
+        private final T doc;
+        private final double latitude;
+        private final double longitude;
+
+        private Entry(T doc, double latitude, double longitude) {
+            this.doc = doc;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    /**
+     * 命中的文档及其距离
+     */
+    public static class Neighbor<T> {
+        private final T doc;
+        private final double distanceMeters;
+
+        public Neighbor(T doc, double distanceMeters) {
+            this.doc = doc;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public T getDoc() {
+            return doc;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+
+    /**
+     * 查询结果：命中总数和按距离排序的当前页
+     */
+    public static class Hits<T> {
+        private final int total;
+        private final List<Neighbor<T>> neighbors;
+
+        public Hits(int total, List<Neighbor<T>> neighbors) {
+            this.total = total;
+            this.neighbors = neighbors;
+        }
+
+        public static <T> Hits<T> empty() {
+            return new Hits<>(0, Collections.emptyList());
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Neighbor<T>> getNeighbors() {
+            return neighbors;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.ljyh.foodieconnect.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * 常驻内存的倒排索引
+ * 每个文档有名称和描述两个字段，名称中的词项按nameWeight倍计入词频和文档长度。
+ * 倒排表是按内部文档号升序排列的int数组，文档号单调分配，新增文档只需追加。
+ * 查询要求所有词项都命中（与LIKE子串匹配的语义接近），从最短的倒排表出发跳跃求交，按BM25打分，
+ * 再乘以调用方给出的加权（例如评分）。字母数字词项按前缀匹配，中日韩词项精确匹配；
+ * 前缀展开出的多个倒排表在查询时k路归并，不复制倒排表。
+ * 读写用读写锁保护；更新频率远低于查询，更新文档时整体替换。查询结果经copier复制后返回，调用方修改不影响索引。
+ */
+public class InvertedIndex<T> {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int EXHAUSTED = Integer.MAX_VALUE;
+
+    private final int nameWeight;
+    private final UnaryOperator<T> copier;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> docIdsByKey = new HashMap<>();
+
+    /**
+     * 按内部文档号存放文档，已删除的位置为null，全量重建时压缩
+     */
+    private final List<IndexedDoc<T>> docs = new ArrayList<>();
+
+    private int liveDocs;
+    private long totalLength;
+
+    /**
+     * 文档不可变时使用，查询结果直接返回索引中的文档
+     */
+    public InvertedIndex(int nameWeight) {
+        this(nameWeight, UnaryOperator.identity());
+    }
+
+    /**
+     * @param copier 复制查询结果中的文档
+     */
+    public InvertedIndex(int nameWeight, UnaryOperator<T> copier) {
+        this.nameWeight = Math.max(1, nameWeight);
+        this.copier = copier;
+    }
+
+    /**
+     * 新增或替换文档
+     * @param key 业务主键
+     */
+    public void put(long key, T doc, String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String term : SearchTokenizer.indexTerms(name)) {
+            frequencies.merge(term, nameWeight, Integer::sum);
+            length += nameWeight;
+        }
+        for (String term : SearchTokenizer.indexTerms(description)) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            int docId = docs.size();
+            docs.add(new IndexedDoc<>(doc, length, frequencies.keySet().toArray(new String[0])));
+            docIdsByKey.put(key, docId);
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, k -> new PostingList()).append(docId, frequency));
+            liveDocs++;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     * @return 文档是否存在
+     */
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按业务主键获取文档
+     */
+    public T get(long key) {
+        lock.readLock().lock();
+        try {
+            Integer docId = docIdsByKey.get(key);
+            return docId != null ? docs.get(docId).doc : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询
+     * @param filter 文档过滤条件，在求交过程中应用，可为null
+     * @param boost 相关度乘数，可为null
+     * @param offset 跳过的结果数
+     * @param limit 返回的最大结果数
+     */
+    public Hits<T> search(String query, Predicate<T> filter, ToDoubleFunction<T> boost, int offset, int limit) {
+        List<String> terms = SearchTokenizer.queryTerms(query);
+        if (terms.isEmpty()) {
+            return Hits.empty();
+        }
+        int wanted = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, offset) + Math.max(0, limit));
+
+        lock.readLock().lock();
+        try {
+            TermCursor[] cursors = new TermCursor[terms.size()];
+            for (int i = 0; i < cursors.length; i++) {
+                String term = terms.get(i);
+                Collection<PostingList> lists = SearchTokenizer.isCjkTerm(term)
+                        ? singleton(postings.get(term))
+                        : postings.subMap(term, true, term + Character.MAX_VALUE, true).values();
+                if (lists.isEmpty()) {
+                    return Hits.empty();
+                }
+                cursors[i] = new TermCursor(lists);
+            }
+            // 按命中文档数上界升序，最短的作为驱动
+            Arrays.sort(cursors, Comparator.comparingInt(cursor -> cursor.estimatedSize));
+
+            double averageLength = liveDocs > 0 ? Math.max(1.0, (double) totalLength / liveDocs) : 1.0;
+            Comparator<ScoredDoc<T>> worstFirst = Comparator.<ScoredDoc<T>>comparingDouble(s -> s.score)
+                    .thenComparing(Comparator.<ScoredDoc<T>>comparingInt(s -> s.docId).reversed());
+            PriorityQueue<ScoredDoc<T>> top = new PriorityQueue<>(Math.max(1, Math.min(wanted, 1024)), worstFirst);
+            int total = 0;
+
+            TermCursor driver = cursors[0];
+            candidates:
+            for (int docId = driver.current(); docId != EXHAUSTED; docId = driver.advanceTo(docId + 1)) {
+                for (int k = 1; k < cursors.length; k++) {
+                    int other = cursors[k].advanceTo(docId);
+                    if (other == EXHAUSTED) {
+                        break candidates;
+                    }
+                    if (other != docId) {
+                        continue candidates;
+                    }
+                }
+                IndexedDoc<T> indexed = docs.get(docId);
+                if (indexed == null || (filter != null && !filter.test(indexed.doc))) {
+                    continue;
+                }
+
+                double score = 0;
+                double lengthNorm = K1 * (1 - B + B * indexed.length / averageLength);
+                for (TermCursor cursor : cursors) {
+                    score += cursor.score(0, docId, lengthNorm, liveDocs);
+                }
+                if (boost != null) {
+                    score *= boost.applyAsDouble(indexed.doc);
+                }
+
+                total++;
+                if (wanted > 0) {
+                    ScoredDoc<T> scored = new ScoredDoc<>(docId, indexed.doc, score);
+                    if (top.size() < wanted) {
+                        top.add(scored);
+                    } else if (worstFirst.compare(scored, top.peek()) > 0) {
+                        top.poll();
+                        top.add(scored);
+                    }
+                }
+            }
+
+            List<ScoredDoc<T>> ranked = new ArrayList<>(top);
+            ranked.sort(worstFirst.reversed());
+            List<T> page = new ArrayList<>();
+            for (int i = Math.max(0, offset); i < ranked.size(); i++) {
+                page.add(copier.apply(ranked.get(i).doc));
+            }
+            return new Hits<>(total, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(long key) {
+        Integer docId = docIdsByKey.remove(key);
+        if (docId == null) {
+            return false;
+        }
+        IndexedDoc<T> indexed = docs.set(docId, null);
+        for (String term : indexed.terms) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                list.remove(docId);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+        liveDocs--;
+        totalLength -= indexed.length;
+        return true;
+    }
+
+    private static double idf(int liveDocs, int documentFrequency) {
+        return Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static Collection<PostingList> singleton(PostingList list) {
+        return list != null ? Collections.singletonList(list) : Collections.emptyList();
+    }
+
+    /**
+     * 从from开始倍增步长查找第一个不小于target的位置
+     */
+    static int advance(int[] sorted, int from, int target) {
+        return advance(sorted, sorted.length, from, target);
+    }
+
+    /**
+     * 同上，只查找前length个元素
+     */
+    static int advance(int[] sorted, int length, int from, int target) {
+        if (from >= length || sorted[from] >= target) {
+            return from;
+        }
+        int step = 1;
+        int low = from;
+        int high = from + 1;
+        while (high < length && sorted[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        int index = Arrays.binarySearch(sorted, low + 1, Math.min(high + 1, length), target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 一个查询词项命中的文档游标
+     * 前缀展开出的倒排表按当前文档号组成小顶堆，推进时只移动堆顶落后的倒排表，
+     * 不复制也不重新排序倒排表，每次查询的额外内存与展开的词项数成正比
+     */
+    private static final class TermCursor {
+        private final PostingList[] lists;
+        private final int[] positions;
+        private final int[] heap;
+        private final int estimatedSize;
+        private int heapSize;
+
+        private TermCursor(Collection<PostingList> matched) {
+            this.lists = matched.toArray(new PostingList[0]);
+            this.positions = new int[lists.length];
+            this.heap = new int[lists.length];
+            int estimate = 0;
+            for (int i = 0; i < lists.length; i++) {
+                estimate += lists[i].size;
+                if (lists[i].size > 0) {
+                    heap[heapSize++] = i;
+                }
+            }
+            this.estimatedSize = estimate;
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        /**
+         * 当前文档号，耗尽时为EXHAUSTED
+         */
+        private int current() {
+            return heapSize > 0 ? head(heap[0]) : EXHAUSTED;
+        }
+
+        /**
+         * 推进到第一个不小于target的文档号
+         */
+        private int advanceTo(int target) {
+            while (heapSize > 0) {
+                int top = heap[0];
+                if (head(top) >= target) {
+                    break;
+                }
+                PostingList list = lists[top];
+                positions[top] = advance(list.docIds, list.size, positions[top], target);
+                if (positions[top] >= list.size) {
+                    heap[0] = heap[--heapSize];
+                }
+                if (heapSize > 0) {
+                    siftDown(0);
+                }
+            }
+            return current();
+        }
+
+        /**
+         * 累加文档在命中倒排表中的BM25分量
+         * 调用前游标已停在docId；堆中子节点的文档号不小于父节点，只需遍历文档号等于docId的节点
+         */
+        private double score(int node, int docId, double lengthNorm, int liveDocs) {
+            if (node >= heapSize || head(heap[node]) != docId) {
+                return 0;
+            }
+            int item = heap[node];
+            PostingList list = lists[item];
+            int frequency = list.frequencies[positions[item]];
+            return idf(liveDocs, list.size) * frequency * (K1 + 1) / (frequency + lengthNorm)
+                    + score(2 * node + 1, docId, lengthNorm, liveDocs)
+                    + score(2 * node + 2, docId, lengthNorm, liveDocs);
+        }
+
+        private int head(int item) {
+            return lists[item].docIds[positions[item]];
+        }
+
+        private void siftDown(int node) {
+            int item = heap[node];
+            int key = head(item);
+            while (true) {
+                int child = 2 * node + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && head(heap[child + 1]) < head(heap[child])) {
+                    child++;
+                }
+                if (head(heap[child]) >= key) {
+                    break;
+                }
+                heap[node] = heap[child];
+                node = child;
+            }
+            heap[node] = item;
+        }
+    }
+
+    /**
+     * 单个词项的倒排表：文档号升序，词频与文档号一一对应
+     */
+    private static final class PostingList {
+        private int[] docIds = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        private void append(int docId, int frequency) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docIds[size] = docId;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        private void remove(int docId) {
+            int index = Arrays.binarySearch(docIds, 0, size, docId);
+            if (index >= 0) {
+                System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+                System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    private static final class IndexedDoc<T> {
+        private final T doc;
+        private final int length;
+        private final String[] terms;
+
+        private IndexedDoc(T doc, int length, String[] terms) {
+            this.doc = doc;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    private static final class ScoredDoc<T> {
+        private final int docId;
+        private final T doc;
+        private final double score;
+
+        private ScoredDoc(int docId, T doc, double score) {
+            this.docId = docId;
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 查询结果：命中总数和按相关度排序的一页文档
+     */
+    public static class Hits<T> {
+        private final int total;
+        private final List<T> docs;
+
+        public Hits(int total, List<T> docs) {
+            this.total = total;
+            this.docs = docs;
+        }
+
+        public static <T> Hits<T> empty() {
+            return new Hits<>(0, Collections.emptyList());
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<T> getDocs() {
+            return docs;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.ljyh.foodieconnect.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 已验签JWT声明缓存
+ * 以令牌的SHA-256摘要为键缓存验签通过的声明，同一令牌的重复请求跳过Base64解码、JSON解析和HMAC验签。
+ * 条目只保留到令牌过期（含允许的时钟偏差）为止，与解析器判定过期的时间一致。
+ * 缓存满时先清理过期条目，仍然满则淘汰任意一个条目。撤销的令牌在其过期前不会被缓存或放行。
+ * 撤销记录只保存在本进程内。
+ */
+public class JwtClaimsCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final int maxEntries;
+    private final long allowedClockSkewMillis;
+    private final ConcurrentHashMap<TokenKey, CachedClaims> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 已撤销的令牌：摘要 -> 令牌过期时间，过期后撤销记录随之清理
+     */
+    private final ConcurrentHashMap<TokenKey, Long> revoked = new ConcurrentHashMap<>();
+
+    public JwtClaimsCache(int maxEntries, long allowedClockSkewMillis) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.allowedClockSkewMillis = Math.max(0, allowedClockSkewMillis);
+    }
+
+    /**
+     * 获取令牌声明，未命中时调用verifier解析验签并缓存结果
+     * @throws JwtException 令牌已撤销，或verifier抛出的任何异常
+     */
+    public Claims get(String token, Function<String, Claims> verifier) {
+        return get(token, verifier, System.currentTimeMillis());
+    }
+
+    Claims get(String token, Function<String, Claims> verifier, long nowMillis) {
+        TokenKey key = TokenKey.of(token);
+        if (!revoked.isEmpty()) {
+            Long revokedUntil = revoked.get(key);
+            if (revokedUntil != null && nowMillis < revokedUntil) {
+                throw new JwtException("令牌已撤销");
+            }
+        }
+
+        CachedClaims cached = entries.get(key);
+        if (cached != null) {
+            if (nowMillis < cached.validUntil) {
+                return cached.claims;
+            }
+            entries.remove(key, cached);
+        }
+
+        // 过期、签名错误等异常由verifier抛出，与不使用缓存时一致
+        Claims claims = verifier.apply(token);
+        Date expiration = claims.getExpiration();
+        if (expiration != null && maxEntries > 0) {
+            long validUntil = expiration.getTime() + allowedClockSkewMillis;
+            if (nowMillis < validUntil && makeRoom(nowMillis)) {
+                entries.put(key, new CachedClaims(claims, validUntil));
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * 撤销令牌：清除缓存条目，并在令牌过期前拒绝后续请求
+     */
+    public void revoke(String token, Date expiration) {
+        TokenKey key = TokenKey.of(token);
+        entries.remove(key);
+        long nowMillis = System.currentTimeMillis();
+        revoked.values().removeIf(until -> nowMillis >= until);
+        long until = expiration != null ? expiration.getTime() + allowedClockSkewMillis : Long.MAX_VALUE;
+        revoked.put(key, until);
+    }
+
+    /**
+     * 清空缓存，撤销记录保留
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 清理过期的缓存条目和撤销记录
+     */
+    public void purgeExpired(long nowMillis) {
+        entries.values().removeIf(cached -> nowMillis >= cached.validUntil);
+        revoked.values().removeIf(until -> nowMillis >= until);
+    }
+
+    private boolean makeRoom(long nowMillis) {
+        if (entries.size() < maxEntries) {
+            return true;
+        }
+        purgeExpired(nowMillis);
+        Iterator<TokenKey> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        return entries.size() < maxEntries;
+    }
+
+    private static final class CachedClaims {
+        private final Claims claims;
+        private final long validUntil;
+
+        private CachedClaims(Claims claims, long validUntil) {
+            this.claims = claims;
+            this.validUntil = validUntil;
+        }
+    }
+
+    /**
+     * 令牌摘要，缓存中不保存令牌原文
+     */
+    private static final class TokenKey {
+        private final byte[] digest;
+        private final int hash;
+
+        private TokenKey(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        static TokenKey of(String token) {
+            return new TokenKey(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TokenKey && Arrays.equals(digest, ((TokenKey) o).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
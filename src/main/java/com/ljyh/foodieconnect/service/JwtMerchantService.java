@@ -2,12 +2,15 @@ package com.ljyh.foodieconnect.service;
 
 import com.ljyh.foodieconnect.entity.Merchant;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
@@ -30,12 +33,30 @@ public class JwtMerchantService {
     @Value("${app.jwt.merchant-expiration:86400000}") // 默认24小时
     private Long expiration;
     
+    @Value("${app.jwt.claims-cache-size:10000}")
+    private int claimsCacheSize;
+    
+    private Key signingKey;
+    private JwtParser jwtParser;
+    private JwtClaimsCache claimsCache;
+    
+    /**
+     * 签名密钥和解析器只构建一次，解析器是线程安全的
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        claimsCache = new JwtClaimsCache(claimsCacheSize, 0);
+    }
+    
     /**
      * 获取签名密钥
      */
     private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
     
     /**
@@ -61,14 +82,30 @@ public class JwtMerchantService {
     }
     
     /**
-     * 从token中提取所有声明
+     * 从token中提取所有声明，同一token验签通过后在过期前直接使用缓存的声明
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return claimsCache.get(token, t -> jwtParser.parseClaimsJws(t).getBody());
+    }
+    
+    /**
+     * 撤销token，token过期前本节点不再接受该token
+     */
+    public void revokeToken(String token) {
+        try {
+            claimsCache.revoke(token, extractExpiration(token));
+        } catch (Exception e) {
+            // 无效或已过期的token本来就不会被接受
+            log.debug("撤销的token已无效: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 定期清理过期的缓存声明和撤销记录
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.claims-cache-purge-ms:300000}")
+    public void purgeClaimsCache() {
+        claimsCache.purgeExpired(System.currentTimeMillis());
     }
     
     /**
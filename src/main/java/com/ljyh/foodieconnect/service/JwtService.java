@@ -2,12 +2,15 @@ package com.ljyh.foodieconnect.service;
 
 import com.ljyh.foodieconnect.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
@@ -38,6 +41,27 @@ public class JwtService {
     @Value("${app.jwt.allowed-clock-skew:30000}")
     private long allowedClockSkew;
     
+    @Value("${app.jwt.claims-cache-size:10000}")
+    private int claimsCacheSize;
+    
+    private Key signInKey;
+    private JwtParser jwtParser;
+    private JwtClaimsCache claimsCache;
+    
+    /**
+     * 签名密钥和解析器只构建一次，解析器是线程安全的
+     */
+    @PostConstruct
+    public void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        jwtParser = Jwts
+                .parserBuilder()
+                .setSigningKey(signInKey)
+                .setAllowedClockSkewSeconds(allowedClockSkew / 1000)
+                .build();
+        claimsCache = new JwtClaimsCache(claimsCacheSize, allowedClockSkew);
+    }
+    
     /**
      * 从令牌中提取用户名
      */
@@ -125,17 +149,11 @@ public class JwtService {
     }
     
     /**
-     * 提取所有声明
+     * 提取所有声明，同一令牌验签通过后在过期前直接使用缓存的声明
      */
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .setAllowedClockSkewSeconds(allowedClockSkew / 1000)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return claimsCache.get(token, t -> jwtParser.parseClaimsJws(t).getBody());
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
             log.warn("JWT令牌已过期: {}", e.getMessage());
             throw e;
@@ -149,8 +167,27 @@ public class JwtService {
      * 获取签名密钥
      */
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
+    }
+    
+    /**
+     * 撤销令牌，令牌过期前本节点不再接受该令牌
+     */
+    public void revokeToken(String token) {
+        try {
+            claimsCache.revoke(token, extractExpiration(token));
+        } catch (Exception e) {
+            // 无效或已过期的令牌本来就不会被接受
+            log.debug("撤销的令牌已无效: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 定期清理过期的缓存声明和撤销记录
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.claims-cache-purge-ms:300000}")
+    public void purgeClaimsCache() {
+        claimsCache.purgeExpired(System.currentTimeMillis());
     }
     
     /**
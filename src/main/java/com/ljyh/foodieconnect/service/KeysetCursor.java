@@ -0,0 +1,124 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集分页游标
+ * 游标由上一页最后一条记录的排序键和主键拼接后做Base64URL编码，对客户端不透明。
+ * 查询时用 (排序键, id) 严格小于游标值作为WHERE条件，按 排序键 DESC, id DESC 取 limit+1 条：
+ * 不使用OFFSET，翻到多深都只扫描一页的数据，也不执行COUNT；多出的一条只用来判断是否还有下一页。
+ */
+public final class KeysetCursor {
+
+    /**
+     * 游标模式下每页最多条数
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+    private static final String VERSION = "1";
+
+    private final String[] keys;
+    private final long id;
+
+    private KeysetCursor(String[] keys, long id) {
+        this.keys = keys;
+        this.id = id;
+    }
+
+    /**
+     * 编码游标，排序键为null时编码为空串
+     */
+    public static String encode(long id, Object... keys) {
+        StringBuilder raw = new StringBuilder(VERSION);
+        for (Object key : keys) {
+            raw.append(SEPARATOR).append(key instanceof BigDecimal decimal ? decimal.toPlainString()
+                    : key != null ? key.toString() : "");
+        }
+        raw.append(SEPARATOR).append(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     * @param keyCount 排序键个数
+     * @return 游标为空时返回null，表示第一页
+     * @throws BusinessException 游标格式不正确
+     */
+    public static KeysetCursor decode(String cursor, int keyCount) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != keyCount + 2 || !VERSION.equals(parts[0])) {
+                throw invalid();
+            }
+            String[] keys = new String[keyCount];
+            System.arraycopy(parts, 1, keys, 0, keyCount);
+            return new KeysetCursor(keys, Long.parseLong(parts[parts.length - 1]));
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * 把多取一条的查询结果组装成游标页
+     * @param rows 按 排序键 DESC, id DESC 查询的最多limit+1条记录
+     * @param cursorOf 由记录生成游标
+     */
+    public static <T> CursorPage<T> page(List<T> rows, int limit, Function<T, String> cursorOf) {
+        boolean hasMore = rows.size() > limit;
+        List<T> records = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? cursorOf.apply(records.get(records.size() - 1)) : null;
+        return new CursorPage<>(records, nextCursor, hasMore);
+    }
+
+    /**
+     * 游标模式的每页条数，限制在1到MAX_PAGE_SIZE之间
+     */
+    public static int limit(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public LocalDateTime timeKey(int index) {
+        try {
+            return keys[index].isEmpty() ? null : LocalDateTime.parse(keys[index]);
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    public BigDecimal decimalKey(int index) {
+        try {
+            return keys[index].isEmpty() ? null : new BigDecimal(keys[index]);
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    public long longKey(int index) {
+        try {
+            return keys[index].isEmpty() ? 0 : Long.parseLong(keys[index]);
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    private static BusinessException invalid() {
+        return new BusinessException("INVALID_CURSOR", "无效的分页游标");
+    }
+}
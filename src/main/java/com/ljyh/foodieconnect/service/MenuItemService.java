@@ -12,7 +12,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -25,6 +24,8 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
     
     private final MenuItemMapper menuItemMapper;
     private final MerchantAuthService merchantAuthService;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final DishReviewSummaryService dishReviewSummaryService;
     
     /**
      * 获取餐厅的所有菜品
@@ -86,6 +87,9 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
         // 验证餐厅访问权限
         merchantAuthService.validateRestaurantAccess(restaurantId);
         
+        if (catalogSearchIndex.isReady()) {
+            return catalogSearchIndex.searchMenuItemsOfRestaurant(restaurantId, keyword);
+        }
         return menuItemMapper.searchByKeyword(restaurantId, keyword);
     }
     
@@ -124,6 +128,7 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
         menuItem.setCalories(request.getCalories());
         
         menuItemMapper.insert(menuItem);
+        catalogSearchIndex.refreshMenuItem(menuItem.getId());
         log.info("创建菜品成功: {}", menuItem.getName());
         
         return menuItem;
@@ -173,6 +178,9 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
         menuItem.setCalories(request.getCalories());
         
         menuItemMapper.updateById(menuItem);
+        catalogSearchIndex.refreshMenuItem(itemId);
+        // 评价概览中保存了菜品名称
+        dishReviewSummaryService.refreshAfterCommit(menuItem.getRestaurantId());
         log.info("更新菜品成功: {}", menuItem.getName());
         
         return menuItem;
@@ -194,6 +202,9 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
         merchantAuthService.validateRole(Merchant.MerchantRole.ADMIN);
         
         menuItemMapper.deleteById(itemId);
+        catalogSearchIndex.refreshMenuItem(itemId);
+        // 菜品的评价随菜品级联删除
+        dishReviewSummaryService.refreshAfterCommit(menuItem.getRestaurantId());
         log.info("删除菜品成功: {}", menuItem.getName());
     }
     
@@ -214,6 +225,7 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
         
         menuItem.setIsAvailable(isAvailable);
         menuItemMapper.updateById(menuItem);
+        catalogSearchIndex.refreshMenuItem(itemId);
         
         log.info("{}菜品: {}", isAvailable ? "启用" : "禁用", menuItem.getName());
     }
@@ -235,33 +247,39 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
         
         menuItem.setIsRecommended(isRecommended);
         menuItemMapper.updateById(menuItem);
+        catalogSearchIndex.refreshMenuItem(itemId);
         
         log.info("{}推荐菜品: {}", isRecommended ? "设置" : "取消", menuItem.getName());
     }
 
     /**
-     * 更新菜品评分
+     * 按一条菜品评价的评分变化增量更新菜品评分，需在写评价的同一事务内调用
+     *
+     * @param menuItemId 菜品ID
+     * @param addedRating 新增或修改后的评分，删除评价时为null
+     * @param removedRating 删除或修改前的评分，新增评价时为null
+     */
+    public void applyReviewRating(Long menuItemId, Integer addedRating, Integer removedRating) {
+        menuItemMapper.applyRatingDelta(menuItemId, addedRating, removedRating);
+        catalogSearchIndex.refreshMenuItem(menuItemId);
+    }
+
+    /**
+     * 按菜品评价表重新计算菜品评分，用于后台校对
      *
      * @param menuItemId 菜品ID
      */
     @Transactional
     public void updateMenuItemRating(Long menuItemId) {
-        // 获取菜品信息
         MenuItem menuItem = menuItemMapper.selectById(menuItemId);
         if (menuItem == null) {
             throw new BusinessException("MENU_ITEM_NOT_FOUND", "菜品不存在");
         }
 
-        // 计算平均评分和评价数量（使用原生SQL查询，避免循环依赖）
-        Double averageRating = menuItemMapper.calculateAverageRating(menuItemId);
-        Integer reviewCount = menuItemMapper.countReviews(menuItemId);
-
-        // 更新菜品信息
-        menuItem.setRating(averageRating != null ? BigDecimal.valueOf(averageRating) : BigDecimal.ZERO);
-        menuItem.setReviewCount(reviewCount != null ? reviewCount : 0);
-
-        menuItemMapper.updateById(menuItem);
-        log.info("更新菜品评分: {} -> 评分: {}, 评价数: {}", menuItem.getName(), menuItem.getRating(), menuItem.getReviewCount());
+        menuItemMapper.recalculateRatingAggregates(menuItemId);
+        catalogSearchIndex.refreshMenuItem(menuItemId);
+        dishReviewSummaryService.refreshAfterCommit(menuItem.getRestaurantId());
+        log.info("重新计算菜品评分: {}", menuItem.getName());
     }
 
     // ========== 商家端方法（需要验证菜品归属） ==========
@@ -307,6 +325,9 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
      * 全局搜索菜品（用户端）
      */
     public List<MenuItem> searchMenuItemsGlobally(String keyword) {
+        if (catalogSearchIndex.isReady()) {
+            return catalogSearchIndex.searchMenuItems(keyword);
+        }
         return menuItemMapper.globalSearch(keyword);
     }
 
@@ -315,6 +336,9 @@ public class MenuItemService extends ServiceImpl<MenuItemMapper, MenuItem> {
      */
     public Page<MenuItem> searchMenuItemsGloballyPage(String keyword, int page, int size) {
         Page<MenuItem> pageParam = new Page<>(page, size);
+        if (catalogSearchIndex.isReady()) {
+            return catalogSearchIndex.searchMenuItems(keyword, pageParam);
+        }
         return menuItemMapper.globalSearchPage(pageParam, keyword);
     }
 
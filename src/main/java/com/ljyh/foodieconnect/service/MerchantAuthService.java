@@ -41,6 +41,8 @@ public class MerchantAuthService {
     private final PasswordEncoder passwordEncoder;
     private final RestaurantMapper restaurantMapper;
     private final ChatRoomMapper chatRoomMapper;
+    private final PrincipalCache principalCache;
+    private final CatalogSearchIndex catalogSearchIndex;
     private static final int VERIFICATION_CODE_LENGTH = 6;
     
     /**
@@ -118,6 +120,7 @@ public class MerchantAuthService {
         restaurant.setReviewCount(0);
 
         restaurantMapper.insert(restaurant);
+        catalogSearchIndex.refreshRestaurant(restaurant.getId());
         log.info("创建餐厅成功: {}", restaurant.getName());
 
         // 2. 创建商家账户
@@ -180,10 +183,18 @@ public class MerchantAuthService {
         // 更新密码
         merchant.setPasswordHash(passwordEncoder.encode(newPassword));
         merchantMapper.updateById(merchant);
+        principalCache.evict(PrincipalCache.PrincipalType.MERCHANT, username);
         
         log.info("商家密码修改成功: {}", username);
     }
     
+    /**
+     * 登出，撤销当前使用的token
+     */
+    public void logout(String token) {
+        jwtMerchantService.revokeToken(token);
+    }
+    
     /**
      * 获取当前登录商家信息
      */
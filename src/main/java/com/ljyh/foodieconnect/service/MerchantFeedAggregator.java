@@ -0,0 +1,295 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.mapper.ChatRoomMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商家聚合推送汇总器
+ * 商家控制台按餐厅订阅，汇总器把该餐厅所有聊天室的新消息、成员上下线和在线人数变化累积在内存中，
+ * 每个周期为有变化的餐厅发布一次事件，由推送处理器合并成一帧下发，控制台不再需要轮询成员和消息接口。
+ * 只有被订阅的聊天室才会被记录，记录时不访问数据库。
+ */
+@Component
+public class MerchantFeedAggregator {
+
+    private final ChatRoomMapper chatRoomMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxMessagesPerFlush;
+    private final int previewLength;
+
+    /**
+     * 餐厅的订阅连接数
+     */
+    private final ConcurrentHashMap<Long, Integer> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 被订阅的聊天室：roomId -> restaurantId
+     */
+    private final ConcurrentHashMap<Long, Long> watchedRooms = new ConcurrentHashMap<>();
+
+    /**
+     * 待推送的变化：restaurantId -> 累积状态；累积状态只在外层compute中访问
+     */
+    private final ConcurrentHashMap<Long, PendingFeed> pending = new ConcurrentHashMap<>();
+
+    public MerchantFeedAggregator(ChatRoomMapper chatRoomMapper,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${app.chat.merchant-feed.max-messages-per-flush:50}") int maxMessagesPerFlush,
+                                  @Value("${app.chat.merchant-feed.preview-length:80}") int previewLength) {
+        this.chatRoomMapper = chatRoomMapper;
+        this.eventPublisher = eventPublisher;
+        this.maxMessagesPerFlush = Math.max(1, maxMessagesPerFlush);
+        this.previewLength = Math.max(1, previewLength);
+    }
+
+    /**
+     * 订阅餐厅的聚合推送
+     * @return 餐厅的全部聊天室，用于连接时下发初始快照
+     */
+    public List<ChatRoom> subscribe(Long restaurantId) {
+        List<ChatRoom> rooms = chatRoomMapper.findAllByRestaurantId(restaurantId);
+        subscriptions.compute(restaurantId, (k, count) -> {
+            for (ChatRoom room : rooms) {
+                watchedRooms.put(room.getId(), restaurantId);
+            }
+            return count == null ? 1 : count + 1;
+        });
+        return rooms;
+    }
+
+    /**
+     * 取消订阅，餐厅的最后一个连接断开后停止记录其聊天室
+     */
+    public void unsubscribe(Long restaurantId) {
+        subscriptions.computeIfPresent(restaurantId, (k, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            watchedRooms.values().removeIf(restaurantId::equals);
+            pending.remove(restaurantId);
+            return null;
+        });
+    }
+
+    /**
+     * 记录一条已提交的新消息
+     */
+    public void recordMessage(ChatRoomMessage message) {
+        Long restaurantId = message.getRoomId() != null ? watchedRooms.get(message.getRoomId()) : null;
+        if (restaurantId == null) {
+            return;
+        }
+        pending.compute(restaurantId, (k, feed) -> {
+            if (feed == null) {
+                feed = new PendingFeed();
+            }
+            feed.room(message.getRoomId()).messageCount++;
+            feed.messages.addLast(digest(message));
+            if (feed.messages.size() > maxMessagesPerFlush) {
+                // 只保留最新的消息，控制台可按需加载完整历史
+                feed.messages.pollFirst();
+                feed.messagesTruncated = true;
+            }
+            return feed;
+        });
+    }
+
+    /**
+     * 记录成员上下线，同一周期内同一成员只保留最后的状态
+     */
+    public void recordPresence(Long roomId, Long userId, boolean online) {
+        Long restaurantId = roomId != null ? watchedRooms.get(roomId) : null;
+        if (restaurantId == null || userId == null) {
+            return;
+        }
+        pending.compute(restaurantId, (k, feed) -> {
+            if (feed == null) {
+                feed = new PendingFeed();
+            }
+            feed.room(roomId).presence.put(userId, online);
+            return feed;
+        });
+    }
+
+    /**
+     * 记录在线人数变化
+     */
+    @EventListener
+    public void handleOnlineCountsChanged(ChatRoomOnlineCounter.OnlineCountsChangedEvent event) {
+        event.getOnlineUserCounts().forEach((roomId, onlineUserCount) -> {
+            Long restaurantId = watchedRooms.get(roomId);
+            if (restaurantId == null) {
+                return;
+            }
+            pending.compute(restaurantId, (k, feed) -> {
+                if (feed == null) {
+                    feed = new PendingFeed();
+                }
+                feed.room(roomId).onlineUserCount = onlineUserCount;
+                return feed;
+            });
+        });
+    }
+
+    /**
+     * 为有变化的餐厅发布聚合事件
+     * @return 发布的餐厅数量
+     */
+    @Scheduled(fixedDelayString = "${app.chat.merchant-feed.flush-ms:1000}")
+    public synchronized int flush() {
+        Map<Long, Feed> feeds = new HashMap<>();
+        for (Long restaurantId : pending.keySet()) {
+            PendingFeed feed = pending.remove(restaurantId);
+            if (feed != null) {
+                feeds.put(restaurantId, feed.toFeed());
+            }
+        }
+        if (!feeds.isEmpty()) {
+            eventPublisher.publishEvent(new MerchantFeedEvent(feeds));
+        }
+        return feeds.size();
+    }
+
+    private ChatRoomMessage digest(ChatRoomMessage message) {
+        String content = message.getContent();
+        if (content == null || content.length() <= previewLength) {
+            return message;
+        }
+        ChatRoomMessage digest = new ChatRoomMessage();
+        digest.setId(message.getId());
+        digest.setRoomId(message.getRoomId());
+        digest.setSenderId(message.getSenderId());
+        digest.setSenderName(message.getSenderName());
+        digest.setCreatedAt(message.getCreatedAt());
+        digest.setContent(content.substring(0, previewLength));
+        return digest;
+    }
+
+    /**
+     * 单个餐厅在当前周期内累积的变化
+     */
+    private static class PendingFeed {
+        private final Map<Long, PendingRoom> rooms = new LinkedHashMap<>();
+        private final ArrayDeque<ChatRoomMessage> messages = new ArrayDeque<>();
+        private boolean messagesTruncated;
+
+        private PendingRoom room(Long roomId) {
+            return rooms.computeIfAbsent(roomId, k -> new PendingRoom());
+        }
+
+        private Feed toFeed() {
+            Map<Long, RoomDelta> deltas = new LinkedHashMap<>();
+            rooms.forEach((roomId, room) -> {
+                List<Long> joined = new ArrayList<>();
+                List<Long> left = new ArrayList<>();
+                room.presence.forEach((userId, online) -> (online ? joined : left).add(userId));
+                deltas.put(roomId, new RoomDelta(room.onlineUserCount, joined, left, room.messageCount));
+            });
+            return new Feed(deltas, new ArrayList<>(messages), messagesTruncated);
+        }
+    }
+
+    private static class PendingRoom {
+        private final Map<Long, Boolean> presence = new LinkedHashMap<>();
+        private Integer onlineUserCount;
+        private int messageCount;
+    }
+
+    /**
+     * 单个聊天室在一个周期内的变化
+     */
+    public static class RoomDelta {
+        private final Integer onlineUserCount;
+        private final List<Long> joinedUserIds;
+        private final List<Long> leftUserIds;
+        private final int messageCount;
+
+        public RoomDelta(Integer onlineUserCount, List<Long> joinedUserIds, List<Long> leftUserIds, int messageCount) {
+            this.onlineUserCount = onlineUserCount;
+            this.joinedUserIds = joinedUserIds;
+            this.leftUserIds = leftUserIds;
+            this.messageCount = messageCount;
+        }
+
+        /**
+         * 最新在线人数，本周期没有变化时为null
+         */
+        public Integer getOnlineUserCount() {
+            return onlineUserCount;
+        }
+
+        public List<Long> getJoinedUserIds() {
+            return joinedUserIds;
+        }
+
+        public List<Long> getLeftUserIds() {
+            return leftUserIds;
+        }
+
+        /**
+         * 本周期内的新消息总数（包括因数量上限未下发摘要的消息）
+         */
+        public int getMessageCount() {
+            return messageCount;
+        }
+    }
+
+    /**
+     * 单个餐厅在一个周期内的聚合变化
+     */
+    public static class Feed {
+        private final Map<Long, RoomDelta> rooms;
+        private final List<ChatRoomMessage> messages;
+        private final boolean messagesTruncated;
+
+        public Feed(Map<Long, RoomDelta> rooms, List<ChatRoomMessage> messages, boolean messagesTruncated) {
+            this.rooms = rooms;
+            this.messages = messages;
+            this.messagesTruncated = messagesTruncated;
+        }
+
+        public Map<Long, RoomDelta> getRooms() {
+            return rooms;
+        }
+
+        /**
+         * 消息摘要，内容已截断为预览长度
+         */
+        public List<ChatRoomMessage> getMessages() {
+            return messages;
+        }
+
+        public boolean isMessagesTruncated() {
+            return messagesTruncated;
+        }
+    }
+
+    /**
+     * 商家聚合推送事件：restaurantId -> 本周期的聚合变化
+     */
+    public static class MerchantFeedEvent {
+        private final Map<Long, Feed> feeds;
+
+        public MerchantFeedEvent(Map<Long, Feed> feeds) {
+            this.feeds = feeds;
+        }
+
+        public Map<Long, Feed> getFeeds() {
+            return feeds;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.ljyh.foodieconnect.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 前缀输入提示
+ * 每条提示有两个匹配键：归一化后的全文和拼音首字母串，所有键按字典序存放在一个有序数组中，
+ * 前缀查询二分定位到第一个键后顺序扫描，用小顶堆保留热度最高的N条。
+ * 增量修改先写入一个小的覆盖表（删除记为墓碑），查询时覆盖表优先；覆盖表超过上限时与有序数组合并重建。
+ * 读取不加锁：有序数组和覆盖表组成一个不可变快照，写入时整体替换。
+ */
+public class PrefixSuggester {
+
+    /**
+     * 提示类型
+     */
+    public enum SuggestionType {
+        RESTAURANT, DISH, TYPE
+    }
+
+    private static final Suggestion REMOVED = new Suggestion("", null, "", null, 0);
+
+    private static final Comparator<Suggestion> BEST_FIRST = Comparator
+            .comparingDouble((Suggestion s) -> s.popularity).reversed()
+            .thenComparingInt(s -> s.text.length())
+            .thenComparing(s -> s.text);
+
+    private final int maxDelta;
+    private volatile State state = new State(new Suggestion[0], new String[0], new int[0], Map.of());
+
+    public PrefixSuggester(int maxDelta) {
+        this.maxDelta = Math.max(0, maxDelta);
+    }
+
+    /**
+     * 用一批提示替换全部内容
+     */
+    public synchronized void rebuild(Collection<Suggestion> suggestions) {
+        state = build(new ArrayList<>(suggestions));
+    }
+
+    /**
+     * 新增或替换一条提示
+     */
+    public synchronized void put(Suggestion suggestion) {
+        update(suggestion.key, suggestion);
+    }
+
+    /**
+     * 删除一条提示
+     */
+    public synchronized void remove(String key) {
+        update(key, REMOVED);
+    }
+
+    /**
+     * 返回以prefix开头（全文或拼音首字母）的热度最高的limit条提示
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = SearchTokenizer.normalize(prefix).trim();
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        State current = state;
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        Set<String> seen = new HashSet<>();
+
+        for (int i = lowerBound(current.keys, normalized);
+             i < current.keys.length && current.keys[i].startsWith(normalized); i++) {
+            Suggestion suggestion = current.entries[current.entryIndexes[i]];
+            if (!current.delta.containsKey(suggestion.key)) {
+                offer(top, seen, suggestion, limit);
+            }
+        }
+        for (Suggestion suggestion : current.delta.values()) {
+            if (suggestion != REMOVED && suggestion.matches(normalized)) {
+                offer(top, seen, suggestion, limit);
+            }
+        }
+
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(BEST_FIRST);
+        return result;
+    }
+
+    /**
+     * 将覆盖表合并进有序数组
+     */
+    public synchronized void compact() {
+        if (!state.delta.isEmpty()) {
+            state = build(liveEntries(state));
+        }
+    }
+
+    public int size() {
+        return liveEntries(state).size();
+    }
+
+    private void update(String key, Suggestion value) {
+        State current = state;
+        Map<String, Suggestion> delta = new HashMap<>(current.delta);
+        delta.put(key, value);
+        State next = new State(current.entries, current.keys, current.entryIndexes, delta);
+        state = delta.size() > maxDelta ? build(liveEntries(next)) : next;
+    }
+
+    private static void offer(PriorityQueue<Suggestion> top, Set<String> seen, Suggestion suggestion, int limit) {
+        if (!seen.add(suggestion.key)) {
+            return;
+        }
+        if (top.size() < limit) {
+            top.add(suggestion);
+        } else if (BEST_FIRST.compare(suggestion, top.peek()) < 0) {
+            top.poll();
+            top.add(suggestion);
+        }
+    }
+
+    private static List<Suggestion> liveEntries(State state) {
+        List<Suggestion> live = new ArrayList<>();
+        for (Suggestion suggestion : state.entries) {
+            if (!state.delta.containsKey(suggestion.key)) {
+                live.add(suggestion);
+            }
+        }
+        for (Suggestion suggestion : state.delta.values()) {
+            if (suggestion != REMOVED) {
+                live.add(suggestion);
+            }
+        }
+        return live;
+    }
+
+    private static State build(List<Suggestion> suggestions) {
+        Suggestion[] entries = suggestions.toArray(new Suggestion[0]);
+        List<String> keys = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            for (String key : entries[i].matchKeys) {
+                keys.add(key);
+                owners.add(i);
+            }
+        }
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keys::get));
+
+        String[] sortedKeys = new String[order.length];
+        int[] entryIndexes = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys.get(order[i]);
+            entryIndexes[i] = owners.get(order[i]);
+        }
+        return new State(entries, sortedKeys, entryIndexes, Map.of());
+    }
+
+    private static int lowerBound(String[] sorted, String target) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(target) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class State {
+        private final Suggestion[] entries;
+        private final String[] keys;
+        private final int[] entryIndexes;
+        private final Map<String, Suggestion> delta;
+
+        private State(Suggestion[] entries, String[] keys, int[] entryIndexes, Map<String, Suggestion> delta) {
+            this.entries = entries;
+            this.keys = keys;
+            this.entryIndexes = entryIndexes;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * 单条提示
+     */
+    public static class Suggestion {
+        private final String key;
+        private final SuggestionType type;
+        private final String text;
+        private final Long restaurantId;
+        private final double popularity;
+        private final String[] matchKeys;
+
+        /**
+         * @param key 唯一键，同一键的提示互相替换
+         * @param restaurantId 餐厅提示对应的餐厅ID，其他类型为null
+         * @param popularity 热度，越大越靠前
+         */
+        public Suggestion(String key, SuggestionType type, String text, Long restaurantId, double popularity) {
+            this.key = key;
+            this.type = type;
+            this.text = text;
+            this.restaurantId = restaurantId;
+            this.popularity = popularity;
+            Set<String> matchKeys = new LinkedHashSet<>();
+            String normalized = SearchTokenizer.normalize(text).trim();
+            if (!normalized.isEmpty()) {
+                matchKeys.add(normalized);
+            }
+            String initials = SearchTokenizer.pinyinInitials(text);
+            if (!initials.isEmpty()) {
+                matchKeys.add(initials);
+            }
+            this.matchKeys = matchKeys.toArray(new String[0]);
+        }
+
+        private boolean matches(String prefix) {
+            for (String matchKey : matchKeys) {
+                if (matchKey.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public SuggestionType getType() {
+            return type;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Long getRestaurantId() {
+            return restaurantId;
+        }
+
+        public double getPopularity() {
+            return popularity;
+        }
+    }
+}
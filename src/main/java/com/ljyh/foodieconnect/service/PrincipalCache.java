@@ -0,0 +1,185 @@
+package com.ljyh.foodieconnect.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 认证主体缓存
+ * JWT过滤器每个请求都要按令牌主题加载UserDetails，这里按"类型:主题"缓存加载结果一小段时间，
+ * 同一用户的连续请求不再每次查库。修改密码、状态变更等操作需调用evict，事务提交后再驱逐一次，
+ * 保证提交前读到的旧数据不会留在缓存中。加载失败（用户不存在、已禁用）不缓存。
+ */
+@Component
+public class PrincipalCache {
+
+    /**
+     * 主体类型，用户和商家的用户名空间相互独立
+     */
+    public enum PrincipalType {
+        USER, MERCHANT
+    }
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final boolean claimsPrincipalForReads;
+    private final ConcurrentHashMap<String, CachedPrincipal> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 驱逐计数，加载期间发生过驱逐时放弃缓存本次加载结果
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter claimsCounter;
+
+    public PrincipalCache(MeterRegistry meterRegistry,
+                          @Value("${app.security.principal-cache.ttl-ms:30000}") long ttlMillis,
+                          @Value("${app.security.principal-cache.max-size:10000}") int maxEntries,
+                          @Value("${app.security.principal-cache.claims-principal-for-reads:false}") boolean claimsPrincipalForReads) {
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.maxEntries = Math.max(0, maxEntries);
+        this.claimsPrincipalForReads = claimsPrincipalForReads;
+        this.hitCounter = counter(meterRegistry, "hit");
+        this.missCounter = counter(meterRegistry, "miss");
+        this.claimsCounter = counter(meterRegistry, "claims");
+        Gauge.builder("auth.principal.cache.size", entries, ConcurrentHashMap::size)
+                .description("认证主体缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取认证主体，未命中或已过期时调用loader加载并缓存
+     * @throws RuntimeException loader抛出的任何异常，例如UsernameNotFoundException
+     */
+    public UserDetails load(PrincipalType type, String subject, Function<String, UserDetails> loader) {
+        return load(type, subject, loader, System.currentTimeMillis());
+    }
+
+    UserDetails load(PrincipalType type, String subject, Function<String, UserDetails> loader, long nowMillis) {
+        String key = key(type, subject);
+        CachedPrincipal cached = entries.get(key);
+        if (cached != null) {
+            if (nowMillis < cached.expiresAt) {
+                hitCounter.increment();
+                return cached.userDetails;
+            }
+            entries.remove(key, cached);
+        }
+
+        missCounter.increment();
+        long generation = evictions.get();
+        UserDetails userDetails = loader.apply(subject);
+        if (userDetails != null && ttlMillis > 0 && makeRoom(nowMillis)) {
+            CachedPrincipal entry = new CachedPrincipal(userDetails, nowMillis + ttlMillis);
+            entries.put(key, entry);
+            // 加载期间有驱逐发生，读到的可能是变更前的数据
+            if (evictions.get() != generation) {
+                entries.remove(key, entry);
+            }
+        }
+        return userDetails;
+    }
+
+    /**
+     * 只读请求是否直接由令牌声明构建主体
+     * 开启后GET/HEAD请求不查库也不经过缓存，账户禁用要等令牌过期或撤销后才对这类请求生效
+     */
+    public boolean useClaimsPrincipal(String method) {
+        return claimsPrincipalForReads && ("GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method));
+    }
+
+    /**
+     * 由令牌声明构建认证主体，令牌已验签，不含密码
+     * @param authority 权限名，例如ROLE_USER
+     */
+    public UserDetails fromClaims(String subject, String authority) {
+        claimsCounter.increment();
+        return User.builder()
+                .username(subject)
+                .password("")
+                .authorities(Collections.singletonList(new SimpleGrantedAuthority(authority)))
+                .build();
+    }
+
+    /**
+     * 驱逐主体，在事务中调用时提交后再驱逐一次
+     */
+    public void evict(PrincipalType type, String subject) {
+        if (subject == null) {
+            return;
+        }
+        String key = key(type, subject);
+        evictNow(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(key);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        evictions.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictNow(String key) {
+        evictions.incrementAndGet();
+        entries.remove(key);
+    }
+
+    private boolean makeRoom(long nowMillis) {
+        if (entries.size() < maxEntries) {
+            return true;
+        }
+        entries.values().removeIf(cached -> nowMillis >= cached.expiresAt);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        return entries.size() < maxEntries;
+    }
+
+    private static String key(PrincipalType type, String subject) {
+        return type.name() + ":" + subject;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.principal.cache")
+                .description("认证主体解析次数，hit/(hit+miss)即缓存命中率")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class CachedPrincipal {
+        private final UserDetails userDetails;
+        private final long expiresAt;
+
+        private CachedPrincipal(UserDetails userDetails, long expiresAt) {
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
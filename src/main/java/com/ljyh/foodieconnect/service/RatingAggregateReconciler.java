@@ -0,0 +1,93 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.exception.BusinessException;
+import com.ljyh.foodieconnect.mapper.DishReviewSummaryMapper;
+import com.ljyh.foodieconnect.mapper.MenuItemMapper;
+import com.ljyh.foodieconnect.mapper.RestaurantMapper;
+import com.ljyh.foodieconnect.mapper.StaffMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 评分聚合校对
+ * 餐厅、菜品、店员的评分总和、数量和星级分布由评价增删改增量维护，这里定期与评价表全量比对，
+ * 发现不一致（如绕过服务直接改库、并发重算与增量交错）时按评价表重新计算并告警；
+ * 商家评价概览汇总与菜品聚合不一致（如提交后重建失败）时重建汇总
+ */
+@Slf4j
+@Component
+public class RatingAggregateReconciler {
+
+    private final RestaurantMapper restaurantMapper;
+    private final MenuItemMapper menuItemMapper;
+    private final StaffMapper staffMapper;
+    private final DishReviewSummaryMapper dishReviewSummaryMapper;
+    private final RestaurantService restaurantService;
+    private final MenuItemService menuItemService;
+    private final StaffReviewService staffReviewService;
+    private final DishReviewSummaryService dishReviewSummaryService;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public RatingAggregateReconciler(RestaurantMapper restaurantMapper,
+                                     MenuItemMapper menuItemMapper,
+                                     StaffMapper staffMapper,
+                                     DishReviewSummaryMapper dishReviewSummaryMapper,
+                                     RestaurantService restaurantService,
+                                     MenuItemService menuItemService,
+                                     StaffReviewService staffReviewService,
+                                     DishReviewSummaryService dishReviewSummaryService,
+                                     @Value("${app.rating.reconcile.enabled:true}") boolean enabled,
+                                     @Value("${app.rating.reconcile.batch-size:500}") int batchSize) {
+        this.restaurantMapper = restaurantMapper;
+        this.menuItemMapper = menuItemMapper;
+        this.staffMapper = staffMapper;
+        this.dishReviewSummaryMapper = dishReviewSummaryMapper;
+        this.restaurantService = restaurantService;
+        this.menuItemService = menuItemService;
+        this.staffReviewService = staffReviewService;
+        this.dishReviewSummaryService = dishReviewSummaryService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 比对并修复评分聚合，每类最多修复batchSize条，剩余的留到下一轮
+     *
+     * @return 修复的记录数
+     */
+    @Scheduled(fixedDelayString = "${app.rating.reconcile.interval-ms:3600000}",
+            initialDelayString = "${app.rating.reconcile.interval-ms:3600000}")
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        return repair("餐厅", restaurantMapper.findRatingAggregateDrift(batchSize), restaurantService::updateRestaurantRating)
+                + repair("菜品", menuItemMapper.findRatingAggregateDrift(batchSize), menuItemService::updateMenuItemRating)
+                + repair("店员", staffMapper.findRatingAggregateDrift(batchSize), staffReviewService::updateStaffRating)
+                + repair("餐厅菜品评价汇总", dishReviewSummaryMapper.findDrift(batchSize), dishReviewSummaryService::refresh);
+    }
+
+    private int repair(String type, List<Long> driftedIds, Consumer<Long> recalculate) {
+        if (driftedIds.isEmpty()) {
+            return 0;
+        }
+        log.warn("{}评分聚合与评价表不一致，重新计算: {}", type, driftedIds);
+        int repaired = 0;
+        for (Long id : driftedIds) {
+            try {
+                recalculate.accept(id);
+                repaired++;
+            } catch (BusinessException e) {
+                // 比对后记录已被删除
+                log.debug("{} {} 重新计算评分跳过: {}", type, id, e.getMessage());
+            }
+        }
+        return repaired;
+    }
+}
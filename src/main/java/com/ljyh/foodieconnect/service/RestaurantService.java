@@ -3,6 +3,10 @@ package com.ljyh.foodieconnect.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.dto.NearbyRestaurantResponse;
+import com.ljyh.foodieconnect.dto.RestaurantFacetResponse;
+import com.ljyh.foodieconnect.dto.SearchSuggestionResponse;
 import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.entity.MenuItem;
 import com.ljyh.foodieconnect.entity.Restaurant;
@@ -12,9 +16,14 @@ import com.ljyh.foodieconnect.mapper.RestaurantMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -25,16 +34,35 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RestaurantService extends ServiceImpl<RestaurantMapper, Restaurant> {
     
+    /**
+     * 附近餐厅的最大搜索半径（米），不传半径时按此半径找最近的餐厅
+     */
+    private static final double MAX_NEARBY_RADIUS_METERS = 50_000;
+    
+    /**
+     * 游标查询中无评分的排序值，排在所有评分之后
+     */
+    private static final BigDecimal NO_RATING = BigDecimal.valueOf(-1);
+    
     private final RestaurantMapper restaurantMapper;
     private final MenuItemMapper menuItemMapper;
     private final ChatRoomService chatRoomService;
+    private final CatalogSearchIndex catalogSearchIndex;
     
     /**
      * 分页查询餐厅列表
+     * 带关键词时走搜索索引，按相关度和评分排序；不带关键词时走分面索引
      */
     public Page<Restaurant> getRestaurants(int page, int size, String type, String keyword) {
         Page<Restaurant> pageParam = new Page<>(page, size);
         
+        if (catalogSearchIndex.isReady()) {
+            if (keyword != null && !keyword.isEmpty()) {
+                return catalogSearchIndex.searchRestaurants(keyword, type, pageParam);
+            }
+            return browseOpenRestaurants(type, null, pageParam);
+        }
+        
         QueryWrapper<Restaurant> wrapper = new QueryWrapper<>();
         wrapper.eq("is_open", true);
         
@@ -51,6 +79,49 @@ public class RestaurantService extends ServiceImpl<RestaurantMapper, Restaurant>
         return restaurantMapper.selectPage(pageParam, wrapper);
     }
     
+    /**
+     * 游标分页查询营业中的餐厅，不统计总数，适合无限滚动
+     * 排序与分页查询一致：评分降序（无评分排最后）、评价数降序、ID升序；游标编码上一页最后一条的这三个值
+     * @throws BusinessException 带关键词（相关度排序无法用游标续查）或游标无效
+     */
+    public CursorPage<Restaurant> getRestaurantsByCursor(String type, String keyword, String cursor, int size) {
+        if (keyword != null && !keyword.isEmpty()) {
+            throw new BusinessException("CURSOR_NOT_SUPPORTED", "关键词搜索不支持游标分页");
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor, 2);
+        int limit = KeysetCursor.limit(size);
+        
+        // 多取一条用于判断是否还有更多数据
+        List<Restaurant> restaurants;
+        if (catalogSearchIndex.isReady()) {
+            Map<String, List<String>> selections = new HashMap<>();
+            selections.put(CatalogSearchIndex.FACET_OPEN, List.of("true"));
+            if (type != null && !type.isEmpty()) {
+                selections.put(CatalogSearchIndex.FACET_TYPE, List.of(type));
+            }
+            restaurants = catalogSearchIndex.browseRestaurantsAfter(selections, toRestaurant(after), limit + 1);
+        } else if (after == null) {
+            restaurants = restaurantMapper.findOpenAfter(type, null, null, null, limit + 1);
+        } else {
+            BigDecimal rating = after.decimalKey(0);
+            restaurants = restaurantMapper.findOpenAfter(type, rating != null ? rating : NO_RATING,
+                    after.longKey(1), after.getId(), limit + 1);
+        }
+        return KeysetCursor.page(restaurants, limit, restaurant -> KeysetCursor.encode(restaurant.getId(),
+                restaurant.getRating(), restaurant.getReviewCount() != null ? restaurant.getReviewCount() : 0));
+    }
+    
+    private Restaurant toRestaurant(KeysetCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(cursor.getId());
+        restaurant.setRating(cursor.decimalKey(0));
+        restaurant.setReviewCount((int) cursor.longKey(1));
+        return restaurant;
+    }
+    
     /**
      * 根据ID获取餐厅详情
      */
@@ -104,14 +175,82 @@ public class RestaurantService extends ServiceImpl<RestaurantMapper, Restaurant>
         }
         
         Page<Restaurant> pageParam = new Page<>(page, size);
+        if (catalogSearchIndex.isReady()) {
+            return catalogSearchIndex.searchRestaurants(keyword.trim(), null, pageParam);
+        }
         return restaurantMapper.searchByKeyword(pageParam, keyword.trim());
     }
     
+    /**
+     * 搜索输入提示：餐厅名、菜品名和餐厅类型，支持拼音首字母
+     * 索引尚未加载时返回空列表，客户端仍可直接搜索
+     */
+    public List<SearchSuggestionResponse> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank() || !catalogSearchIndex.isReady()) {
+            return List.of();
+        }
+        return catalogSearchIndex.suggest(prefix, limit).stream()
+                .map(suggestion -> {
+                    SearchSuggestionResponse response = new SearchSuggestionResponse();
+                    response.setType(suggestion.getType().name());
+                    response.setText(suggestion.getText());
+                    response.setRestaurantId(suggestion.getRestaurantId());
+                    return response;
+                })
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 附近餐厅，按距离由近到远分页
+     * 传入半径时返回半径内的结果和总数；不传半径时在最大半径内按最近优先查找，不统计总数，total为已找到的数量
+     * @param type 餐厅类型，为空时不限
+     * @param isOpen 营业状态，为null时不限
+     * @param minRating 最低评分，为null时不限
+     */
+    public Page<NearbyRestaurantResponse> getNearbyRestaurants(double latitude, double longitude, Double radiusMeters,
+                                                               String type, Boolean isOpen, Double minRating,
+                                                               int page, int size) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new BusinessException("INVALID_LOCATION", "经纬度不合法");
+        }
+        boolean countTotal = radiusMeters != null;
+        double radius = countTotal ? Math.max(0, Math.min(radiusMeters, MAX_NEARBY_RADIUS_METERS)) : MAX_NEARBY_RADIUS_METERS;
+        Page<Restaurant> pageParam = new Page<>(page, size, countTotal);
+        Page<NearbyRestaurantResponse> result = new Page<>(pageParam.getCurrent(), pageParam.getSize(), countTotal);
+        
+        if (catalogSearchIndex.isReady()) {
+            GeoGridIndex.Hits<Restaurant> hits = catalogSearchIndex.searchNearby(latitude, longitude, radius,
+                    type, isOpen, minRating, pageParam, countTotal);
+            result.setTotal(hits.getTotal());
+            result.setRecords(hits.getNeighbors().stream()
+                    .map(neighbor -> new NearbyRestaurantResponse(neighbor.getDoc(), Math.round(neighbor.getDistanceMeters())))
+                    .collect(Collectors.toList()));
+            return result;
+        }
+        
+        // 索引未加载时按经纬度矩形查库
+        double latitudeDelta = radius / GeoGridIndex.METERS_PER_DEGREE;
+        double longitudeScale = Math.cos(Math.toRadians(latitude));
+        double longitudeDelta = longitudeScale > 1e-6 ? Math.min(180, latitudeDelta / longitudeScale) : 180;
+        Page<Restaurant> restaurants = restaurantMapper.findNearby(pageParam, latitude, longitude,
+                latitudeDelta, longitudeDelta, longitudeScale, type, isOpen, minRating);
+        result.setRecords(restaurants.getRecords().stream()
+                .map(restaurant -> new NearbyRestaurantResponse(restaurant, Math.round(GeoGridIndex.distanceMeters(
+                        latitude, longitude,
+                        restaurant.getLatitude().doubleValue(), restaurant.getLongitude().doubleValue()))))
+                .collect(Collectors.toList()));
+        result.setTotal(countTotal ? restaurants.getTotal() : pageParam.offset() + result.getRecords().size());
+        return result;
+    }
+    
     /**
      * 根据类型查询餐厅
      */
     public Page<Restaurant> getRestaurantsByType(String type, int page, int size) {
         Page<Restaurant> pageParam = new Page<>(page, size);
+        if (catalogSearchIndex.isReady()) {
+            return browseOpenRestaurants(type, null, pageParam);
+        }
         return restaurantMapper.findByType(pageParam, type);
     }
     
@@ -127,13 +266,70 @@ public class RestaurantService extends ServiceImpl<RestaurantMapper, Restaurant>
      */
     public Page<Restaurant> getRestaurantsByRatingRange(Double minRating, Double maxRating, int page, int size) {
         Page<Restaurant> pageParam = new Page<>(page, size);
+        if (catalogSearchIndex.isReady()) {
+            return browseOpenRestaurants(null, restaurant -> restaurant.getRating() != null
+                    && restaurant.getRating().doubleValue() >= minRating
+                    && restaurant.getRating().doubleValue() <= maxRating, pageParam);
+        }
         return restaurantMapper.findByRatingRange(pageParam, minRating, maxRating);
     }
     
+    /**
+     * 分面浏览餐厅：同一分面内多选取并集，不同分面取交集，按评分、评价数降序分页，并返回每个分面各取值的餐厅数
+     * 评分档取值为4.5-5、4-4.5、3.5-4、3-3.5、0-3，评价数档取值为0、1-9、10-49、50-199、200+
+     * 依赖内存索引，索引加载完成前不可用
+     */
+    public RestaurantFacetResponse browseRestaurants(List<String> types, List<String> ratings, Boolean isOpen,
+                                                     List<String> reviewCounts, int page, int size) {
+        if (!catalogSearchIndex.isReady()) {
+            throw new BusinessException("SEARCH_INDEX_NOT_READY", "筛选服务正在加载，请稍后重试");
+        }
+        Map<String, List<String>> selections = new HashMap<>();
+        putSelection(selections, CatalogSearchIndex.FACET_TYPE, types);
+        putSelection(selections, CatalogSearchIndex.FACET_RATING, ratings);
+        putSelection(selections, CatalogSearchIndex.FACET_OPEN, isOpen != null ? List.of(isOpen.toString()) : null);
+        putSelection(selections, CatalogSearchIndex.FACET_REVIEW_COUNT, reviewCounts);
+        
+        Page<Restaurant> pageParam = new Page<>(page, size);
+        FacetIndex.Result<Restaurant> result = catalogSearchIndex.browseRestaurants(selections, null, pageParam);
+        pageParam.setTotal(result.getTotal());
+        pageParam.setRecords(result.getDocs());
+        return new RestaurantFacetResponse(pageParam, result.getCounts());
+    }
+    
+    private static void putSelection(Map<String, List<String>> selections, String facet, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            selections.put(facet, values);
+        }
+    }
+    
+    /**
+     * 从分面索引查询营业中的餐厅
+     */
+    private Page<Restaurant> browseOpenRestaurants(String type, Predicate<Restaurant> filter, Page<Restaurant> pageParam) {
+        Map<String, List<String>> selections = new HashMap<>();
+        selections.put(CatalogSearchIndex.FACET_OPEN, List.of("true"));
+        if (type != null && !type.isEmpty()) {
+            selections.put(CatalogSearchIndex.FACET_TYPE, List.of(type));
+        }
+        FacetIndex.Result<Restaurant> result = catalogSearchIndex.browseRestaurants(selections, filter, pageParam);
+        pageParam.setTotal(result.getTotal());
+        pageParam.setRecords(result.getDocs());
+        return pageParam;
+    }
+    
     /**
      * 获取所有餐厅类型
      */
     public List<String> getAllRestaurantTypes() {
+        if (catalogSearchIndex.isReady()) {
+            // 营业中餐厅的类型分面，按类型名排序
+            Map<String, Integer> typeCounts = catalogSearchIndex.browseRestaurants(
+                    Map.of(CatalogSearchIndex.FACET_OPEN, List.of("true")), null, new Page<>(1, 0))
+                    .getCounts().get(CatalogSearchIndex.FACET_TYPE);
+            return new ArrayList<>(typeCounts.keySet());
+        }
+        
         QueryWrapper<Restaurant> wrapper = new QueryWrapper<>();
         wrapper.select("DISTINCT type");
         wrapper.eq("is_open", true);
@@ -146,19 +342,36 @@ public class RestaurantService extends ServiceImpl<RestaurantMapper, Restaurant>
     }
     
     /**
-     * 更新餐厅评分
+     * 更新餐厅信息，同步搜索索引
+     */
+    @Override
+    public boolean updateById(Restaurant restaurant) {
+        boolean updated = super.updateById(restaurant);
+        if (updated) {
+            catalogSearchIndex.refreshRestaurant(restaurant.getId());
+        }
+        return updated;
+    }
+    
+    /**
+     * 按一条评论的评分变化增量更新餐厅评分，需在写评论的同一事务内调用
+     *
+     * @param addedRating 新增或修改后的评分，删除评论时为null
+     * @param removedRating 删除或修改前的评分，新增评论时为null
+     */
+    public void applyReviewRating(Long restaurantId, Integer addedRating, Integer removedRating) {
+        restaurantMapper.applyRatingDelta(restaurantId, addedRating, removedRating);
+        catalogSearchIndex.refreshRestaurant(restaurantId);
+    }
+    
+    /**
+     * 按评论表重新计算餐厅评分，用于手动修正和后台校对
      */
+    @Transactional
     public void updateRestaurantRating(Long restaurantId) {
-        // 计算平均评分（这里简化处理，实际应该从评论表中计算）
-        Double averageRating = 4.5; // 默认评分
-        Integer reviewCount = 10; // 默认评论数量
-        
-        // 更新餐厅信息
         Restaurant restaurant = getRestaurantById(restaurantId);
-        restaurant.setRating(java.math.BigDecimal.valueOf(averageRating));
-        restaurant.setReviewCount(reviewCount);
-        
-        restaurantMapper.updateById(restaurant);
-        log.info("更新餐厅评分: {} -> {}", restaurant.getName(), averageRating);
+        restaurantMapper.recalculateRatingAggregates(restaurantId);
+        catalogSearchIndex.refreshRestaurant(restaurantId);
+        log.info("重新计算餐厅评分: {}", restaurant.getName());
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.ljyh.foodieconnect.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.entity.Restaurant;
 import com.ljyh.foodieconnect.entity.Review;
 import com.ljyh.foodieconnect.entity.ReviewImage;
 import com.ljyh.foodieconnect.entity.User;
@@ -14,7 +16,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 评论服务
@@ -71,39 +79,107 @@ public class ReviewService extends ServiceImpl<ReviewMapper, Review> {
         }
         
         // 更新餐厅评分
-        restaurantService.updateRestaurantRating(restaurantId);
+        restaurantService.applyReviewRating(restaurantId, rating, null);
         
         return review;
     }
     
     /**
      * 获取餐厅评论列表
+     * 先按索引翻页评论ID，再批量加载这一页的评论、用户和图片
      */
     public Page<Review> getRestaurantReviews(Long restaurantId, int page, int size) {
-        Page<Review> pageParam = new Page<>(page, size);
-        return reviewMapper.findByRestaurantId(pageParam, restaurantId);
+        Page<Long> idPage = reviewMapper.findIdsByRestaurantId(new Page<>(page, size), restaurantId);
+        return toReviewPage(idPage);
+    }
+    
+    /**
+     * 游标分页获取餐厅评论列表，按创建时间和ID降序，不统计总数
+     */
+    public CursorPage<Review> getRestaurantReviewsByCursor(Long restaurantId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor, 1);
+        int limit = KeysetCursor.limit(size);
+        
+        // 多取一条用于判断是否还有更多数据
+        List<Review> reviews = reviewMapper.findByRestaurantIdBefore(restaurantId,
+                after != null ? after.timeKey(0) : null, after != null ? after.getId() : null, limit + 1);
+        CursorPage<Review> result = KeysetCursor.page(reviews, limit,
+                review -> KeysetCursor.encode(review.getId(), review.getCreatedAt()));
+        hydrate(result.getRecords());
+        return result;
     }
     
     /**
      * 获取用户评论列表
+     * 先按索引翻页评论ID，再批量加载这一页的评论、用户和图片
      */
     public Page<Review> getUserReviews(Long userId, int page, int size) {
-        Page<Review> pageParam = new Page<>(page, size);
-        return reviewMapper.findByUserId(pageParam, userId);
+        Page<Long> idPage = reviewMapper.findIdsByUserId(new Page<>(page, size), userId);
+        return toReviewPage(idPage);
+    }
+    
+    private Page<Review> toReviewPage(Page<Long> idPage) {
+        Page<Review> reviewPage = new Page<>(idPage.getCurrent(), idPage.getSize(), idPage.getTotal());
+        List<Long> ids = idPage.getRecords();
+        if (ids.isEmpty()) {
+            return reviewPage;
+        }
+        
+        // 批量查询后按ID页的顺序排列，期间被删除的评论直接跳过
+        Map<Long, Review> reviewsById = reviewMapper.selectBatchIds(ids).stream()
+                .collect(Collectors.toMap(Review::getId, Function.identity()));
+        List<Review> reviews = ids.stream()
+                .map(reviewsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        hydrate(reviews);
+        reviewPage.setRecords(reviews);
+        return reviewPage;
+    }
+    
+    /**
+     * 补齐一页评论的用户信息和图片，每种数据一次IN查询
+     */
+    private void hydrate(List<Review> reviews) {
+        if (reviews.isEmpty()) {
+            return;
+        }
+        
+        Set<Long> userIds = reviews.stream().map(Review::getUserId).collect(Collectors.toSet());
+        Map<Long, User> usersById = userMapper.selectBatchIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, List<ReviewImage>> imagesByReview = reviewImageMapper.selectByReviewIds(
+                reviews.stream().map(Review::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(ReviewImage::getReviewId));
+        
+        for (Review review : reviews) {
+            User user = usersById.get(review.getUserId());
+            if (user != null) {
+                review.setUserName(user.getDisplayName());
+                review.setUserAvatar(user.getAvatarUrl());
+            }
+            review.setImages(imagesByReview.getOrDefault(review.getId(), new ArrayList<>()));
+        }
     }
     
     /**
-     * 获取餐厅平均评分
+     * 获取餐厅平均评分，直接读取餐厅上维护的评分聚合，没有评论时返回null
      */
     public Double getRestaurantAverageRating(Long restaurantId) {
-        return reviewMapper.calculateAverageRating(restaurantId);
+        Restaurant restaurant = restaurantService.getById(restaurantId);
+        if (restaurant == null || restaurant.getReviewCount() == null || restaurant.getReviewCount() == 0) {
+            return null;
+        }
+        return restaurant.getRating().doubleValue();
     }
     
     /**
-     * 获取餐厅评论数量
+     * 获取餐厅评论数量，直接读取餐厅上维护的评分聚合
      */
     public Integer getRestaurantReviewCount(Long restaurantId) {
-        return reviewMapper.countByRestaurantId(restaurantId);
+        Restaurant restaurant = restaurantService.getById(restaurantId);
+        return restaurant != null && restaurant.getReviewCount() != null ? restaurant.getReviewCount() : 0;
     }
     
     /**
@@ -135,6 +211,7 @@ public class ReviewService extends ServiceImpl<ReviewMapper, Review> {
         }
         
         // 更新评论
+        Integer previousRating = review.getRating();
         if (rating != null) {
             review.setRating(rating);
         }
@@ -145,8 +222,10 @@ public class ReviewService extends ServiceImpl<ReviewMapper, Review> {
         reviewMapper.updateById(review);
         log.info("用户 {} 更新评论 {}", userId, id);
         
-        // 更新餐厅评分
-        restaurantService.updateRestaurantRating(review.getRestaurantId());
+        // 评分有变化时更新餐厅评分
+        if (rating != null && !rating.equals(previousRating)) {
+            restaurantService.applyReviewRating(review.getRestaurantId(), rating, previousRating);
+        }
         
         return review;
     }
@@ -168,21 +247,21 @@ public class ReviewService extends ServiceImpl<ReviewMapper, Review> {
         log.info("用户 {} 删除评论 {}", userId, id);
         
         // 更新餐厅评分
-        restaurantService.updateRestaurantRating(restaurantId);
+        restaurantService.applyReviewRating(restaurantId, null, review.getRating());
     }
     
     /**
      * 计算餐厅平均评分
      */
     public Double calculateAverageRating(Long restaurantId) {
-        return reviewMapper.calculateAverageRating(restaurantId);
+        return getRestaurantAverageRating(restaurantId);
     }
     
     /**
      * 统计餐厅评论数量
      */
     public Integer countReviewsByRestaurantId(Long restaurantId) {
-        return reviewMapper.countByRestaurantId(restaurantId);
+        return getRestaurantReviewCount(restaurantId);
     }
     
     /**
@@ -0,0 +1,155 @@
+package com.ljyh.foodieconnect.service;
+
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 搜索分词器
+ * 文本先做NFKC归一化（全角转半角）并转小写，然后按字符类别切分：
+ * 连续的字母数字为一个词；连续的中日韩字符按单字和相邻二字切分，不依赖词典。
+ * 另提供拼音首字母转换，供输入提示按首字母匹配。
+ */
+public final class SearchTokenizer {
+
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    /**
+     * GB2312一级汉字按拼音排序，每个声母首字母对应一段连续的区位码，最后一个值为一级汉字的上界
+     */
+    private static final int[] GB2312_INITIAL_BOUNDS = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7, 0xBFA6, 0xC0AC, 0xC2E8,
+            0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6, 0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1, 0xD7FA
+    };
+    private static final char[] GB2312_INITIALS = "abcdefghjklmnopqrstwxyz".toCharArray();
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 归一化：NFKC（全角转半角）并转小写
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 拼音首字母串，例如"宫保鸡丁"为"gbjd"；字母数字原样保留，其他字符忽略
+     * 只覆盖GB2312一级常用汉字，二级汉字和生僻字没有首字母
+     */
+    public static String pinyinInitials(String text) {
+        String normalized = normalize(text);
+        StringBuilder initials = new StringBuilder();
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+                char initial = pinyinInitial(codePoint);
+                if (initial != 0) {
+                    initials.append(initial);
+                }
+            } else if (codePoint < 128 && Character.isLetterOrDigit(codePoint)) {
+                initials.append((char) codePoint);
+            }
+        }
+        return initials.toString();
+    }
+
+    private static char pinyinInitial(int codePoint) {
+        byte[] bytes = new String(Character.toChars(codePoint)).getBytes(GB2312);
+        if (bytes.length != 2) {
+            return 0;
+        }
+        int code = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        for (int i = GB2312_INITIALS.length - 1; i >= 0; i--) {
+            if (code >= GB2312_INITIAL_BOUNDS[i] && code < GB2312_INITIAL_BOUNDS[i + 1]) {
+                return GB2312_INITIALS[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 索引分词：中日韩片段同时输出单字和二字，单字用于单字查询
+     */
+    public static List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        split(text, terms, true);
+        return terms;
+    }
+
+    /**
+     * 查询分词：中日韩片段只输出二字（单字片段输出单字），去重并保持顺序
+     */
+    public static List<String> queryTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        split(text, terms, false);
+        return new ArrayList<>(new LinkedHashSet<>(terms));
+    }
+
+    /**
+     * 是否为中日韩词项，这类词项只做精确匹配，字母数字词项按前缀匹配
+     */
+    public static boolean isCjkTerm(String term) {
+        return !term.isEmpty() && isCjk(term.codePointAt(0));
+    }
+
+    private static void split(String text, List<String> terms, boolean forIndex) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(text);
+        StringBuilder word = new StringBuilder();
+        List<String> cjkRun = new ArrayList<>();
+
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, terms);
+                cjkRun.add(new String(Character.toChars(codePoint)));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, terms, forIndex);
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, terms);
+                flushCjk(cjkRun, terms, forIndex);
+            }
+        }
+        flushWord(word, terms);
+        flushCjk(cjkRun, terms, forIndex);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> terms) {
+        if (word.length() > 0) {
+            terms.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<String> run, List<String> terms, boolean forIndex) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (run.size() == 1 || forIndex) {
+            terms.addAll(run);
+        }
+        for (int j = 0; j + 1 < run.size(); j++) {
+            terms.add(run.get(j) + run.get(j + 1));
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -55,7 +55,7 @@ public class StaffReviewService extends ServiceImpl<StaffReviewMapper, StaffRevi
         log.info("用户 {} 对店员 {} 发表评价，评分: {}", userId, staffId, rating);
         
         // 更新店员评分
-        updateStaffRating(staffId);
+        staffMapper.applyRatingDelta(staffId, rating, null);
         
         return staffReview;
     }
@@ -87,33 +87,31 @@ public class StaffReviewService extends ServiceImpl<StaffReviewMapper, StaffRevi
     }
     
     /**
-     * 更新店员评分
+     * 按店员评价表重新计算店员评分，用于后台校对
      */
     @Transactional
     public void updateStaffRating(Long staffId) {
-        Double averageRating = staffReviewMapper.calculateAverageRating(staffId);
-        if (averageRating != null) {
-            Staff staff = staffMapper.selectById(staffId);
-            if (staff != null) {
-                staff.setRating(BigDecimal.valueOf(averageRating));
-                staffMapper.updateById(staff);
-                log.info("更新店员 {} 的平均评分: {}", staffId, averageRating);
-            }
-        }
+        staffMapper.recalculateRatingAggregates(staffId);
+        log.info("重新计算店员 {} 的评分", staffId);
     }
     
     /**
-     * 计算店员平均评分
+     * 获取店员平均评分，直接读取店员上维护的评分聚合，没有评价时返回null
      */
     public Double calculateAverageRating(Long staffId) {
-        return staffReviewMapper.calculateAverageRating(staffId);
+        Staff staff = staffMapper.selectById(staffId);
+        if (staff == null || staff.getReviewCount() == null || staff.getReviewCount() == 0) {
+            return null;
+        }
+        return staff.getRating().doubleValue();
     }
     
     /**
-     * 统计店员评价数量
+     * 获取店员评价数量，直接读取店员上维护的评分聚合
      */
     public Integer countReviewsByStaffId(Long staffId) {
-        return staffReviewMapper.countByStaffId(staffId);
+        Staff staff = staffMapper.selectById(staffId);
+        return staff != null && staff.getReviewCount() != null ? staff.getReviewCount() : 0;
     }
     
     /**
@@ -0,0 +1,73 @@
+package com.ljyh.foodieconnect.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * 以GCRA（通用信元速率算法）实现：不单独保存令牌数和上次补充时间，而是只保存一个“理论到达时间”，
+ * 一次CAS即可完成取令牌，与按时间补充令牌的令牌桶行为等价。速率和突发量在每次调用时传入，分档变化后立即生效。
+ */
+public class TokenBucket {
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(UNSET);
+
+    /**
+     * 尝试取一个令牌
+     * @param nowNanos 当前时间（System.nanoTime）
+     * @param permitsPerSecond 每秒补充的令牌数，小于等于0时不限流
+     * @param burst 桶容量，即允许的突发数
+     * @return 取到令牌时返回0，否则返回需要等待的纳秒数
+     */
+    public long tryAcquire(long nowNanos, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            return 0;
+        }
+        long interval = intervalNanos(permitsPerSecond);
+        long tolerance = interval * (Math.max(1, burst) - 1);
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = (tat == UNSET || tat - nowNanos < 0) ? nowNanos : tat;
+            long waitNanos = base - nowNanos - tolerance;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 归还一个刚取到的令牌（组合限流中后续检查未通过时调用）
+     */
+    public void refund(long nowNanos, double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+        long interval = intervalNanos(permitsPerSecond);
+        while (true) {
+            long tat = theoreticalArrival.get();
+            if (tat == UNSET || tat - nowNanos <= 0) {
+                return;
+            }
+            long refunded = tat - interval - nowNanos < 0 ? nowNanos : tat - interval;
+            if (theoreticalArrival.compareAndSet(tat, refunded)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 桶是否已补满，补满的桶与新建的桶等价，可以回收
+     */
+    public boolean isIdle(long nowNanos) {
+        long tat = theoreticalArrival.get();
+        return tat == UNSET || tat - nowNanos <= 0;
+    }
+
+    private static long intervalNanos(double permitsPerSecond) {
+        return Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+    }
+}
@@ -1,5 +1,6 @@
 package com.ljyh.foodieconnect.service;
 
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.UserRecommendationScore;
 import com.ljyh.foodieconnect.entity.UserRecommendation;
 import com.ljyh.foodieconnect.exception.BusinessException;
@@ -269,6 +270,19 @@ public class UserRecommendationService {
         }
     }
     
+    /**
+     * 游标分页获取用户推荐列表，按推荐分数和ID降序，不统计总数
+     */
+    public CursorPage<UserRecommendationWithUserInfo> getUserRecommendationsByCursor(Long userId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor, 1);
+        int limit = KeysetCursor.limit(size);
+        // 多取一条用于判断是否还有更多数据
+        List<UserRecommendationWithUserInfo> recommendations = userRecommendationMapper.findByUserIdBefore(userId,
+                after != null ? after.decimalKey(0) : null, after != null ? after.getId() : null, limit + 1);
+        return KeysetCursor.page(recommendations, limit, recommendation ->
+                KeysetCursor.encode(recommendation.getId(), recommendation.getRecommendationScore()));
+    }
+    
     /**
      * 获取用户未查看的推荐列表
      */
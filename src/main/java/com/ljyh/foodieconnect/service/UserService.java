@@ -33,6 +33,7 @@ public class UserService extends ServiceImpl<UserMapper, User> {
     private final PasswordEncoder passwordEncoder;
     private final UserFavoriteFoodMapper userFavoriteFoodMapper;
     private final UserFollowMapper userFollowMapper;
+    private final PrincipalCache principalCache;
     
     /**
      * 用户注册
@@ -153,6 +154,7 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         // 更新密码
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userMapper.updateById(user);
+        principalCache.evict(PrincipalCache.PrincipalType.USER, user.getEmail());
         log.info("用户密码修改成功: {}", user.getEmail());
     }
     
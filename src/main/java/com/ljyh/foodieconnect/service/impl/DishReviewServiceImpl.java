@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.service.impl;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.DishReviewRequest;
 import com.ljyh.foodieconnect.dto.DishReviewResponse;
 import com.ljyh.foodieconnect.dto.DishReviewStatsResponse;
@@ -15,6 +16,8 @@ import com.ljyh.foodieconnect.mapper.DishReviewMapper;
 import com.ljyh.foodieconnect.mapper.MenuItemMapper;
 import com.ljyh.foodieconnect.mapper.UserMapper;
 import com.ljyh.foodieconnect.service.DishReviewService;
+import com.ljyh.foodieconnect.service.DishReviewSummaryService;
+import com.ljyh.foodieconnect.service.KeysetCursor;
 import com.ljyh.foodieconnect.service.MenuItemService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +40,7 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
     private final DishReviewImageMapper dishReviewImageMapper;
     private final MenuItemMapper menuItemMapper;
     private final MenuItemService menuItemService;
+    private final DishReviewSummaryService dishReviewSummaryService;
     private final UserMapper userMapper;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -77,10 +81,11 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
         }
 
         // 更新菜品评分
-        menuItemService.updateMenuItemRating(menuItemId);
+        menuItemService.applyReviewRating(menuItemId, review.getRating(), null);
+        dishReviewSummaryService.refreshAfterCommit(review.getRestaurantId());
 
-        // 查询并构建响应
-        return buildReviewResponse(review);
+        // 重新查询以获取数据库生成的创建时间
+        return buildReviewResponse(dishReviewMapper.selectById(review.getId()));
     }
 
     @Override
@@ -96,42 +101,42 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
 
         // 转换为响应DTO
         Page<DishReviewResponse> responsePage = new Page<>(reviewPage.getCurrent(), reviewPage.getSize(), reviewPage.getTotal());
-        List<DishReviewResponse> responses = reviewPage.getRecords().stream()
-                .map(this::buildReviewResponse)
-                .collect(Collectors.toList());
+        List<DishReviewResponse> responses = buildReviewResponses(reviewPage.getRecords());
         responsePage.setRecords(responses);
 
         return responsePage;
     }
 
+    @Override
+    public CursorPage<DishReviewResponse> getMenuItemReviewsByCursor(Long menuItemId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor, 1);
+        int limit = KeysetCursor.limit(size);
+
+        // 验证菜品是否存在
+        MenuItem menuItem = menuItemMapper.selectById(menuItemId);
+        if (menuItem == null) {
+            throw new BusinessException("MENU_ITEM_NOT_FOUND", "菜品不存在");
+        }
+
+        // 多取一条用于判断是否还有更多数据
+        List<DishReview> reviews = dishReviewMapper.findByMenuItemIdBefore(menuItemId,
+                after != null ? after.timeKey(0) : null, after != null ? after.getId() : null, limit + 1);
+        CursorPage<DishReview> reviewPage = KeysetCursor.page(reviews, limit,
+                review -> KeysetCursor.encode(review.getId(), review.getCreatedAt()));
+
+        List<DishReviewResponse> responses = buildReviewResponses(reviewPage.getRecords());
+        return new CursorPage<>(responses, reviewPage.getNextCursor(), reviewPage.isHasMore());
+    }
+
     @Override
     public Page<DishReviewResponse> getUserReviews(Long userId, Long restaurantId, int page, int size, Long menuItemId) {
+        // 餐厅和菜品筛选在SQL中完成，分页条数和总数都按筛选后的结果计算
         Page<DishReview> pageParam = new Page<>(page, size);
-        Page<DishReview> reviewPage = dishReviewMapper.findByUserId(pageParam, userId);
+        Page<DishReview> reviewPage = dishReviewMapper.findByUserId(pageParam, userId, restaurantId, menuItemId);
 
         // 转换为响应DTO
         Page<DishReviewResponse> responsePage = new Page<>(reviewPage.getCurrent(), reviewPage.getSize(), reviewPage.getTotal());
-        List<DishReviewResponse> responses = reviewPage.getRecords().stream()
-                .map(this::buildReviewResponse)
-                .collect(Collectors.toList());
-
-        // 筛选指定餐厅的评价（restaurantId 现在是必需的）
-        responses = responses.stream()
-                .filter(r -> {
-                    DishReview review = dishReviewMapper.selectById(r.getId());
-                    // 验证餐厅ID必须匹配
-                    if (!review.getRestaurantId().equals(restaurantId)) {
-                        return false;
-                    }
-                    // 如果指定了菜品ID，则筛选该菜品
-                    if (menuItemId != null && !review.getMenuItemId().equals(menuItemId)) {
-                        return false;
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
-
-        responsePage.setRecords(responses);
+        responsePage.setRecords(buildReviewResponses(reviewPage.getRecords()));
         return responsePage;
     }
 
@@ -154,6 +159,7 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
         }
 
         // 更新评价
+        Integer previousRating = review.getRating();
         review.setRating(request.getRating());
         review.setComment(request.getComment());
         dishReviewMapper.updateById(review);
@@ -167,8 +173,11 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
             }
         }
 
-        // 更新菜品评分
-        menuItemService.updateMenuItemRating(review.getMenuItemId());
+        // 评分有变化时更新菜品评分
+        if (!previousRating.equals(review.getRating())) {
+            menuItemService.applyReviewRating(review.getMenuItemId(), review.getRating(), previousRating);
+            dishReviewSummaryService.refreshAfterCommit(review.getRestaurantId());
+        }
 
         return buildReviewResponse(review);
     }
@@ -191,7 +200,8 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
         log.info("用户 {} 删除菜品评价 {}", userId, reviewId);
 
         // 更新菜品评分
-        menuItemService.updateMenuItemRating(menuItemId);
+        menuItemService.applyReviewRating(menuItemId, null, review.getRating());
+        dishReviewSummaryService.refreshAfterCommit(review.getRestaurantId());
     }
 
     @Override
@@ -201,27 +211,22 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
 
     @Override
     public DishReviewStatsResponse getReviewStats(Long menuItemId) {
-        // 验证菜品是否存在
-        MenuItem menuItem = menuItemMapper.selectById(menuItemId);
-        if (menuItem == null) {
+        // 评分总和、数量和星级分布都维护在菜品行上，一次主键查询
+        MenuItemMapper.RatingSummary summary = menuItemMapper.findRatingSummary(menuItemId);
+        if (summary == null) {
             throw new BusinessException("MENU_ITEM_NOT_FOUND", "菜品不存在");
         }
 
-        Double averageRating = dishReviewMapper.calculateAverageRating(menuItemId);
-        Integer totalReviews = dishReviewMapper.countByMenuItemId(menuItemId);
-        List<DishReviewMapper.RatingDistribution> distribution = dishReviewMapper.getRatingDistribution(menuItemId);
-
         Map<Integer, Integer> ratingMap = new HashMap<>();
+        int[] distribution = summary.getDistribution();
         for (int i = 1; i <= 5; i++) {
-            ratingMap.put(i, 0);
-        }
-        for (DishReviewMapper.RatingDistribution rd : distribution) {
-            ratingMap.put(rd.getRating(), rd.getCount());
+            ratingMap.put(i, distribution[i - 1]);
         }
 
+        int totalReviews = summary.getReviewCount() != null ? summary.getReviewCount() : 0;
         DishReviewStatsResponse response = new DishReviewStatsResponse();
-        response.setAverageRating(averageRating != null ? java.math.BigDecimal.valueOf(averageRating) : java.math.BigDecimal.ZERO);
-        response.setTotalReviews(totalReviews != null ? totalReviews : 0);
+        response.setAverageRating(totalReviews > 0 ? java.math.BigDecimal.valueOf(summary.getAverageRating()) : java.math.BigDecimal.ZERO);
+        response.setTotalReviews(totalReviews);
         response.setRatingDistribution(ratingMap);
 
         return response;
@@ -243,9 +248,7 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
 
         // 转换为响应DTO
         Page<DishReviewResponse> responsePage = new Page<>(reviewPage.getCurrent(), reviewPage.getSize(), reviewPage.getTotal());
-        List<DishReviewResponse> responses = reviewPage.getRecords().stream()
-                .map(this::buildReviewResponse)
-                .collect(Collectors.toList());
+        List<DishReviewResponse> responses = buildReviewResponses(reviewPage.getRecords());
         responsePage.setRecords(responses);
 
         return responsePage;
@@ -253,47 +256,7 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
 
     @Override
     public Map<String, Object> getMerchantReviewOverview(Long restaurantId) {
-        List<DishReviewMapper.ItemReviewStats> itemStats = dishReviewMapper.getItemReviewStats(restaurantId);
-
-        // 计算总体统计
-        int totalReviews = 0;
-        double totalRating = 0.0;
-
-        List<Map<String, Object>> topRatedItems = new ArrayList<>();
-        List<Map<String, Object>> lowRatedItems = new ArrayList<>();
-
-        for (DishReviewMapper.ItemReviewStats stat : itemStats) {
-            if (stat.getReviewCount() > 0) {
-                totalReviews += stat.getReviewCount();
-                totalRating += stat.getAverageRating() * stat.getReviewCount();
-
-                Map<String, Object> itemData = new HashMap<>();
-                itemData.put("menuItemId", stat.getMenuItemId());
-                itemData.put("itemName", stat.getItemName());
-                itemData.put("averageRating", stat.getAverageRating());
-                itemData.put("reviewCount", stat.getReviewCount());
-
-                if (stat.getReviewCount() >= 3) {
-                    if (stat.getAverageRating() >= 4.0) {
-                        topRatedItems.add(itemData);
-                    } else if (stat.getAverageRating() <= 2.5) {
-                        lowRatedItems.add(itemData);
-                    }
-                }
-            }
-        }
-
-        // 限制返回数量
-        topRatedItems = topRatedItems.stream().limit(5).collect(Collectors.toList());
-        lowRatedItems = lowRatedItems.stream().limit(5).collect(Collectors.toList());
-
-        Map<String, Object> overview = new HashMap<>();
-        overview.put("totalReviews", totalReviews);
-        overview.put("averageRating", totalReviews > 0 ? totalRating / totalReviews : 0.0);
-        overview.put("topRatedItems", topRatedItems);
-        overview.put("lowRatedItems", lowRatedItems);
-
-        return overview;
+        return dishReviewSummaryService.getOverview(restaurantId);
     }
 
     /**
@@ -311,46 +274,65 @@ public class DishReviewServiceImpl extends ServiceImpl<DishReviewMapper, DishRev
     }
 
     /**
-     * 构建评价响应DTO
+     * 构建单条评价响应DTO
      */
     private DishReviewResponse buildReviewResponse(DishReview review) {
-        // 重新查询以获取完整数据
-        review = dishReviewMapper.selectById(review.getId());
-
-        DishReviewResponse response = new DishReviewResponse();
-        response.setId(review.getId());
-        response.setMenuItemId(review.getMenuItemId());
-        response.setUserId(review.getUserId());
-        response.setRating(review.getRating());
-        response.setComment(review.getComment());
-
-        // 设置时间
-        if (review.getCreatedAt() != null) {
-            response.setCreatedAt(review.getCreatedAt().format(DATE_FORMATTER));
-        }
+        return buildReviewResponses(List.of(review)).get(0);
+    }
 
-        // 获取用户信息
-        User user = userMapper.selectById(review.getUserId());
-        if (user != null) {
-            response.setUserName(user.getDisplayName());
-            response.setUserAvatar(user.getAvatarUrl());
+    /**
+     * 批量构建评价响应DTO，保持传入顺序
+     * 用户、菜品和图片各用一次IN查询加载，查询次数与评价条数无关
+     */
+    private List<DishReviewResponse> buildReviewResponses(List<DishReview> reviews) {
+        if (reviews.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        // 获取菜品信息
-        MenuItem menuItem = menuItemMapper.selectById(review.getMenuItemId());
-        if (menuItem != null) {
-            response.setItemName(menuItem.getName());
-            response.setItemPrice(menuItem.getPrice());
-            response.setItemImage(menuItem.getImageUrl());
-        }
+        Set<Long> userIds = reviews.stream().map(DishReview::getUserId).collect(Collectors.toSet());
+        Set<Long> menuItemIds = reviews.stream().map(DishReview::getMenuItemId).collect(Collectors.toSet());
+        List<Long> reviewIds = reviews.stream().map(DishReview::getId).collect(Collectors.toList());
+
+        Map<Long, User> usersById = userMapper.selectBatchIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
+        Map<Long, MenuItem> menuItemsById = menuItemMapper.selectBatchIds(menuItemIds).stream()
+                .collect(Collectors.toMap(MenuItem::getId, menuItem -> menuItem));
+        Map<Long, List<String>> imageUrlsByReview = dishReviewImageMapper.selectByDishReviewIds(reviewIds).stream()
+                .collect(Collectors.groupingBy(DishReviewImage::getDishReviewId,
+                        Collectors.mapping(DishReviewImage::getImageUrl, Collectors.toList())));
+
+        List<DishReviewResponse> responses = new ArrayList<>(reviews.size());
+        for (DishReview review : reviews) {
+            DishReviewResponse response = new DishReviewResponse();
+            response.setId(review.getId());
+            response.setMenuItemId(review.getMenuItemId());
+            response.setUserId(review.getUserId());
+            response.setRating(review.getRating());
+            response.setComment(review.getComment());
+
+            // 设置时间
+            if (review.getCreatedAt() != null) {
+                response.setCreatedAt(review.getCreatedAt().format(DATE_FORMATTER));
+            }
 
-        // 获取图片列表
-        List<DishReviewImage> images = dishReviewImageMapper.selectByDishReviewId(review.getId());
-        List<String> imageUrls = images.stream()
-                .map(DishReviewImage::getImageUrl)
-                .collect(Collectors.toList());
-        response.setImages(imageUrls);
+            // 设置用户信息
+            User user = usersById.get(review.getUserId());
+            if (user != null) {
+                response.setUserName(user.getDisplayName());
+                response.setUserAvatar(user.getAvatarUrl());
+            }
 
-        return response;
+            // 设置菜品信息
+            MenuItem menuItem = menuItemsById.get(review.getMenuItemId());
+            if (menuItem != null) {
+                response.setItemName(menuItem.getName());
+                response.setItemPrice(menuItem.getPrice());
+                response.setItemImage(menuItem.getImageUrl());
+            }
+
+            response.setImages(imageUrlsByReview.getOrDefault(review.getId(), new ArrayList<>()));
+            responses.add(response);
+        }
+        return responses;
     }
 }
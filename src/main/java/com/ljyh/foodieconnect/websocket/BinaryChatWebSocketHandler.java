@@ -2,29 +2,45 @@ package com.ljyh.foodieconnect.websocket;
 
 import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.entity.ChatRoomMessage;
-import com.ljyh.foodieconnect.entity.User;
 import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import com.ljyh.foodieconnect.service.ChatRateLimiter;
+import com.ljyh.foodieconnect.service.ChatRoomActivityTracker;
+import com.ljyh.foodieconnect.service.ChatRoomOnlineCounter;
 import com.ljyh.foodieconnect.service.ChatRoomService;
 import com.ljyh.foodieconnect.service.JwtService;
 import com.ljyh.foodieconnect.service.JwtMerchantService;
 import com.ljyh.foodieconnect.service.OnlineUserService;
-import com.ljyh.foodieconnect.mapper.UserMapper;
+import com.ljyh.foodieconnect.service.PrincipalCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
 import java.io.IOException;
 
-import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Component
@@ -34,11 +50,81 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
     private final ChatRoomService chatRoomService;
     private final JwtService jwtService;
     private final JwtMerchantService jwtMerchantService;
-    private final UserMapper userMapper;
     private final OnlineUserService onlineUserService;
+    private final ChatRateLimiter rateLimiter;
+    private final ChatRoomActivityTracker activityTracker;
+    private final MeterRegistry meterRegistry;
+
+    private static final String OUTBOUND_SESSION_ATTR = "outboundSession";
 
     private final ConcurrentHashMap<Long, Set<WebSocketSession>> roomSessions = new ConcurrentHashMap<>();
 
+    @Value("${app.chat.resume-max-messages:200}")
+    private int resumeMaxMessages;
+
+    @Value("${app.chat.batch-window-ms:5}")
+    private long batchWindowMs;
+
+    @Value("${app.chat.batch-max-size:50}")
+    private int batchMaxSize;
+
+    @Value("${app.chat.batch-flusher-threads:4}")
+    private int batchFlusherThreads;
+
+    @Value("${app.chat.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.chat.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    private RoomMessageBatcher messageBatcher;
+
+    /**
+     * 聊天室状态推送线程：在线人数等事件由调度线程发布，推送在此执行，慢连接不会阻塞其它定时任务
+     */
+    private ExecutorService stateSender;
+
+    /**
+     * 待推送的聊天室活动，推送线程来不及发送时按聊天室合并，只推送最新的正在输入状态和累积的已读位置
+     */
+    private final ConcurrentHashMap<Long, ChatRoomActivityTracker.RoomActivity> pendingActivities = new ConcurrentHashMap<>();
+    private final AtomicBoolean activityDrainScheduled = new AtomicBoolean();
+
+    /**
+     * 消息信封解码耗时（v1字符串信封需要二次解析，v2 oneof信封一次解析）
+     */
+    private Timer decodeTimerV1;
+    private Timer decodeTimerV2;
+
+    @PostConstruct
+    public void init() {
+        // 截断时按游标分页加载最新消息，分页大小上限为MAX_MESSAGE_PAGE_SIZE，超过后补发条数会被静默截小
+        if (resumeMaxMessages < 1 || resumeMaxMessages > ChatRoomService.MAX_MESSAGE_PAGE_SIZE) {
+            throw new IllegalStateException("app.chat.resume-max-messages必须在1到"
+                    + ChatRoomService.MAX_MESSAGE_PAGE_SIZE + "之间，当前值: " + resumeMaxMessages);
+        }
+        messageBatcher = new RoomMessageBatcher(batchWindowMs, batchMaxSize, batchFlusherThreads, this::deliverToRoom);
+        stateSender = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "chat-state-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        decodeTimerV1 = Timer.builder("chat.ws.decode")
+                .description("二进制WebSocket消息解码耗时")
+                .tag("envelope", "v1")
+                .register(meterRegistry);
+        decodeTimerV2 = Timer.builder("chat.ws.decode")
+                .description("二进制WebSocket消息解码耗时")
+                .tag("envelope", "v2")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        messageBatcher.shutdown();
+        stateSender.shutdown();
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         try {
@@ -70,7 +156,9 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
                 // 将用户信息存储在session中
                 session.getAttributes().put("userId", userId);
                 session.getAttributes().put("roomId", roomId);
-                session.getAttributes().put("userType", "REGISTERED");
+                // 商家ID与用户ID可能相同，单独标记以免商家的临时状态记到同ID用户名下
+                session.getAttributes().put("userType", tokenInfo instanceof JwtMerchantService.TempTokenInfo ? "MERCHANT" : "REGISTERED");
+                session.getAttributes().put("batchSupported", isBatchRequested(session));
                 
                 // 添加到房间会话集合
                 roomSessions.computeIfAbsent(roomId, k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(session);
@@ -103,6 +191,7 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
                     session.getAttributes().put("roomId", roomId);
                     session.getAttributes().put("userType", "OBSERVER");
                     session.getAttributes().put("observerType", observerType);
+                    session.getAttributes().put("batchSupported", isBatchRequested(session));
                     
                     // 添加到房间会话集合
                     roomSessions.computeIfAbsent(roomId, k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(session);
@@ -138,53 +227,47 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
     @Override
     protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
         try {
-            onlineUserService.updateLastActiveTime(session.getId());
-            ByteBuffer buffer = message.getPayload();
-            byte[] data = new byte[buffer.remaining()];
-            buffer.get(data);
-            ChatProtos.WebSocketMessage ws = ChatProtos.WebSocketMessage.parseFrom(data);
-            String type = ws.getType();
-            if ("SEND_MESSAGE".equals(type)) {
-                ChatProtos.SendMessageRequest req = ChatProtos.SendMessageRequest.parseFrom(ws.getPayload());
-                Long userId = getUserId(session);
-                if (userId == null) {
-                    sendError(session, "unauthorized");
-                    return;
-                }
-                ChatRoomMessage saved = chatRoomService.sendMessage(req.getRoomId(), userId, req.getContent());
-                User sender = userMapper.selectById(userId);
-                if (sender != null) {
-                    saved.setSenderName(sender.getDisplayName());
-                    saved.setSenderAvatar(sender.getAvatarUrl());
-                }
-                ChatProtos.ChatMessage chatMsg = buildChatMessage(saved);
-                ChatProtos.ChatResponse resp = ProtobufMessageConverter.createChatMessageResponse(chatMsg);
-                broadcastToRoom(req.getRoomId(), new BinaryMessage(resp.toByteArray()));
-            } else if ("JOIN_ROOM".equals(type)) {
-                ChatProtos.JoinRoomRequest req = ChatProtos.JoinRoomRequest.parseFrom(ws.getPayload());
-                Long userId = getUserId(session);
-                if (userId == null) {
-                    sendError(session, "unauthorized");
-                    return;
-                }
-                chatRoomService.setUserOnline(req.getRoomId(), userId);
-                roomSessions.computeIfAbsent(req.getRoomId(), k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(session);
-                ChatProtos.ChatResponse resp = ProtobufMessageConverter.createJoinRoomResponse(req.getRoomId(), "joined");
-                session.sendMessage(new BinaryMessage(resp.toByteArray()));
-            } else if ("LEAVE_ROOM".equals(type)) {
-                ChatProtos.LeaveRoomRequest req = ChatProtos.LeaveRoomRequest.parseFrom(ws.getPayload());
-                Long userId = getUserId(session);
-                if (userId == null) {
-                    sendError(session, "unauthorized");
-                    return;
-                }
-                onlineUserService.removeOnlineUserByUserIdAndRoomId(userId, req.getRoomId());
-                chatRoomService.leaveRoom(req.getRoomId(), userId);
-                removeFromRoom(req.getRoomId(), session);
-                ChatProtos.ChatResponse resp = ProtobufMessageConverter.createLeaveRoomResponse(req.getRoomId(), "left");
-                session.sendMessage(new BinaryMessage(resp.toByteArray()));
-            } else {
+            // 直接从缓冲区解析信封；v2信封的消息体在oneof中，一次解析完成
+            long decodeStart = System.nanoTime();
+            ChatProtos.WebSocketMessage ws = ChatProtos.WebSocketMessage.parseFrom(message.getPayload());
+            boolean legacyEnvelope = ws.getBodyCase() == ChatProtos.WebSocketMessage.BodyCase.BODY_NOT_SET;
+            ws = ProtobufMessageConverter.normalizeEnvelope(ws);
+            (legacyEnvelope ? decodeTimerV1 : decodeTimerV2).record(System.nanoTime() - decodeStart, TimeUnit.NANOSECONDS);
+            if (ws == null) {
                 sendError(session, "unknown type");
+                return;
+            }
+            
+            // 发送消息先过限流，被限流的帧不产生任何数据库操作
+            if (ws.getBodyCase() == ChatProtos.WebSocketMessage.BodyCase.SEND_MESSAGE && isThrottled(session, ws.getSendMessage())) {
+                return;
+            }
+            // 正在输入和已读回执只更新内存状态，不写在线用户表
+            if (!isEphemeral(ws.getBodyCase())) {
+                onlineUserService.updateLastActiveTime(session.getId());
+            }
+            
+            switch (ws.getBodyCase()) {
+                case SEND_MESSAGE:
+                    handleSendMessage(session, ws.getSendMessage());
+                    break;
+                case JOIN_ROOM:
+                    handleJoinRoom(session, ws.getJoinRoom());
+                    break;
+                case LEAVE_ROOM:
+                    handleLeaveRoom(session, ws.getLeaveRoom());
+                    break;
+                case RESUME:
+                    handleResume(session, ws.getResume());
+                    break;
+                case TYPING:
+                    handleTyping(session, ws.getTyping());
+                    break;
+                case READ_RECEIPT:
+                    handleReadReceipt(session, ws.getReadReceipt());
+                    break;
+                default:
+                    sendError(session, "unknown type");
             }
         } catch (Exception e) {
             log.error("binary websocket handle error: {}", e.getMessage(), e);
@@ -194,6 +277,115 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
         }
     }
 
+    private void handleSendMessage(WebSocketSession session, ChatProtos.SendMessageRequest req) throws Exception {
+        Long userId = getUserId(session);
+        if (userId == null) {
+            sendError(session, "unauthorized");
+            return;
+        }
+        ChatRoomMessage saved = chatRoomService.sendMessage(req.getRoomId(), userId, req.getContent());
+        ChatProtos.ChatMessage chatMsg = buildChatMessage(saved);
+        messageBatcher.submit(req.getRoomId(), chatMsg);
+        activityTracker.setTyping(req.getRoomId(), userId, false);
+    }
+
+    /**
+     * 检查发送限流，被限流时回复带重试时间的错误帧
+     */
+    private boolean isThrottled(WebSocketSession session, ChatProtos.SendMessageRequest req) throws IOException {
+        Long userId = getUserId(session);
+        if (userId == null) {
+            return false;
+        }
+        PrincipalCache.PrincipalType senderType = "MERCHANT".equals(session.getAttributes().get("userType"))
+                ? PrincipalCache.PrincipalType.MERCHANT : PrincipalCache.PrincipalType.USER;
+        long retryAfterMillis = rateLimiter.tryAcquire(req.getRoomId(), senderType, userId);
+        if (retryAfterMillis <= 0) {
+            return false;
+        }
+        sendTo(session, ProtobufMessageConverter.createRateLimitedResponse(req.getRoomId(), retryAfterMillis).toByteArray());
+        return true;
+    }
+
+    private void handleJoinRoom(WebSocketSession session, ChatProtos.JoinRoomRequest req) throws Exception {
+        Long userId = getUserId(session);
+        if (userId == null) {
+            sendError(session, "unauthorized");
+            return;
+        }
+        chatRoomService.setUserOnline(req.getRoomId(), userId);
+        roomSessions.computeIfAbsent(req.getRoomId(), k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(session);
+        ChatProtos.ChatResponse resp = ProtobufMessageConverter.createJoinRoomResponse(req.getRoomId(), "joined");
+        sendTo(session, resp.toByteArray());
+    }
+
+    private void handleLeaveRoom(WebSocketSession session, ChatProtos.LeaveRoomRequest req) throws Exception {
+        Long userId = getUserId(session);
+        if (userId == null) {
+            sendError(session, "unauthorized");
+            return;
+        }
+        onlineUserService.removeOnlineUserByUserIdAndRoomId(userId, req.getRoomId());
+        chatRoomService.leaveRoom(req.getRoomId(), userId);
+        removeFromRoom(req.getRoomId(), session);
+        ChatProtos.ChatResponse resp = ProtobufMessageConverter.createLeaveRoomResponse(req.getRoomId(), "left");
+        sendTo(session, resp.toByteArray());
+    }
+
+    private void handleResume(WebSocketSession session, ChatProtos.ResumeRequest req) throws Exception {
+        Long roomId = getRoomId(session);
+        if (getUserId(session) == null || roomId == null) {
+            sendError(session, "unauthorized");
+            return;
+        }
+        if (req.getRoomId() != roomId) {
+            sendError(session, "room mismatch");
+            return;
+        }
+        resumeSession(session, roomId, req.getLastMessageId());
+    }
+
+    private void handleTyping(WebSocketSession session, ChatProtos.TypingRequest req) throws Exception {
+        Long userId = getEphemeralSender(session, req.getRoomId());
+        if (userId != null) {
+            activityTracker.setTyping(req.getRoomId(), userId, req.getTyping());
+        }
+    }
+
+    private void handleReadReceipt(WebSocketSession session, ChatProtos.ReadReceiptRequest req) throws Exception {
+        Long userId = getEphemeralSender(session, req.getRoomId());
+        if (userId != null) {
+            activityTracker.markRead(req.getRoomId(), userId, req.getLastReadMessageId());
+        }
+    }
+
+    /**
+     * 校验临时状态的发送者：只接受已注册用户对自己连接的聊天室上报，观察者和商家的上报直接忽略
+     * 校验只使用会话属性，不查询数据库
+     */
+    private Long getEphemeralSender(WebSocketSession session, long roomId) throws Exception {
+        Long userId = getUserId(session);
+        Long sessionRoomId = getRoomId(session);
+        if (userId == null || sessionRoomId == null) {
+            sendError(session, "unauthorized");
+            return null;
+        }
+        Object userType = session.getAttributes().get("userType");
+        if ("OBSERVER".equals(userType) || "MERCHANT".equals(userType)) {
+            return null;
+        }
+        if (roomId != sessionRoomId) {
+            sendError(session, "room mismatch");
+            return null;
+        }
+        return userId;
+    }
+
+    private boolean isEphemeral(ChatProtos.WebSocketMessage.BodyCase bodyCase) {
+        return bodyCase == ChatProtos.WebSocketMessage.BodyCase.TYPING
+                || bodyCase == ChatProtos.WebSocketMessage.BodyCase.READ_RECEIPT;
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         try {
@@ -203,6 +395,7 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
                 removeFromRoom(roomId, session);
             }
             if (userId != null && roomId != null) {
+                activityTracker.setTyping(roomId, userId, false);
                 onlineUserService.removeOnlineUserBySessionId(session.getId());
                 chatRoomService.setUserOffline(roomId, userId);
             }
@@ -211,16 +404,153 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
         }
     }
 
-    private void broadcastToRoom(Long roomId, BinaryMessage message) {
+    /**
+     * 断线重连后补发客户端错过的消息，一次性在一个帧内返回
+     * 缺口超过上限时只补发最新的消息，并标记truncated让客户端通过REST加载更早的历史
+     */
+    private void resumeSession(WebSocketSession session, Long roomId, long lastMessageId) throws IOException {
+        List<ChatRoomMessage> missed = chatRoomService.getMessagesAfter(roomId, lastMessageId, resumeMaxMessages + 1);
+        boolean truncated = missed.size() > resumeMaxMessages;
+        if (truncated) {
+            missed = new ArrayList<>(chatRoomService.getRoomMessagesByCursor(roomId, null, resumeMaxMessages).getRecords());
+            Collections.reverse(missed);
+        }
+        
+        List<ChatProtos.ChatMessage> messages = new ArrayList<>(missed.size());
+        for (ChatRoomMessage message : missed) {
+            messages.add(buildChatMessage(message));
+        }
+        ChatProtos.ChatResponse resp = ProtobufMessageConverter.createResumeResponse(roomId, messages, truncated);
+        sendTo(session, resp.toByteArray());
+        log.debug("会话 {} 断线重连补发 {} 条消息，房间ID: {}，截断: {}", session.getId(), messages.size(), roomId, truncated);
+    }
+
+    /**
+     * 投递一个批次的消息到聊天室
+     * 批量帧和单条消息帧都只序列化一次，所有接收者共享同一份字节
+     */
+    private void deliverToRoom(Long roomId, List<ChatProtos.ChatMessage> messages) {
         Set<WebSocketSession> sessions = roomSessions.get(roomId);
-        if (sessions == null) return;
+        if (sessions == null || sessions.isEmpty()) return;
+        
+        byte[] batchFrame = null;
+        List<byte[]> singleFrames = null;
         for (WebSocketSession s : sessions) {
+            if (!s.isOpen()) continue;
             try {
-                if (s.isOpen()) s.sendMessage(message);
-            } catch (Exception ignore) {}
+                if (messages.size() > 1 && Boolean.TRUE.equals(s.getAttributes().get("batchSupported"))) {
+                    if (batchFrame == null) {
+                        batchFrame = ProtobufMessageConverter.createMessageBatchResponse(roomId, messages).toByteArray();
+                    }
+                    sendTo(s, batchFrame);
+                } else {
+                    if (singleFrames == null) {
+                        singleFrames = new ArrayList<>(messages.size());
+                        for (ChatProtos.ChatMessage message : messages) {
+                            singleFrames.add(ProtobufMessageConverter.createChatMessageResponse(message).toByteArray());
+                        }
+                    }
+                    for (byte[] frame : singleFrames) {
+                        sendTo(s, frame);
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("向会话 {} 投递聊天消息失败: {}", s.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 向本节点上的聊天室会话推送在线人数变化，每个聊天室的通知帧只序列化一次
+     * 事件在调度线程上发布，推送交给状态推送线程后立即返回
+     */
+    @EventListener
+    public void handleOnlineCountsChanged(ChatRoomOnlineCounter.OnlineCountsChangedEvent event) {
+        stateSender.execute(() -> event.getOnlineUserCounts().forEach((roomId, onlineUserCount) -> {
+            Set<WebSocketSession> sessions = roomSessions.get(roomId);
+            if (sessions == null || sessions.isEmpty()) return;
+            
+            byte[] frame = ProtobufMessageConverter.createOnlineCountResponse(roomId, onlineUserCount).toByteArray();
+            for (WebSocketSession s : sessions) {
+                try {
+                    sendTo(s, frame);
+                } catch (Exception e) {
+                    log.debug("向会话 {} 推送聊天室状态失败: {}", s.getId(), e.getMessage());
+                }
+            }
+        }));
+    }
+
+    /**
+     * 向本节点上的聊天室会话推送正在输入和已读位置，每个聊天室每次推送只序列化一帧
+     * 事件每200ms在调度线程上发布，这里只合并到待推送队列，由状态推送线程发送
+     */
+    @EventListener
+    public void handleRoomActivity(ChatRoomActivityTracker.RoomActivityEvent event) {
+        event.getActivities().forEach((roomId, activity) -> pendingActivities.merge(roomId, activity, this::mergeActivity));
+        if (activityDrainScheduled.compareAndSet(false, true)) {
+            stateSender.execute(this::drainRoomActivities);
         }
     }
 
+    private void drainRoomActivities() {
+        activityDrainScheduled.set(false);
+        for (Long roomId : pendingActivities.keySet()) {
+            ChatRoomActivityTracker.RoomActivity activity = pendingActivities.remove(roomId);
+            Set<WebSocketSession> sessions = roomSessions.get(roomId);
+            if (activity == null || sessions == null || sessions.isEmpty()) continue;
+            
+            byte[] frame = ProtobufMessageConverter.createRoomActivityResponse(roomId,
+                    activity.getTypingUserIds(), activity.getReadMarks()).toByteArray();
+            boolean typingOnly = activity.getReadMarks().isEmpty();
+            for (WebSocketSession s : sessions) {
+                // 发送已积压的连接跳过只含正在输入状态的帧，下一次推送会带上最新状态
+                if (typingOnly && isBackedUp(s)) continue;
+                try {
+                    sendTo(s, frame);
+                } catch (Exception e) {
+                    log.debug("向会话 {} 推送聊天室状态失败: {}", s.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并同一聊天室尚未推送的活动：正在输入状态取最新的，已读位置是增量，按用户取最大值
+     */
+    private ChatRoomActivityTracker.RoomActivity mergeActivity(ChatRoomActivityTracker.RoomActivity older,
+                                                             ChatRoomActivityTracker.RoomActivity newer) {
+        Map<Long, Long> readMarks = new HashMap<>(older.getReadMarks());
+        newer.getReadMarks().forEach((userId, messageId) -> readMarks.merge(userId, messageId, Math::max));
+        return new ChatRoomActivityTracker.RoomActivity(newer.getTypingUserIds(), readMarks);
+    }
+
+    private boolean isBackedUp(WebSocketSession session) {
+        WebSocketSession outbound = outboundSession(session);
+        return outbound instanceof ConcurrentWebSocketSessionDecorator
+                && ((ConcurrentWebSocketSessionDecorator) outbound).getBufferSize() > 0;
+    }
+
+    /**
+     * 发送二进制帧
+     * 通过ConcurrentWebSocketSessionDecorator发送：其它线程正在发送时只入缓冲区不阻塞，
+     * 超过发送时间或缓冲区上限的慢连接会被关闭，不会长期占用投递线程
+     */
+    private void sendTo(WebSocketSession session, byte[] frame) throws IOException {
+        if (session.isOpen()) {
+            outboundSession(session).sendMessage(new BinaryMessage(frame));
+        }
+    }
+
+    private WebSocketSession outboundSession(WebSocketSession session) {
+        Object v = session.getAttributes().get(OUTBOUND_SESSION_ATTR);
+        if (v instanceof WebSocketSession) return (WebSocketSession) v;
+        
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSizeLimit);
+        Object existing = session.getAttributes().putIfAbsent(OUTBOUND_SESSION_ATTR, decorated);
+        return existing instanceof WebSocketSession ? (WebSocketSession) existing : decorated;
+    }
+
     private void removeFromRoom(Long roomId, WebSocketSession session) {
         Set<WebSocketSession> sessions = roomSessions.get(roomId);
         if (sessions != null) {
@@ -291,13 +621,14 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
                 .setMessageType(ChatProtos.MessageType.TEXT)
                 .setSenderName(message.getSenderName() != null ? message.getSenderName() : "")
                 .setSenderAvatar(message.getSenderAvatar() != null ? message.getSenderAvatar() : "")
-                .setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .setTimestamp((message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now())
+                        .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
                 .build();
     }
 
     private void sendError(WebSocketSession session, String errorMessage) throws Exception {
         ChatProtos.ChatResponse resp = ProtobufMessageConverter.createErrorResponse(errorMessage);
-        session.sendMessage(new BinaryMessage(resp.toByteArray()));
+        sendTo(session, resp.toByteArray());
     }
 
     /**
@@ -317,6 +648,21 @@ public class BinaryChatWebSocketHandler extends AbstractWebSocketHandler {
         return hasObserverParam || !hasTokenParam;
     }
 
+    /**
+     * 客户端是否在连接参数中声明支持批量消息帧（batch=true）
+     */
+    private boolean isBatchRequested(WebSocketSession session) {
+        if (session.getUri() == null || session.getUri().getQuery() == null) return false;
+        
+        for (String kv : session.getUri().getQuery().split("&")) {
+            String[] p = kv.split("=");
+            if (p.length == 2 && "batch".equalsIgnoreCase(p[0])) {
+                return "true".equalsIgnoreCase(p[1]) || "1".equals(p[1]);
+            }
+        }
+        return false;
+    }
+
     /**
      * 获取观察者类型
      */
@@ -1,13 +1,15 @@
 package com.ljyh.foodieconnect.websocket;
 
 import com.ljyh.foodieconnect.entity.ChatRoomMessage;
-import com.ljyh.foodieconnect.entity.User;
-import com.ljyh.foodieconnect.mapper.UserMapper;
 import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import com.ljyh.foodieconnect.service.ChatRateLimiter;
+import com.ljyh.foodieconnect.service.ChatRoomActivityTracker;
+import com.ljyh.foodieconnect.service.ChatRoomOnlineCounter;
 import com.ljyh.foodieconnect.service.ChatRoomService;
 import com.ljyh.foodieconnect.service.JwtMerchantService;
 import com.ljyh.foodieconnect.service.JwtService;
 import com.ljyh.foodieconnect.service.OnlineUserService;
+import com.ljyh.foodieconnect.service.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -21,6 +23,7 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 /**
  * 聊天室WebSocket消息处理器
@@ -34,8 +37,9 @@ public class ChatRoomWebSocketHandler {
     private final ChatRoomService chatRoomService;
     private final JwtService jwtService;
     private final JwtMerchantService jwtMerchantService;
-    private final UserMapper userMapper;
     private final OnlineUserService onlineUserService;
+    private final ChatRateLimiter rateLimiter;
+    private final ChatRoomActivityTracker activityTracker;
     
     /**
      * 处理发送聊天室消息
@@ -63,19 +67,20 @@ public class ChatRoomWebSocketHandler {
                 return;
             }
             
+            // 限流检查在任何数据库和广播操作之前
+            long retryAfterMillis = rateLimiter.tryAcquire(request.getRoomId(), getPrincipalType(headerAccessor), userId);
+            if (retryAfterMillis > 0) {
+                messagingTemplate.convertAndSend("/user/" + userId + "/queue/errors",
+                        ProtobufMessageConverter.createRateLimitedResponse(request.getRoomId(), retryAfterMillis));
+                return;
+            }
+            
             // 更新用户最后活动时间
             onlineUserService.updateLastActiveTime(headerAccessor.getSessionId());
             
-            // 发送消息
+            // 发送消息（发送者信息由服务层填充）
             ChatRoomMessage message = chatRoomService.sendMessage(request.getRoomId(), userId, request.getContent());
             
-            // 设置发送者信息
-            User senderUser = userMapper.selectById(userId);
-            if (senderUser != null) {
-                message.setSenderName(senderUser.getDisplayName());
-                message.setSenderAvatar(senderUser.getAvatarUrl());
-            }
-            
             // 构建protobuf响应消息
             ChatProtos.ChatMessage chatMessage = buildChatMessage(message);
             
@@ -83,6 +88,7 @@ public class ChatRoomWebSocketHandler {
             String destination = "/topic/chat-room/" + request.getRoomId();
             ChatProtos.ChatResponse response = ProtobufMessageConverter.createChatMessageResponse(chatMessage);
             messagingTemplate.convertAndSend(destination, response);
+            activityTracker.setTyping(request.getRoomId(), userId, false);
             
             log.info("聊天室WebSocket protobuf消息发送成功，房间ID: {}, 用户ID: {}", request.getRoomId(), userId);
             
@@ -181,6 +187,42 @@ public class ChatRoomWebSocketHandler {
         }
     }
     
+    /**
+     * 处理正在输入状态，只更新内存，由活动跟踪器定期合并广播
+     */
+    @MessageMapping("/chat-room.typing")
+    public void typing(@Payload ChatProtos.WebSocketMessage webSocketMessage, StompHeaderAccessor headerAccessor) {
+        ChatProtos.TypingRequest request = ProtobufMessageConverter.unwrapWebSocketMessage(
+            webSocketMessage, ChatProtos.TypingRequest.class);
+        if (request == null) {
+            sendErrorResponse(headerAccessor, "无法解析输入状态");
+            return;
+        }
+        
+        Long userId = getEphemeralSender(headerAccessor, request.getRoomId());
+        if (userId != null) {
+            activityTracker.setTyping(request.getRoomId(), userId, request.getTyping());
+        }
+    }
+    
+    /**
+     * 处理已读回执，只更新内存，由活动跟踪器定期合并广播和批量写库
+     */
+    @MessageMapping("/chat-room.read")
+    public void readReceipt(@Payload ChatProtos.WebSocketMessage webSocketMessage, StompHeaderAccessor headerAccessor) {
+        ChatProtos.ReadReceiptRequest request = ProtobufMessageConverter.unwrapWebSocketMessage(
+            webSocketMessage, ChatProtos.ReadReceiptRequest.class);
+        if (request == null) {
+            sendErrorResponse(headerAccessor, "无法解析已读回执");
+            return;
+        }
+        
+        Long userId = getEphemeralSender(headerAccessor, request.getRoomId());
+        if (userId != null) {
+            activityTracker.markRead(request.getRoomId(), userId, request.getLastReadMessageId());
+        }
+    }
+    
     /**
      * 处理WebSocket连接事件
      */
@@ -255,6 +297,7 @@ public class ChatRoomWebSocketHandler {
             
             if (actualUserId != null && roomId != null) {
                 log.info("用户 {} 断开WebSocket连接，房间ID: {}", actualUserId, roomId);
+                activityTracker.setTyping(roomId, actualUserId, false);
                 
                 // 从在线用户表中移除
                 onlineUserService.removeOnlineUserBySessionId(headerAccessor.getSessionId());
@@ -294,6 +337,69 @@ public class ChatRoomWebSocketHandler {
         }
     }
     
+    /**
+     * 广播在线人数变化，计数器每个刷新周期对每个有变化的聊天室只发布一次
+     */
+    @EventListener
+    public void handleOnlineCountsChanged(ChatRoomOnlineCounter.OnlineCountsChangedEvent event) {
+        event.getOnlineUserCounts().forEach((roomId, onlineUserCount) -> {
+            try {
+                ChatProtos.ChatResponse response = ProtobufMessageConverter.createOnlineCountResponse(roomId, onlineUserCount);
+                messagingTemplate.convertAndSend("/topic/chat-room/" + roomId, response);
+            } catch (Exception e) {
+                log.error("广播聊天室 {} 在线人数失败: {}", roomId, e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * 广播正在输入和已读位置，每个聊天室每个周期只发送一帧
+     */
+    @EventListener
+    public void handleRoomActivity(ChatRoomActivityTracker.RoomActivityEvent event) {
+        event.getActivities().forEach((roomId, activity) -> {
+            try {
+                ChatProtos.ChatResponse response = ProtobufMessageConverter.createRoomActivityResponse(roomId,
+                        activity.getTypingUserIds(), activity.getReadMarks());
+                messagingTemplate.convertAndSend("/topic/chat-room/" + roomId, response);
+            } catch (Exception e) {
+                log.error("广播聊天室 {} 活动状态失败: {}", roomId, e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * 校验临时状态的发送者：只使用会话中的用户和聊天室，不解析token也不查询数据库
+     * 正在输入和已读位置按用户ID记录，商家ID可能与用户ID相同，商家会话的上报直接忽略
+     */
+    private Long getEphemeralSender(StompHeaderAccessor headerAccessor, long roomId) {
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object userId = attributes.get("userId");
+        Object sessionRoomId = attributes.get("roomId");
+        if (!(userId instanceof Long) || !(sessionRoomId instanceof Long) || (Long) sessionRoomId != roomId) {
+            return null;
+        }
+        return (Long) userId;
+    }
+    
+    /**
+     * 发送者身份类型，判断顺序与getUserIdFromHeaderAccessor取ID的顺序一致
+     */
+    private PrincipalCache.PrincipalType getPrincipalType(StompHeaderAccessor headerAccessor) {
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        if (attributes != null && attributes.get("userId") != null) {
+            return PrincipalCache.PrincipalType.USER;
+        }
+        if (attributes != null && attributes.get("merchantId") != null) {
+            return PrincipalCache.PrincipalType.MERCHANT;
+        }
+        return "merchant".equals(headerAccessor.getFirstNativeHeader("X-Token-Type"))
+                ? PrincipalCache.PrincipalType.MERCHANT : PrincipalCache.PrincipalType.USER;
+    }
+    
     private Long getUserIdFromHeaderAccessor(StompHeaderAccessor headerAccessor) {
         try {
             // 首先尝试从session中获取
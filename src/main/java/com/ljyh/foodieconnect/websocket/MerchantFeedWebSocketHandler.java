@@ -0,0 +1,187 @@
+package com.ljyh.foodieconnect.websocket;
+
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.service.JwtMerchantService;
+import com.ljyh.foodieconnect.service.MerchantFeedAggregator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 商家聚合推送WebSocket处理器
+ * 商家控制台以商家登录token连接，连接时下发餐厅全部聊天室的在线人数快照，
+ * 之后每个周期最多收到一帧MerchantFeed，包含新消息摘要、成员上下线和在线人数变化。
+ * 这是只读通道，客户端发来的消息会被忽略。
+ * 聚合事件在调度线程上发布，推送交给独立的发送线程，避免慢连接阻塞其它定时任务。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MerchantFeedWebSocketHandler extends AbstractWebSocketHandler {
+
+    private final JwtMerchantService jwtMerchantService;
+    private final MerchantFeedAggregator merchantFeedAggregator;
+
+    private static final String OUTBOUND_SESSION_ATTR = "outboundSession";
+
+    private final ConcurrentHashMap<Long, Set<WebSocketSession>> restaurantSessions = new ConcurrentHashMap<>();
+
+    @Value("${app.chat.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.chat.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void init() {
+        sender = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "merchant-feed-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sender.shutdown();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Long restaurantId = authenticate(session);
+        if (restaurantId == null) {
+            log.warn("商家聚合推送连接未提供有效的商家token");
+            session.close(CloseStatus.NOT_ACCEPTABLE);
+            return;
+        }
+
+        session.getAttributes().put("restaurantId", restaurantId);
+        restaurantSessions.computeIfAbsent(restaurantId, k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(session);
+        List<ChatRoom> rooms = merchantFeedAggregator.subscribe(restaurantId);
+        sendTo(session, ProtobufMessageConverter.createMerchantFeedSnapshot(restaurantId, rooms).toByteArray());
+
+        log.info("商家聚合推送连接建立，餐厅ID: {}，聊天室数: {}", restaurantId, rooms.size());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        removeSession(session);
+    }
+
+    /**
+     * 移除连接并取消订阅，连接关闭和发送失败时都会调用，重复调用只生效一次
+     */
+    private void removeSession(WebSocketSession session) {
+        Object restaurantId = session.getAttributes().get("restaurantId");
+        if (!(restaurantId instanceof Long)) {
+            return;
+        }
+        Set<WebSocketSession> sessions = restaurantSessions.get(restaurantId);
+        if (sessions != null && sessions.remove(session)) {
+            if (sessions.isEmpty()) {
+                restaurantSessions.remove(restaurantId);
+            }
+            merchantFeedAggregator.unsubscribe((Long) restaurantId);
+        }
+    }
+
+    /**
+     * 推送聚合变化，每个餐厅每个周期只序列化一帧，所有控制台连接共享
+     * 在发送线程上执行，不占用发布事件的调度线程
+     */
+    @EventListener
+    public void handleMerchantFeed(MerchantFeedAggregator.MerchantFeedEvent event) {
+        sender.execute(() -> event.getFeeds().forEach((restaurantId, feed) -> {
+            Set<WebSocketSession> sessions = restaurantSessions.get(restaurantId);
+            if (sessions == null || sessions.isEmpty()) return;
+
+            byte[] frame = ProtobufMessageConverter.createMerchantFeedResponse(restaurantId, feed).toByteArray();
+            for (WebSocketSession s : sessions) {
+                try {
+                    sendTo(s, frame);
+                } catch (Exception e) {
+                    log.warn("商家聚合推送失败，关闭连接 {}，餐厅ID: {}: {}", s.getId(), restaurantId, e.getMessage());
+                    removeSession(s);
+                    closeQuietly(s);
+                }
+            }
+        }));
+    }
+
+    /**
+     * 校验商家登录token并取出餐厅ID，token可放在Authorization头或token查询参数中
+     */
+    private Long authenticate(WebSocketSession session) {
+        String token = null;
+        if (session.getHandshakeHeaders() != null) {
+            token = session.getHandshakeHeaders().getFirst("Authorization");
+        }
+        if (token == null && session.getUri() != null && session.getUri().getQuery() != null) {
+            for (String kv : session.getUri().getQuery().split("&")) {
+                String[] p = kv.split("=");
+                if (p.length == 2 && "token".equalsIgnoreCase(p[0])) {
+                    token = p[1];
+                    break;
+                }
+            }
+        }
+        if (token == null) return null;
+        if (token.startsWith("Bearer ")) token = token.substring(7);
+
+        try {
+            if (!jwtMerchantService.validateToken(token)) {
+                return null;
+            }
+            return jwtMerchantService.extractRestaurantId(token);
+        } catch (Exception e) {
+            log.warn("商家token验证失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 发送二进制帧
+     * 通过ConcurrentWebSocketSessionDecorator发送，超过发送时间或缓冲区上限的慢连接会被关闭
+     */
+    private void sendTo(WebSocketSession session, byte[] frame) throws IOException {
+        if (session.isOpen()) {
+            outboundSession(session).sendMessage(new BinaryMessage(frame));
+        }
+    }
+
+    private WebSocketSession outboundSession(WebSocketSession session) {
+        Object v = session.getAttributes().get(OUTBOUND_SESSION_ATTR);
+        if (v instanceof WebSocketSession) return (WebSocketSession) v;
+
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSizeLimit);
+        Object existing = session.getAttributes().putIfAbsent(OUTBOUND_SESSION_ATTR, decorated);
+        return existing instanceof WebSocketSession ? (WebSocketSession) existing : decorated;
+    }
+
+    private void closeQuietly(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("关闭商家聚合推送连接失败: {}", e.getMessage());
+        }
+    }
+}
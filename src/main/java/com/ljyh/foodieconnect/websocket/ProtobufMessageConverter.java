@@ -1,6 +1,10 @@
 package com.ljyh.foodieconnect.websocket;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
 import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import com.ljyh.foodieconnect.service.MerchantFeedAggregator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
@@ -9,7 +13,11 @@ import org.springframework.messaging.converter.MessageConversionException;
 import org.springframework.util.MimeType;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Protobuf消息转换器
@@ -36,19 +44,11 @@ public class ProtobufMessageConverter extends AbstractMessageConverter {
         try {
             Object payload = message.getPayload();
             
+            // 只解析二进制负载：protobuf字节经过字符串往返会被按UTF-8替换而损坏，
+            // 字符串负载不再重新编码成字节解析，交给其它转换器处理
             if (payload instanceof byte[]) {
                 byte[] data = (byte[]) payload;
                 
-                if (targetClass.equals(ChatProtos.WebSocketMessage.class)) {
-                    return ChatProtos.WebSocketMessage.parseFrom(data);
-                } else if (targetClass.equals(ChatProtos.ChatResponse.class)) {
-                    return ChatProtos.ChatResponse.parseFrom(data);
-                }
-            } else if (payload instanceof String) {
-                // 如果是字符串，尝试解析为protobuf
-                String text = (String) payload;
-                byte[] data = text.getBytes(StandardCharsets.UTF_8);
-                
                 if (targetClass.equals(ChatProtos.WebSocketMessage.class)) {
                     return ChatProtos.WebSocketMessage.parseFrom(data);
                 } else if (targetClass.equals(ChatProtos.ChatResponse.class)) {
@@ -154,6 +154,125 @@ public class ProtobufMessageConverter extends AbstractMessageConverter {
                 .build();
     }
 
+    /**
+     * 创建批量消息响应
+     */
+    public static ChatProtos.ChatResponse createMessageBatchResponse(Long roomId, List<ChatProtos.ChatMessage> messages) {
+        ChatProtos.MessageBatch batch = ChatProtos.MessageBatch.newBuilder()
+                .setRoomId(roomId)
+                .addAllMessages(messages)
+                .build();
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(true)
+                .setBatch(batch)
+                .build();
+    }
+
+    /**
+     * 创建在线人数变化通知
+     */
+    public static ChatProtos.ChatResponse createOnlineCountResponse(Long roomId, int onlineUserCount) {
+        ChatProtos.OnlineCountUpdate update = ChatProtos.OnlineCountUpdate.newBuilder()
+                .setRoomId(roomId)
+                .setOnlineUserCount(onlineUserCount)
+                .build();
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(true)
+                .setOnlineCount(update)
+                .build();
+    }
+
+    /**
+     * 创建聊天室临时状态通知（正在输入和已读位置）
+     */
+    public static ChatProtos.ChatResponse createRoomActivityResponse(Long roomId, Collection<Long> typingUserIds,
+                                                                     Map<Long, Long> readMarks) {
+        ChatProtos.RoomActivity.Builder activity = ChatProtos.RoomActivity.newBuilder()
+                .setRoomId(roomId)
+                .addAllTypingUserIds(typingUserIds);
+        readMarks.forEach((userId, lastReadMessageId) -> activity.addReadMarks(ChatProtos.ReadMark.newBuilder()
+                .setUserId(userId)
+                .setLastReadMessageId(lastReadMessageId)));
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(true)
+                .setActivity(activity)
+                .build();
+    }
+
+    /**
+     * 创建商家聚合推送
+     */
+    public static ChatProtos.ChatResponse createMerchantFeedResponse(Long restaurantId, MerchantFeedAggregator.Feed feed) {
+        ChatProtos.MerchantFeed.Builder merchantFeed = ChatProtos.MerchantFeed.newBuilder()
+                .setRestaurantId(restaurantId)
+                .setMessagesTruncated(feed.isMessagesTruncated());
+        feed.getRooms().forEach((roomId, delta) -> {
+            ChatProtos.RoomFeed.Builder room = ChatProtos.RoomFeed.newBuilder()
+                    .setRoomId(roomId)
+                    .addAllJoinedUserIds(delta.getJoinedUserIds())
+                    .addAllLeftUserIds(delta.getLeftUserIds())
+                    .setMessageCount(delta.getMessageCount());
+            if (delta.getOnlineUserCount() != null) {
+                room.setOnlineUserCount(delta.getOnlineUserCount());
+            }
+            merchantFeed.addRooms(room);
+        });
+        for (ChatRoomMessage message : feed.getMessages()) {
+            merchantFeed.addMessages(ChatProtos.MessageDigest.newBuilder()
+                    .setId(message.getId() != null ? message.getId() : 0)
+                    .setRoomId(message.getRoomId() != null ? message.getRoomId() : 0)
+                    .setSenderId(message.getSenderId() != null ? message.getSenderId() : 0)
+                    .setSenderName(message.getSenderName() != null ? message.getSenderName() : "")
+                    .setPreview(message.getContent() != null ? message.getContent() : "")
+                    .setTimestamp((message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now())
+                            .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+        }
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(true)
+                .setMerchantFeed(merchantFeed)
+                .build();
+    }
+
+    /**
+     * 创建商家聚合推送的初始快照，包含餐厅全部聊天室的当前在线人数
+     */
+    public static ChatProtos.ChatResponse createMerchantFeedSnapshot(Long restaurantId, List<ChatRoom> rooms) {
+        ChatProtos.MerchantFeed.Builder merchantFeed = ChatProtos.MerchantFeed.newBuilder()
+                .setRestaurantId(restaurantId)
+                .setSnapshot(true);
+        for (ChatRoom room : rooms) {
+            merchantFeed.addRooms(ChatProtos.RoomFeed.newBuilder()
+                    .setRoomId(room.getId())
+                    .setOnlineUserCount(room.getOnlineUserCount() != null ? room.getOnlineUserCount() : 0));
+        }
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(true)
+                .setMerchantFeed(merchantFeed)
+                .build();
+    }
+
+    /**
+     * 创建断线重连补发响应
+     */
+    public static ChatProtos.ChatResponse createResumeResponse(Long roomId, List<ChatProtos.ChatMessage> messages,
+                                                               boolean truncated) {
+        ChatProtos.ResumeResponse resumeResponse = ChatProtos.ResumeResponse.newBuilder()
+                .setRoomId(roomId)
+                .addAllMessages(messages)
+                .setTruncated(truncated)
+                .build();
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(true)
+                .setResumeResponse(resumeResponse)
+                .build();
+    }
+
     /**
      * 创建错误响应
      */
@@ -165,7 +284,27 @@ public class ProtobufMessageConverter extends AbstractMessageConverter {
     }
 
     /**
-     * 包装WebSocket消息
+     * 创建限流错误响应
+     * @param retryAfterMillis 建议客户端等待的毫秒数
+     */
+    public static ChatProtos.ChatResponse createRateLimitedResponse(Long roomId, long retryAfterMillis) {
+        String message = "发送过于频繁，请稍后再试";
+        ChatProtos.ChatError error = ChatProtos.ChatError.newBuilder()
+                .setCode(ChatProtos.ErrorCode.RATE_LIMITED)
+                .setMessage(message)
+                .setRetryAfterMs(retryAfterMillis)
+                .setRoomId(roomId)
+                .build();
+        
+        return ChatProtos.ChatResponse.newBuilder()
+                .setSuccess(false)
+                .setErrorMessage(message)
+                .setError(error)
+                .build();
+    }
+
+    /**
+     * 包装WebSocket消息（v1字符串信封）
      */
     public static ChatProtos.WebSocketMessage wrapWebSocketMessage(String type, com.google.protobuf.Message payload) {
         return ChatProtos.WebSocketMessage.newBuilder()
@@ -175,21 +314,102 @@ public class ProtobufMessageConverter extends AbstractMessageConverter {
     }
 
     /**
-     * 解包WebSocket消息
+     * 包装WebSocket消息（v2 oneof信封）
+     */
+    public static ChatProtos.WebSocketMessage wrapEnvelope(com.google.protobuf.Message payload) {
+        ChatProtos.WebSocketMessage.Builder builder = ChatProtos.WebSocketMessage.newBuilder();
+        if (payload instanceof ChatProtos.SendMessageRequest) {
+            builder.setSendMessage((ChatProtos.SendMessageRequest) payload);
+        } else if (payload instanceof ChatProtos.JoinRoomRequest) {
+            builder.setJoinRoom((ChatProtos.JoinRoomRequest) payload);
+        } else if (payload instanceof ChatProtos.LeaveRoomRequest) {
+            builder.setLeaveRoom((ChatProtos.LeaveRoomRequest) payload);
+        } else if (payload instanceof ChatProtos.ResumeRequest) {
+            builder.setResume((ChatProtos.ResumeRequest) payload);
+        } else if (payload instanceof ChatProtos.TypingRequest) {
+            builder.setTyping((ChatProtos.TypingRequest) payload);
+        } else if (payload instanceof ChatProtos.ReadReceiptRequest) {
+            builder.setReadReceipt((ChatProtos.ReadReceiptRequest) payload);
+        } else {
+            throw new IllegalArgumentException("不支持的消息类型: " + payload.getClass().getName());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 将v1字符串信封转换为v2信封，v2信封原样返回
+     * @return 无法识别的v1消息类型返回null
+     */
+    public static ChatProtos.WebSocketMessage normalizeEnvelope(ChatProtos.WebSocketMessage message)
+            throws InvalidProtocolBufferException {
+        if (message.getBodyCase() != ChatProtos.WebSocketMessage.BodyCase.BODY_NOT_SET) {
+            return message;
+        }
+        
+        ChatProtos.WebSocketMessage.Builder builder = message.toBuilder();
+        switch (message.getType()) {
+            case "SEND_MESSAGE":
+                builder.setSendMessage(ChatProtos.SendMessageRequest.parseFrom(message.getPayload()));
+                break;
+            case "JOIN_ROOM":
+                builder.setJoinRoom(ChatProtos.JoinRoomRequest.parseFrom(message.getPayload()));
+                break;
+            case "LEAVE_ROOM":
+                builder.setLeaveRoom(ChatProtos.LeaveRoomRequest.parseFrom(message.getPayload()));
+                break;
+            case "RESUME":
+                builder.setResume(ChatProtos.ResumeRequest.parseFrom(message.getPayload()));
+                break;
+            case "TYPING":
+                builder.setTyping(ChatProtos.TypingRequest.parseFrom(message.getPayload()));
+                break;
+            case "READ_RECEIPT":
+                builder.setReadReceipt(ChatProtos.ReadReceiptRequest.parseFrom(message.getPayload()));
+                break;
+            default:
+                return null;
+        }
+        return builder.build();
+    }
+
+    /**
+     * 解包WebSocket消息，同时支持v1和v2信封
      */
     public static <T extends com.google.protobuf.Message> T unwrapWebSocketMessage(
             ChatProtos.WebSocketMessage message, Class<T> payloadClass) {
         try {
-            if (payloadClass.equals(ChatProtos.SendMessageRequest.class)) {
-                return payloadClass.cast(ChatProtos.SendMessageRequest.parseFrom(message.getPayload()));
-            } else if (payloadClass.equals(ChatProtos.JoinRoomRequest.class)) {
-                return payloadClass.cast(ChatProtos.JoinRoomRequest.parseFrom(message.getPayload()));
-            } else if (payloadClass.equals(ChatProtos.LeaveRoomRequest.class)) {
-                return payloadClass.cast(ChatProtos.LeaveRoomRequest.parseFrom(message.getPayload()));
+            ChatProtos.WebSocketMessage envelope = normalizeEnvelope(message);
+            if (envelope == null) {
+                return null;
+            }
+            
+            com.google.protobuf.Message body;
+            switch (envelope.getBodyCase()) {
+                case SEND_MESSAGE:
+                    body = envelope.getSendMessage();
+                    break;
+                case JOIN_ROOM:
+                    body = envelope.getJoinRoom();
+                    break;
+                case LEAVE_ROOM:
+                    body = envelope.getLeaveRoom();
+                    break;
+                case RESUME:
+                    body = envelope.getResume();
+                    break;
+                case TYPING:
+                    body = envelope.getTyping();
+                    break;
+                case READ_RECEIPT:
+                    body = envelope.getReadReceipt();
+                    break;
+                default:
+                    return null;
             }
+            return payloadClass.isInstance(body) ? payloadClass.cast(body) : null;
         } catch (Exception e) {
             log.error("Failed to unwrap WebSocket message", e);
         }
         return null;
     }
-}
\ No newline at end of file
+}
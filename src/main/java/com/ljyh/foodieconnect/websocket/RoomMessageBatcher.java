@@ -0,0 +1,135 @@
+package com.ljyh.foodieconnect.websocket;
+
+import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 聊天室消息微批处理器
+ * 在很短的时间窗口内合并同一聊天室的多条消息，每个批次只序列化一次即可发送给所有成员。
+ * 聊天室按ID分片到多个投递线程，同一聊天室始终由同一线程按顺序投递，
+ * 某个聊天室的慢连接不会拖慢其它分片上的聊天室
+ */
+@Slf4j
+public class RoomMessageBatcher {
+
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final BiConsumer<Long, List<ChatProtos.ChatMessage>> flushHandler;
+    private final ScheduledExecutorService[] schedulers;
+    private final ConcurrentHashMap<Long, PendingBatch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowMillis 合并窗口（毫秒），小于等于0时不合并，消息立即投递
+     * @param maxBatchSize 单个批次最大消息数，达到后立即投递
+     * @param flusherThreads 投递线程数（聊天室分片数）
+     * @param flushHandler 批次投递回调，参数为聊天室ID和按发送顺序排列的消息
+     */
+    public RoomMessageBatcher(long windowMillis, int maxBatchSize, int flusherThreads,
+                              BiConsumer<Long, List<ChatProtos.ChatMessage>> flushHandler) {
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushHandler = flushHandler;
+        this.schedulers = new ScheduledExecutorService[Math.max(1, flusherThreads)];
+        for (int i = 0; i < schedulers.length; i++) {
+            String name = "chat-batch-flusher-" + i;
+            schedulers[i] = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 提交一条消息到聊天室的当前批次
+     */
+    public void submit(Long roomId, ChatProtos.ChatMessage message) {
+        ScheduledExecutorService scheduler = schedulerFor(roomId);
+        if (windowMillis <= 0) {
+            scheduler.execute(() -> deliver(roomId, List.of(message)));
+            return;
+        }
+
+        boolean flushNow = false;
+        boolean scheduleFlush = false;
+        while (true) {
+            PendingBatch batch = pending.computeIfAbsent(roomId, k -> new PendingBatch());
+            synchronized (batch) {
+                // 批次已在投递后移除，重新获取
+                if (batch.removed) {
+                    continue;
+                }
+                batch.messages.add(message);
+                if (batch.messages.size() >= maxBatchSize) {
+                    flushNow = true;
+                } else if (!batch.scheduled) {
+                    batch.scheduled = true;
+                    scheduleFlush = true;
+                }
+            }
+            break;
+        }
+
+        if (flushNow) {
+            scheduler.execute(() -> flush(roomId));
+        } else if (scheduleFlush) {
+            scheduler.schedule(() -> flush(roomId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 停止批处理线程，尚未投递的消息立即投递
+     */
+    public void shutdown() {
+        for (Long roomId : pending.keySet()) {
+            flush(roomId);
+        }
+        for (ScheduledExecutorService scheduler : schedulers) {
+            scheduler.shutdown();
+        }
+    }
+
+    private ScheduledExecutorService schedulerFor(Long roomId) {
+        return schedulers[Math.floorMod(roomId.hashCode(), schedulers.length)];
+    }
+
+    private void flush(Long roomId) {
+        PendingBatch batch = pending.get(roomId);
+        if (batch == null) {
+            return;
+        }
+        List<ChatProtos.ChatMessage> messages;
+        synchronized (batch) {
+            // 取出消息后移除批次，避免无消息的聊天室在pending中长期残留
+            batch.removed = true;
+            pending.remove(roomId, batch);
+            if (batch.messages.isEmpty()) {
+                return;
+            }
+            messages = batch.messages;
+        }
+        deliver(roomId, messages);
+    }
+
+    private void deliver(Long roomId, List<ChatProtos.ChatMessage> messages) {
+        try {
+            flushHandler.accept(roomId, messages);
+        } catch (Exception e) {
+            log.error("聊天室 {} 批量消息投递失败: {}", roomId, e.getMessage(), e);
+        }
+    }
+
+    private static class PendingBatch {
+        private List<ChatProtos.ChatMessage> messages = new ArrayList<>();
+        private boolean scheduled;
+        private boolean removed;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ljyh.foodieconnect;
+
+import org.springframework.boot.SpringApplication;
+
+/**
+ * 压测用启动入口
+ * 使用loadtest配置启动应用，数据源替换为预置种子数据的H2内存库，不依赖MySQL
+ * 运行方式：./mvnw spring-boot:test-run
+ */
+public class TestFoodieConnectApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.from(FoodieConnectApplication::main)
+				.withAdditionalProfiles("loadtest")
+				.run(args);
+	}
+
+}
@@ -2,20 +2,27 @@ package com.ljyh.foodieconnect.config;
 
 import com.ljyh.foodieconnect.service.JwtService;
 import com.ljyh.foodieconnect.service.UserDetailsServiceImpl;
+import com.ljyh.foodieconnect.service.PrincipalCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -31,6 +38,9 @@ public class JwtAuthenticationFilterTest {
     @Mock
     private FilterChain filterChain;
 
+    @Spy
+    private PrincipalCache principalCache = new PrincipalCache(new SimpleMeterRegistry(), 30000, 100, false);
+
     @InjectMocks
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
@@ -108,4 +118,52 @@ public class JwtAuthenticationFilterTest {
         verify(jwtService, never()).extractUsername(anyString());
         verify(filterChain).doFilter(request, response);
     }
+
+    @Test
+    void testDoFilterInternal_CachesUserDetailsAcrossRequests() throws ServletException, IOException {
+        // 准备测试数据
+        request.setRequestURI("/chat/rooms");
+        request.addHeader("Authorization", "Bearer valid-user-token");
+
+        // 模拟服务调用
+        when(jwtService.extractUsername("valid-user-token")).thenReturn("user@test.com");
+        when(userDetailsService.loadUserByUsername("user@test.com")).thenReturn(userDetails);
+        when(jwtService.isTokenValid("valid-user-token")).thenReturn(true);
+
+        // 执行测试：同一用户连续两次请求
+        SecurityContextHolder.clearContext();
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        SecurityContextHolder.clearContext();
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        // 验证结果：只查询一次用户
+        verify(userDetailsService, times(1)).loadUserByUsername("user@test.com");
+        assertSame(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testDoFilterInternal_BuildsPrincipalFromClaimsForReads() throws ServletException, IOException {
+        // 准备测试数据
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new PrincipalCache(new SimpleMeterRegistry(), 30000, 100, true));
+        request.setMethod("GET");
+        request.setRequestURI("/chat/rooms");
+        request.addHeader("Authorization", "Bearer valid-user-token");
+
+        // 模拟服务调用
+        when(jwtService.extractUsername("valid-user-token")).thenReturn("user@test.com");
+        when(jwtService.isTokenValid("valid-user-token")).thenReturn(true);
+
+        // 执行测试
+        SecurityContextHolder.clearContext();
+        filter.doFilterInternal(request, response, filterChain);
+
+        // 验证结果：只读请求不查询用户
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("user@test.com", ((UserDetails) authentication.getPrincipal()).getUsername());
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+        SecurityContextHolder.clearContext();
+    }
 }
@@ -2,11 +2,14 @@ package com.ljyh.foodieconnect.config;
 
 import com.ljyh.foodieconnect.service.JwtMerchantService;
 import com.ljyh.foodieconnect.service.MerchantUserDetailsServiceImpl;
+import com.ljyh.foodieconnect.service.PrincipalCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -31,6 +34,9 @@ public class JwtMerchantAuthenticationFilterTest {
     @Mock
     private FilterChain filterChain;
 
+    @Spy
+    private PrincipalCache principalCache = new PrincipalCache(new SimpleMeterRegistry(), 30000, 100, false);
+
     @InjectMocks
     private JwtMerchantAuthenticationFilter jwtMerchantAuthenticationFilter;
 
@@ -16,6 +16,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -183,5 +185,15 @@ class MerchantAuthControllerTest {
         mockMvc.perform(post("/merchant/auth/logout"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true));
+        verify(merchantAuthService, never()).logout(anyString());
+    }
+    
+    @Test
+    void testLogoutRevokesBearerToken() throws Exception {
+        mockMvc.perform(post("/merchant/auth/logout")
+                        .header("Authorization", "Bearer merchant-token"))
+                .andExpect(status().isOk());
+        
+        verify(merchantAuthService).logout("merchant-token");
     }
 }
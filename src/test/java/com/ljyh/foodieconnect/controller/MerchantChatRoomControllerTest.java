@@ -2,9 +2,12 @@ package com.ljyh.foodieconnect.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ljyh.foodieconnect.dto.ApiResponse;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
 import com.ljyh.foodieconnect.entity.Merchant;
 import com.ljyh.foodieconnect.enums.ChatSessionStatus;
+import com.ljyh.foodieconnect.service.ChatMessageArchiveService;
 import com.ljyh.foodieconnect.service.ChatRoomService;
 import com.ljyh.foodieconnect.service.MerchantAuthService;
 import com.ljyh.foodieconnect.service.RestaurantService;
@@ -18,10 +21,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -40,6 +46,9 @@ public class MerchantChatRoomControllerTest {
     @Mock
     private RestaurantService restaurantService;
 
+    @Mock
+    private ChatMessageArchiveService chatMessageArchiveService;
+
     @InjectMocks
     private MerchantChatRoomController merchantChatRoomController;
 
@@ -52,5 +61,45 @@ public class MerchantChatRoomControllerTest {
         objectMapper = new ObjectMapper();
     }
 
+    @Test
+    void testGetArchivedMessages() throws Exception {
+        mockCurrentRoom();
+        LocalDate day = LocalDate.of(2025, 11, 1);
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(7L);
+        message.setRoomId(10L);
+        when(chatMessageArchiveService.readArchived(10L, day, 5L, 20))
+                .thenReturn(new CursorPage<>(List.of(message), "7", true));
+
+        mockMvc.perform(get("/merchant/chat-rooms/archive/messages")
+                        .param("date", "2025-11-01")
+                        .param("cursor", "5")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.records[0].id").value(7))
+                .andExpect(jsonPath("$.data.nextCursor").value("7"));
+    }
+
+    @Test
+    void testGetArchivedMessagesWithoutChatRoom() throws Exception {
+        Merchant merchant = new Merchant();
+        merchant.setRestaurantId(1L);
+        when(merchantAuthService.getCurrentMerchant()).thenReturn(merchant);
+        when(chatRoomService.getRestaurantChatRoom(1L)).thenReturn(null);
+
+        mockMvc.perform(get("/merchant/chat-rooms/archive/messages").param("date", "2025-11-01"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error.code").value("CHAT_ROOM_NOT_FOUND"));
+        verifyNoInteractions(chatMessageArchiveService);
+    }
 
+    private void mockCurrentRoom() {
+        Merchant merchant = new Merchant();
+        merchant.setRestaurantId(1L);
+        ChatRoom chatRoom = new ChatRoom();
+        chatRoom.setId(10L);
+        chatRoom.setRestaurantId(1L);
+        when(merchantAuthService.getCurrentMerchant()).thenReturn(merchant);
+        when(chatRoomService.getRestaurantChatRoom(1L)).thenReturn(chatRoom);
+    }
 }
@@ -1,6 +1,9 @@
 package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ljyh.foodieconnect.dto.NearbyRestaurantResponse;
+import com.ljyh.foodieconnect.dto.RestaurantFacetResponse;
+import com.ljyh.foodieconnect.dto.SearchSuggestionResponse;
 import com.ljyh.foodieconnect.dto.UserDTO;
 import com.ljyh.foodieconnect.entity.Restaurant;
 import com.ljyh.foodieconnect.service.RestaurantService;
@@ -149,6 +152,78 @@ class RestaurantControllerTest {
                 .andExpect(jsonPath("$.data.total").value(1));
     }
     
+    @Test
+    void testBrowseRestaurantsWithFacets() throws Exception {
+        // 准备测试数据
+        Page<Restaurant> page = new Page<>(0, 20);
+        page.setRecords(List.of());
+        page.setTotal(3);
+        RestaurantFacetResponse response = new RestaurantFacetResponse(page,
+                Map.of("type", Map.of("川菜", 2, "粤菜", 1)));
+        
+        // 模拟服务调用
+        when(restaurantService.browseRestaurants(List.of("川菜", "粤菜"), List.of("4.5-5"), true, null, 0, 20))
+                .thenReturn(response);
+        
+        // 执行测试
+        mockMvc.perform(get("/restaurants/facets")
+                .param("type", "川菜", "粤菜")
+                .param("rating", "4.5-5")
+                .param("isOpen", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.restaurants.total").value(3))
+                .andExpect(jsonPath("$.data.facets.type['川菜']").value(2));
+    }
+    
+    @Test
+    void testGetNearbyRestaurants() throws Exception {
+        // 准备测试数据
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(1L);
+        restaurant.setName("测试餐厅");
+        
+        Page<NearbyRestaurantResponse> page = new Page<>(0, 20);
+        page.setRecords(List.of(new NearbyRestaurantResponse(restaurant, 850L)));
+        page.setTotal(1);
+        
+        // 模拟服务调用
+        when(restaurantService.getNearbyRestaurants(31.23, 121.47, 3000.0, null, true, null, 0, 20)).thenReturn(page);
+        
+        // 执行测试
+        mockMvc.perform(get("/restaurants/nearby")
+                .param("lat", "31.23")
+                .param("lng", "121.47")
+                .param("radius", "3000")
+                .param("isOpen", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.total").value(1))
+                .andExpect(jsonPath("$.data.records[0].distanceMeters").value(850));
+    }
+    
+    @Test
+    void testSuggestCapsLimit() throws Exception {
+        // 准备测试数据
+        SearchSuggestionResponse suggestion = new SearchSuggestionResponse();
+        suggestion.setType("DISH");
+        suggestion.setText("宫保鸡丁");
+        
+        // 模拟服务调用
+        when(restaurantService.suggest("gb", 20)).thenReturn(List.of(suggestion));
+        
+        // 执行测试
+        mockMvc.perform(get("/restaurants/suggest")
+                .param("q", "gb")
+                .param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].type").value("DISH"))
+                .andExpect(jsonPath("$.data[0].text").value("宫保鸡丁"));
+        
+        verify(restaurantService).suggest("gb", 20);
+    }
+    
     @Test
     void testGetPopularRestaurantsSuccess() throws Exception {
         // 准备测试数据
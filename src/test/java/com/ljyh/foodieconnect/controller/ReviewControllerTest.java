@@ -2,6 +2,7 @@ package com.ljyh.foodieconnect.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ljyh.foodieconnect.dto.CreateReviewRequest;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.Review;
 import com.ljyh.foodieconnect.entity.User;
 import com.ljyh.foodieconnect.mapper.UserMapper;
@@ -78,6 +79,19 @@ class ReviewControllerTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
     
+    @Test
+    void testGetRestaurantReviewsByCursor() throws Exception {
+        when(reviewService.getRestaurantReviewsByCursor(1L, "", 10))
+                .thenReturn(new CursorPage<>(List.of(review), "next", true));
+        
+        mockMvc.perform(get("/restaurants/1/reviews").param("cursor", "").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.records[0].id").value(1))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"))
+                .andExpect(jsonPath("$.data.hasMore").value(true));
+        verify(reviewService, never()).getRestaurantReviews(anyLong(), anyInt(), anyInt());
+    }
+    
     @Test
     void testCreateReviewSuccess() throws Exception {
         // 模拟服务调用
@@ -0,0 +1,533 @@
+package com.ljyh.foodieconnect.loadtest;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 聊天室压测客户端
+ * 在M个聊天室中建立N个二进制（/ws/chat-bin）和STOMP（/ws/chat）会话，按固定速率发送protobuf消息，
+ * 统计端到端投递延迟百分位、消息丢失率和服务端投递吞吐量。
+ *
+ * 被测应用通过 TestFoodieConnectApplication 以loadtest配置启动（H2内存库 + 种子数据），
+ * 压测参数通过 loadtest.* 系统属性传入，见 {@link Config#fromSystemProperties()}。
+ *
+ * 每条消息内容中带有序号和计划发送时间，接收端据此计算延迟；延迟从计划发送时间起算，
+ * 发送端被阻塞时产生的排队时间同样计入结果。
+ */
+public class ChatLoadGenerator {
+
+    /** 种子数据中的聊天室数量，见 loadtest/data.sql */
+    static final int SEEDED_ROOMS = 50;
+    /** 种子数据中的用户数量，用户 i 属于聊天室 ((i - 1) % 50) + 1 */
+    static final int SEEDED_USERS = 2000;
+
+    private static final Pattern MARKER = Pattern.compile("LT\\|(\\d+)\\|(\\d+)\\|");
+
+    private final Config config;
+    private final HttpClient httpClient;
+    private final Key signingKey;
+    private final LatencyHistogram histogram = new LatencyHistogram(100, 60_000);
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong expectedDeliveries = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong errorFrames = new AtomicLong();
+    private final AtomicLong lastDeliveryNanos = new AtomicLong();
+    private final AtomicLongArray binaryMembers;
+    private final AtomicLongArray stompMembers;
+
+    private final List<LoadClient> clients = new ArrayList<>();
+
+    public ChatLoadGenerator(Config config) {
+        if (config.rooms < 1 || config.rooms > SEEDED_ROOMS) {
+            throw new IllegalArgumentException("聊天室数量必须在1到" + SEEDED_ROOMS + "之间");
+        }
+        int sessions = config.binarySessions + config.stompSessions;
+        if (sessions < 1 || sessions > config.rooms * (SEEDED_USERS / SEEDED_ROOMS)) {
+            throw new IllegalArgumentException("会话数量超出种子用户数，最多 " + config.rooms * (SEEDED_USERS / SEEDED_ROOMS));
+        }
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(config.jwtSecret));
+        this.binaryMembers = new AtomicLongArray(config.rooms + 1);
+        this.stompMembers = new AtomicLongArray(config.rooms + 1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Report report = new ChatLoadGenerator(Config.fromSystemProperties()).run();
+        System.out.println(report);
+    }
+
+    /**
+     * 执行一轮压测：建立连接、按速率发送、等待投递完成后汇总结果
+     */
+    public Report run() throws Exception {
+        try {
+            connectAll();
+            // 等待服务端完成加入聊天室的处理，避免首批消息因会话尚未登记而被计为丢失
+            Thread.sleep(config.settleMillis);
+            long sendStart = System.nanoTime();
+            sendAll(sendStart);
+            long sendEnd = System.nanoTime();
+            drain();
+            return buildReport(sendStart, sendEnd);
+        } finally {
+            for (LoadClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private void connectAll() {
+        int sessions = config.binarySessions + config.stompSessions;
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            long roomId = (i % config.rooms) + 1;
+            long userId = roomId + (long) (i / config.rooms) * SEEDED_ROOMS;
+            LoadClient client = i < config.binarySessions
+                    ? new BinaryLoadClient(roomId, userId)
+                    : new StompLoadClient(roomId, userId);
+            clients.add(client);
+            pending.add(client.connect());
+
+            // 分批建立连接，避免握手和加入聊天室的数据库操作同时涌入
+            if (pending.size() >= config.connectBatchSize || i == sessions - 1) {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                        .orTimeout(30, TimeUnit.SECONDS)
+                        .join();
+                pending.clear();
+            }
+        }
+        for (LoadClient client : clients) {
+            AtomicLongArray members = client instanceof BinaryLoadClient ? binaryMembers : stompMembers;
+            members.incrementAndGet((int) client.roomId);
+        }
+    }
+
+    private void sendAll(long sendStart) throws InterruptedException {
+        long total = (long) config.rate * config.durationSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, config.rate);
+        String padding = "x".repeat(Math.max(0, config.payloadBytes));
+        ExecutorService senders = Executors.newFixedThreadPool(config.senderThreads);
+        try {
+            for (long seq = 0; seq < total; seq++) {
+                long intendedNanos = sendStart + seq * intervalNanos;
+                long waitNanos = intendedNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                LoadClient client = clients.get((int) (seq % clients.size()));
+                String content = "LT|" + seq + "|" + intendedNanos + "|" + padding;
+                senders.execute(() -> {
+                    try {
+                        client.send(content);
+                        sent.incrementAndGet();
+                        AtomicLongArray members = client instanceof BinaryLoadClient ? binaryMembers : stompMembers;
+                        expectedDeliveries.addAndGet(members.get((int) client.roomId));
+                    } catch (Exception e) {
+                        sendFailures.incrementAndGet();
+                    }
+                });
+            }
+        } finally {
+            senders.shutdown();
+            senders.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void drain() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.drainSeconds);
+        while (System.nanoTime() < deadline && delivered.get() < expectedDeliveries.get()) {
+            Thread.sleep(50);
+        }
+    }
+
+    private Report buildReport(long sendStart, long sendEnd) {
+        Report report = new Report();
+        report.sessions = clients.size();
+        report.sent = sent.get();
+        report.sendFailures = sendFailures.get();
+        report.errorFrames = errorFrames.get();
+        report.expectedDeliveries = expectedDeliveries.get();
+        report.delivered = delivered.get();
+        report.lossRate = report.expectedDeliveries == 0 ? 0.0
+                : Math.max(0, report.expectedDeliveries - report.delivered) / (double) report.expectedDeliveries;
+        double sendSeconds = Math.max(1, sendEnd - sendStart) / 1e9;
+        long lastDelivery = lastDeliveryNanos.get();
+        double deliverySeconds = Math.max(1, (lastDelivery > 0 ? lastDelivery : sendEnd) - sendStart) / 1e9;
+        report.sendThroughput = report.sent / sendSeconds;
+        report.deliveryThroughput = report.delivered / deliverySeconds;
+        report.p50Millis = histogram.percentileNanos(50) / 1e6;
+        report.p90Millis = histogram.percentileNanos(90) / 1e6;
+        report.p99Millis = histogram.percentileNanos(99) / 1e6;
+        report.p999Millis = histogram.percentileNanos(99.9) / 1e6;
+        report.maxMillis = histogram.getMaxNanos() / 1e6;
+        return report;
+    }
+
+    /**
+     * 记录一帧中携带的所有压测消息
+     */
+    private void recordDeliveries(CharSequence frame) {
+        long now = System.nanoTime();
+        Matcher matcher = MARKER.matcher(frame);
+        boolean found = false;
+        while (matcher.find()) {
+            long intendedNanos = Long.parseLong(matcher.group(2));
+            histogram.record(now - intendedNanos);
+            delivered.incrementAndGet();
+            found = true;
+        }
+        if (found) {
+            lastDeliveryNanos.accumulateAndGet(now, Math::max);
+        }
+    }
+
+    /**
+     * 生成与 JwtService#generateTempToken 结构一致的WebSocket临时令牌
+     */
+    private String mintTempToken(long userId, long roomId) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .claim("roomId", roomId)
+                .claim("tokenType", "temp")
+                .claim("purpose", "websocket")
+                .setSubject("load" + userId + "@loadtest.local")
+                .claim("userId", userId)
+                .claim("displayName", "压测用户" + userId)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + TimeUnit.HOURS.toMillis(1)))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * 单个压测会话，java.net.http.WebSocket 的消息可能分片到达，按帧累积后再处理
+     */
+    private abstract class LoadClient implements WebSocket.Listener {
+
+        final long roomId;
+        final long userId;
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+        volatile WebSocket webSocket;
+        private final ByteArrayOutputStream binaryBuffer = new ByteArrayOutputStream();
+        private final StringBuilder textBuffer = new StringBuilder();
+
+        LoadClient(long roomId, long userId) {
+            this.roomId = roomId;
+            this.userId = userId;
+        }
+
+        abstract URI uri();
+
+        abstract void send(String content) throws Exception;
+
+        void onBinaryFrame(byte[] frame) {
+        }
+
+        void onTextFrame(String frame) {
+        }
+
+        CompletableFuture<Void> connect() {
+            httpClient.newWebSocketBuilder()
+                    .buildAsync(uri(), this)
+                    .whenComplete((ws, e) -> {
+                        if (e != null) {
+                            ready.completeExceptionally(e);
+                        }
+                    });
+            return ready;
+        }
+
+        /**
+         * java.net.http.WebSocket 不允许并发发送，同一会话的发送串行执行
+         */
+        synchronized void sendBinary(byte[] bytes) {
+            webSocket.sendBinary(ByteBuffer.wrap(bytes), true).join();
+        }
+
+        synchronized void sendText(String text) {
+            webSocket.sendText(text, true).join();
+        }
+
+        void close() {
+            WebSocket ws = webSocket;
+            if (ws != null) {
+                ws.abort();
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            this.webSocket = webSocket;
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            binaryBuffer.writeBytes(chunk);
+            if (last) {
+                byte[] frame = binaryBuffer.toByteArray();
+                binaryBuffer.reset();
+                onBinaryFrame(frame);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            textBuffer.append(data);
+            if (last) {
+                String frame = textBuffer.toString();
+                textBuffer.setLength(0);
+                onTextFrame(frame);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            ready.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 二进制protobuf会话，使用v2信封发送，声明支持批量帧时接收MessageBatch
+     */
+    private class BinaryLoadClient extends LoadClient {
+
+        BinaryLoadClient(long roomId, long userId) {
+            super(roomId, userId);
+        }
+
+        @Override
+        URI uri() {
+            return URI.create(config.baseUrl + "/ws/chat-bin/" + roomId
+                    + "?token=" + mintTempToken(userId, roomId) + "&batch=" + config.batch);
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            super.onOpen(webSocket);
+            ready.complete(null);
+        }
+
+        @Override
+        void send(String content) {
+            ChatProtos.WebSocketMessage message = ChatProtos.WebSocketMessage.newBuilder()
+                    .setSendMessage(ChatProtos.SendMessageRequest.newBuilder()
+                            .setRoomId(roomId)
+                            .setContent(content))
+                    .build();
+            sendBinary(message.toByteArray());
+        }
+
+        @Override
+        void onBinaryFrame(byte[] frame) {
+            ChatProtos.ChatResponse response;
+            try {
+                response = ChatProtos.ChatResponse.parseFrom(frame);
+            } catch (InvalidProtocolBufferException e) {
+                errorFrames.incrementAndGet();
+                return;
+            }
+            if (!response.getSuccess()) {
+                errorFrames.incrementAndGet();
+                return;
+            }
+            switch (response.getPayloadCase()) {
+                case MESSAGE:
+                    recordDeliveries(response.getMessage().getContent());
+                    break;
+                case BATCH:
+                    for (ChatProtos.ChatMessage message : response.getBatch().getMessagesList()) {
+                        recordDeliveries(message.getContent());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * STOMP会话，连接后订阅聊天室主题，收到订阅回执后视为就绪
+     */
+    private class StompLoadClient extends LoadClient {
+
+        StompLoadClient(long roomId, long userId) {
+            super(roomId, userId);
+        }
+
+        @Override
+        URI uri() {
+            return URI.create(config.baseUrl + "/ws/chat");
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            super.onOpen(webSocket);
+            CompletableFuture.runAsync(() -> sendText("CONNECT\n"
+                    + "accept-version:1.2\n"
+                    + "host:localhost\n"
+                    + "heart-beat:0,0\n"
+                    + "Authorization:Bearer " + mintTempToken(userId, roomId) + "\n"
+                    + "\n\0"));
+        }
+
+        @Override
+        void send(String content) {
+            byte[] body = ChatProtos.WebSocketMessage.newBuilder()
+                    .setSendMessage(ChatProtos.SendMessageRequest.newBuilder()
+                            .setRoomId(roomId)
+                            .setContent(content))
+                    .build()
+                    .toByteArray();
+            byte[] headers = ("SEND\n"
+                    + "destination:/app/chat-room.sendMessage\n"
+                    + "content-type:application/x-protobuf\n"
+                    + "content-length:" + body.length + "\n"
+                    + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(headers.length + body.length + 1);
+            frame.writeBytes(headers);
+            frame.writeBytes(body);
+            frame.write(0);
+            sendBinary(frame.toByteArray());
+        }
+
+        @Override
+        void onBinaryFrame(byte[] frame) {
+            // 消息体中的压测标记是ASCII，按单字节解码即可定位，不依赖protobuf完整解析
+            onTextFrame(new String(frame, StandardCharsets.ISO_8859_1));
+        }
+
+        @Override
+        void onTextFrame(String frame) {
+            if (frame.startsWith("CONNECTED")) {
+                CompletableFuture.runAsync(() -> sendText("SUBSCRIBE\n"
+                        + "id:sub-" + userId + "\n"
+                        + "destination:/topic/chat-room/" + roomId + "\n"
+                        + "receipt:subscribed-" + userId + "\n"
+                        + "\n\0"));
+            } else if (frame.startsWith("RECEIPT")) {
+                ready.complete(null);
+            } else if (frame.startsWith("MESSAGE")) {
+                recordDeliveries(frame);
+            } else if (frame.startsWith("ERROR")) {
+                errorFrames.incrementAndGet();
+                ready.completeExceptionally(new IllegalStateException(frame));
+            }
+        }
+    }
+
+    /**
+     * 压测参数
+     */
+    public static class Config {
+        /** WebSocket基础地址（含context-path） */
+        String baseUrl = "ws://localhost:8080/api/v1";
+        int binarySessions = 200;
+        int stompSessions = 50;
+        int rooms = 10;
+        /** 全部会话合计的每秒发送消息数 */
+        int rate = 200;
+        int durationSeconds = 30;
+        int payloadBytes = 64;
+        int drainSeconds = 10;
+        int senderThreads = 8;
+        int connectBatchSize = 50;
+        long settleMillis = 1000;
+        boolean batch = true;
+        /** 与被测应用 app.jwt.secret 一致 */
+        String jwtSecret = "dU83aU0zbVcwd0o0eEY3Y0I3ZU03a0Q4bVk4Y1c3ZUI=";
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.baseUrl = System.getProperty("loadtest.url", config.baseUrl);
+            config.binarySessions = Integer.getInteger("loadtest.binary-sessions", config.binarySessions);
+            config.stompSessions = Integer.getInteger("loadtest.stomp-sessions", config.stompSessions);
+            config.rooms = Integer.getInteger("loadtest.rooms", config.rooms);
+            config.rate = Integer.getInteger("loadtest.rate", config.rate);
+            config.durationSeconds = Integer.getInteger("loadtest.duration-seconds", config.durationSeconds);
+            config.payloadBytes = Integer.getInteger("loadtest.payload-bytes", config.payloadBytes);
+            config.drainSeconds = Integer.getInteger("loadtest.drain-seconds", config.drainSeconds);
+            config.senderThreads = Integer.getInteger("loadtest.sender-threads", config.senderThreads);
+            config.connectBatchSize = Integer.getInteger("loadtest.connect-batch-size", config.connectBatchSize);
+            config.settleMillis = Long.getLong("loadtest.settle-millis", config.settleMillis);
+            config.batch = Boolean.parseBoolean(System.getProperty("loadtest.batch", String.valueOf(config.batch)));
+            config.jwtSecret = System.getProperty("loadtest.jwt-secret", config.jwtSecret);
+            return config;
+        }
+    }
+
+    /**
+     * 压测结果
+     */
+    public static class Report {
+        int sessions;
+        long sent;
+        long sendFailures;
+        long errorFrames;
+        long expectedDeliveries;
+        long delivered;
+        double lossRate;
+        double sendThroughput;
+        double deliveryThroughput;
+        double p50Millis;
+        double p90Millis;
+        double p99Millis;
+        double p999Millis;
+        double maxMillis;
+
+        public double getLossRate() {
+            return lossRate;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("压测结果: 会话=%d, 发送=%d, 发送失败=%d, 错误帧=%d%n"
+                            + "  投递: 预期=%d, 实际=%d, 丢失率=%.4f%%%n"
+                            + "  吞吐: 发送=%.1f msg/s, 投递=%.1f msg/s%n"
+                            + "  延迟(ms): p50=%.2f, p90=%.2f, p99=%.2f, p99.9=%.2f, max=%.2f",
+                    sessions, sent, sendFailures, errorFrames,
+                    expectedDeliveries, delivered, lossRate * 100,
+                    sendThroughput, deliveryThroughput,
+                    p50Millis, p90Millis, p99Millis, p999Millis, maxMillis);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ljyh.foodieconnect.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 聊天室压测入口
+ * 默认跳过，需先以loadtest配置启动应用（./mvnw spring-boot:test-run），再指定被测地址运行：
+ * ./mvnw test -Dtest=ChatLoadTest -Dloadtest.url=ws://localhost:8080/api/v1 [-Dloadtest.rate=500 ...]
+ */
+@EnabledIfSystemProperty(named = "loadtest.url", matches = ".+")
+public class ChatLoadTest {
+
+    @Test
+    public void testChatDeliveryUnderLoad() throws Exception {
+        double maxLossRate = Double.parseDouble(System.getProperty("loadtest.max-loss-rate", "0.001"));
+
+        ChatLoadGenerator.Report report = new ChatLoadGenerator(ChatLoadGenerator.Config.fromSystemProperties()).run();
+        System.out.println(report);
+
+        assertTrue(report.getDelivered() > 0, "没有收到任何投递的消息");
+        assertTrue(report.getLossRate() <= maxLossRate, "消息丢失率超过阈值: " + report.getLossRate());
+    }
+}
@@ -0,0 +1,162 @@
+package com.ljyh.foodieconnect.loadtest;
+
+import com.ljyh.foodieconnect.service.AhoCorasickMatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 聊天内容过滤吞吐量基准
+ * 用数千个中英文关键词和模拟的聊天文本对比Aho–Corasick自动机与逐个String.contains的扫描速度，默认跳过：
+ * ./mvnw test -Dtest=ContentFilterBenchmark -Dbenchmark.content-filter=true [-Dbenchmark.words=5000 -Dbenchmark.messages=20000]
+ */
+@EnabledIfSystemProperty(named = "benchmark.content-filter", matches = "true")
+public class ContentFilterBenchmark {
+
+    private static final String[] CHINESE_SENTENCES = {
+            "今天晚上六点在店里等你，记得带上优惠券",
+            "这家店的红烧肉真的很好吃，肥而不腻",
+            "有人知道周末要排队多久吗？上次等了一个小时",
+            "服务员态度很好，上菜也快，推荐大家来试试",
+            "麻婆豆腐有点咸了，下次让厨师少放点盐",
+            "新出的芒果班戟甜度刚好，孩子很喜欢",
+            "包间需要提前预约吗？我们大概十二个人",
+            "停车场在地下二层，出电梯左转就是",
+    };
+
+    private static final String[] ENGLISH_SENTENCES = {
+            "The dumplings were amazing, definitely coming back next week",
+            "Does anyone know if they take reservations for large groups?",
+            "Service was a bit slow tonight but the food made up for it",
+            "Try the mango pudding, it is not too sweet",
+            "Parking is on level B2, turn left after the elevator",
+    };
+
+    private static final String CJK_CHARS = "的一是不了人我在有他这中大来上国个到说们为子和你地出道也时年得就那要下以生会自着去之过家学对可她里后小么心多天而能好都然没日于起还发成事只作当想看文无开手十用主行方又如前所本见经头面公同三已老从动两长";
+
+    @Test
+    public void testThroughput() {
+        int wordCount = Integer.getInteger("benchmark.words", 5000);
+        int messageCount = Integer.getInteger("benchmark.messages", 20000);
+        Random random = new Random(42);
+
+        List<String> words = generateWords(random, wordCount);
+        List<String> messages = generateMessages(random, messageCount, words);
+        long totalChars = messages.stream().mapToLong(String::length).sum();
+
+        long compileStart = System.nanoTime();
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(words);
+        long compileNanos = System.nanoTime() - compileStart;
+
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            scanAutomaton(matcher, messages);
+            scanContains(words, messages.subList(0, Math.min(messages.size(), 1000)));
+        }
+
+        long automatonStart = System.nanoTime();
+        int automatonHits = scanAutomaton(matcher, messages);
+        long automatonNanos = System.nanoTime() - automatonStart;
+
+        long containsStart = System.nanoTime();
+        int containsHits = scanContains(words, messages);
+        long containsNanos = System.nanoTime() - containsStart;
+
+        System.out.printf(Locale.ROOT, "关键词: %d，自动机状态: %d，编译耗时: %.1f ms%n",
+                words.size(), matcher.getStateCount(), compileNanos / 1e6);
+        System.out.printf(Locale.ROOT, "消息: %d，总字符: %d%n", messages.size(), totalChars);
+        report("Aho-Corasick", automatonNanos, messages.size(), totalChars, automatonHits);
+        report("String.contains", containsNanos, messages.size(), totalChars, containsHits);
+        System.out.printf(Locale.ROOT, "加速比: %.1fx%n", (double) containsNanos / automatonNanos);
+
+        assertEquals(containsHits, automatonHits, "两种方式命中的消息数应一致");
+        assertTrue(automatonNanos < containsNanos, "自动机扫描应快于逐个contains");
+    }
+
+    private int scanAutomaton(AhoCorasickMatcher matcher, List<String> messages) {
+        int hits = 0;
+        for (String message : messages) {
+            if (matcher.containsAny(message)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private int scanContains(List<String> words, List<String> messages) {
+        int hits = 0;
+        for (String message : messages) {
+            String lower = message.toLowerCase(Locale.ROOT);
+            for (String word : words) {
+                if (lower.contains(word)) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private void report(String name, long nanos, int messages, long chars, int hits) {
+        double seconds = nanos / 1e9;
+        System.out.printf(Locale.ROOT, "%-16s %8.1f ms  %10.0f 条/秒  %8.1f 百万字符/秒  平均 %.2f µs/条  命中 %d%n",
+                name, nanos / 1e6, messages / seconds, chars / seconds / 1e6, nanos / 1e3 / messages, hits);
+    }
+
+    /**
+     * 生成关键词：一半是2-4个汉字的词，一半是英文短语
+     */
+    private List<String> generateWords(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                StringBuilder word = new StringBuilder();
+                int length = 2 + random.nextInt(3);
+                for (int j = 0; j < length; j++) {
+                    word.append(CJK_CHARS.charAt(random.nextInt(CJK_CHARS.length())));
+                }
+                words.add(word.toString());
+            } else {
+                words.add(randomLatin(random, 4 + random.nextInt(5)) + " " + randomLatin(random, 3 + random.nextInt(5)));
+            }
+        }
+        return words;
+    }
+
+    /**
+     * 生成聊天消息：中英文句子混合，约1%的消息插入一个关键词
+     */
+    private List<String> generateMessages(Random random, int count, List<String> words) {
+        List<String> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder message = new StringBuilder();
+            int sentences = 1 + random.nextInt(3);
+            for (int j = 0; j < sentences; j++) {
+                if (random.nextInt(4) == 0) {
+                    message.append(ENGLISH_SENTENCES[random.nextInt(ENGLISH_SENTENCES.length)]).append(' ');
+                } else {
+                    message.append(CHINESE_SENTENCES[random.nextInt(CHINESE_SENTENCES.length)]).append('。');
+                }
+            }
+            if (random.nextInt(100) == 0) {
+                message.insert(random.nextInt(message.length()), words.get(random.nextInt(words.size())));
+            }
+            messages.add(message.toString());
+        }
+        return messages;
+    }
+
+    private String randomLatin(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.ljyh.foodieconnect.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 压测延迟直方图
+ * 固定精度的线性分桶，可被多个接收线程无锁并发记录
+ */
+public class LatencyHistogram {
+
+    private final long bucketNanos;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param resolutionMicros 分桶精度（微秒）
+     * @param maxMillis 可分桶的最大延迟（毫秒），超出的样本计入最后一个桶，最大值仍精确记录
+     */
+    public LatencyHistogram(long resolutionMicros, long maxMillis) {
+        this.bucketNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, resolutionMicros));
+        int size = (int) (TimeUnit.MILLISECONDS.toNanos(maxMillis) / bucketNanos) + 1;
+        this.buckets = new AtomicLongArray(size);
+    }
+
+    public void record(long latencyNanos) {
+        long value = Math.max(0, latencyNanos);
+        int index = (int) Math.min(value / bucketNanos, buckets.length() - 1);
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * 获取百分位延迟（纳秒），返回所在桶的上界
+     * @param percentile 0-100
+     */
+    public long percentileNanos(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        rank = Math.max(1, Math.min(rank, total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min((i + 1) * bucketNanos, max.get());
+            }
+        }
+        return max.get();
+    }
+}
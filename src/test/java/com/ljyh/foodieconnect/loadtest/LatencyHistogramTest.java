@@ -0,0 +1,40 @@
+package com.ljyh.foodieconnect.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 压测延迟直方图测试类
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesUseBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram(1000, 1000);
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis) - 1);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), histogram.percentileNanos(50));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(99), histogram.percentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100) - 1, histogram.percentileNanos(100));
+    }
+
+    @Test
+    public void testOverflowKeepsExactMax() {
+        LatencyHistogram histogram = new LatencyHistogram(1000, 10);
+        histogram.record(TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(TimeUnit.SECONDS.toNanos(5), histogram.getMaxNanos());
+        assertEquals(TimeUnit.SECONDS.toNanos(5), histogram.percentileNanos(99));
+    }
+
+    @Test
+    public void testEmptyHistogramReturnsZero() {
+        assertEquals(0, new LatencyHistogram(100, 1000).percentileNanos(99));
+    }
+}
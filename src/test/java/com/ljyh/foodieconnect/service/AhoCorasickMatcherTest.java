@@ -0,0 +1,70 @@
+package com.ljyh.foodieconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AhoCorasickMatcherTest {
+
+    @Test
+    void testFindsOverlappingMatches() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("he", "she", "his", "hers"));
+
+        assertEquals(List.of("1:1-4", "0:2-4", "3:2-6"), matches(matcher, "ushers"));
+    }
+
+    @Test
+    void testMatchesChineseAndMixedText() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("加微信", "微信", "刷单"));
+
+        assertEquals(List.of("0:2-5", "1:3-5", "2:8-10"), matches(matcher, "有事加微信，兼职刷单"));
+        assertFalse(matcher.containsAny("这家店的红烧肉很好吃"));
+    }
+
+    @Test
+    void testNormalizesCaseAndFullWidth() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("Free Bitcoin", "vx123"));
+
+        assertEquals(List.of("0:4-16"), matches(matcher, "get FREE bitcoin now"));
+        assertEquals(List.of("1:1-6"), matches(matcher, "加ＶＸ１２３"));
+    }
+
+    @Test
+    void testFollowsFailureLinksAcrossPartialMatches() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("abcd", "bce", "c"));
+
+        assertEquals(List.of("2:2-3", "1:1-4"), matches(matcher, "abce"));
+    }
+
+    @Test
+    void testStopsWhenHandlerReturnsFalse() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("a"));
+        List<Integer> seen = new ArrayList<>();
+
+        matcher.scan("aaaa", (start, end, pattern) -> {
+            seen.add(start);
+            return seen.size() < 2;
+        });
+
+        assertEquals(List.of(0, 1), seen);
+    }
+
+    @Test
+    void testIgnoresEmptyAndDuplicatePatterns() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("", "abc", "ABC"));
+
+        assertEquals(List.of("1:0-3"), matches(matcher, "abc"));
+    }
+
+    private List<String> matches(AhoCorasickMatcher matcher, String text) {
+        List<String> result = new ArrayList<>();
+        matcher.scan(text, (start, end, pattern) -> {
+            result.add(pattern + ":" + start + "-" + end);
+            return true;
+        });
+        return result;
+    }
+}
@@ -0,0 +1,190 @@
+package com.ljyh.foodieconnect.service;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ljyh.foodieconnect.entity.MenuItem;
+import com.ljyh.foodieconnect.entity.Restaurant;
+import com.ljyh.foodieconnect.mapper.MenuItemMapper;
+import com.ljyh.foodieconnect.mapper.RestaurantMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogSearchIndexTest {
+
+    @Mock
+    private RestaurantMapper restaurantMapper;
+
+    @Mock
+    private MenuItemMapper menuItemMapper;
+
+    private CatalogSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CatalogSearchIndex(restaurantMapper, menuItemMapper, true, 3, 0.5, 4, 0.01);
+    }
+
+    @Test
+    void testNotReadyUntilRebuilt() {
+        when(restaurantMapper.selectList(null)).thenReturn(List.of());
+        when(menuItemMapper.selectList(null)).thenReturn(List.of());
+
+        assertFalse(index.isReady());
+        index.rebuild();
+        assertTrue(index.isReady());
+    }
+
+    @Test
+    void testRestaurantSearchFiltersClosedAndTypeAndRanksByRating() {
+        when(restaurantMapper.selectList(null)).thenReturn(List.of(
+                restaurant(1L, "老王火锅", "川菜", true, "3.0"),
+                restaurant(2L, "小李火锅", "川菜", true, "5.0"),
+                restaurant(3L, "打烊火锅", "川菜", false, "5.0"),
+                restaurant(4L, "海底火锅", "粤菜", true, "4.0")));
+        when(menuItemMapper.selectList(null)).thenReturn(List.of());
+        index.rebuild();
+
+        Page<Restaurant> page = index.searchRestaurants("火锅", "川菜", new Page<>(1, 10));
+
+        assertEquals(2, page.getTotal());
+        assertEquals(List.of(2L, 1L), page.getRecords().stream().map(Restaurant::getId).toList());
+    }
+
+    @Test
+    void testMenuItemRefreshAfterWrite() {
+        when(restaurantMapper.selectList(null)).thenReturn(List.of());
+        when(menuItemMapper.selectList(null)).thenReturn(List.of(menuItem(1L, 10L, "宫保鸡丁", true)));
+        index.rebuild();
+
+        // 下架后全局搜索不再返回，但商家端仍可搜到
+        when(menuItemMapper.selectById(1L)).thenReturn(menuItem(1L, 10L, "宫保鸡丁", false));
+        index.refreshMenuItem(1L);
+        assertTrue(index.searchMenuItems("宫保").isEmpty());
+        assertEquals(1, index.searchMenuItemsOfRestaurant(10L, "宫保").size());
+
+        // 删除后从索引移除
+        when(menuItemMapper.selectById(1L)).thenReturn(null);
+        index.refreshMenuItem(1L);
+        assertTrue(index.searchMenuItemsOfRestaurant(10L, "宫保").isEmpty());
+    }
+
+    @Test
+    void testUpdatesDuringRebuildAreReplayed() {
+        when(restaurantMapper.selectList(null)).thenAnswer(invocation -> {
+            // 重建读取数据库期间有一个新菜品提交
+            index.refreshMenuItem(2L);
+            return List.of();
+        });
+        when(menuItemMapper.selectById(2L)).thenReturn(menuItem(2L, 10L, "水煮鱼", true));
+        when(menuItemMapper.selectList(null)).thenReturn(List.of());
+
+        index.rebuild();
+
+        assertEquals(1, index.searchMenuItems("水煮鱼").size());
+    }
+
+    @Test
+    void testSuggestionsMergeDishNamesAndTrackTypes() {
+        when(restaurantMapper.selectList(null)).thenReturn(List.of(
+                restaurant(1L, "宫廷火锅", "火锅", true, "4.0"),
+                restaurant(2L, "小馆", "火锅", true, "4.0")));
+        when(menuItemMapper.selectList(null)).thenReturn(List.of(
+                menuItem(1L, 1L, "宫保鸡丁", true),
+                menuItem(2L, 2L, "宫保鸡丁", true)));
+        index.rebuild();
+
+        List<PrefixSuggester.Suggestion> suggestions = index.suggest("gb", 10);
+        assertEquals(1, suggestions.size());
+        assertEquals(PrefixSuggester.SuggestionType.DISH, suggestions.get(0).getType());
+        assertEquals(2.0, suggestions.get(0).getPopularity());
+        assertEquals(2, index.suggest("宫", 10).size());
+
+        // 一家餐厅打烊后类型热度减一，餐厅提示移除
+        when(restaurantMapper.selectById(1L)).thenReturn(restaurant(1L, "宫廷火锅", "火锅", false, "4.0"));
+        index.refreshRestaurant(1L);
+        List<PrefixSuggester.Suggestion> types = index.suggest("hg", 10);
+        assertEquals(1, types.size());
+        assertEquals(PrefixSuggester.SuggestionType.TYPE, types.get(0).getType());
+        assertEquals(1.0, types.get(0).getPopularity());
+    }
+
+    @Test
+    void testNearbyAppliesFiltersAndFollowsLocationChanges() {
+        Restaurant near = restaurant(1L, "近处川菜", "川菜", true, "4.5");
+        near.setLatitude(new BigDecimal("31.2310000"));
+        near.setLongitude(new BigDecimal("121.4740000"));
+        Restaurant closed = restaurant(2L, "打烊川菜", "川菜", false, "4.5");
+        closed.setLatitude(new BigDecimal("31.2305000"));
+        closed.setLongitude(new BigDecimal("121.4737000"));
+        Restaurant noLocation = restaurant(3L, "没有位置", "川菜", true, "4.5");
+        when(restaurantMapper.selectList(null)).thenReturn(List.of(near, closed, noLocation));
+        when(menuItemMapper.selectList(null)).thenReturn(List.of());
+        index.rebuild();
+
+        GeoGridIndex.Hits<Restaurant> hits = index.searchNearby(31.2304, 121.4737, 3000,
+                "川菜", true, 4.0, new Page<>(1, 10), true);
+        assertEquals(1, hits.getTotal());
+        assertEquals(1L, hits.getNeighbors().get(0).getDoc().getId());
+
+        // 搬到5公里外后不在3公里范围内
+        Restaurant moved = restaurant(1L, "近处川菜", "川菜", true, "4.5");
+        moved.setLatitude(new BigDecimal("31.2800000"));
+        moved.setLongitude(new BigDecimal("121.4740000"));
+        when(restaurantMapper.selectById(1L)).thenReturn(moved);
+        index.refreshRestaurant(1L);
+        assertEquals(0, index.searchNearby(31.2304, 121.4737, 3000,
+                null, true, null, new Page<>(1, 10), true).getTotal());
+    }
+
+    @Test
+    void testFacetCountsFollowRestaurantWrites() {
+        when(restaurantMapper.selectList(null)).thenReturn(List.of(
+                restaurant(1L, "老王火锅", "川菜", true, "4.6"),
+                restaurant(2L, "小李面馆", "川菜", true, "3.2"),
+                restaurant(3L, "海底火锅", "粤菜", true, "4.1")));
+        when(menuItemMapper.selectList(null)).thenReturn(List.of());
+        index.rebuild();
+
+        Map<String, List<String>> highRated = Map.of(CatalogSearchIndex.FACET_RATING, List.of("4.5-5", "4-4.5"));
+        FacetIndex.Result<Restaurant> result = index.browseRestaurants(highRated, null, new Page<>(1, 10));
+        assertEquals(List.of(1L, 3L), result.getDocs().stream().map(Restaurant::getId).toList());
+        assertEquals(Map.of("川菜", 1, "粤菜", 1), result.getCounts().get(CatalogSearchIndex.FACET_TYPE));
+        assertEquals(Map.of("4.5-5", 1, "4-4.5", 1, "3-3.5", 1), result.getCounts().get(CatalogSearchIndex.FACET_RATING));
+
+        // 评分变化后原地更新位图
+        when(restaurantMapper.selectById(2L)).thenReturn(restaurant(2L, "小李面馆", "川菜", true, "4.8"));
+        index.refreshRestaurant(2L);
+        result = index.browseRestaurants(highRated, null, new Page<>(1, 10));
+        assertEquals(List.of(2L, 1L, 3L), result.getDocs().stream().map(Restaurant::getId).toList());
+        assertEquals(Map.of("川菜", 2, "粤菜", 1), result.getCounts().get(CatalogSearchIndex.FACET_TYPE));
+    }
+
+    private Restaurant restaurant(Long id, String name, String type, boolean open, String rating) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName(name);
+        restaurant.setType(type);
+        restaurant.setIsOpen(open);
+        restaurant.setRating(new BigDecimal(rating));
+        return restaurant;
+    }
+
+    private MenuItem menuItem(Long id, Long restaurantId, String name, boolean available) {
+        MenuItem menuItem = new MenuItem();
+        menuItem.setId(id);
+        menuItem.setRestaurantId(restaurantId);
+        menuItem.setName(name);
+        menuItem.setIsAvailable(available);
+        return menuItem;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.config.ChatContentFilterProperties;
+import com.ljyh.foodieconnect.enums.ContentFilterAction;
+import com.ljyh.foodieconnect.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatContentFilterTest {
+
+    @TempDir
+    Path dir;
+
+    private ChatContentFilterProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatContentFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChatContentFilterProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ChatContentFilter(properties, new DefaultResourceLoader(), meterRegistry);
+    }
+
+    @Test
+    void testMasksMatchedWords() {
+        filter.replaceWords(words("傻逼", ContentFilterAction.MASK, "shit", ContentFilterAction.MASK));
+
+        ChatContentFilter.FilterResult result = filter.filter("你这个傻逼，SHIT happens");
+
+        assertEquals("你这个**，**** happens", result.getContent());
+        assertTrue(result.isMasked());
+        assertFalse(result.isFlagged());
+        assertEquals(1.0, meterRegistry.get("chat.content.filter.hits").tag("action", "mask").counter().count());
+    }
+
+    @Test
+    void testRejectWinsOverMask() {
+        filter.replaceWords(words("傻逼", ContentFilterAction.MASK, "加微信", ContentFilterAction.REJECT));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> filter.filter("傻逼，加微信领红包"));
+
+        assertEquals("CHAT_CONTENT_REJECTED", exception.getCode());
+        assertEquals(1.0, meterRegistry.get("chat.content.filter.hits").tag("action", "reject").counter().count());
+    }
+
+    @Test
+    void testFlagKeepsContent() {
+        filter.replaceWords(words("免费领取", ContentFilterAction.FLAG));
+
+        ChatContentFilter.FilterResult result = filter.filter("今晚到店免费领取甜品");
+
+        assertEquals("今晚到店免费领取甜品", result.getContent());
+        assertEquals(Set.of("免费领取"), result.getFlaggedWords());
+    }
+
+    @Test
+    void testCleanMessageIsReturnedAsIs() {
+        filter.replaceWords(words("傻逼", ContentFilterAction.MASK));
+        String content = "这家店的红烧肉很好吃";
+
+        ChatContentFilter.FilterResult result = filter.filter(content);
+
+        assertSame(content, result.getContent());
+        assertFalse(result.isMasked());
+    }
+
+    @Test
+    void testDisabledFilterPassesThrough() {
+        filter.replaceWords(words("加微信", ContentFilterAction.REJECT));
+        properties.setEnabled(false);
+
+        assertEquals("加微信", filter.filter("加微信").getContent());
+    }
+
+    @Test
+    void testReloadsWordFileWhenModified() throws IOException {
+        Path file = dir.resolve("words.txt");
+        Files.writeString(file, "# 注释\n傻逼\n加微信|REJECT\n免费领取 | flag\n", StandardCharsets.UTF_8);
+        properties.setWordsLocation(file.toUri().toString());
+        filter.init();
+
+        assertEquals("**", filter.filter("傻逼").getContent());
+        assertThrows(BusinessException.class, () -> filter.filter("加微信"));
+        assertTrue(filter.filter("免费领取").isFlagged());
+
+        Files.writeString(file, "好吃|REJECT\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        filter.reloadIfModified();
+
+        assertEquals("傻逼", filter.filter("傻逼").getContent());
+        assertThrows(BusinessException.class, () -> filter.filter("真好吃"));
+    }
+
+    @Test
+    void testFailedReloadKeepsCurrentWords() {
+        filter.replaceWords(words("傻逼", ContentFilterAction.MASK));
+        properties.setWordsLocation(dir.resolve("missing.txt").toUri().toString());
+
+        assertFalse(filter.reload());
+        assertEquals("**", filter.filter("傻逼").getContent());
+    }
+
+    private Map<String, ContentFilterAction> words(Object... pairs) {
+        Map<String, ContentFilterAction> words = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            words.put((String) pairs[i], (ContentFilterAction) pairs[i + 1]);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.enums.MessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatMessageArchiveServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 11, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testArchiveAndReadBack() throws IOException {
+        ChatMessageArchiveService service = new ChatMessageArchiveService(dir.toString(), true);
+        ChatRoomMessage image = message(2L, 1L, DAY);
+        image.setMessageType(MessageType.IMAGE);
+
+        assertEquals(2, service.archive(List.of(image, message(1L, 1L, DAY))));
+
+        CursorPage<ChatRoomMessage> page = service.readArchived(1L, DAY, null, 10);
+        assertEquals(List.of(1L, 2L), ids(page.getRecords()));
+        assertFalse(page.isHasMore());
+        ChatRoomMessage read = page.getRecords().get(1);
+        assertEquals(MessageType.IMAGE, read.getMessageType());
+        assertEquals("content-2", read.getContent());
+        assertEquals("user-100", read.getSenderName());
+        assertEquals(DAY.atTime(10, 0, 2), read.getCreatedAt());
+    }
+
+    @Test
+    void testGroupsByRoomAndDay() throws IOException {
+        ChatMessageArchiveService service = new ChatMessageArchiveService(dir.toString(), true);
+        service.archive(List.of(message(1L, 1L, DAY), message(2L, 2L, DAY), message(3L, 1L, DAY.plusDays(1))));
+
+        assertEquals(List.of(DAY, DAY.plusDays(1)), service.listArchivedDays(1L));
+        assertEquals(List.of(DAY), service.listArchivedDays(2L));
+        assertTrue(service.listArchivedDays(3L).isEmpty());
+        assertEquals(List.of(1L), ids(service.readArchived(1L, DAY, null, 10).getRecords()));
+        assertEquals(List.of(3L), ids(service.readArchived(1L, DAY.plusDays(1), null, 10).getRecords()));
+    }
+
+    @Test
+    void testReArchiveSkipsAlreadyArchivedMessages() throws IOException {
+        ChatMessageArchiveService service = new ChatMessageArchiveService(dir.toString(), true);
+        service.archive(List.of(message(1L, 1L, DAY), message(2L, 1L, DAY)));
+
+        // 删除前中断，下次从断点重新归档同一批
+        assertEquals(1, service.archive(List.of(message(1L, 1L, DAY), message(2L, 1L, DAY), message(3L, 1L, DAY))));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(service.readArchived(1L, DAY, null, 10).getRecords()));
+    }
+
+    @Test
+    void testCursorPagingAcrossBlocks() throws IOException {
+        ChatMessageArchiveService service = new ChatMessageArchiveService(dir.toString(), true);
+        for (long block = 0; block < 3; block++) {
+            List<ChatRoomMessage> messages = new ArrayList<>();
+            for (long i = 1; i <= 4; i++) {
+                messages.add(message(block * 4 + i, 1L, DAY));
+            }
+            service.archive(messages);
+        }
+
+        CursorPage<ChatRoomMessage> first = service.readArchived(1L, DAY, null, 5);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(first.getRecords()));
+        assertTrue(first.isHasMore());
+        assertEquals("5", first.getNextCursor());
+
+        CursorPage<ChatRoomMessage> second = service.readArchived(1L, DAY, 5L, 5);
+        assertEquals(List.of(6L, 7L, 8L, 9L, 10L), ids(second.getRecords()));
+
+        CursorPage<ChatRoomMessage> last = service.readArchived(1L, DAY, 10L, 5);
+        assertEquals(List.of(11L, 12L), ids(last.getRecords()));
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void testTruncatesPartialBlockLeftByInterruptedWrite() throws IOException {
+        ChatMessageArchiveService service = new ChatMessageArchiveService(dir.toString(), true);
+        service.archive(List.of(message(1L, 1L, DAY)));
+
+        // 模拟写入数据块后、写入索引前进程中断
+        Files.write(dir.resolve("1").resolve(DAY + ".seg"), new byte[]{1, 2, 3, 4}, StandardOpenOption.APPEND);
+        service.archive(List.of(message(2L, 1L, DAY)));
+
+        assertEquals(List.of(1L, 2L), ids(service.readArchived(1L, DAY, null, 10).getRecords()));
+    }
+
+    @Test
+    void testReadMissingDayReturnsEmptyPage() throws IOException {
+        ChatMessageArchiveService service = new ChatMessageArchiveService(dir.toString(), true);
+
+        CursorPage<ChatRoomMessage> page = service.readArchived(1L, DAY, null, 10);
+        assertTrue(page.getRecords().isEmpty());
+        assertFalse(page.isHasMore());
+    }
+
+    private ChatRoomMessage message(Long id, Long roomId, LocalDate day) {
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(id);
+        message.setRoomId(roomId);
+        message.setSenderId(100L);
+        message.setSenderName("user-100");
+        message.setContent("content-" + id);
+        message.setMessageType(MessageType.TEXT);
+        message.setCreatedAt(day.atTime(10, 0, (int) (id % 60)));
+        return message;
+    }
+
+    private List<Long> ids(List<ChatRoomMessage> messages) {
+        return messages.stream().map(ChatRoomMessage::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.config.ChatRetentionProperties;
+import com.ljyh.foodieconnect.entity.ChatMessageRetentionCheckpoint;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.mapper.ChatMessageRetentionCheckpointMapper;
+import com.ljyh.foodieconnect.mapper.ChatRoomMessageMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 聊天记录保留服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class ChatMessageRetentionServiceTest {
+
+    @Mock
+    private ChatRoomMessageMapper chatRoomMessageMapper;
+
+    @Mock
+    private ChatMessageRetentionCheckpointMapper checkpointMapper;
+
+    @Mock
+    private ChatRoomHistoryBuffer historyBuffer;
+
+    @Mock
+    private ChatMessageArchiveService archiveService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ChatRetentionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatMessageRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChatRetentionProperties();
+        properties.setChunkSize(2);
+        properties.setMaxRowsPerSecond(0);
+        meterRegistry = new SimpleMeterRegistry();
+        retentionService = new ChatMessageRetentionService(chatRoomMessageMapper, checkpointMapper,
+                historyBuffer, archiveService, jdbcTemplate, properties, meterRegistry);
+    }
+
+    @Test
+    void testDeletesExpiredMessagesInPrimaryKeyChunks() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusDays(3);
+        when(chatRoomMessageMapper.findIdsForRetention(0L, 2)).thenReturn(List.of(message(1L, old), message(2L, old)));
+        when(chatRoomMessageMapper.findIdsForRetention(2L, 2))
+                .thenReturn(List.of(message(3L, old), message(4L, LocalDateTime.now())));
+        when(chatRoomMessageMapper.deleteExpiredInRange(eq(0L), eq(2L), any())).thenReturn(2);
+        when(chatRoomMessageMapper.deleteExpiredInRange(eq(2L), eq(3L), any())).thenReturn(1);
+
+        long deleted = retentionService.runCleanup(1);
+
+        assertEquals(3, deleted);
+        verify(checkpointMapper).insert(any(ChatMessageRetentionCheckpoint.class));
+        verify(chatRoomMessageMapper, never()).findIdsForRetention(eq(3L), anyInt());
+        verify(historyBuffer).clear();
+        assertEquals(3.0, meterRegistry.get("chat.retention.deleted.rows").counter().count());
+        assertEquals(3.0, meterRegistry.get("chat.retention.checkpoint.id").gauge().value());
+    }
+
+    @Test
+    void testArchivesChunkBeforeDeleting() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusDays(3);
+        List<ChatRoomMessage> expired = List.of(message(1L, old));
+        when(archiveService.isEnabled()).thenReturn(true);
+        when(chatRoomMessageMapper.findIdsForRetention(0L, 2)).thenReturn(expired);
+        when(chatRoomMessageMapper.findExpiredInRange(eq(0L), eq(1L), any())).thenReturn(expired);
+        when(archiveService.archive(expired)).thenReturn(1);
+        when(chatRoomMessageMapper.deleteExpiredInRange(eq(0L), eq(1L), any())).thenReturn(1);
+
+        retentionService.runCleanup(1);
+
+        InOrder inOrder = inOrder(archiveService, chatRoomMessageMapper);
+        inOrder.verify(archiveService).archive(expired);
+        inOrder.verify(chatRoomMessageMapper).deleteExpiredInRange(eq(0L), eq(1L), any());
+        assertEquals(1.0, meterRegistry.get("chat.retention.archived.rows").counter().count());
+    }
+
+    @Test
+    void testArchiveFailureKeepsChunk() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusDays(3);
+        List<ChatRoomMessage> expired = List.of(message(1L, old));
+        when(archiveService.isEnabled()).thenReturn(true);
+        when(chatRoomMessageMapper.findIdsForRetention(0L, 2)).thenReturn(expired);
+        when(chatRoomMessageMapper.findExpiredInRange(eq(0L), eq(1L), any())).thenReturn(expired);
+        when(archiveService.archive(expired)).thenThrow(new IOException("磁盘已满"));
+
+        assertThrows(IOException.class, () -> retentionService.runCleanup(1));
+        verify(chatRoomMessageMapper, never()).deleteExpiredInRange(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testResumesFromRunningCheckpoint() throws Exception {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        ChatMessageRetentionCheckpoint checkpoint = new ChatMessageRetentionCheckpoint();
+        checkpoint.setJobName(ChatMessageRetentionService.JOB_NAME);
+        checkpoint.setCutoffTime(cutoff);
+        checkpoint.setLastDeletedId(100L);
+        checkpoint.setDeletedCount(50L);
+        checkpoint.setStatus(ChatMessageRetentionCheckpoint.STATUS_RUNNING);
+        when(checkpointMapper.selectById(ChatMessageRetentionService.JOB_NAME)).thenReturn(checkpoint);
+        when(chatRoomMessageMapper.findIdsForRetention(100L, 2)).thenReturn(List.of(message(101L, cutoff.minusHours(1))));
+        when(chatRoomMessageMapper.deleteExpiredInRange(100L, 101L, cutoff)).thenReturn(1);
+
+        long deleted = retentionService.runCleanup(1);
+
+        assertEquals(51, deleted);
+        verify(checkpointMapper, never()).insert(any(ChatMessageRetentionCheckpoint.class));
+        ArgumentCaptor<ChatMessageRetentionCheckpoint> captor = ArgumentCaptor.forClass(ChatMessageRetentionCheckpoint.class);
+        verify(checkpointMapper, atLeastOnce()).updateById(captor.capture());
+        assertEquals(ChatMessageRetentionCheckpoint.STATUS_COMPLETED, captor.getValue().getStatus());
+        assertEquals(101L, captor.getValue().getLastDeletedId());
+    }
+
+    @Test
+    void testPausesWhileReplicationLagIsHigh() throws Exception {
+        properties.setLagQuery("SELECT lag_seconds FROM heartbeat");
+        properties.setMaxLagSeconds(5);
+        properties.setLagPauseMillis(1);
+        when(jdbcTemplate.queryForObject("SELECT lag_seconds FROM heartbeat", Double.class)).thenReturn(30.0, 1.0);
+        when(chatRoomMessageMapper.findIdsForRetention(0L, 2)).thenReturn(List.of());
+
+        long deleted = retentionService.runCleanup(1);
+
+        assertEquals(0, deleted);
+        assertEquals(1.0, meterRegistry.get("chat.retention.lag.pauses").counter().count());
+        verify(chatRoomMessageMapper, never()).deleteExpiredInRange(anyLong(), anyLong(), any());
+        verify(historyBuffer, never()).clear();
+    }
+
+    private ChatRoomMessage message(Long id, LocalDateTime createdAt) {
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(id);
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.config.ChatRateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.ljyh.foodieconnect.service.PrincipalCache.PrincipalType.MERCHANT;
+import static com.ljyh.foodieconnect.service.PrincipalCache.PrincipalType.USER;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatRateLimiterTest {
+
+    private ChatRateLimitProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChatRateLimitProperties();
+        properties.setTiers(List.of(
+                new ChatRateLimitProperties.Tier(10, 1, 2, 100, 3),
+                new ChatRateLimitProperties.Tier(Integer.MAX_VALUE, 1, 1, 100, 100)));
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new ChatRateLimiter(properties, meterRegistry);
+    }
+
+    @Test
+    void testThrottlesUserAfterBurst() {
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+
+        assertEquals(1000, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        // 其他用户不受影响
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 2L, 0));
+        assertEquals(1.0, throttled("user"));
+    }
+
+    @Test
+    void testUserAndMerchantWithSameIdHaveSeparateBuckets() {
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        assertTrue(rateLimiter.tryAcquire(1L, USER, 1L, 0) > 0);
+
+        // 同ID的商家不受用户限流影响
+        assertEquals(0, rateLimiter.tryAcquire(1L, MERCHANT, 1L, 0));
+    }
+
+    @Test
+    void testThrottlesRoomAndRefundsUserToken() {
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 2L, 0));
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 3L, 0));
+
+        assertTrue(rateLimiter.tryAcquire(1L, USER, 4L, 0) > 0);
+        assertEquals(1.0, throttled("room"));
+
+        // 被聊天室限流的用户令牌已归还，在其他聊天室仍可发送两条
+        assertEquals(0, rateLimiter.tryAcquire(2L, USER, 4L, 0));
+        assertEquals(0, rateLimiter.tryAcquire(2L, USER, 4L, 0));
+    }
+
+    @Test
+    void testLargerRoomUsesStricterTier() {
+        rateLimiter.handleOnlineCountsChanged(new ChatRoomOnlineCounter.OnlineCountsChangedEvent(Map.of(1L, 50)));
+
+        assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        assertTrue(rateLimiter.tryAcquire(1L, USER, 1L, 0) > 0);
+    }
+
+    @Test
+    void testDisabledLimiterAllowsEverything() {
+        properties.setEnabled(false);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(1L, USER, 1L, 0));
+        }
+    }
+
+    private double throttled(String scope) {
+        return meterRegistry.get("chat.ratelimit.throttled").tag("scope", scope).counter().count();
+    }
+}
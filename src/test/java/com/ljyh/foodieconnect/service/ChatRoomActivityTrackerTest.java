@@ -0,0 +1,120 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoomMember;
+import com.ljyh.foodieconnect.mapper.ChatRoomMemberMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatRoomActivityTrackerTest {
+
+    @Mock
+    private ChatRoomMemberMapper chatRoomMemberMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ChatRoomActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ChatRoomActivityTracker(chatRoomMemberMapper, eventPublisher, 5000, 2);
+    }
+
+    @Test
+    void testTypingRefreshIsCoalescedIntoOneBroadcast() {
+        for (int i = 0; i < 10; i++) {
+            tracker.setTyping(1L, 5L, true, 1000 + i);
+        }
+
+        assertEquals(1, tracker.broadcast(2000));
+        assertEquals(List.of(5L), publishedActivity(1L).getTypingUserIds());
+
+        // 输入期间的刷新不再触发广播
+        tracker.setTyping(1L, 5L, true, 3000);
+        assertEquals(0, tracker.broadcast(3000));
+    }
+
+    @Test
+    void testTypingExpiresAndIsBroadcastAsStopped() {
+        tracker.setTyping(1L, 5L, true, 1000);
+        tracker.broadcast(1000);
+
+        assertEquals(1, tracker.broadcast(6000));
+
+        ArgumentCaptor<ChatRoomActivityTracker.RoomActivityEvent> captor =
+                ArgumentCaptor.forClass(ChatRoomActivityTracker.RoomActivityEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertTrue(captor.getValue().getActivities().get(1L).getTypingUserIds().isEmpty());
+    }
+
+    @Test
+    void testReadReceiptsKeepHighWaterMark() {
+        tracker.markRead(1L, 5L, 10);
+        tracker.markRead(1L, 5L, 30);
+        tracker.markRead(1L, 5L, 20);
+        tracker.markRead(1L, 6L, 0);
+
+        tracker.broadcast(1000);
+
+        assertEquals(Map.of(5L, 30L), publishedActivity(1L).getReadMarks());
+    }
+
+    @Test
+    void testReadMarksPersistedInBatches() {
+        tracker.markRead(1L, 5L, 10);
+        tracker.markRead(1L, 6L, 11);
+        tracker.markRead(2L, 5L, 12);
+
+        assertEquals(3, tracker.persistReadMarks());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChatRoomMember>> captor = ArgumentCaptor.forClass(List.class);
+        verify(chatRoomMemberMapper, times(2)).advanceLastReadMessageIds(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+        assertEquals(1, captor.getAllValues().get(1).size());
+
+        assertEquals(0, tracker.persistReadMarks());
+        verify(chatRoomMemberMapper, times(2)).advanceLastReadMessageIds(anyList());
+    }
+
+    @Test
+    void testFailedPersistIsRetried() {
+        tracker.markRead(1L, 5L, 10);
+        doThrow(new RuntimeException("db down")).doReturn(1)
+                .when(chatRoomMemberMapper).advanceLastReadMessageIds(anyList());
+
+        assertEquals(0, tracker.persistReadMarks());
+        assertEquals(1, tracker.persistReadMarks());
+        verify(chatRoomMemberMapper, times(2)).advanceLastReadMessageIds(anyList());
+    }
+
+    @Test
+    void testNothingPublishedWithoutChanges() {
+        assertEquals(0, tracker.broadcast(1000));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private ChatRoomActivityTracker.RoomActivity publishedActivity(Long roomId) {
+        ArgumentCaptor<ChatRoomActivityTracker.RoomActivityEvent> captor =
+                ArgumentCaptor.forClass(ChatRoomActivityTracker.RoomActivityEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return captor.getValue().getActivities().get(roomId);
+    }
+}
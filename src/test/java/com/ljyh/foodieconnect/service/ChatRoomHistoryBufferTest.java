@@ -0,0 +1,95 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatRoomHistoryBufferTest {
+
+    @Test
+    void testBeforeReturnsNullUntilLoaded() {
+        ChatRoomHistoryBuffer buffer = new ChatRoomHistoryBuffer(5);
+        buffer.beginLoad(1L);
+        buffer.append(message(1L));
+
+        assertFalse(buffer.isLoaded(1L));
+        assertNull(buffer.before(1L, null, 10));
+    }
+
+    @Test
+    void testLoadMergesMessagesAppendedDuringLoad() {
+        ChatRoomHistoryBuffer buffer = new ChatRoomHistoryBuffer(5);
+        buffer.beginLoad(1L);
+        buffer.append(message(3L));
+        buffer.load(1L, List.of(message(2L), message(1L)));
+
+        List<ChatRoomMessage> latest = buffer.before(1L, null, 10);
+        assertEquals(List.of(3L, 2L, 1L), ids(latest));
+    }
+
+    @Test
+    void testRingOverwritesOldestAndFallsBackForOlderPages() {
+        ChatRoomHistoryBuffer buffer = new ChatRoomHistoryBuffer(3);
+        buffer.load(1L, new ArrayList<>());
+        for (long id = 1; id <= 5; id++) {
+            buffer.append(message(id));
+        }
+
+        assertEquals(List.of(5L, 4L), ids(buffer.before(1L, null, 2)));
+        assertEquals(List.of(4L, 3L), ids(buffer.before(1L, 5L, 2)));
+        // 3之前的消息已被覆盖，需要回退到数据库
+        assertNull(buffer.before(1L, 3L, 2));
+    }
+
+    @Test
+    void testCompleteRoomAnswersShortPages() {
+        ChatRoomHistoryBuffer buffer = new ChatRoomHistoryBuffer(10);
+        buffer.load(1L, List.of(message(2L), message(1L)));
+
+        assertEquals(List.of(1L), ids(buffer.before(1L, 2L, 5)));
+        assertTrue(buffer.before(1L, 1L, 5).isEmpty());
+    }
+
+    @Test
+    void testAfterReturnsGapInAscendingOrder() {
+        ChatRoomHistoryBuffer buffer = new ChatRoomHistoryBuffer(3);
+        buffer.load(1L, new ArrayList<>());
+        for (long id = 1; id <= 5; id++) {
+            buffer.append(message(id));
+        }
+
+        assertEquals(List.of(4L, 5L), ids(buffer.after(1L, 3L, 10)));
+        assertNull(buffer.after(1L, 1L, 10));
+    }
+
+    @Test
+    void testOutOfOrderAppendIsSorted() {
+        ChatRoomHistoryBuffer buffer = new ChatRoomHistoryBuffer(5);
+        buffer.load(1L, new ArrayList<>());
+        buffer.append(message(2L));
+        buffer.append(message(1L));
+        buffer.append(message(2L));
+
+        assertEquals(List.of(2L, 1L), ids(buffer.before(1L, null, 10)));
+    }
+
+    private ChatRoomMessage message(Long id) {
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(id);
+        message.setRoomId(1L);
+        message.setContent("消息" + id);
+        return message;
+    }
+
+    private List<Long> ids(List<ChatRoomMessage> messages) {
+        List<Long> ids = new ArrayList<>();
+        for (ChatRoomMessage message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.mapper.ChatRoomMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatRoomOnlineCounterTest {
+
+    @Mock
+    private ChatRoomMapper chatRoomMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ChatRoomOnlineCounter counter;
+
+    @Test
+    void testBurstIsCoalescedIntoOneWriteAndOneEvent() {
+        for (int i = 0; i < 20; i++) {
+            counter.adjust(1L, 1);
+        }
+        counter.adjust(1L, -3);
+        counter.adjust(2L, 1);
+        when(chatRoomMapper.findOnlineUserCounts(any())).thenReturn(List.of(room(1L, 17), room(2L, 1)));
+
+        assertEquals(2, counter.flush());
+
+        verify(chatRoomMapper, times(1)).adjustOnlineUserCounts(Map.of(1L, 17, 2L, 1));
+        ArgumentCaptor<ChatRoomOnlineCounter.OnlineCountsChangedEvent> event =
+                ArgumentCaptor.forClass(ChatRoomOnlineCounter.OnlineCountsChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(Map.of(1L, 17, 2L, 1), event.getValue().getOnlineUserCounts());
+    }
+
+    @Test
+    void testCancellingChangesAreNotWritten() {
+        counter.adjust(1L, 1);
+        counter.adjust(1L, -1);
+
+        assertEquals(0, counter.flush());
+
+        verify(chatRoomMapper, never()).adjustOnlineUserCounts(anyMap());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testFailedWriteIsRetriedOnNextFlush() {
+        counter.adjust(1L, 2);
+        when(chatRoomMapper.adjustOnlineUserCounts(anyMap()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(1);
+        when(chatRoomMapper.findOnlineUserCounts(any())).thenReturn(List.of(room(1L, 3)));
+
+        assertEquals(0, counter.flush());
+        counter.adjust(1L, 1);
+        assertEquals(1, counter.flush());
+
+        verify(chatRoomMapper).adjustOnlineUserCounts(Map.of(1L, 3));
+    }
+
+    private ChatRoom room(Long id, int onlineUserCount) {
+        ChatRoom chatRoom = new ChatRoom();
+        chatRoom.setId(id);
+        chatRoom.setOnlineUserCount(onlineUserCount);
+        return chatRoom;
+    }
+}
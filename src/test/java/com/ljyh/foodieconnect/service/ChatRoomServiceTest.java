@@ -1,5 +1,6 @@
 package com.ljyh.foodieconnect.service;
 
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.entity.ChatRoom;
 import com.ljyh.foodieconnect.entity.ChatRoomMember;
 import com.ljyh.foodieconnect.entity.ChatRoomMessage;
@@ -18,10 +19,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +47,21 @@ public class ChatRoomServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ChatRoomHistoryBuffer historyBuffer;
+
+    @Mock
+    private ChatRoomVerificationCodeCache verificationCodeCache;
+
+    @Mock
+    private ChatRoomOnlineCounter onlineCounter;
+
+    @Mock
+    private ChatContentFilter contentFilter;
+
+    @Mock
+    private MerchantFeedAggregator merchantFeed;
+
     @InjectMocks
     private ChatRoomService chatRoomService;
 
@@ -82,7 +105,8 @@ public class ChatRoomServiceTest {
         // 模拟服务调用
         when(chatRoomMemberMapper.findMemberByRoomIdAndUserId(anyLong(), anyLong())).thenReturn(member);
         when(chatRoomMessageMapper.insert(any(ChatRoomMessage.class))).thenReturn(1);
-        when(chatRoomMemberMapper.countOnlineMembers(anyLong())).thenReturn(1);
+        when(contentFilter.filter("测试消息"))
+                .thenReturn(new ChatContentFilter.FilterResult("测试消息", Collections.emptySet(), false));
 
         // 执行测试
         ChatRoomMessage result = chatRoomService.sendMessage(1L, 1L, "测试消息");
@@ -91,6 +115,34 @@ public class ChatRoomServiceTest {
         assertNotNull(result);
         assertEquals("测试消息", result.getContent());
         assertEquals(MessageType.TEXT, result.getMessageType());
+        verify(merchantFeed).recordMessage(result);
+    }
+
+    @Test
+    void testSendMessageStoresMaskedContent() {
+        when(chatRoomMemberMapper.findMemberByRoomIdAndUserId(anyLong(), anyLong())).thenReturn(member);
+        when(contentFilter.filter("你真是个傻逼"))
+                .thenReturn(new ChatContentFilter.FilterResult("你真是个**", Collections.emptySet(), true));
+
+        ChatRoomMessage result = chatRoomService.sendMessage(1L, 1L, "你真是个傻逼");
+
+        assertEquals("你真是个**", result.getContent());
+        verify(chatRoomMessageMapper).insert(result);
+        verify(chatRoomMapper).updateLastMessage(eq(1L), eq("你真是个**"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testSendMessageRejectedByContentFilter() {
+        when(chatRoomMemberMapper.findMemberByRoomIdAndUserId(anyLong(), anyLong())).thenReturn(member);
+        when(contentFilter.filter("加微信领红包"))
+                .thenThrow(new BusinessException("CHAT_CONTENT_REJECTED", "消息包含违规内容"));
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> {
+            chatRoomService.sendMessage(1L, 1L, "加微信领红包");
+        });
+
+        assertEquals("CHAT_CONTENT_REJECTED", exception.getCode());
+        verify(chatRoomMessageMapper, never()).insert(any(ChatRoomMessage.class));
     }
 
     @Test
@@ -128,7 +180,6 @@ public class ChatRoomServiceTest {
         // 模拟服务调用
         when(chatRoomMapper.findByRestaurantId(anyLong())).thenReturn(chatRoom);
         when(chatRoomMemberMapper.isRoomMember(anyLong(), anyLong())).thenReturn(false);
-        when(chatRoomMemberMapper.countOnlineMembers(anyLong())).thenReturn(0);
 
         // 执行测试
         ChatRoom result = chatRoomService.joinRoomByVerificationCode(100L, "123456", 1L);
@@ -136,5 +187,178 @@ public class ChatRoomServiceTest {
         // 验证结果
         assertNotNull(result);
         assertEquals(1L, result.getId());
+        verify(onlineCounter).adjust(1L, 1);
+        verify(chatRoomMapper, never()).updateById(any(ChatRoom.class));
+    }
+
+    @Test
+    void testSetUserOnlineCountsOnlyStateChanges() {
+        when(chatRoomMemberMapper.markOnline(1L, 1L)).thenReturn(1, 0);
+
+        chatRoomService.setUserOnline(1L, 1L);
+        chatRoomService.setUserOnline(1L, 1L);
+
+        // 重复上线不改变在线人数，也不读写聊天室行
+        verify(onlineCounter, times(1)).adjust(1L, 1);
+        verify(merchantFeed, times(1)).recordPresence(1L, 1L, true);
+        verify(chatRoomMapper, never()).selectById(any());
+        verify(chatRoomMapper, never()).updateById(any(ChatRoom.class));
+    }
+
+    @Test
+    void testSetUserOfflineDecrementsOnce() {
+        when(chatRoomMemberMapper.markOffline(1L, 1L)).thenReturn(1, 0);
+
+        chatRoomService.setUserOffline(1L, 1L);
+        chatRoomService.setUserOffline(1L, 1L);
+
+        verify(onlineCounter, times(1)).adjust(1L, -1);
+        verify(merchantFeed, times(1)).recordPresence(1L, 1L, false);
+    }
+
+    @Test
+    void testLeaveRoomByObserverSkipsCounter() {
+        when(chatRoomMemberMapper.isRoomMember(1L, -5L)).thenReturn(false);
+
+        chatRoomService.leaveRoom(1L, -5L);
+
+        verify(chatRoomMemberMapper, never()).markOffline(anyLong(), anyLong());
+        verify(onlineCounter, never()).adjust(anyLong(), anyInt());
+    }
+
+    @Test
+    void testJoinRoomServedFromCacheSkipsRoomLookup() {
+        when(verificationCodeCache.get(100L))
+                .thenReturn(new ChatRoomVerificationCodeCache.CachedCode(1L, "Test Room", ChatSessionStatus.ACTIVE, "123456", LocalDateTime.now()));
+        when(chatRoomMemberMapper.isRoomMember(anyLong(), anyLong())).thenReturn(false);
+
+        ChatRoom result = chatRoomService.joinRoomByVerificationCode(100L, "123456", 1L);
+
+        assertEquals(1L, result.getId());
+        assertEquals(100L, result.getRestaurantId());
+        verify(chatRoomMapper, never()).findByRestaurantId(anyLong());
+        verify(chatRoomMemberMapper).insert(any(ChatRoomMember.class));
+    }
+
+    @Test
+    void testJoinRoomFromCacheRejectsInactiveRoom() {
+        when(verificationCodeCache.get(100L))
+                .thenReturn(new ChatRoomVerificationCodeCache.CachedCode(1L, "Test Room", ChatSessionStatus.CLOSED, "123456", LocalDateTime.now()));
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> {
+            chatRoomService.joinRoomByVerificationCode(100L, "123456", 1L);
+        });
+
+        assertEquals("CHAT_ROOM_INACTIVE", exception.getCode());
+    }
+
+    @Test
+    void testJoinRoomFallsBackToDatabaseWhenCacheIsStale() {
+        // 轮换后缓存写入失败，缓存中仍是旧验证码
+        when(verificationCodeCache.get(100L))
+                .thenReturn(new ChatRoomVerificationCodeCache.CachedCode(1L, "Test Room", ChatSessionStatus.ACTIVE, "654321", LocalDateTime.now()));
+        when(chatRoomMapper.findByRestaurantId(100L)).thenReturn(chatRoom);
+        when(chatRoomMemberMapper.isRoomMember(anyLong(), anyLong())).thenReturn(false);
+
+        ChatRoom result = chatRoomService.joinRoomByVerificationCode(100L, "123456", 1L);
+
+        assertEquals(1L, result.getId());
+    }
+
+    @Test
+    void testJoinRoomRejectsWrongCode() {
+        when(verificationCodeCache.get(100L))
+                .thenReturn(new ChatRoomVerificationCodeCache.CachedCode(1L, "Test Room", ChatSessionStatus.ACTIVE, "123456", LocalDateTime.now()));
+        when(chatRoomMapper.findByRestaurantId(100L)).thenReturn(chatRoom);
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> {
+            chatRoomService.joinRoomByVerificationCode(100L, "000000", 1L);
+        });
+
+        assertEquals("INVALID_VERIFICATION_CODE", exception.getCode());
+        verify(chatRoomMemberMapper, never()).insert(any(ChatRoomMember.class));
+    }
+
+    @Test
+    void testRotateVerificationCodesInBatches() {
+        LocalDateTime rotatedBefore = LocalDateTime.now();
+        when(chatRoomMapper.findRoomsDueForCodeRotation(0L, rotatedBefore, 2)).thenReturn(List.of(room(1L), room(2L)));
+        when(chatRoomMapper.findRoomsDueForCodeRotation(2L, rotatedBefore, 2)).thenReturn(List.of(room(3L)));
+        when(chatRoomMapper.batchUpdateVerificationCodes(any(), any(), eq(rotatedBefore)))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        int rotated = chatRoomService.rotateVerificationCodes(rotatedBefore, 2);
+
+        assertEquals(3, rotated);
+        verify(chatRoomMapper, times(2)).batchUpdateVerificationCodes(any(), any(), eq(rotatedBefore));
+        verify(verificationCodeCache, times(2)).putAll(any());
+        verify(chatRoomMapper, never()).updateById(any(ChatRoom.class));
+    }
+
+    @Test
+    void testRotateVerificationCodesRepublishesRowsRotatedByOtherNode() {
+        LocalDateTime rotatedBefore = LocalDateTime.now();
+        ChatRoom rotatedElsewhere = room(2L);
+        rotatedElsewhere.setVerificationCode("111111");
+        when(chatRoomMapper.findRoomsDueForCodeRotation(0L, rotatedBefore, 10)).thenReturn(List.of(room(1L), room(2L)));
+        when(chatRoomMapper.batchUpdateVerificationCodes(any(), any(), eq(rotatedBefore))).thenReturn(1);
+        when(chatRoomMapper.selectBatchIds(List.of(1L, 2L))).thenReturn(List.of(room(1L), rotatedElsewhere));
+
+        int rotated = chatRoomService.rotateVerificationCodes(rotatedBefore, 10);
+
+        assertEquals(1, rotated);
+        verify(verificationCodeCache).putAll(List.of(room(1L), rotatedElsewhere));
+    }
+
+    @Test
+    void testGetRoomMessagesByCursorFromHistoryBuffer() {
+        ChatRoomMessage newest = message(30L);
+        ChatRoomMessage older = message(20L);
+        when(historyBuffer.isLoaded(1L)).thenReturn(true);
+        when(historyBuffer.before(1L, null, 3)).thenReturn(List.of(newest, older));
+
+        CursorPage<ChatRoomMessage> result = chatRoomService.getRoomMessagesByCursor(1L, null, 2);
+
+        assertEquals(2, result.getRecords().size());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextCursor());
+        verify(chatRoomMessageMapper, never()).findByRoomIdBeforeId(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testGetRoomMessagesByCursorFallsBackToKeysetQuery() {
+        when(historyBuffer.isLoaded(1L)).thenReturn(true);
+        when(historyBuffer.before(1L, 100L, 3)).thenReturn(null);
+        when(chatRoomMessageMapper.findByRoomIdBeforeId(eq(1L), eq(100L), eq(3)))
+                .thenReturn(List.of(message(90L), message(80L), message(70L)));
+
+        CursorPage<ChatRoomMessage> result = chatRoomService.getRoomMessagesByCursor(1L, "100", 2);
+
+        assertEquals(2, result.getRecords().size());
+        assertTrue(result.isHasMore());
+        assertEquals("80", result.getNextCursor());
+    }
+
+    @Test
+    void testGetRoomMessagesByInvalidCursorFailed() {
+        BusinessException exception = assertThrows(BusinessException.class, () ->
+                chatRoomService.getRoomMessagesByCursor(1L, "abc", 20));
+
+        assertEquals("INVALID_CURSOR", exception.getCode());
+    }
+
+    private ChatRoom room(Long id) {
+        ChatRoom room = new ChatRoom();
+        room.setId(id);
+        room.setRestaurantId(100L + id);
+        return room;
+    }
+
+    private ChatRoomMessage message(Long id) {
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(id);
+        message.setRoomId(1L);
+        message.setContent("消息" + id);
+        return message;
     }
 }
@@ -1,6 +1,7 @@
 package com.ljyh.foodieconnect.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ljyh.foodieconnect.dto.CursorPage;
 import com.ljyh.foodieconnect.dto.DishReviewRequest;
 import com.ljyh.foodieconnect.dto.DishReviewResponse;
 import com.ljyh.foodieconnect.dto.DishReviewStatsResponse;
@@ -51,6 +52,9 @@ class DishReviewServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private DishReviewSummaryService dishReviewSummaryService;
+
     @InjectMocks
     private DishReviewServiceImpl dishReviewService;
 
@@ -104,9 +108,8 @@ class DishReviewServiceTest {
             review.setId(1L);
             return 1;
         });
-        when(userMapper.selectById(1L)).thenReturn(testUser);
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
         when(dishReviewMapper.selectById(1L)).thenReturn(testReview);
-        doNothing().when(menuItemService).updateMenuItemRating(1L);
 
         // 执行测试
         DishReviewResponse response = dishReviewService.createReview(1L, testRequest, 1L);
@@ -120,7 +123,9 @@ class DishReviewServiceTest {
         // 验证调用次数
         verify(dishReviewMapper, times(1)).insert(any(DishReview.class));
         verify(dishReviewImageMapper, times(2)).insert(any(DishReviewImage.class));
-        verify(menuItemService, times(1)).updateMenuItemRating(1L);
+        verify(menuItemService, times(1)).applyReviewRating(1L, 5, null);
+        verify(dishReviewSummaryService, times(1)).refreshAfterCommit(1L);
+        verify(menuItemService, never()).updateMenuItemRating(any());
     }
 
     @Test
@@ -187,9 +192,9 @@ class DishReviewServiceTest {
         // 模拟依赖调用
         when(menuItemMapper.selectById(1L)).thenReturn(testMenuItem);
         when(dishReviewMapper.findByMenuItemId(any(Page.class), eq(1L))).thenReturn(page);
-        when(dishReviewMapper.selectById(1L)).thenReturn(testReview);
-        when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(dishReviewImageMapper.selectByDishReviewId(1L)).thenReturn(Arrays.asList());
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
+        when(menuItemMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testMenuItem));
+        when(dishReviewImageMapper.selectByDishReviewIds(anyCollection())).thenReturn(Arrays.asList());
 
         // 执行测试
         Page<DishReviewResponse> response = dishReviewService.getMenuItemReviews(1L, 0, 10, "latest");
@@ -200,6 +205,92 @@ class DishReviewServiceTest {
         assertEquals(1L, response.getRecords().get(0).getId());
     }
 
+    @Test
+    void testGetMenuItemReviewsByCursorContinuesFromLastRecord() {
+        DishReview older = new DishReview();
+        older.setId(2L);
+        older.setMenuItemId(1L);
+        older.setUserId(1L);
+        older.setRating(4);
+        older.setCreatedAt(testReview.getCreatedAt().minusDays(1));
+
+        when(menuItemMapper.selectById(1L)).thenReturn(testMenuItem);
+        when(dishReviewMapper.findByMenuItemIdBefore(1L, null, null, 2)).thenReturn(Arrays.asList(testReview, older));
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
+
+        // 第一页多取一条判断是否还有更多
+        CursorPage<DishReviewResponse> first = dishReviewService.getMenuItemReviewsByCursor(1L, "", 1);
+        assertEquals(1, first.getRecords().size());
+        assertTrue(first.isHasMore());
+        assertNotNull(first.getNextCursor());
+
+        // 第二页从上一页最后一条的创建时间和ID之后继续
+        when(dishReviewMapper.findByMenuItemIdBefore(1L, testReview.getCreatedAt(), 1L, 2))
+                .thenReturn(Arrays.asList(older));
+
+        CursorPage<DishReviewResponse> second = dishReviewService.getMenuItemReviewsByCursor(1L, first.getNextCursor(), 1);
+        assertEquals(2L, second.getRecords().get(0).getId());
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testGetMenuItemReviewsByInvalidCursorFailed() {
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> dishReviewService.getMenuItemReviewsByCursor(1L, "not-a-cursor", 10));
+        assertEquals("INVALID_CURSOR", exception.getCode());
+    }
+
+    @Test
+    void testGetMenuItemReviewsBatchesHydration() {
+        DishReview second = new DishReview();
+        second.setId(2L);
+        second.setMenuItemId(1L);
+        second.setUserId(2L);
+        second.setRating(3);
+        User secondUser = new User();
+        secondUser.setId(2L);
+        secondUser.setDisplayName("另一个用户");
+        DishReviewImage image = new DishReviewImage();
+        image.setDishReviewId(2L);
+        image.setImageUrl("/uploads/review2.jpg");
+
+        Page<DishReview> page = new Page<>(0, 10, 2);
+        page.setRecords(Arrays.asList(testReview, second));
+        when(menuItemMapper.selectById(1L)).thenReturn(testMenuItem);
+        when(dishReviewMapper.findByMenuItemId(any(Page.class), eq(1L))).thenReturn(page);
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(secondUser, testUser));
+        when(menuItemMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testMenuItem));
+        when(dishReviewImageMapper.selectByDishReviewIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(image));
+
+        Page<DishReviewResponse> response = dishReviewService.getMenuItemReviews(1L, 0, 10, "latest");
+
+        assertEquals(Arrays.asList(1L, 2L), response.getRecords().stream().map(DishReviewResponse::getId).toList());
+        assertEquals("测试用户", response.getRecords().get(0).getUserName());
+        assertEquals("另一个用户", response.getRecords().get(1).getUserName());
+        assertTrue(response.getRecords().get(0).getImages().isEmpty());
+        assertEquals(Arrays.asList("/uploads/review2.jpg"), response.getRecords().get(1).getImages());
+        // 每种关联数据只查询一次
+        verify(userMapper, times(1)).selectBatchIds(anyCollection());
+        verify(dishReviewImageMapper, times(1)).selectByDishReviewIds(anyCollection());
+        verify(dishReviewMapper, never()).selectById(any());
+        verify(userMapper, never()).selectById(any());
+    }
+
+    @Test
+    void testGetUserReviewsFiltersInQuery() {
+        Page<DishReview> page = new Page<>(0, 20, 1);
+        page.setRecords(Arrays.asList(testReview));
+        when(dishReviewMapper.findByUserId(any(Page.class), eq(1L), eq(1L), eq(1L))).thenReturn(page);
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
+
+        Page<DishReviewResponse> response = dishReviewService.getUserReviews(1L, 1L, 0, 20, 1L);
+
+        assertEquals(1, response.getTotal());
+        assertEquals(1L, response.getRecords().get(0).getId());
+        verify(dishReviewMapper, never()).selectById(any());
+    }
+
     @Test
     void testGetMenuItemReviewsMenuItemNotFound() {
         // 模拟菜品不存在
@@ -221,9 +312,7 @@ class DishReviewServiceTest {
 
         // 模拟依赖调用
         when(dishReviewMapper.selectById(1L)).thenReturn(testReview);
-        when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(dishReviewImageMapper.selectByDishReviewId(1L)).thenReturn(Arrays.asList());
-        doNothing().when(menuItemService).updateMenuItemRating(1L);
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
 
         // 执行测试
         DishReviewResponse response = dishReviewService.updateReview(1L, updateRequest, 1L);
@@ -231,7 +320,23 @@ class DishReviewServiceTest {
         // 验证结果
         assertNotNull(response);
         verify(dishReviewMapper, times(1)).updateById(any(DishReview.class));
-        verify(menuItemService, times(1)).updateMenuItemRating(1L);
+        // 5星改为4星：移出旧评分，计入新评分
+        verify(menuItemService, times(1)).applyReviewRating(1L, 4, 5);
+    }
+
+    @Test
+    void testUpdateReviewSameRatingSkipsAggregate() {
+        DishReviewRequest updateRequest = new DishReviewRequest();
+        updateRequest.setRating(5);
+        updateRequest.setComment("依然很好吃");
+
+        when(dishReviewMapper.selectById(1L)).thenReturn(testReview);
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
+
+        dishReviewService.updateReview(1L, updateRequest, 1L);
+
+        verify(dishReviewMapper, times(1)).updateById(any(DishReview.class));
+        verifyNoInteractions(menuItemService, dishReviewSummaryService);
     }
 
     @Test
@@ -265,14 +370,14 @@ class DishReviewServiceTest {
     void testDeleteReviewSuccess() {
         // 模拟依赖调用
         when(dishReviewMapper.selectById(1L)).thenReturn(testReview);
-        doNothing().when(menuItemService).updateMenuItemRating(1L);
 
         // 执行测试
         dishReviewService.deleteReview(1L, 1L);
 
         // 验证调用
         verify(dishReviewMapper, times(1)).deleteById(1L);
-        verify(menuItemService, times(1)).updateMenuItemRating(1L);
+        verify(menuItemService, times(1)).applyReviewRating(1L, null, 5);
+        verify(dishReviewSummaryService, times(1)).refreshAfterCommit(1L);
     }
 
     @Test
@@ -330,36 +435,30 @@ class DishReviewServiceTest {
 
     @Test
     void testGetReviewStatsSuccess() {
-        // 准备评分分布数据
-        List<DishReviewMapper.RatingDistribution> distributions = Arrays.asList(
-                createRatingDistribution(5, 50),
-                createRatingDistribution(4, 25),
-                createRatingDistribution(3, 15),
-                createRatingDistribution(2, 5),
-                createRatingDistribution(1, 5)
-        );
+        // 菜品行上维护的评分聚合：5星50条、4星25条、3星15条、2星5条、1星5条
+        MenuItemMapper.RatingSummary summary = createRatingSummary(100, 410, 5, 5, 15, 25, 50);
 
         // 模拟依赖调用
-        when(menuItemMapper.selectById(1L)).thenReturn(testMenuItem);
-        when(dishReviewMapper.calculateAverageRating(1L)).thenReturn(4.3);
-        when(dishReviewMapper.countByMenuItemId(1L)).thenReturn(100);
-        when(dishReviewMapper.getRatingDistribution(1L)).thenReturn(distributions);
+        when(menuItemMapper.findRatingSummary(1L)).thenReturn(summary);
 
         // 执行测试
         DishReviewStatsResponse stats = dishReviewService.getReviewStats(1L);
 
         // 验证结果
         assertNotNull(stats);
-        assertEquals(BigDecimal.valueOf(4.3), stats.getAverageRating());
+        assertEquals(BigDecimal.valueOf(4.1), stats.getAverageRating());
         assertEquals(100, stats.getTotalReviews());
         assertEquals(50, stats.getRatingDistribution().get(5));
         assertEquals(25, stats.getRatingDistribution().get(4));
+        assertEquals(5, stats.getRatingDistribution().get(1));
+        // 不再对评价表做聚合查询
+        verifyNoInteractions(dishReviewMapper);
     }
 
     @Test
     void testGetReviewStatsMenuItemNotFound() {
         // 模拟菜品不存在
-        when(menuItemMapper.selectById(999L)).thenReturn(null);
+        when(menuItemMapper.findRatingSummary(999L)).thenReturn(null);
 
         // 执行测试并验证异常
         BusinessException exception = assertThrows(BusinessException.class,
@@ -370,10 +469,7 @@ class DishReviewServiceTest {
     @Test
     void testGetReviewStatsNoReviews() {
         // 模拟没有评价
-        when(menuItemMapper.selectById(1L)).thenReturn(testMenuItem);
-        when(dishReviewMapper.calculateAverageRating(1L)).thenReturn(null);
-        when(dishReviewMapper.countByMenuItemId(1L)).thenReturn(0);
-        when(dishReviewMapper.getRatingDistribution(1L)).thenReturn(Arrays.asList());
+        when(menuItemMapper.findRatingSummary(1L)).thenReturn(createRatingSummary(0, 0, 0, 0, 0, 0, 0));
 
         // 执行测试
         DishReviewStatsResponse stats = dishReviewService.getReviewStats(1L);
@@ -382,15 +478,16 @@ class DishReviewServiceTest {
         assertNotNull(stats);
         assertEquals(BigDecimal.ZERO, stats.getAverageRating());
         assertEquals(0, stats.getTotalReviews());
+        assertEquals(0, stats.getRatingDistribution().get(3));
     }
 
     @Test
     void testGetReviewByIdSuccess() {
         // 模拟依赖调用
         when(dishReviewMapper.selectById(1L)).thenReturn(testReview);
-        when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(menuItemMapper.selectById(1L)).thenReturn(testMenuItem);
-        when(dishReviewImageMapper.selectByDishReviewId(1L)).thenReturn(Arrays.asList());
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testUser));
+        when(menuItemMapper.selectBatchIds(anyCollection())).thenReturn(Arrays.asList(testMenuItem));
+        when(dishReviewImageMapper.selectByDishReviewIds(anyCollection())).thenReturn(Arrays.asList());
 
         // 执行测试
         DishReviewResponse response = dishReviewService.getReviewById(1L);
@@ -398,6 +495,8 @@ class DishReviewServiceTest {
         // 验证结果
         assertNotNull(response);
         assertEquals(1L, response.getId());
+        assertEquals("测试用户", response.getUserName());
+        assertEquals("宫保鸡丁", response.getItemName());
     }
 
     @Test
@@ -412,64 +511,31 @@ class DishReviewServiceTest {
     }
 
     @Test
-    void testGetMerchantReviewOverviewSuccess() {
-        // 准备统计数据
-        List<DishReviewMapper.ItemReviewStats> itemStats = Arrays.asList(
-                createItemReviewStats(1L, "宫保鸡丁", 4.8, 50),
-                createItemReviewStats(2L, "鱼香肉丝", 4.5, 30),
-                createItemReviewStats(3L, "水煮鱼", 2.3, 10)
-        );
-
-        // 模拟依赖调用
-        when(dishReviewMapper.getItemReviewStats(1L)).thenReturn(itemStats);
+    void testGetMerchantReviewOverviewReadsSummary() {
+        Map<String, Object> overview = new HashMap<>();
+        overview.put("totalReviews", 90);
+        when(dishReviewSummaryService.getOverview(1L)).thenReturn(overview);
 
         // 执行测试
-        Map<String, Object> overview = dishReviewService.getMerchantReviewOverview(1L);
+        Map<String, Object> result = dishReviewService.getMerchantReviewOverview(1L);
 
         // 验证结果
-        assertNotNull(overview);
-        assertEquals(90, overview.get("totalReviews"));
-        assertTrue(((Double) overview.get("averageRating")) > 0);
-
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> topRatedItems = (List<Map<String, Object>>) overview.get("topRatedItems");
-        assertNotNull(topRatedItems);
-        assertTrue(topRatedItems.size() > 0);
-
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> lowRatedItems = (List<Map<String, Object>>) overview.get("lowRatedItems");
-        assertNotNull(lowRatedItems);
-        assertTrue(lowRatedItems.size() > 0);
-    }
-
-    @Test
-    void testGetMerchantReviewOverviewNoReviews() {
-        // 模拟没有评价
-        when(dishReviewMapper.getItemReviewStats(1L)).thenReturn(Arrays.asList());
-
-        // 执行测试
-        Map<String, Object> overview = dishReviewService.getMerchantReviewOverview(1L);
-
-        // 验证结果
-        assertNotNull(overview);
-        assertEquals(0, overview.get("totalReviews"));
-        assertEquals(0.0, overview.get("averageRating"));
+        assertSame(overview, result);
+        verifyNoInteractions(dishReviewMapper);
     }
 
     // 辅助方法
-    private DishReviewMapper.RatingDistribution createRatingDistribution(int rating, int count) {
-        DishReviewMapper.RatingDistribution rd = new DishReviewMapper.RatingDistribution();
-        rd.setRating(rating);
-        rd.setCount(count);
-        return rd;
-    }
-
-    private DishReviewMapper.ItemReviewStats createItemReviewStats(Long id, String name, Double rating, int count) {
-        DishReviewMapper.ItemReviewStats stats = new DishReviewMapper.ItemReviewStats();
-        stats.setMenuItemId(id);
-        stats.setItemName(name);
-        stats.setAverageRating(rating);
-        stats.setReviewCount(count);
-        return stats;
+    private MenuItemMapper.RatingSummary createRatingSummary(int count, int sum, int r1, int r2, int r3, int r4, int r5) {
+        MenuItemMapper.RatingSummary summary = new MenuItemMapper.RatingSummary();
+        summary.setId(1L);
+        summary.setRestaurantId(1L);
+        summary.setReviewCount(count);
+        summary.setRatingSum(sum);
+        summary.setRating1(r1);
+        summary.setRating2(r2);
+        summary.setRating3(r3);
+        summary.setRating4(r4);
+        summary.setRating5(r5);
+        return summary;
     }
 }
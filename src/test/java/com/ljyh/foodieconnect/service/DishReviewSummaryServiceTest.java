@@ -0,0 +1,121 @@
+package com.ljyh.foodieconnect.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ljyh.foodieconnect.entity.DishReviewSummary;
+import com.ljyh.foodieconnect.mapper.DishReviewSummaryMapper;
+import com.ljyh.foodieconnect.mapper.MenuItemMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 餐厅菜品评价汇总服务测试类
+ */
+class DishReviewSummaryServiceTest {
+
+    @Mock
+    private DishReviewSummaryMapper summaryMapper;
+
+    @Mock
+    private MenuItemMapper menuItemMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DishReviewSummaryService summaryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        summaryService = new DishReviewSummaryService(summaryMapper, menuItemMapper, new ObjectMapper(), transactionManager);
+    }
+
+    @Test
+    void testRefreshBuildsTotalsAndRankedLists() {
+        // 按平均分降序返回
+        when(menuItemMapper.findRatingSummariesByRestaurantId(1L)).thenReturn(List.of(
+                item(1L, "宫保鸡丁", 50, 240),
+                item(2L, "鱼香肉丝", 30, 135),
+                item(3L, "麻婆豆腐", 2, 10),
+                item(4L, "水煮鱼", 10, 23),
+                item(5L, "酸菜鱼", 4, 5)));
+
+        summaryService.refresh(1L);
+
+        // 先锁汇总行再读取菜品聚合
+        InOrder inOrder = inOrder(summaryMapper, menuItemMapper);
+        inOrder.verify(summaryMapper).lockOrCreate(1L);
+        inOrder.verify(menuItemMapper).findRatingSummariesByRestaurantId(1L);
+        ArgumentCaptor<DishReviewSummary> captor = ArgumentCaptor.forClass(DishReviewSummary.class);
+        inOrder.verify(summaryMapper).updateById(captor.capture());
+        verify(transactionManager).commit(any());
+
+        DishReviewSummary summary = captor.getValue();
+        assertEquals(96, summary.getTotalReviews());
+        assertEquals(413, summary.getRatingSum());
+
+        // 读取时直接使用保存的结果
+        when(summaryMapper.selectById(1L)).thenReturn(summary);
+        Map<String, Object> overview = summaryService.getOverview(1L);
+
+        assertEquals(96, overview.get("totalReviews"));
+        assertEquals(413.0 / 96, (Double) overview.get("averageRating"), 1e-9);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> topRatedItems = (List<Map<String, Object>>) overview.get("topRatedItems");
+        assertEquals(List.of("宫保鸡丁", "鱼香肉丝"), topRatedItems.stream().map(item -> item.get("itemName")).toList());
+        assertEquals(50, topRatedItems.get(0).get("reviewCount"));
+        // 评价数不足3条的菜品不进入列表，差评按评分升序
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> lowRatedItems = (List<Map<String, Object>>) overview.get("lowRatedItems");
+        assertEquals(List.of("酸菜鱼", "水煮鱼"), lowRatedItems.stream().map(item -> item.get("itemName")).toList());
+        verify(menuItemMapper, times(1)).findRatingSummariesByRestaurantId(1L);
+    }
+
+    @Test
+    void testGetOverviewBuildsMissingSummary() {
+        when(summaryMapper.selectById(1L)).thenReturn(null);
+        when(menuItemMapper.findRatingSummariesByRestaurantId(1L)).thenReturn(List.of());
+
+        Map<String, Object> overview = summaryService.getOverview(1L);
+
+        assertEquals(0, overview.get("totalReviews"));
+        assertEquals(0.0, overview.get("averageRating"));
+        assertEquals(List.of(), overview.get("topRatedItems"));
+        assertEquals(List.of(), overview.get("lowRatedItems"));
+        verify(summaryMapper).lockOrCreate(1L);
+        verify(summaryMapper).updateById(any(DishReviewSummary.class));
+    }
+
+    @Test
+    void testRefreshAfterCommitWithoutTransactionRefreshesImmediately() {
+        when(menuItemMapper.findRatingSummariesByRestaurantId(1L)).thenThrow(new IllegalStateException("db down"));
+
+        // 重建失败不影响调用方
+        assertDoesNotThrow(() -> summaryService.refreshAfterCommit(1L));
+        verify(summaryMapper).lockOrCreate(1L);
+
+        summaryService.refreshAfterCommit(null);
+        verifyNoMoreInteractions(summaryMapper);
+    }
+
+    private MenuItemMapper.RatingSummary item(Long id, String name, int reviewCount, int ratingSum) {
+        MenuItemMapper.RatingSummary item = new MenuItemMapper.RatingSummary();
+        item.setId(id);
+        item.setRestaurantId(1L);
+        item.setName(name);
+        item.setReviewCount(reviewCount);
+        item.setRatingSum(ratingSum);
+        return item;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ljyh.foodieconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetIndexTest {
+
+    private static final Map<String, Function<String[], String>> FACETS = new LinkedHashMap<>();
+
+    static {
+        FACETS.put("type", doc -> doc[1]);
+        FACETS.put("open", doc -> doc[2]);
+    }
+
+    private FacetIndex<String[]> newIndex() {
+        FacetIndex<String[]> index = new FacetIndex<>(FACETS, Comparator.comparing((String[] doc) -> doc[0]));
+        index.put(1, new String[]{"a", "川菜", "true"});
+        index.put(2, new String[]{"b", "川菜", "false"});
+        index.put(3, new String[]{"c", "粤菜", "true"});
+        index.put(4, new String[]{"d", "湘菜", "true"});
+        return index;
+    }
+
+    @Test
+    void testSelectionsIntersectAcrossFacetsAndUnionWithin() {
+        FacetIndex<String[]> index = newIndex();
+
+        FacetIndex.Result<String[]> result = index.search(
+                Map.of("type", List.of("川菜", "粤菜"), "open", List.of("true")), null, 0, 10);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of("a", "c"), names(result));
+    }
+
+    @Test
+    void testCountsIgnoreOwnFacetSelection() {
+        FacetIndex<String[]> index = newIndex();
+
+        FacetIndex.Result<String[]> result = index.search(
+                Map.of("type", List.of("川菜"), "open", List.of("true")), null, 0, 10);
+
+        // 类型计数只受营业状态筛选影响，营业状态计数只受类型筛选影响
+        assertEquals(Map.of("川菜", 1, "粤菜", 1, "湘菜", 1), result.getCounts().get("type"));
+        assertEquals(Map.of("true", 1, "false", 1), result.getCounts().get("open"));
+    }
+
+    @Test
+    void testUpdateRemoveAndSlotReuse() {
+        FacetIndex<String[]> index = newIndex();
+        index.put(2, new String[]{"b", "粤菜", "true"});
+        index.remove(4);
+        index.put(5, new String[]{"e", "湘菜", "false"});
+
+        FacetIndex.Result<String[]> result = index.search(Map.of("open", List.of("true")), null, 0, 10);
+        assertEquals(List.of("a", "b", "c"), names(result));
+        assertEquals(Map.of("川菜", 1, "粤菜", 2), result.getCounts().get("type"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testFilterAndPagination() {
+        FacetIndex<String[]> index = newIndex();
+
+        FacetIndex.Result<String[]> result = index.search(Map.of(), doc -> !doc[0].equals("a"), 1, 1);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(List.of("c"), names(result));
+        assertEquals(Map.of("川菜", 1, "粤菜", 1, "湘菜", 1), result.getCounts().get("type"));
+    }
+
+    @Test
+    void testUnknownFacetRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> newIndex().search(Map.of("city", List.of("上海")), null, 0, 10));
+    }
+
+    private List<String> names(FacetIndex.Result<String[]> result) {
+        return result.getDocs().stream().map(doc -> doc[0]).toList();
+    }
+}
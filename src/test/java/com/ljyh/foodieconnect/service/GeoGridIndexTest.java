@@ -0,0 +1,94 @@
+package com.ljyh.foodieconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeoGridIndexTest {
+
+    private static final double LATITUDE = 31.2304;
+    private static final double LONGITUDE = 121.4737;
+
+    @Test
+    void testNearbyOrdersByDistanceWithinRadius() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.01);
+        index.put(1, "近", LATITUDE + 0.001, LONGITUDE);
+        index.put(2, "中", LATITUDE, LONGITUDE + 0.02);
+        index.put(3, "远", LATITUDE + 0.2, LONGITUDE);
+
+        GeoGridIndex.Hits<String> hits = index.nearby(LATITUDE, LONGITUDE, 5000, null, 0, 10, true);
+
+        assertEquals(2, hits.getTotal());
+        assertEquals(List.of("近", "中"), docs(hits));
+        assertEquals(111, hits.getNeighbors().get(0).getDistanceMeters(), 1);
+    }
+
+    @Test
+    void testFilterAndPagination() {
+        GeoGridIndex<Integer> index = new GeoGridIndex<>(0.01);
+        for (int i = 1; i <= 10; i++) {
+            index.put(i, i, LATITUDE + i * 0.003, LONGITUDE);
+        }
+
+        GeoGridIndex.Hits<Integer> hits = index.nearby(LATITUDE, LONGITUDE, 10000, doc -> doc % 2 == 0, 1, 2, true);
+
+        assertEquals(5, hits.getTotal());
+        assertEquals(List.of(4, 6), docs(hits));
+    }
+
+    @Test
+    void testUpdateMovesEntryAndRemoveDeletes() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.01);
+        index.put(1, "v1", LATITUDE, LONGITUDE);
+        index.put(1, "v2", LATITUDE + 1, LONGITUDE);
+
+        assertEquals(0, index.nearby(LATITUDE, LONGITUDE, 5000, null, 0, 10, true).getTotal());
+        assertEquals(List.of("v2"), docs(index.nearby(LATITUDE + 1, LONGITUDE, 5000, null, 0, 10, true)));
+        assertEquals(1, index.size());
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testNearestMatchesBruteForce() {
+        GeoGridIndex<double[]> index = new GeoGridIndex<>(0.01);
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            double[] point = {LATITUDE + (random.nextDouble() - 0.5) * 0.4, LONGITUDE + (random.nextDouble() - 0.5) * 0.4};
+            points.add(point);
+            index.put(i, point, point[0], point[1]);
+        }
+
+        List<double[]> expected = points.stream()
+                .sorted(Comparator.comparingDouble(
+                        p -> GeoGridIndex.distanceMeters(LATITUDE, LONGITUDE, p[0], p[1])))
+                .limit(15)
+                .collect(Collectors.toList());
+        GeoGridIndex.Hits<double[]> hits = index.nearby(LATITUDE, LONGITUDE, 50000, null, 5, 10, false);
+
+        assertEquals(15, hits.getTotal());
+        assertEquals(expected.subList(5, 15), docs(hits));
+    }
+
+    @Test
+    void testWrapsAroundAntimeridian() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.01);
+        index.put(1, "东", 0, 179.999);
+        index.put(2, "西", 0, -179.999);
+
+        assertEquals(List.of("东", "西"), docs(index.nearby(0, 179.9995, 1000, null, 0, 10, true)));
+    }
+
+    private <T> List<T> docs(GeoGridIndex.Hits<T> hits) {
+        return hits.getNeighbors().stream().map(GeoGridIndex.Neighbor::getDoc).collect(Collectors.toList());
+    }
+}
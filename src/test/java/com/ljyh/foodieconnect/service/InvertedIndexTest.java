@@ -0,0 +1,106 @@
+package com.ljyh.foodieconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvertedIndexTest {
+
+    @Test
+    void testTokenizerSplitsCjkIntoBigramsAndLatinIntoWords() {
+        assertEquals(List.of("宫", "保", "鸡", "丁", "宫保", "保鸡", "鸡丁", "kfc", "pizza", "2"),
+                SearchTokenizer.indexTerms("宫保鸡丁 KFC，Ｐｉｚｚａ-2"));
+        assertEquals(List.of("宫保", "保鸡", "鸡丁", "鸡"), SearchTokenizer.queryTerms("宫保鸡丁 鸡"));
+    }
+
+    @Test
+    void testAllQueryTermsMustMatch() {
+        InvertedIndex<String> index = new InvertedIndex<>(3);
+        index.put(1, "宫保鸡丁", "宫保鸡丁", "经典川菜");
+        index.put(2, "辣子鸡", "辣子鸡", "重庆风味");
+        index.put(3, "鸡肉披萨", "Chicken Pizza", "鸡肉披萨");
+
+        assertEquals(List.of("宫保鸡丁"), index.search("宫保鸡", null, null, 0, 10).getDocs());
+        assertEquals(3, index.search("鸡", null, null, 0, 10).getTotal());
+        assertEquals(List.of("鸡肉披萨"), index.search("piz 鸡肉", null, null, 0, 10).getDocs());
+        assertEquals(0, index.search("宫保 披萨", null, null, 0, 10).getTotal());
+    }
+
+    @Test
+    void testNameMatchesOutrankDescriptionMatchesAndBoostApplies() {
+        InvertedIndex<String> index = new InvertedIndex<>(3);
+        index.put(1, "描述提到火锅", "川味小馆", "也有火锅");
+        index.put(2, "名称是火锅", "老火锅", "");
+        assertEquals(List.of("名称是火锅", "描述提到火锅"), index.search("火锅", null, null, 0, 10).getDocs());
+
+        List<String> boosted = index.search("火锅", null, doc -> doc.startsWith("描述") ? 100 : 1, 0, 10).getDocs();
+        assertEquals("描述提到火锅", boosted.get(0));
+    }
+
+    @Test
+    void testFilterAndPagination() {
+        InvertedIndex<Integer> index = new InvertedIndex<>(1);
+        for (int i = 1; i <= 10; i++) {
+            index.put(i, i, "面馆" + i, null);
+        }
+
+        InvertedIndex.Hits<Integer> hits = index.search("面馆", doc -> doc % 2 == 0, null, 2, 2);
+        assertEquals(5, hits.getTotal());
+        assertEquals(2, hits.getDocs().size());
+        assertTrue(hits.getDocs().stream().allMatch(doc -> doc % 2 == 0));
+    }
+
+    @Test
+    void testUpdateAndRemoveReplacePostings() {
+        InvertedIndex<String> index = new InvertedIndex<>(3);
+        index.put(1, "v1", "牛肉面", "");
+        index.put(1, "v2", "羊肉粉", "");
+
+        assertEquals(0, index.search("牛肉", null, null, 0, 10).getTotal());
+        assertEquals(List.of("v2"), index.search("羊肉", null, null, 0, 10).getDocs());
+        assertEquals(1, index.size());
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertEquals(0, index.search("羊肉", null, null, 0, 10).getTotal());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testPrefixExpansionMergesPostingsOnce() {
+        InvertedIndex<String> index = new InvertedIndex<>(1);
+        index.put(1, "both", "pizza pasta", "");
+        index.put(2, "pizza", "pizza", "");
+        index.put(3, "pasta", "pasta 面", "");
+        index.put(4, "other", "noodle 面", "");
+
+        // 同一文档命中多个展开词项只计一次
+        assertEquals(3, index.search("p", null, null, 0, 10).getTotal());
+        assertEquals(List.of("both"), index.search("pi pa", null, null, 0, 10).getDocs());
+        assertEquals(List.of("pasta"), index.search("p 面", null, null, 0, 10).getDocs());
+        assertEquals("both", index.search("p", null, null, 0, 10).getDocs().get(0));
+    }
+
+    @Test
+    void testSearchReturnsCopies() {
+        InvertedIndex<StringBuilder> index = new InvertedIndex<>(1, doc -> new StringBuilder(doc));
+        index.put(1, new StringBuilder("原始"), "火锅", "");
+
+        index.search("火锅", null, null, 0, 10).getDocs().get(0).append("被修改");
+
+        assertEquals("原始", index.search("火锅", null, null, 0, 10).getDocs().get(0).toString());
+    }
+
+    @Test
+    void testAdvanceFindsFirstNotLess() {
+        int[] sorted = {1, 3, 5, 7, 9, 11, 13};
+
+        assertEquals(0, InvertedIndex.advance(sorted, 0, 0));
+        assertEquals(1, InvertedIndex.advance(sorted, 0, 2));
+        assertEquals(4, InvertedIndex.advance(sorted, 0, 8));
+        assertEquals(6, InvertedIndex.advance(sorted, 2, 13));
+        assertEquals(7, InvertedIndex.advance(sorted, 0, 14));
+    }
+}
@@ -0,0 +1,90 @@
+package com.ljyh.foodieconnect.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtClaimsCacheTest {
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    @Test
+    void testRepeatedTokenSkipsVerification() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, 0);
+        Function<String, Claims> verifier = verifierExpiringAt(10_000);
+
+        Claims first = cache.get("token-a", verifier, 1_000);
+        Claims second = cache.get("token-a", verifier, 2_000);
+
+        assertSame(first, second);
+        assertEquals(1, verifications.get());
+    }
+
+    @Test
+    void testEntryExpiresWithTokenIncludingClockSkew() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, 500);
+        cache.get("token-a", verifierExpiringAt(10_000), 1_000);
+
+        cache.get("token-a", token -> fail("还在允许的时钟偏差内"), 10_400);
+        assertThrows(ExpiredJwtException.class, () -> cache.get("token-a", token -> {
+            throw new ExpiredJwtException(null, null, "expired");
+        }, 10_500));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testVerificationFailureIsNotCached() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, 0);
+        Function<String, Claims> failing = token -> {
+            verifications.incrementAndGet();
+            throw new JwtException("bad signature");
+        };
+
+        assertThrows(JwtException.class, () -> cache.get("forged", failing, 1_000));
+        assertThrows(JwtException.class, () -> cache.get("forged", failing, 1_000));
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void testRevokedTokenIsRejectedUntilExpiry() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, 0);
+        Function<String, Claims> verifier = verifierExpiringAt(System.currentTimeMillis() + 60_000);
+        cache.get("token-a", verifier);
+
+        cache.revoke("token-a", new Date(System.currentTimeMillis() + 60_000));
+
+        assertThrows(JwtException.class, () -> cache.get("token-a", verifier));
+        assertEquals(0, cache.size());
+        // 其他令牌不受影响
+        assertNotNull(cache.get("token-b", verifier));
+    }
+
+    @Test
+    void testBoundedSize() {
+        JwtClaimsCache cache = new JwtClaimsCache(2, 0);
+        Function<String, Claims> verifier = verifierExpiringAt(10_000);
+
+        cache.get("token-a", verifier, 1_000);
+        cache.get("token-b", verifier, 1_000);
+        cache.get("token-c", verifier, 1_000);
+
+        assertEquals(2, cache.size());
+        cache.get("token-c", verifier, 1_000);
+        assertEquals(3, verifications.get());
+    }
+
+    private Function<String, Claims> verifierExpiringAt(long expirationMillis) {
+        return token -> {
+            verifications.incrementAndGet();
+            return Jwts.claims().setSubject(token).setExpiration(new Date(expirationMillis));
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.dto.CursorPage;
+import com.ljyh.foodieconnect.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 11, 26, 12, 30, 15, 123_000_000);
+        String cursor = KeysetCursor.encode(42L, createdAt, new BigDecimal("4.50"), 17);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor, 3);
+
+        assertEquals(42L, decoded.getId());
+        assertEquals(createdAt, decoded.timeKey(0));
+        assertEquals(new BigDecimal("4.50"), decoded.decimalKey(1));
+        assertEquals(17L, decoded.longKey(2));
+        // 游标可以直接放在URL参数中
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void testNullKeyAndBlankCursor() {
+        KeysetCursor decoded = KeysetCursor.decode(KeysetCursor.encode(7L, (Object) null), 1);
+        assertNull(decoded.decimalKey(0));
+        assertEquals(7L, decoded.getId());
+
+        assertNull(KeysetCursor.decode(null, 1));
+        assertNull(KeysetCursor.decode(" ", 1));
+    }
+
+    @Test
+    void testInvalidCursorRejected() {
+        String twoKeys = KeysetCursor.encode(1L, "a", "b");
+        String timeKey = KeysetCursor.encode(1L, "not-a-time");
+
+        for (Runnable decode : List.<Runnable>of(
+                () -> KeysetCursor.decode("%%%", 1),
+                () -> KeysetCursor.decode("MTIz", 1),
+                () -> KeysetCursor.decode(twoKeys, 1),
+                () -> KeysetCursor.decode(timeKey, 1).timeKey(0))) {
+            BusinessException exception = assertThrows(BusinessException.class, decode::run);
+            assertEquals("INVALID_CURSOR", exception.getCode());
+        }
+    }
+
+    @Test
+    void testPageTrimsExtraRowAndBuildsNextCursor() {
+        CursorPage<Long> page = KeysetCursor.page(List.of(5L, 4L, 3L), 2, id -> KeysetCursor.encode(id));
+        assertEquals(List.of(5L, 4L), page.getRecords());
+        assertTrue(page.isHasMore());
+        assertEquals(4L, KeysetCursor.decode(page.getNextCursor(), 0).getId());
+
+        CursorPage<Long> last = KeysetCursor.page(List.of(2L), 2, id -> KeysetCursor.encode(id));
+        assertEquals(List.of(2L), last.getRecords());
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void testLimitClamped() {
+        assertEquals(1, KeysetCursor.limit(0));
+        assertEquals(20, KeysetCursor.limit(20));
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, KeysetCursor.limit(10_000));
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class MerchantAuthServiceTest {
@@ -39,6 +40,12 @@ class MerchantAuthServiceTest {
     @Mock
     private ChatRoomMapper chatRoomMapper;
 
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private CatalogSearchIndex catalogSearchIndex;
+
     @InjectMocks
     private MerchantAuthService merchantAuthService;
     
@@ -282,6 +289,7 @@ class MerchantAuthServiceTest {
         
         // 执行测试
         assertDoesNotThrow(() -> merchantAuthService.changePassword(username, oldPassword, newPassword));
+        verify(principalCache).evict(PrincipalCache.PrincipalType.MERCHANT, username);
     }
     
     @Test
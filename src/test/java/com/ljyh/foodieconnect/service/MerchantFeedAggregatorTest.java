@@ -0,0 +1,129 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.entity.ChatRoom;
+import com.ljyh.foodieconnect.entity.ChatRoomMessage;
+import com.ljyh.foodieconnect.mapper.ChatRoomMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MerchantFeedAggregatorTest {
+
+    @Mock
+    private ChatRoomMapper chatRoomMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private MerchantFeedAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new MerchantFeedAggregator(chatRoomMapper, eventPublisher, 2, 4);
+    }
+
+    @Test
+    void testAggregatesRoomActivityIntoOneFeedPerRestaurant() {
+        subscribe(100L, 1L, 2L);
+
+        aggregator.recordPresence(1L, 5L, true);
+        aggregator.recordPresence(1L, 6L, true);
+        aggregator.recordPresence(1L, 6L, false);
+        aggregator.recordMessage(message(10L, 2L, "hi"));
+        aggregator.handleOnlineCountsChanged(new ChatRoomOnlineCounter.OnlineCountsChangedEvent(Map.of(1L, 7)));
+
+        assertEquals(1, aggregator.flush());
+
+        MerchantFeedAggregator.Feed feed = publishedFeeds().get(100L);
+        MerchantFeedAggregator.RoomDelta room1 = feed.getRooms().get(1L);
+        assertEquals(List.of(5L), room1.getJoinedUserIds());
+        assertEquals(List.of(6L), room1.getLeftUserIds());
+        assertEquals(7, room1.getOnlineUserCount());
+        MerchantFeedAggregator.RoomDelta room2 = feed.getRooms().get(2L);
+        assertNull(room2.getOnlineUserCount());
+        assertEquals(1, room2.getMessageCount());
+        assertEquals(10L, feed.getMessages().get(0).getId());
+    }
+
+    @Test
+    void testKeepsLatestMessagesAndTruncatesPreview() {
+        subscribe(100L, 1L);
+
+        aggregator.recordMessage(message(1L, 1L, "first"));
+        aggregator.recordMessage(message(2L, 1L, "second"));
+        aggregator.recordMessage(message(3L, 1L, "third"));
+        aggregator.flush();
+
+        MerchantFeedAggregator.Feed feed = publishedFeeds().get(100L);
+        assertTrue(feed.isMessagesTruncated());
+        assertEquals(3, feed.getRooms().get(1L).getMessageCount());
+        assertEquals(List.of(2L, 3L), feed.getMessages().stream().map(ChatRoomMessage::getId).toList());
+        assertEquals("seco", feed.getMessages().get(0).getContent());
+    }
+
+    @Test
+    void testIgnoresUnsubscribedRooms() {
+        subscribe(100L, 1L);
+        aggregator.unsubscribe(100L);
+
+        aggregator.recordMessage(message(1L, 1L, "hi"));
+        aggregator.recordPresence(1L, 5L, true);
+
+        assertEquals(0, aggregator.flush());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testKeepsWatchingUntilLastSubscriberLeaves() {
+        subscribe(100L, 1L);
+        subscribe(100L, 1L);
+        aggregator.unsubscribe(100L);
+
+        aggregator.recordPresence(1L, 5L, true);
+
+        assertEquals(1, aggregator.flush());
+    }
+
+    private void subscribe(Long restaurantId, Long... roomIds) {
+        List<ChatRoom> rooms = new ArrayList<>();
+        for (Long roomId : roomIds) {
+            ChatRoom room = new ChatRoom();
+            room.setId(roomId);
+            room.setRestaurantId(restaurantId);
+            rooms.add(room);
+        }
+        when(chatRoomMapper.findAllByRestaurantId(restaurantId)).thenReturn(rooms);
+        assertEquals(rooms, aggregator.subscribe(restaurantId));
+    }
+
+    private ChatRoomMessage message(Long id, Long roomId, String content) {
+        ChatRoomMessage message = new ChatRoomMessage();
+        message.setId(id);
+        message.setRoomId(roomId);
+        message.setSenderId(5L);
+        message.setContent(content);
+        return message;
+    }
+
+    private Map<Long, MerchantFeedAggregator.Feed> publishedFeeds() {
+        ArgumentCaptor<MerchantFeedAggregator.MerchantFeedEvent> captor =
+                ArgumentCaptor.forClass(MerchantFeedAggregator.MerchantFeedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return captor.getValue().getFeeds();
+    }
+}
@@ -0,0 +1,55 @@
+package com.ljyh.foodieconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefixSuggesterTest {
+
+    @Test
+    void testPinyinInitials() {
+        assertEquals("gbjd", SearchTokenizer.pinyinInitials("宫保鸡丁"));
+        assertEquals("kfc1h", SearchTokenizer.pinyinInitials("KFC 1号"));
+    }
+
+    @Test
+    void testPrefixAndInitialsMatchOrderedByPopularity() {
+        PrefixSuggester suggester = new PrefixSuggester(16);
+        suggester.rebuild(List.of(
+                suggestion("D:宫保鸡丁", "宫保鸡丁", 5),
+                suggestion("D:宫保虾球", "宫保虾球", 9),
+                suggestion("D:鱼香肉丝", "鱼香肉丝", 20)));
+
+        assertEquals(List.of("宫保虾球", "宫保鸡丁"), texts(suggester.suggest("宫保", 10)));
+        assertEquals(List.of("宫保鸡丁"), texts(suggester.suggest("gbj", 10)));
+        assertEquals(List.of("宫保虾球"), texts(suggester.suggest("宫", 1)));
+        assertTrue(suggester.suggest("麻", 10).isEmpty());
+    }
+
+    @Test
+    void testDeltaOverridesSortedEntriesAndCompacts() {
+        PrefixSuggester suggester = new PrefixSuggester(2);
+        suggester.rebuild(List.of(suggestion("D:牛肉面", "牛肉面", 1), suggestion("D:牛杂", "牛杂", 2)));
+
+        suggester.put(suggestion("D:牛肉面", "牛肉面", 10));
+        suggester.remove("D:牛杂");
+        assertEquals(List.of("牛肉面"), texts(suggester.suggest("牛", 10)));
+        assertEquals(10, suggester.suggest("nrm", 10).get(0).getPopularity());
+
+        // 超过覆盖表上限后合并，结果不变
+        suggester.put(suggestion("D:牛排", "牛排", 3));
+        suggester.put(suggestion("D:牛腩", "牛腩", 4));
+        assertEquals(List.of("牛肉面", "牛腩", "牛排"), texts(suggester.suggest("牛", 10)));
+        assertEquals(3, suggester.size());
+    }
+
+    private PrefixSuggester.Suggestion suggestion(String key, String text, double popularity) {
+        return new PrefixSuggester.Suggestion(key, PrefixSuggester.SuggestionType.DISH, text, null, popularity);
+    }
+
+    private List<String> texts(List<PrefixSuggester.Suggestion> suggestions) {
+        return suggestions.stream().map(PrefixSuggester.Suggestion::getText).toList();
+    }
+}
@@ -0,0 +1,110 @@
+package com.ljyh.foodieconnect.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrincipalCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private PrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PrincipalCache(meterRegistry, 1_000, 10, false);
+    }
+
+    @Test
+    void testRepeatedSubjectHitsCacheUntilTtl() {
+        Function<String, UserDetails> loader = loader();
+
+        UserDetails first = cache.load(PrincipalCache.PrincipalType.USER, "a@test.com", loader, 0);
+        UserDetails second = cache.load(PrincipalCache.PrincipalType.USER, "a@test.com", loader, 999);
+        cache.load(PrincipalCache.PrincipalType.USER, "a@test.com", loader, 1_000);
+
+        assertSame(first, second);
+        assertEquals(2, loads.get());
+        assertEquals(1.0, meterRegistry.get("auth.principal.cache").tag("result", "hit").counter().count());
+        assertEquals(2.0, meterRegistry.get("auth.principal.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testUserAndMerchantSubjectsAreSeparate() {
+        Function<String, UserDetails> loader = loader();
+
+        cache.load(PrincipalCache.PrincipalType.USER, "same-name", loader, 0);
+        cache.load(PrincipalCache.PrincipalType.MERCHANT, "same-name", loader, 0);
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testEvictForcesReload() {
+        Function<String, UserDetails> loader = loader();
+        cache.load(PrincipalCache.PrincipalType.MERCHANT, "merchant", loader, 0);
+
+        cache.evict(PrincipalCache.PrincipalType.MERCHANT, "merchant");
+        cache.load(PrincipalCache.PrincipalType.MERCHANT, "merchant", loader, 0);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadRacingWithEvictIsNotCached() {
+        Function<String, UserDetails> staleLoader = subject -> {
+            // 加载期间另一个线程修改了密码
+            cache.evict(PrincipalCache.PrincipalType.USER, subject);
+            return loader().apply(subject);
+        };
+
+        cache.load(PrincipalCache.PrincipalType.USER, "a@test.com", staleLoader, 0);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLoadFailureIsNotCached() {
+        Function<String, UserDetails> failing = subject -> {
+            loads.incrementAndGet();
+            throw new UsernameNotFoundException("用户不存在: " + subject);
+        };
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> cache.load(PrincipalCache.PrincipalType.USER, "missing", failing, 0));
+        assertThrows(UsernameNotFoundException.class,
+                () -> cache.load(PrincipalCache.PrincipalType.USER, "missing", failing, 0));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testClaimsPrincipalOnlyForReadsWhenEnabled() {
+        PrincipalCache claimsCache = new PrincipalCache(meterRegistry, 1_000, 10, true);
+
+        assertFalse(cache.useClaimsPrincipal("GET"));
+        assertTrue(claimsCache.useClaimsPrincipal("GET"));
+        assertTrue(claimsCache.useClaimsPrincipal("HEAD"));
+        assertFalse(claimsCache.useClaimsPrincipal("POST"));
+
+        UserDetails principal = claimsCache.fromClaims("merchant", "ROLE_ADMIN");
+        assertEquals("merchant", principal.getUsername());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().iterator().next().getAuthority());
+    }
+
+    private Function<String, UserDetails> loader() {
+        return subject -> {
+            loads.incrementAndGet();
+            return User.withUsername(subject).password("hash").roles("USER").build();
+        };
+    }
+}
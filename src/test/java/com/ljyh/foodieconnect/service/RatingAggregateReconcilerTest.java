@@ -0,0 +1,83 @@
+package com.ljyh.foodieconnect.service;
+
+import com.ljyh.foodieconnect.exception.BusinessException;
+import com.ljyh.foodieconnect.mapper.DishReviewSummaryMapper;
+import com.ljyh.foodieconnect.mapper.MenuItemMapper;
+import com.ljyh.foodieconnect.mapper.RestaurantMapper;
+import com.ljyh.foodieconnect.mapper.StaffMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 评分聚合校对测试类
+ */
+class RatingAggregateReconcilerTest {
+
+    @Mock
+    private RestaurantMapper restaurantMapper;
+
+    @Mock
+    private MenuItemMapper menuItemMapper;
+
+    @Mock
+    private StaffMapper staffMapper;
+
+    @Mock
+    private DishReviewSummaryMapper dishReviewSummaryMapper;
+
+    @Mock
+    private RestaurantService restaurantService;
+
+    @Mock
+    private MenuItemService menuItemService;
+
+    @Mock
+    private StaffReviewService staffReviewService;
+
+    @Mock
+    private DishReviewSummaryService dishReviewSummaryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testReconcileRecalculatesDriftedRows() {
+        when(restaurantMapper.findRatingAggregateDrift(100)).thenReturn(List.of(1L, 2L));
+        when(menuItemMapper.findRatingAggregateDrift(100)).thenReturn(List.of(7L));
+        when(staffMapper.findRatingAggregateDrift(100)).thenReturn(List.of());
+        when(dishReviewSummaryMapper.findDrift(100)).thenReturn(List.of(1L));
+        // 比对后餐厅2已被删除
+        doThrow(new BusinessException("RESTAURANT_NOT_FOUND", "餐厅不存在"))
+                .when(restaurantService).updateRestaurantRating(2L);
+
+        int repaired = reconciler(true).reconcile();
+
+        assertEquals(3, repaired);
+        verify(restaurantService).updateRestaurantRating(1L);
+        verify(menuItemService).updateMenuItemRating(7L);
+        verify(dishReviewSummaryService).refresh(1L);
+        verifyNoInteractions(staffReviewService);
+    }
+
+    @Test
+    void testDisabledReconcileDoesNothing() {
+        assertEquals(0, reconciler(false).reconcile());
+        verify(restaurantMapper, never()).findRatingAggregateDrift(anyInt());
+        verifyNoInteractions(menuItemMapper, staffMapper, dishReviewSummaryMapper);
+    }
+
+    private RatingAggregateReconciler reconciler(boolean enabled) {
+        return new RatingAggregateReconciler(restaurantMapper, menuItemMapper, staffMapper, dishReviewSummaryMapper,
+                restaurantService, menuItemService, staffReviewService, dishReviewSummaryService, enabled, 100);
+    }
+}
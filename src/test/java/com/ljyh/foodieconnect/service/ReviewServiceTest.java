@@ -0,0 +1,155 @@
+package com.ljyh.foodieconnect.service;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ljyh.foodieconnect.entity.Restaurant;
+import com.ljyh.foodieconnect.entity.Review;
+import com.ljyh.foodieconnect.entity.ReviewImage;
+import com.ljyh.foodieconnect.entity.User;
+import com.ljyh.foodieconnect.mapper.ReviewImageMapper;
+import com.ljyh.foodieconnect.mapper.ReviewMapper;
+import com.ljyh.foodieconnect.mapper.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 评论服务测试类
+ */
+class ReviewServiceTest {
+
+    @Mock
+    private ReviewMapper reviewMapper;
+
+    @Mock
+    private RestaurantService restaurantService;
+
+    @Mock
+    private ReviewImageMapper reviewImageMapper;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @InjectMocks
+    private ReviewService reviewService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testGetRestaurantReviewsPagesIdsThenBatchLoads() {
+        Page<Long> idPage = new Page<>(0, 2, 3);
+        idPage.setRecords(List.of(2L, 1L));
+        when(reviewMapper.findIdsByRestaurantId(any(), eq(10L))).thenReturn(idPage);
+        // 批量查询不保证顺序
+        when(reviewMapper.selectBatchIds(List.of(2L, 1L))).thenReturn(List.of(review(1L, 100L), review(2L, 200L)));
+        when(userMapper.selectBatchIds(anyCollection())).thenReturn(List.of(user(100L, "张三"), user(200L, "李四")));
+        when(reviewImageMapper.selectByReviewIds(anyCollection())).thenReturn(List.of(image(2L, "/a.jpg"), image(2L, "/b.jpg")));
+
+        Page<Review> page = reviewService.getRestaurantReviews(10L, 0, 2);
+
+        assertEquals(3, page.getTotal());
+        assertEquals(List.of(2L, 1L), page.getRecords().stream().map(Review::getId).toList());
+        assertEquals("李四", page.getRecords().get(0).getUserName());
+        assertEquals(2, page.getRecords().get(0).getImages().size());
+        assertTrue(page.getRecords().get(1).getImages().isEmpty());
+        verify(userMapper, never()).selectById(any());
+        verify(reviewImageMapper, never()).selectByReviewId(any());
+    }
+
+    @Test
+    void testGetUserReviewsEmptyPageSkipsBatchLoads() {
+        Page<Long> idPage = new Page<>(5, 10, 3);
+        idPage.setRecords(List.of());
+        when(reviewMapper.findIdsByUserId(any(), eq(100L))).thenReturn(idPage);
+
+        Page<Review> page = reviewService.getUserReviews(100L, 5, 10);
+
+        assertEquals(3, page.getTotal());
+        assertTrue(page.getRecords().isEmpty());
+        verify(reviewMapper, never()).selectBatchIds(any());
+        verifyNoInteractions(userMapper, reviewImageMapper);
+    }
+
+    @Test
+    void testUpdateReviewAppliesRatingDelta() {
+        Review existing = review(1L, 100L);
+        when(reviewMapper.selectById(1L)).thenReturn(existing);
+
+        reviewService.updateReview(1L, 100L, 3, "一般");
+
+        verify(reviewMapper).updateById(existing);
+        verify(restaurantService).applyReviewRating(10L, 3, 5);
+        verify(restaurantService, never()).updateRestaurantRating(any());
+    }
+
+    @Test
+    void testUpdateCommentOnlySkipsRatingDelta() {
+        when(reviewMapper.selectById(1L)).thenReturn(review(1L, 100L));
+
+        reviewService.updateReview(1L, 100L, null, "补充一下");
+
+        verifyNoInteractions(restaurantService);
+    }
+
+    @Test
+    void testDeleteReviewRemovesRating() {
+        when(reviewMapper.selectById(1L)).thenReturn(review(1L, 100L));
+
+        reviewService.deleteReview(1L, 100L);
+
+        verify(reviewMapper).deleteById(1L);
+        verify(restaurantService).applyReviewRating(10L, null, 5);
+    }
+
+    @Test
+    void testRestaurantStatsReadFromAggregate() {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(10L);
+        restaurant.setRating(new BigDecimal("4.33"));
+        restaurant.setReviewCount(3);
+        when(restaurantService.getById(10L)).thenReturn(restaurant);
+
+        assertEquals(4.33, reviewService.calculateAverageRating(10L));
+        assertEquals(3, reviewService.countReviewsByRestaurantId(10L));
+        verify(reviewMapper, never()).calculateAverageRating(any());
+        verify(reviewMapper, never()).countByRestaurantId(any());
+
+        restaurant.setRating(BigDecimal.ZERO);
+        restaurant.setReviewCount(0);
+        assertNull(reviewService.calculateAverageRating(10L));
+    }
+
+    private Review review(Long id, Long userId) {
+        Review review = new Review();
+        review.setId(id);
+        review.setRestaurantId(10L);
+        review.setUserId(userId);
+        review.setRating(5);
+        return review;
+    }
+
+    private User user(Long id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setDisplayName(name);
+        return user;
+    }
+
+    private ReviewImage image(Long reviewId, String url) {
+        ReviewImage image = new ReviewImage();
+        image.setReviewId(reviewId);
+        image.setImageUrl(url);
+        return image;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ljyh.foodieconnect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testAllowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(now, 2, 3));
+        }
+        long wait = bucket.tryAcquire(now, 2, 3);
+        assertEquals(SECOND / 2, wait);
+
+        // 半秒后补充一个令牌
+        assertEquals(0, bucket.tryAcquire(now + SECOND / 2, 2, 3));
+        assertTrue(bucket.tryAcquire(now + SECOND / 2, 2, 3) > 0);
+    }
+
+    @Test
+    void testRefundReturnsToken() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 0;
+
+        assertEquals(0, bucket.tryAcquire(now, 1, 1));
+        assertTrue(bucket.tryAcquire(now, 1, 1) > 0);
+        bucket.refund(now, 1);
+
+        assertEquals(0, bucket.tryAcquire(now, 1, 1));
+    }
+
+    @Test
+    void testIdleAfterFullRefill() {
+        TokenBucket bucket = new TokenBucket();
+        assertTrue(bucket.isIdle(0));
+
+        bucket.tryAcquire(0, 10, 5);
+        assertFalse(bucket.isIdle(0));
+        assertTrue(bucket.isIdle(SECOND / 10));
+    }
+
+    @Test
+    void testConcurrentAcquireNeverExceedsBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket();
+        long now = System.nanoTime();
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(now, 0.001, 50) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(50, granted.get());
+    }
+}
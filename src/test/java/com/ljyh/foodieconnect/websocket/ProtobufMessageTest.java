@@ -4,6 +4,9 @@ import com.ljyh.foodieconnect.protobuf.ChatProtos;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -109,4 +112,91 @@ public class ProtobufMessageTest {
         assertEquals(1L, leaveResponse.getLeaveResponse().getRoomId());
         assertEquals("Left successfully", leaveResponse.getLeaveResponse().getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testResumeRequestAndResponse() throws Exception {
+        ChatProtos.ResumeRequest request = ChatProtos.ResumeRequest.newBuilder()
+                .setRoomId(1L)
+                .setLastMessageId(42L)
+                .build();
+        ChatProtos.WebSocketMessage webSocketMessage = ProtobufMessageConverter.wrapWebSocketMessage("RESUME", request);
+
+        ChatProtos.ResumeRequest unwrapped = ProtobufMessageConverter.unwrapWebSocketMessage(
+            webSocketMessage, ChatProtos.ResumeRequest.class);
+        assertNotNull(unwrapped);
+        assertEquals(42L, unwrapped.getLastMessageId());
+
+        ChatProtos.ChatMessage missed = ChatProtos.ChatMessage.newBuilder()
+                .setId(43L)
+                .setRoomId(1L)
+                .setContent("missed")
+                .build();
+        ChatProtos.ChatResponse response = ProtobufMessageConverter.createResumeResponse(1L, List.of(missed), false);
+
+        ChatProtos.ChatResponse parsed = ChatProtos.ChatResponse.parseFrom(response.toByteArray());
+        assertTrue(parsed.hasResumeResponse());
+        assertEquals(1, parsed.getResumeResponse().getMessagesCount());
+        assertEquals(43L, parsed.getResumeResponse().getMessages(0).getId());
+        assertFalse(parsed.getResumeResponse().getTruncated());
+    }
+
+    @Test
+    public void testV2EnvelopeParsedOnce() throws Exception {
+        ChatProtos.SendMessageRequest request = ProtobufMessageConverter.createSendMessageRequest(1L, "v2 message");
+        ChatProtos.WebSocketMessage envelope = ProtobufMessageConverter.wrapEnvelope(request);
+
+        ChatProtos.WebSocketMessage parsed = ChatProtos.WebSocketMessage.parseFrom(envelope.toByteArray());
+        assertEquals(ChatProtos.WebSocketMessage.BodyCase.SEND_MESSAGE, parsed.getBodyCase());
+        assertSame(parsed, ProtobufMessageConverter.normalizeEnvelope(parsed));
+        assertEquals("v2 message", parsed.getSendMessage().getContent());
+
+        ChatProtos.SendMessageRequest unwrapped = ProtobufMessageConverter.unwrapWebSocketMessage(
+            parsed, ChatProtos.SendMessageRequest.class);
+        assertNotNull(unwrapped);
+        assertNull(ProtobufMessageConverter.unwrapWebSocketMessage(parsed, ChatProtos.JoinRoomRequest.class));
+    }
+
+    @Test
+    public void testV1EnvelopeNormalizedToV2() throws Exception {
+        ChatProtos.JoinRoomRequest request = ProtobufMessageConverter.createJoinRoomRequest(7L);
+        ChatProtos.WebSocketMessage legacy = ProtobufMessageConverter.wrapWebSocketMessage("JOIN_ROOM", request);
+
+        ChatProtos.WebSocketMessage normalized = ProtobufMessageConverter.normalizeEnvelope(legacy);
+        assertNotNull(normalized);
+        assertEquals(ChatProtos.WebSocketMessage.BodyCase.JOIN_ROOM, normalized.getBodyCase());
+        assertEquals(7L, normalized.getJoinRoom().getRoomId());
+
+        ChatProtos.WebSocketMessage unknown = ChatProtos.WebSocketMessage.newBuilder().setType("UNKNOWN").build();
+        assertNull(ProtobufMessageConverter.normalizeEnvelope(unknown));
+    }
+
+    @Test
+    public void testTypingAndReadReceiptEnvelopes() throws Exception {
+        ChatProtos.TypingRequest typing = ChatProtos.TypingRequest.newBuilder().setRoomId(3L).setTyping(true).build();
+        ChatProtos.WebSocketMessage legacy = ProtobufMessageConverter.wrapWebSocketMessage("TYPING", typing);
+        ChatProtos.WebSocketMessage normalized = ProtobufMessageConverter.normalizeEnvelope(legacy);
+        assertEquals(ChatProtos.WebSocketMessage.BodyCase.TYPING, normalized.getBodyCase());
+        assertTrue(normalized.getTyping().getTyping());
+
+        ChatProtos.ReadReceiptRequest receipt = ChatProtos.ReadReceiptRequest.newBuilder()
+                .setRoomId(3L)
+                .setLastReadMessageId(42L)
+                .build();
+        ChatProtos.WebSocketMessage envelope = ProtobufMessageConverter.wrapEnvelope(receipt);
+        ChatProtos.ReadReceiptRequest unwrapped = ProtobufMessageConverter.unwrapWebSocketMessage(
+            ChatProtos.WebSocketMessage.parseFrom(envelope.toByteArray()), ChatProtos.ReadReceiptRequest.class);
+        assertEquals(42L, unwrapped.getLastReadMessageId());
+    }
+
+    @Test
+    public void testRoomActivityResponse() throws Exception {
+        ChatProtos.ChatResponse response = ProtobufMessageConverter.createRoomActivityResponse(
+            3L, List.of(5L, 6L), Map.of(5L, 100L));
+
+        ChatProtos.ChatResponse parsed = ChatProtos.ChatResponse.parseFrom(response.toByteArray());
+        assertEquals(ChatProtos.ChatResponse.PayloadCase.ACTIVITY, parsed.getPayloadCase());
+        assertEquals(List.of(5L, 6L), parsed.getActivity().getTypingUserIdsList());
+        assertEquals(5L, parsed.getActivity().getReadMarks(0).getUserId());
+        assertEquals(100L, parsed.getActivity().getReadMarks(0).getLastReadMessageId());
+    }
+}
@@ -0,0 +1,104 @@
+package com.ljyh.foodieconnect.websocket;
+
+import com.ljyh.foodieconnect.protobuf.ChatProtos;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 聊天室消息微批处理测试类
+ */
+public class RoomMessageBatcherTest {
+
+    @Test
+    public void testMessagesWithinWindowAreCoalesced() throws Exception {
+        List<List<ChatProtos.ChatMessage>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        RoomMessageBatcher batcher = new RoomMessageBatcher(50, 100, 1, (roomId, messages) -> {
+            batches.add(messages);
+            latch.countDown();
+        });
+
+        for (long id = 1; id <= 3; id++) {
+            batcher.submit(1L, message(id));
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+        assertEquals(List.of(1L, 2L, 3L), batches.get(0).stream().map(ChatProtos.ChatMessage::getId).toList());
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testFullBatchIsFlushedImmediately() throws Exception {
+        List<List<ChatProtos.ChatMessage>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        RoomMessageBatcher batcher = new RoomMessageBatcher(10_000, 2, 1, (roomId, messages) -> {
+            batches.add(messages);
+            latch.countDown();
+        });
+
+        batcher.submit(1L, message(1L));
+        batcher.submit(1L, message(2L));
+
+        // 窗口为10秒，达到批次上限后应立即投递
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(2, batches.get(0).size());
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testZeroWindowDeliversSingleMessages() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        RoomMessageBatcher batcher = new RoomMessageBatcher(0, 50, 1, (roomId, messages) -> {
+            sizes.add(messages.size());
+            latch.countDown();
+        });
+
+        batcher.submit(1L, message(1L));
+        batcher.submit(1L, message(2L));
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 1), sizes);
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testSlowRoomDoesNotBlockOtherShards() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        RoomMessageBatcher batcher = new RoomMessageBatcher(0, 50, 2, (roomId, messages) -> {
+            if (roomId == 2L) {
+                try {
+                    // 模拟慢连接阻塞投递线程
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                delivered.countDown();
+            }
+        });
+
+        batcher.submit(2L, message(1L));
+        batcher.submit(1L, message(2L));
+
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        release.countDown();
+        batcher.shutdown();
+    }
+
+    private ChatProtos.ChatMessage message(long id) {
+        return ChatProtos.ChatMessage.newBuilder()
+                .setId(id)
+                .setRoomId(1L)
+                .setContent("message " + id)
+                .build();
+    }
+}
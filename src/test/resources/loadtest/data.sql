@@ -0,0 +1,13 @@
+-- 压测种子数据：50个餐厅/聊天室，2000个用户
+-- 用户 i 属于聊天室 ((i - 1) % 50) + 1，压测客户端按同样规则分配用户
+INSERT INTO restaurants (id, name, type, address, phone)
+SELECT X, CONCAT('压测餐厅', X), '中餐', '压测地址', '000-0000' FROM SYSTEM_RANGE(1, 50);
+
+INSERT INTO chat_rooms (id, restaurant_id, name, verification_code, status)
+SELECT X, X, CONCAT('压测聊天室', X), CONCAT('LT', LPAD(X, 4, '0')), 'ACTIVE' FROM SYSTEM_RANGE(1, 50);
+
+INSERT INTO users (id, email, display_name, password_hash, status)
+SELECT X, CONCAT('load', X, '@loadtest.local'), CONCAT('压测用户', X), '-', 'ACTIVE' FROM SYSTEM_RANGE(1, 2000);
+
+INSERT INTO chat_room_members (room_id, user_id, is_online, role)
+SELECT MOD(X - 1, 50) + 1, X, 0, 'MEMBER' FROM SYSTEM_RANGE(1, 2000);
@@ -0,0 +1,91 @@
+-- 压测用内存数据库表结构（H2 MySQL兼容模式）
+-- 只包含聊天链路涉及的表，字段与 database/foodieconnect_latest.sql 保持一致
+
+CREATE TABLE IF NOT EXISTS users (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  email VARCHAR(255) NOT NULL UNIQUE,
+  display_name VARCHAR(100) DEFAULT NULL,
+  avatar_url VARCHAR(500) DEFAULT NULL,
+  bio TEXT,
+  password_hash VARCHAR(255) NOT NULL,
+  status VARCHAR(20) DEFAULT 'ACTIVE',
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS restaurants (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  name VARCHAR(200) NOT NULL,
+  type VARCHAR(100) NOT NULL,
+  distance VARCHAR(50) DEFAULT NULL,
+  description TEXT,
+  address VARCHAR(500) NOT NULL,
+  phone VARCHAR(20) NOT NULL,
+  hours VARCHAR(100) DEFAULT NULL,
+  rating DECIMAL(3,2) DEFAULT 0.00,
+  review_count INT DEFAULT 0,
+  is_open TINYINT DEFAULT 1,
+  avatar VARCHAR(10) DEFAULT NULL,
+  image_url VARCHAR(500) DEFAULT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS chat_rooms (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  restaurant_id BIGINT NOT NULL,
+  name VARCHAR(200) DEFAULT 'Restaurant Chat Room',
+  verification_code VARCHAR(10) NOT NULL,
+  status VARCHAR(20) DEFAULT 'ACTIVE',
+  last_message TEXT,
+  last_message_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  online_user_count INT DEFAULT 0,
+  verification_code_generated_at DATETIME DEFAULT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_chat_rooms_restaurant_id ON chat_rooms (restaurant_id);
+
+CREATE TABLE IF NOT EXISTS chat_room_members (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  room_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  is_online TINYINT DEFAULT 1,
+  role VARCHAR(20) DEFAULT 'MEMBER',
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_chat_room_members_room_user ON chat_room_members (room_id, user_id, is_online);
+
+CREATE TABLE IF NOT EXISTS chat_room_messages (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  room_id BIGINT NOT NULL,
+  sender_id BIGINT NOT NULL,
+  content TEXT NOT NULL,
+  message_type VARCHAR(20) DEFAULT 'TEXT',
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_chat_room_messages_room_created_at ON chat_room_messages (room_id, created_at);
+
+CREATE TABLE IF NOT EXISTS online_users (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  user_id BIGINT NOT NULL,
+  room_id BIGINT NOT NULL,
+  session_id VARCHAR(255) NOT NULL,
+  connected_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  last_active_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT uk_room_user UNIQUE (room_id, user_id)
+);
+CREATE INDEX IF NOT EXISTS idx_online_users_session_id ON online_users (session_id);
+
+CREATE TABLE IF NOT EXISTS chat_message_retention_checkpoints (
+  job_name VARCHAR(64) NOT NULL PRIMARY KEY,
+  cutoff_time DATETIME NOT NULL,
+  last_deleted_id BIGINT NOT NULL DEFAULT 0,
+  deleted_count BIGINT NOT NULL DEFAULT 0,
+  status VARCHAR(20) NOT NULL,
+  started_at DATETIME NOT NULL,
+  updated_at DATETIME NOT NULL
+);